@@ -0,0 +1,44 @@
+package io.terrakube.api.plugin.completion;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * Single call an executor makes when a step finishes, replacing the getJobById / updateStep /
+ * updateJob chain it used to run through the JSON:API. Only the executor's internal token may
+ * use it.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/completion/v1")
+@AllArgsConstructor
+public class StepCompletionController {
+
+    private final StepCompletionService stepCompletionService;
+
+    @PostMapping(value = "/job/{jobId}/step/{stepId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StepCompletionResponse> completeStep(@PathVariable("jobId") int jobId,
+                                                               @PathVariable("stepId") UUID stepId,
+                                                               @RequestBody StepCompletionRequest request,
+                                                               Principal principal) {
+        if (!(principal instanceof JwtAuthenticationToken token)
+                || !"TerrakubeInternal".equals(token.getTokenAttributes().get("iss"))) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+
+        return stepCompletionService.completeStep(jobId, stepId, request)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> {
+                    log.warn("Cannot complete step {} of job {}, not found", stepId, jobId);
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                });
+    }
+}
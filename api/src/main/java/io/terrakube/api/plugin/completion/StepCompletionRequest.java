@@ -0,0 +1,19 @@
+package io.terrakube.api.plugin.completion;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Everything an executor reports when a step finishes. The job status is derived from these
+ * fields on the api side (see StepCompletionService), not sent by the executor.
+ */
+@Getter
+@Setter
+public class StepCompletionRequest {
+    private boolean successful;
+    private boolean plan;
+    private int exitCode;
+    private String output;
+    private String terraformPlan;
+    private String commitId;
+}
@@ -0,0 +1,17 @@
+package io.terrakube.api.plugin.completion;
+
+import io.terrakube.api.rs.job.JobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StepCompletionResponse {
+    /**
+     * false when the step had already been completed by an earlier call with the same step id -
+     * the executor retried after losing the response - and nothing was changed.
+     */
+    private boolean applied;
+    private JobStatus jobStatus;
+    private JobStatus stepStatus;
+}
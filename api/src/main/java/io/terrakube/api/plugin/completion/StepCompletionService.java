@@ -0,0 +1,145 @@
+package io.terrakube.api.plugin.completion;
+
+import io.terrakube.api.plugin.notification.JobNotificationTrigger;
+import io.terrakube.api.plugin.scheduler.ScheduleJobService;
+import io.terrakube.api.plugin.subscription.JobStatusEvent;
+import io.terrakube.api.plugin.subscription.JobStatusPublisher;
+import io.terrakube.api.repository.JobRepository;
+import io.terrakube.api.repository.StepRepository;
+import io.terrakube.api.repository.WorkspaceRepository;
+import io.terrakube.api.rs.job.Job;
+import io.terrakube.api.rs.job.JobStatus;
+import io.terrakube.api.rs.job.step.Step;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.SchedulerException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Applies the end of a step in one transaction: step status and output location, then (unless
+ * the job was rejected or cancelled meanwhile) the job status, plan flag, plan file and commit id.
+ *
+ * The job status rules are the ones the executor used to apply itself before PATCHing the job.
+ * Because this is not an Elide request, the side effects of JobManageHook and
+ * JobNotificationHook are triggered explicitly: workspace last status and notifications inside
+ * the transaction, the follow-up Quartz trigger and the live status event after commit.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class StepCompletionService {
+
+    private static final Set<JobStatus> OPEN_STEP_STATUSES = EnumSet.of(
+            JobStatus.pending, JobStatus.queue, JobStatus.running);
+
+    private final JobRepository jobRepository;
+    private final StepRepository stepRepository;
+    private final WorkspaceRepository workspaceRepository;
+    private final ScheduleJobService scheduleJobService;
+    private final JobStatusPublisher jobStatusPublisher;
+    private final JobNotificationTrigger jobNotificationTrigger;
+
+    @Transactional
+    public Optional<StepCompletionResponse> completeStep(int jobId, UUID stepId, StepCompletionRequest request) {
+        Optional<Job> jobOptional = jobRepository.findById(jobId);
+        Optional<Step> stepOptional = stepRepository.findById(stepId)
+                .filter(step -> step.getJob() != null && step.getJob().getId() == jobId);
+        if (jobOptional.isEmpty() || stepOptional.isEmpty()) {
+            return Optional.empty();
+        }
+        Job job = jobOptional.get();
+        Step step = stepOptional.get();
+
+        // Idempotent: a retry after a lost response finds the step already closed and changes
+        // nothing, so it can't re-trigger the next step or resend notifications.
+        if (!OPEN_STEP_STATUSES.contains(step.getStatus())) {
+            log.info("Step {} of job {} already {}, ignoring repeated completion", stepId, jobId, step.getStatus());
+            return Optional.of(new StepCompletionResponse(false, job.getStatus(), step.getStatus()));
+        }
+
+        // A rejected run keeps showing its approval step as failed: onReject command output is
+        // still saved, but its success must not repaint the step as completed.
+        boolean rejected = job.getStatus() == JobStatus.rejected;
+        step.setStatus(request.isSuccessful() && !rejected ? JobStatus.completed : JobStatus.failed);
+        step.setOutput(request.getOutput());
+        stepRepository.save(step);
+
+        if (rejected || job.getStatus() == JobStatus.cancelled) {
+            log.warn("Job {} was {} when step {} finished, skipping job status update", jobId, job.getStatus(), stepId);
+            return Optional.of(new StepCompletionResponse(true, job.getStatus(), step.getStatus()));
+        }
+
+        JobStatus status = JobStatus.failed;
+        boolean planChanges = true;
+        if (request.isSuccessful()) {
+            status = JobStatus.pending;
+            if (request.isPlan()) {
+                switch (request.getExitCode()) {
+                    case 0 -> {
+                        status = JobStatus.completed;
+                        planChanges = false;
+                    }
+                    case 1 -> {
+                        status = JobStatus.failed;
+                        planChanges = false;
+                    }
+                    // A plan that finds changes normally waits "pending" for an approval/apply
+                    // step. If it is the job's only step (a plan-only template) there is nothing
+                    // left to run it against, so the job is finished.
+                    case 2 -> status = job.getStep() != null && job.getStep().size() > 1 ? JobStatus.pending : JobStatus.completed;
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        log.info("Completing step {} of job {}: job status {}", stepId, jobId, status);
+        job.setStatus(status);
+        job.setPlanChanges(planChanges);
+        job.setOutput(job.getOutput() == null ? "" : job.getOutput() + " Step " + stepId + " completed\n");
+        job.setTerraformPlan(request.getTerraformPlan());
+        job.setCommitId(request.getCommitId());
+        jobRepository.save(job);
+
+        if (job.getWorkspace() != null) {
+            job.getWorkspace().setLastJobStatus(status);
+            job.getWorkspace().setLastJobDate(new Date(System.currentTimeMillis()));
+            workspaceRepository.save(job.getWorkspace());
+        }
+        jobNotificationTrigger.notifyStatusChanged(job);
+        afterCommit(job);
+
+        return Optional.of(new StepCompletionResponse(true, status, step.getStatus()));
+    }
+
+    // Quartz and Redis aren't part of this transaction: scheduling the follow-up run before the
+    // commit would let ScheduleJob read the job's pre-commit status.
+    private void afterCommit(Job job) {
+        int jobId = job.getId();
+        String workspaceId = job.getWorkspace() != null ? job.getWorkspace().getId().toString() : null;
+        String organizationId = job.getOrganization() != null ? job.getOrganization().getId().toString() : null;
+        String status = job.getStatus().name();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    scheduleJobService.createJobContextNow(job);
+                } catch (SchedulerException e) {
+                    log.error("Could not schedule job {} after step completion: {}", jobId, e.getMessage());
+                }
+                if (workspaceId != null && organizationId != null) {
+                    jobStatusPublisher.publish(new JobStatusEvent(jobId, workspaceId, status), organizationId);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package io.terrakube.api.plugin.logs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class LogArchiveExecutorConfig {
+
+    // Archiving a finished job's stream is a storage upload; on its own small pool it can't take
+    // threads from notification delivery, and a burst of finishing jobs can't delay those. A full
+    // queue rejects: the caller leaves the streams to LogStreamSweepJob, which archives whatever a
+    // finished job still has in Redis once orphanGraceMinutes have passed.
+    @Bean("logArchiveExecutor")
+    public ThreadPoolTaskExecutor logArchiveExecutor(
+            @Value("${io.terrakube.api.logs.archive.executor.corePoolSize:2}") int corePoolSize,
+            @Value("${io.terrakube.api.logs.archive.executor.maxPoolSize:4}") int maxPoolSize,
+            @Value("${io.terrakube.api.logs.archive.executor.queueCapacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("log-archive-");
+        executor.initialize();
+        return executor;
+    }
+}
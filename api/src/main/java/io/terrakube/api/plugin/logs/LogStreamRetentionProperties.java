@@ -0,0 +1,52 @@
+package io.terrakube.api.plugin.logs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.api.logs")
+public class LogStreamRetentionProperties {
+
+    /**
+     * Approximate upper bound (XTRIM MAXLEN ~) for a running job's log stream. The full output
+     * of every step is still uploaded to storage by the executor, so this only limits how far
+     * back a live tail can scroll while the job is running.
+     */
+    private long streamMaxLength = 100000;
+
+    /**
+     * Copy the log stream to storage (next to the step outputs) before it is deleted from Redis
+     * when the job finishes.
+     */
+    private boolean archiveOnCompletion = true;
+
+    /**
+     * Entries read per XRANGE call while archiving, so a large stream is never pulled in one reply.
+     */
+    private int archivePageSize = 1000;
+
+    /**
+     * How long a finished job's stream may stay in Redis before the sweeper treats it as
+     * orphaned. Gives the normal completion path (ScheduleJob descheduling the job) time to
+     * archive it first.
+     */
+    private int orphanGraceMinutes = 15;
+
+    /**
+     * COUNT hint for the SCAN used by the sweeper.
+     */
+    private int scanCount = 500;
+
+    /**
+     * Largest body a gzipped log batch may inflate to; anything bigger is answered with 413 without
+     * being inflated any further. Far above what an executor batch (maxBatchSize lines) reaches.
+     */
+    private long maxInflatedBodyBytes = 16L * 1024 * 1024;
+}
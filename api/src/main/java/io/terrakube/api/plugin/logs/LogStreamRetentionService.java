@@ -0,0 +1,279 @@
+package io.terrakube.api.plugin.logs;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.terrakube.api.plugin.storage.StorageTypeService;
+import io.terrakube.api.repository.JobRepository;
+import io.terrakube.api.rs.job.Job;
+import io.terrakube.api.rs.job.JobStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.StringRecord;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Owns the lifecycle of the per-job Redis log streams ("jobId" and "jobId-context").
+ *
+ * Streams used to be deleted only when ScheduleJob descheduled a job, and only the plain log
+ * stream at that - the context stream, and every stream of a job whose scheduler died before
+ * descheduling it, stayed in Redis forever. Now a finished job's log stream is archived to
+ * storage and both streams are deleted, and LogStreamSweepJob periodically removes whatever the
+ * normal path missed.
+ */
+@Slf4j
+@Service
+public class LogStreamRetentionService {
+
+    public static final String CONTEXT_SUFFIX = "-context";
+    static final String STREAM_MEMORY_METRIC = "terrakube.redis.job.stream.memory";
+    static final String PENDING_ARCHIVE_METRIC = "terrakube.redis.job.stream.pending.archive";
+    static final String OLDEST_PENDING_ARCHIVE_METRIC = "terrakube.redis.job.stream.pending.archive.oldest";
+
+    // Only the replica that ran a sweep has its figures; the others, and a replica whose last sweep
+    // is this old, report NaN rather than a stale value. Aggregate with max across instances.
+    private static final Duration SWEEP_FIGURES_TTL = Duration.ofMinutes(15);
+
+    private static final Pattern JOB_STREAM_KEY = Pattern.compile("^(\\d+)(" + CONTEXT_SUFFIX + ")?$");
+    private static final List<JobStatus> ACTIVE_STATUSES = List.of(
+            JobStatus.pending, JobStatus.approved, JobStatus.waitingApproval,
+            JobStatus.queue, JobStatus.running);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StorageTypeService storageTypeService;
+    private final JobRepository jobRepository;
+    private final LogStreamRetentionProperties properties;
+    private volatile SweepFigures lastSweep;
+
+    private record SweepFigures(long activeStreamBytes, int pendingArchive, long oldestPendingArchiveSeconds,
+                                Instant takenAt) {
+    }
+
+    public LogStreamRetentionService(RedisTemplate<String, Object> redisTemplate,
+                                     StorageTypeService storageTypeService,
+                                     JobRepository jobRepository,
+                                     LogStreamRetentionProperties properties,
+                                     MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.storageTypeService = storageTypeService;
+        this.jobRepository = jobRepository;
+        this.properties = properties;
+        Gauge.builder(STREAM_MEMORY_METRIC, this, service -> service.fromLastSweep(SweepFigures::activeStreamBytes))
+                .description("Redis memory used by the log streams of active jobs, as of the last sweep")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(PENDING_ARCHIVE_METRIC, this, service -> service.fromLastSweep(SweepFigures::pendingArchive))
+                .description("Finished jobs whose log streams are still in Redis, as of the last sweep")
+                .register(meterRegistry);
+        Gauge.builder(OLDEST_PENDING_ARCHIVE_METRIC, this,
+                        service -> service.fromLastSweep(SweepFigures::oldestPendingArchiveSeconds))
+                .description("How long ago the oldest finished job still in Redis finished, as of the last sweep")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // Called once ScheduleJob's transaction has committed - reading and uploading a large stream
+    // on the Quartz thread would hold its execution lock for as long as the upload takes. Throws
+    // TaskRejectedException when the archive pool is full.
+    @Async("logArchiveExecutor")
+    public void archiveAndDeleteAsync(int jobId, String organizationId) {
+        archiveAndDelete(jobId, organizationId);
+    }
+
+    /**
+     * Archives the job's log stream to storage (when enabled and an organization is known) and
+     * deletes both of the job's streams. A failed archive doesn't keep the streams around: the
+     * step outputs the UI falls back to are already in storage, so the archive is a convenience
+     * copy, not the source of truth.
+     */
+    public void archiveAndDelete(int jobId, String organizationId) {
+        String streamKey = String.valueOf(jobId);
+        if (properties.isArchiveOnCompletion() && organizationId != null) {
+            try {
+                byte[] archive = readCompressed(streamKey);
+                if (archive.length > 0) {
+                    storageTypeService.archiveJobLogs(organizationId, streamKey, archive);
+                    log.info("Archived log stream for job {} ({} bytes compressed)", jobId, archive.length);
+                }
+            } catch (Exception e) {
+                log.warn("Could not archive log stream for job {}: {}", jobId, e.getMessage());
+            }
+        }
+
+        try {
+            redisTemplate.delete(List.of(streamKey, streamKey + CONTEXT_SUFFIX));
+        } catch (DataAccessException e) {
+            log.warn("Could not delete log streams for job {}, the sweeper will retry: {}", jobId, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the streams of jobs that no longer exist or that finished more than
+     * orphanGraceMinutes ago, and refreshes the log stream gauges. Returns the number of jobs whose
+     * streams were removed.
+     */
+    public int sweep() {
+        Map<Integer, List<String>> streamsByJob = scanJobStreams();
+        if (streamsByJob.isEmpty()) {
+            lastSweep = new SweepFigures(0, 0, 0, Instant.now());
+            return 0;
+        }
+
+        Map<Integer, Job> jobs = new LinkedHashMap<>();
+        for (Job job : jobRepository.findAllById(streamsByJob.keySet())) {
+            jobs.put(job.getId(), job);
+        }
+
+        Instant now = Instant.now();
+        Instant orphanedBefore = now.minus(Duration.ofMinutes(properties.getOrphanGraceMinutes()));
+        long activeStreamBytes = 0;
+        List<Integer> pendingArchive = new ArrayList<>();
+        Instant oldestPendingArchive = now;
+        int removed = 0;
+        for (Map.Entry<Integer, List<String>> entry : streamsByJob.entrySet()) {
+            Job job = jobs.get(entry.getKey());
+            if (job == null) {
+                log.info("Deleting orphaned log streams {} of missing job", entry.getValue());
+                deleteQuietly(entry.getValue());
+                removed++;
+            } else if (ACTIVE_STATUSES.contains(job.getStatus())) {
+                long bytes = memoryUsage(entry.getValue());
+                log.debug("Log streams of active job {} use {} bytes", job.getId(), bytes);
+                activeStreamBytes += bytes;
+            } else if (job.getUpdatedDate() == null || job.getUpdatedDate().toInstant().isBefore(orphanedBefore)) {
+                log.info("Archiving leftover log streams of finished job {} ({})", job.getId(), job.getStatus());
+                archiveAndDelete(job.getId(), job.getOrganization() != null ? job.getOrganization().getId().toString() : null);
+                removed++;
+            } else {
+                pendingArchive.add(job.getId());
+                if (job.getUpdatedDate().toInstant().isBefore(oldestPendingArchive)) {
+                    oldestPendingArchive = job.getUpdatedDate().toInstant();
+                }
+            }
+        }
+        if (!pendingArchive.isEmpty()) {
+            log.info("Log streams of finished jobs {} are still waiting to be archived", pendingArchive);
+        }
+        lastSweep = new SweepFigures(activeStreamBytes, pendingArchive.size(),
+                Duration.between(oldestPendingArchive, now).toSeconds(), now);
+        return removed;
+    }
+
+    private double fromLastSweep(ToDoubleFunction<SweepFigures> figure) {
+        SweepFigures figures = lastSweep;
+        if (figures == null || figures.takenAt().isBefore(Instant.now().minus(SWEEP_FIGURES_TTL))) {
+            return Double.NaN;
+        }
+        return figure.applyAsDouble(figures);
+    }
+
+    private byte[] readCompressed(String streamKey) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int entries = 0;
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(buffer), StandardCharsets.UTF_8)) {
+            String lastId = null;
+            while (true) {
+                // Inclusive range from the last id seen (exclusive XRANGE bounds need Redis 6.2),
+                // so every page after the first starts with an entry that was already written.
+                Range<String> range = lastId == null
+                        ? Range.unbounded()
+                        : Range.of(Range.Bound.inclusive(lastId), Range.Bound.unbounded());
+                List<MapRecord<String, Object, Object>> page = redisTemplate.opsForStream()
+                        .range(streamKey, range, Limit.limit().count(properties.getArchivePageSize()));
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                int written = 0;
+                for (MapRecord<String, Object, Object> mapRecord : page) {
+                    if (mapRecord.getId().getValue().equals(lastId)) {
+                        continue;
+                    }
+                    StringRecord stringRecord = StringRecord.of(mapRecord);
+                    writer.write(String.valueOf(stringRecord.getValue().get("output")));
+                    writer.write('\n');
+                    written++;
+                }
+                entries += written;
+                lastId = page.get(page.size() - 1).getId().getValue();
+                if (written == 0 || page.size() < properties.getArchivePageSize()) {
+                    break;
+                }
+            }
+        }
+        return entries == 0 ? new byte[0] : buffer.toByteArray();
+    }
+
+    // SCAN with a TYPE filter keeps the sweep off every other key the api keeps in Redis (locks,
+    // heartbeats, caches). Cluster connections can't SCAN across nodes; the sweep is skipped
+    // there and retention relies on the completion path alone.
+    private Map<Integer, List<String>> scanJobStreams() {
+        Map<Integer, List<String>> streamsByJob = new LinkedHashMap<>();
+        ScanOptions scanOptions = ScanOptions.scanOptions()
+                .type(DataType.STREAM)
+                .count(properties.getScanCount())
+                .build();
+        try (Cursor<String> cursor = redisTemplate.scan(scanOptions)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                Matcher matcher = JOB_STREAM_KEY.matcher(key);
+                if (matcher.matches()) {
+                    streamsByJob.computeIfAbsent(Integer.valueOf(matcher.group(1)), id -> new ArrayList<>()).add(key);
+                }
+            }
+        } catch (DataAccessException | UnsupportedOperationException e) {
+            log.warn("Could not scan Redis for job log streams: {}", e.getMessage());
+        }
+        return streamsByJob;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long memoryUsage(List<String> streamKeys) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        long total = 0;
+        for (String streamKey : streamKeys) {
+            try {
+                Object usage = redisTemplate.execute((RedisCallback<Object>) connection ->
+                        connection.execute("MEMORY", "USAGE".getBytes(StandardCharsets.UTF_8), keySerializer.serialize(streamKey)));
+                if (usage instanceof Number number) {
+                    total += number.longValue();
+                }
+            } catch (DataAccessException e) {
+                log.debug("Could not read memory usage of {}: {}", streamKey, e.getMessage());
+            }
+        }
+        return total;
+    }
+
+    private void deleteQuietly(List<String> streamKeys) {
+        try {
+            redisTemplate.delete(streamKeys);
+        } catch (DataAccessException e) {
+            log.warn("Could not delete log streams {}: {}", streamKeys, e.getMessage());
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package io.terrakube.api.plugin.logs;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import io.terrakube.api.plugin.state.model.logs.LogsRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
 @AllArgsConstructor
 @RestController
 @Slf4j
 @RequestMapping("/logs")
 public class LogsController {
     private final LogsService logsService;
+    private final ObjectMapper objectMapper;
+    private final LogStreamRetentionProperties logStreamRetentionProperties;
 
     @Transactional
     @PostMapping(produces = "application/vnd.api+json", value = "/{jobId}/setup-consumer-groups")
@@ -32,4 +41,36 @@ public class LogsController {
         logsService.appendLogs(logsRequest.getData());
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    // Executors in log-via-api mode gzip their batches (io.terrakube.executor.logs.compress);
+    // nothing in front of the api inflates request bodies, so it is done here - and bounded, since a
+    // few KB of gzip can inflate to gigabytes.
+    @Transactional
+    @PostMapping(produces = "application/vnd.api+json", value = "", headers = "Content-Encoding=gzip")
+    public ResponseEntity<Void> appendCompressedLogs(@RequestBody byte[] body) throws IOException {
+        long maxInflatedBytes = logStreamRetentionProperties.getMaxInflatedBodyBytes();
+        // One byte past the limit is enough to tell an oversized body from one that just fits.
+        BoundedInputStream inflated = BoundedInputStream.builder()
+                .setInputStream(new GZIPInputStream(new ByteArrayInputStream(body)))
+                .setMaxCount(maxInflatedBytes + 1)
+                .get();
+        LogsRequest logsRequest;
+        try (inflated) {
+            logsRequest = objectMapper.readValue(inflated, LogsRequest.class);
+        } catch (IOException e) {
+            if (inflated.getCount() > maxInflatedBytes) {
+                return tooLarge(maxInflatedBytes);
+            }
+            throw e;
+        }
+        if (inflated.getCount() > maxInflatedBytes) {
+            return tooLarge(maxInflatedBytes);
+        }
+        return appendLogs(logsRequest);
+    }
+
+    private ResponseEntity<Void> tooLarge(long maxInflatedBytes) {
+        log.warn("Rejected a gzipped log batch inflating past {} bytes", maxInflatedBytes);
+        return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).build();
+    }
+}
@@ -2,11 +2,16 @@ package io.terrakube.api.plugin.logs;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StreamOperations;
 import org.springframework.stereotype.Service;
 import io.terrakube.api.plugin.state.model.logs.Log;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -15,10 +20,33 @@ public class LogsService {
 
     RedisTemplate redisTemplate;
 
+    LogStreamRetentionProperties logStreamRetentionProperties;
+
+    // The whole batch goes out as one pipelined round trip: every XADD, plus one approximate
+    // XTRIM per stream (not per line - with "~" Redis only drops whole radix tree nodes, so the
+    // trim is close to free and the stream settles slightly above the cap).
     public void appendLogs(List<Log> logs) {
-        for (Log log : logs) {
-            redisTemplate.opsForStream().add(log.getJobId().toString(), log.toStrMap());
+        if (logs.isEmpty()) {
+            return;
         }
+        long streamMaxLength = logStreamRetentionProperties.getStreamMaxLength();
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                StreamOperations<K, Object, Object> streamOperations = operations.opsForStream();
+                Set<String> streamKeys = new LinkedHashSet<>();
+                for (Log log : logs) {
+                    String streamKey = log.getJobId().toString();
+                    streamOperations.add((K) streamKey, log.toStrMap());
+                    streamKeys.add(streamKey);
+                }
+                for (String streamKey : streamKeys) {
+                    streamOperations.trim((K) streamKey, streamMaxLength, true);
+                }
+                return null;
+            }
+        });
     }
 
     public void setupConsumerGroups(String jobId) {
@@ -3,6 +3,7 @@ package io.terrakube.api.plugin.notification;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -44,6 +45,7 @@ public class JobNotificationTrigger {
     private final NotificationPayloadRenderer notificationPayloadRenderer;
     private final NotificationOutboxRepository notificationOutboxRepository;
     private final NotificationDispatchService notificationDispatchService;
+    private final NotificationOutboxDrainer notificationOutboxDrainer;
 
     @Value("${io.terrakube.ui.url:}")
     private String uiUrl;
@@ -51,11 +53,13 @@ public class JobNotificationTrigger {
     public JobNotificationTrigger(NotificationConfigResolver notificationConfigResolver,
             NotificationPayloadRenderer notificationPayloadRenderer,
             NotificationOutboxRepository notificationOutboxRepository,
-            NotificationDispatchService notificationDispatchService) {
+            NotificationDispatchService notificationDispatchService,
+            NotificationOutboxDrainer notificationOutboxDrainer) {
         this.notificationConfigResolver = notificationConfigResolver;
         this.notificationPayloadRenderer = notificationPayloadRenderer;
         this.notificationOutboxRepository = notificationOutboxRepository;
         this.notificationDispatchService = notificationDispatchService;
+        this.notificationOutboxDrainer = notificationOutboxDrainer;
     }
 
     public List<UUID> enqueue(Job job) {
@@ -110,11 +114,28 @@ public class JobNotificationTrigger {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
-                    outboxIds.forEach(notificationDispatchService::dispatchAsync);
+                    dispatch(outboxIds);
                 }
             });
         } else {
-            outboxIds.forEach(notificationDispatchService::dispatchAsync);
+            dispatch(outboxIds);
+        }
+    }
+
+    // Rows the dispatch pool can't take right now stay PENDING; the drain signal lets whichever
+    // replica has room pick them up instead of leaving them to the next poll.
+    private void dispatch(List<UUID> outboxIds) {
+        boolean rejected = false;
+        for (UUID outboxId : outboxIds) {
+            try {
+                notificationDispatchService.dispatchAsync(outboxId);
+            } catch (RejectedExecutionException e) {
+                log.warn("Notification dispatch executor rejected outbox {}, signalling the outbox drain", outboxId);
+                rejected = true;
+            }
+        }
+        if (rejected) {
+            notificationOutboxDrainer.requestDrain();
         }
     }
 
@@ -1,31 +1,130 @@
 package io.terrakube.api.plugin.notification;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import io.terrakube.api.repository.NotificationConfigurationRepository;
 import io.terrakube.api.rs.notification.NotificationConfiguration;
 import io.terrakube.api.rs.workspace.Workspace;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Resolves the notification configurations that apply to a workspace on every job status change.
+ *
+ * The ids of the resolved configurations are kept per workspace, an empty list included, so a
+ * workspace without notifications - most of them - costs no query at all, and one with
+ * notifications a single lookup by id. Ids rather than entities are kept so the configurations (and
+ * their lazy triggers and templates) always come from the caller's own session.
+ *
+ * Like JobVariableSnapshotService, an entry is reused only while the generation it was resolved
+ * under is still current. The generation is a Redis counter bumped after every committed change to
+ * a notification configuration or a workspace (see NotificationConfigurationChangeHook), so every
+ * API replica drops its entries together. If Redis can't be reached both queries run every time, as
+ * they always did. Entries also expire a few minutes after they were resolved, however often they
+ * are read: a bump lost while Redis was down leaves the generation unchanged, and a busy workspace
+ * would otherwise keep its stale entry for as long as it keeps running jobs.
+ */
+@Slf4j
 @Service
 public class NotificationConfigResolver {
 
+    static final String GENERATION_KEY = "terrakube:notification-config:generation";
+    static final Duration MAX_STALENESS = Duration.ofMinutes(5);
+
+    private record Entry(long generation, List<UUID> configurationIds) {
+    }
+
     private final NotificationConfigurationRepository notificationConfigurationRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Cache<UUID, Entry> resolved = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(MAX_STALENESS)
+            .build();
 
-    public NotificationConfigResolver(NotificationConfigurationRepository notificationConfigurationRepository) {
+    public NotificationConfigResolver(NotificationConfigurationRepository notificationConfigurationRepository,
+            RedisTemplate<String, Object> redisTemplate) {
         this.notificationConfigurationRepository = notificationConfigurationRepository;
+        this.redisTemplate = redisTemplate;
     }
 
     // Purely additive: a workspace gets every active org-wide config plus every active config
     // scoped directly to it. No per-channel-type override/suppression - keeping the two scopes
     // simple and independent is the whole point.
     public List<NotificationConfiguration> resolve(Workspace workspace) {
+        Long generation = currentGeneration();
+        if (generation != null) {
+            Entry entry = resolved.getIfPresent(workspace.getId());
+            if (entry != null && entry.generation() == generation) {
+                return load(entry.configurationIds());
+            }
+        }
+
         List<NotificationConfiguration> workspaceConfigs = notificationConfigurationRepository
                 .findByWorkspaceIdAndActiveTrue(workspace.getId());
         List<NotificationConfiguration> orgConfigs = notificationConfigurationRepository
                 .findByOrganizationIdAndWorkspaceIsNullAndActiveTrue(workspace.getOrganization().getId());
-        return Stream.concat(workspaceConfigs.stream(), orgConfigs.stream()).toList();
+        List<NotificationConfiguration> configurations = Stream.concat(workspaceConfigs.stream(), orgConfigs.stream())
+                .toList();
+        if (generation != null) {
+            resolved.put(workspace.getId(), new Entry(generation,
+                    configurations.stream().map(NotificationConfiguration::getId).toList()));
+        } else {
+            resolved.invalidate(workspace.getId());
+        }
+        return configurations;
+    }
+
+    /**
+     * Called once a change to a notification configuration or a workspace has been committed.
+     */
+    public void configurationsChanged() {
+        resolved.invalidateAll();
+        try {
+            redisTemplate.opsForValue().increment(GENERATION_KEY);
+        } catch (Exception e) {
+            log.warn("Could not bump the notification configuration generation, other replicas may use stale configurations until it changes again: {}",
+                    e.getMessage());
+        }
+    }
+
+    private List<NotificationConfiguration> load(List<UUID> configurationIds) {
+        if (configurationIds.isEmpty()) {
+            return List.of();
+        }
+        // findAllById doesn't keep the order of the ids; workspace configs still come first. The
+        // active check only matters for a row changed outside the API since it was resolved.
+        Map<UUID, NotificationConfiguration> byId = notificationConfigurationRepository.findAllById(configurationIds)
+                .stream()
+                .collect(Collectors.toMap(NotificationConfiguration::getId, Function.identity()));
+        return configurationIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .filter(NotificationConfiguration::isActive)
+                .toList();
+    }
+
+    private Long currentGeneration() {
+        try {
+            // INCRBY 0 reads the counter as a number whatever value serializer the template uses,
+            // and creates it at 0 the first time.
+            return redisTemplate.opsForValue().increment(GENERATION_KEY, 0);
+        } catch (Exception e) {
+            log.warn("Could not read the notification configuration generation, resolving without the cache: {}",
+                    e.getMessage());
+            return null;
+        }
     }
 }
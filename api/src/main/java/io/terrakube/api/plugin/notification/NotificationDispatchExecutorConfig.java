@@ -14,7 +14,7 @@ public class NotificationDispatchExecutorConfig {
     // per call, no queue, no cap) - a burst of job status changes could spawn unbounded
     // concurrent deliveries all competing for the same DB connection pool. A full queue rejects
     // rather than blocks the caller (JobNotificationHook's POSTCOMMIT): the row stays PENDING
-    // and the outbox poller picks it up on its next tick, so a rejection is safe, not lossy.
+    // and the caller signals NotificationOutboxDrainer, so a rejection is safe, not lossy.
     @Bean("notificationDispatchExecutor")
     public ThreadPoolTaskExecutor notificationDispatchExecutor(
             @Value("${io.terrakube.notification.dispatch.executor.corePoolSize:10}") int corePoolSize,
@@ -3,7 +3,11 @@ package io.terrakube.api.plugin.notification;
 import java.time.Duration;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
@@ -23,16 +27,40 @@ public class NotificationDispatchService {
 
     private final NotificationOutboxTransactions notificationOutboxTransactions;
     private final NotificationDeliveryService notificationDeliveryService;
+    private final Executor notificationDispatchExecutor;
 
     public NotificationDispatchService(NotificationOutboxTransactions notificationOutboxTransactions,
-            NotificationDeliveryService notificationDeliveryService) {
+            NotificationDeliveryService notificationDeliveryService,
+            @Qualifier("notificationDispatchExecutor") Executor notificationDispatchExecutor) {
         this.notificationOutboxTransactions = notificationOutboxTransactions;
         this.notificationDeliveryService = notificationDeliveryService;
+        this.notificationDispatchExecutor = notificationDispatchExecutor;
     }
 
+    // Same claim/deliver/record sequence as attemptDelivery, but the dispatch thread only claims the
+    // row and hands the request to NotificationHttpClient; the result is recorded back on the
+    // dispatch pool once the destination answered. A slow destination therefore holds a connection
+    // of its own host's pool, not one of these threads. If the pool can't take the recordResult
+    // (queue full) the row stays SENDING and the poller's stuck-SENDING sweep retries it.
     @Async("notificationDispatchExecutor")
     public void dispatchAsync(UUID outboxId) {
-        attemptDelivery(outboxId);
+        ClaimedOutbox claimed = notificationOutboxTransactions.claim(outboxId);
+        if (claimed == null) {
+            return;
+        }
+        notificationDeliveryService.deliverAsync(claimed.configuration(), claimed.payload())
+                .handleAsync((_, error) -> error == null ? DeliveryOutcome.success() : DeliveryOutcome.failure(error),
+                        notificationDispatchExecutor)
+                .thenAccept(outcome -> recordResult(outboxId, claimed, outcome))
+                .exceptionally(e -> {
+                    if (e instanceof CompletionException && e.getCause() instanceof RejectedExecutionException) {
+                        log.warn("Notification outbox {} answered but its result could not be queued, "
+                                + "the poller will pick it up again", outboxId);
+                    } else {
+                        log.error("Notification outbox {} result could not be recorded: {}", outboxId, e.getMessage());
+                    }
+                    return null;
+                });
     }
 
     // claim() and recordResult() each open their own short transaction on a separate bean
@@ -46,8 +74,10 @@ public class NotificationDispatchService {
         if (claimed == null) {
             return;
         }
-        DeliveryOutcome outcome = deliver(claimed);
+        recordResult(outboxId, claimed, deliver(claimed));
+    }
 
+    private void recordResult(UUID outboxId, ClaimedOutbox claimed, DeliveryOutcome outcome) {
         NotificationOutboxStatus newStatus;
         Date nextAttemptAt = null;
         String lastError = null;
@@ -100,5 +130,13 @@ public class NotificationDispatchService {
         static DeliveryOutcome failure(NotificationDeliveryException e) {
             return new DeliveryOutcome(false, e.getMessage(), e.isRetryable(), e.getRetryAfter());
         }
+
+        static DeliveryOutcome failure(Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof NotificationDeliveryException e) {
+                return failure(e);
+            }
+            return new DeliveryOutcome(false, "Unexpected delivery error: " + cause.getMessage(), true, null);
+        }
     }
 }
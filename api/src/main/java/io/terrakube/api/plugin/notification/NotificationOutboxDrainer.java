@@ -0,0 +1,162 @@
+package io.terrakube.api.plugin.notification;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import io.terrakube.api.repository.NotificationOutboxRepository;
+import io.terrakube.api.rs.notification.NotificationOutbox;
+import io.terrakube.api.rs.notification.NotificationOutboxStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Hands every due PENDING outbox row to the dispatch pool, page after page until none are left.
+// Runs when something says there is work - requestDrain() after a commit whose rows the dispatch
+// pool couldn't take, on any replica through the Redis channel below - and from
+// NotificationOutboxPollerJob, which stays as the timed safety net for retries whose backoff
+// elapsed and for signals that were lost.
+//
+// Wake-ups are coalesced: any number of them while a pass is queued cost one pass, and passes never
+// overlap on a replica. When the dispatch pool rejects rows the pass ends after its page and
+// another one follows shortly, so a backlog drains at the pace the pool frees up instead of waiting
+// for the next poll.
+@Slf4j
+@Component
+public class NotificationOutboxDrainer implements MessageListener {
+
+    static final String CHANNEL = "terrakube:notification-outbox";
+    private static final long RETRY_DELAY_MILLIS = 1_000;
+
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final NotificationDispatchService notificationDispatchService;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final int batchSize;
+    private final ScheduledExecutorService drainExecutor;
+    private final AtomicBoolean passQueued = new AtomicBoolean();
+
+    public NotificationOutboxDrainer(NotificationOutboxRepository notificationOutboxRepository,
+            NotificationDispatchService notificationDispatchService,
+            RedisTemplate<String, Object> redisTemplate,
+            RedisMessageListenerContainer redisMessageListenerContainer,
+            @Value("${io.terrakube.notification.poller.batchSize:200}") int batchSize) {
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.notificationDispatchService = notificationDispatchService;
+        this.redisTemplate = redisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+        this.batchSize = batchSize;
+        this.drainExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-outbox-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainExecutor.shutdownNow();
+    }
+
+    /**
+     * Asks every replica, this one included, to drain the outbox. Without Redis only this replica
+     * drains, the others still get the rows on their next poll.
+     */
+    public void requestDrain() {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, "drain");
+        } catch (Exception e) {
+            log.warn("Could not signal the notification outbox to the other replicas: {}", e.getMessage());
+            wake();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        wake();
+    }
+
+    // Queues a pass on the drain thread unless one is already queued.
+    void wake() {
+        if (passQueued.compareAndSet(false, true)) {
+            try {
+                drainExecutor.execute(() -> {
+                    passQueued.set(false);
+                    drain();
+                });
+            } catch (RejectedExecutionException e) {
+                passQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Dispatches every due row, in pages of batchSize. Returns how many rows were handed to the
+     * dispatch pool.
+     */
+    public synchronized int drain() {
+        Date now = new Date();
+        int dispatched = 0;
+        boolean rejected = false;
+        List<NotificationOutbox> page = notificationOutboxRepository.findDueForDispatch(
+                NotificationOutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+        while (true) {
+            for (NotificationOutbox outbox : page) {
+                try {
+                    notificationDispatchService.dispatchAsync(outbox.getId());
+                    dispatched++;
+                } catch (RejectedExecutionException e) {
+                    // The dispatch executor's queue is full - this row is still PENDING (this
+                    // submission never claimed it) and is picked up again by the next pass.
+                    log.warn("Notification dispatch executor rejected outbox {}, will retry shortly", outbox.getId());
+                    rejected = true;
+                }
+            }
+            if (rejected || page.size() < batchSize) {
+                break;
+            }
+            // Keyset on (createdDate, id): rows just handed over may not be claimed yet, an offset
+            // or a repeated first page would hand them over again.
+            NotificationOutbox last = page.getLast();
+            if (last.getCreatedDate() == null) {
+                break;
+            }
+            page = notificationOutboxRepository.findDueForDispatchAfter(NotificationOutboxStatus.PENDING, now,
+                    last.getCreatedDate(), last.getId(), PageRequest.of(0, batchSize));
+        }
+        if (rejected) {
+            scheduleRetry();
+        }
+        if (dispatched > 0) {
+            log.info("Notification outbox drain dispatched {} pending row(s)", dispatched);
+        }
+        return dispatched;
+    }
+
+    private void scheduleRetry() {
+        try {
+            drainExecutor.schedule(this::wake, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Notification outbox drainer is shutting down, leaving the rest to the poller");
+        }
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import io.terrakube.api.plugin.notification.NotificationDispatchService;
+import io.terrakube.api.plugin.notification.NotificationOutboxDrainer;
 import io.terrakube.api.plugin.notification.NotificationOutboxTransactions;
 import io.terrakube.api.repository.NotificationOutboxRepository;
 
@@ -30,13 +31,16 @@ public class NotificationDeliveryController {
     private final NotificationOutboxRepository notificationOutboxRepository;
     private final NotificationOutboxTransactions notificationOutboxTransactions;
     private final NotificationDispatchService notificationDispatchService;
+    private final NotificationOutboxDrainer notificationOutboxDrainer;
 
     public NotificationDeliveryController(NotificationOutboxRepository notificationOutboxRepository,
             NotificationOutboxTransactions notificationOutboxTransactions,
-            NotificationDispatchService notificationDispatchService) {
+            NotificationDispatchService notificationDispatchService,
+            NotificationOutboxDrainer notificationOutboxDrainer) {
         this.notificationOutboxRepository = notificationOutboxRepository;
         this.notificationOutboxTransactions = notificationOutboxTransactions;
         this.notificationDispatchService = notificationDispatchService;
+        this.notificationOutboxDrainer = notificationOutboxDrainer;
     }
 
     // Read-only transaction kept open through the mapping below: NotificationDeliveryView.from()
@@ -73,10 +77,11 @@ public class NotificationDeliveryController {
             notificationDispatchService.dispatchAsync(outboxId);
         } catch (RejectedExecutionException e) {
             // The dispatch executor's queue is full - the row is already re-armed to PENDING
-            // (this submission never claimed it), so the outbox poller will pick it up on its
-            // next tick. The retry itself still succeeded; don't surface this as an error.
-            log.warn("Notification dispatch executor rejected retry of outbox {}, will be picked up by the poller",
+            // (this submission never claimed it), so the outbox drain picks it up as soon as a
+            // replica has room. The retry itself still succeeded; don't surface this as an error.
+            log.warn("Notification dispatch executor rejected retry of outbox {}, signalling the outbox drain",
                     outboxId);
+            notificationOutboxDrainer.requestDrain();
         }
         return ResponseEntity.ok().build();
     }
@@ -0,0 +1,146 @@
+package io.terrakube.api.plugin.notification.sender;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+// Concurrency cap and circuit breaker of one destination host, shared by every sender. A delivery
+// over the cap waits in a bounded queue for a slot without holding a thread; when the host keeps
+// failing (network errors, 5xx) the circuit opens and deliveries to it fail straight away as
+// retryable, so the outbox backs off instead of piling more requests onto a host that can't answer.
+// After openSeconds one trial delivery is let through: success closes the circuit, failure opens it
+// again.
+final class DestinationGate {
+
+    private final String host;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration maxQueueWait;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private record Waiter(MonoSink<Void> sink, String channelLabel) {
+    }
+
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private int consecutiveFailures;
+    private long openUntilMillis;
+    private boolean trialInFlight;
+
+    DestinationGate(String host, NotificationDeliveryProperties properties) {
+        this.host = host;
+        this.maxConcurrent = properties.getMaxConcurrentPerHost();
+        this.maxQueued = properties.getMaxQueuedPerHost();
+        this.maxQueueWait = Duration.ofSeconds(properties.getMaxQueueWaitSeconds());
+        this.failureThreshold = properties.getFailureThreshold();
+        this.openDuration = Duration.ofSeconds(properties.getOpenSeconds());
+    }
+
+    /**
+     * Completes once the caller holds a slot of this host, which it gives back with release(). Fails
+     * with a retryable NotificationDeliveryException when the circuit is open, the queue is full or
+     * the slot doesn't come within maxQueueWaitSeconds.
+     */
+    Mono<Void> acquire(String channelLabel) {
+        return Mono.<Void>create(sink -> {
+            Waiter waiter = new Waiter(sink, channelLabel);
+            NotificationDeliveryException rejection = null;
+            boolean granted = false;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (now < openUntilMillis) {
+                    rejection = circuitOpen(channelLabel, openUntilMillis - now);
+                } else if (consecutiveFailures >= failureThreshold && trialInFlight) {
+                    rejection = circuitOpen(channelLabel, openDuration.toMillis());
+                } else if (inFlight < maxConcurrent) {
+                    inFlight++;
+                    trialInFlight = consecutiveFailures >= failureThreshold;
+                    granted = true;
+                } else if (waiting.size() < maxQueued) {
+                    waiting.add(waiter);
+                } else {
+                    rejection = new NotificationDeliveryException(channelLabel + " delivery to " + host
+                            + " not attempted: too many deliveries to this host already waiting");
+                }
+            }
+            if (rejection != null) {
+                sink.error(rejection);
+            } else if (granted) {
+                sink.success();
+            } else {
+                // A waiter that times out or is cancelled leaves the queue; if release() handed it a
+                // slot in the meantime, the slot goes to the next one instead.
+                sink.onCancel(() -> {
+                    boolean removed;
+                    synchronized (this) {
+                        removed = waiting.remove(waiter);
+                    }
+                    if (!removed) {
+                        release();
+                    }
+                });
+            }
+        }).timeout(maxQueueWait, Mono.error(() -> new NotificationDeliveryException(channelLabel + " delivery to "
+                + host + " not attempted: no free slot within " + maxQueueWait.toSeconds() + "s",
+                new TimeoutException())));
+    }
+
+    void release() {
+        Waiter next = null;
+        List<Waiter> rejected = List.of();
+        long openFor = 0;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now < openUntilMillis && !waiting.isEmpty()) {
+                // The circuit opened while these were waiting: fail them now instead of one by one.
+                rejected = new ArrayList<>(waiting);
+                waiting.clear();
+                openFor = openUntilMillis - now;
+            } else {
+                next = waiting.poll();
+            }
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        for (Waiter waiter : rejected) {
+            waiter.sink().error(circuitOpen(waiter.channelLabel(), openFor));
+        }
+        if (next != null) {
+            next.sink().success();
+        }
+    }
+
+    // The host answered: whatever the status, it is reachable and not overloaded into 5xx.
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        openUntilMillis = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (consecutiveFailures >= failureThreshold) {
+            openUntilMillis = System.currentTimeMillis() + openDuration.toMillis();
+        }
+    }
+
+    // A trial delivery that was cancelled decided nothing, the next delivery gets to try.
+    synchronized void recordCancel() {
+        trialInFlight = false;
+    }
+
+    private NotificationDeliveryException circuitOpen(String channelLabel, long remainingMillis) {
+        return new NotificationDeliveryException(channelLabel + " delivery to " + host
+                + " not attempted: circuit open after " + consecutiveFailures + " consecutive failures", null, true,
+                Duration.ofMillis(Math.max(remainingMillis, 1000)));
+    }
+}
@@ -5,7 +5,13 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -17,10 +23,10 @@ import org.springframework.stereotype.Component;
 // (its 200-vs-502 response leaks whether something is listening) unless this runs there too.
 // Resolves the hostname and rejects anything that lands in a private/reserved/loopback/link-local
 // range. Re-checked on every send (not just at config save time) so a DNS record that pointed
-// somewhere public when the config was created can't quietly start resolving internally later -
-// this narrows, but (being a resolve-then-connect check rather than a pinned-IP request) does not
-// fully close, a same-millisecond DNS-rebinding race, which is an accepted tradeoff given the
-// destination is set by an already-authenticated, RBAC-gated admin rather than an arbitrary caller.
+// somewhere public when the config was created can't quietly start resolving internally later.
+// Resolutions are kept for a few seconds (dnsCacheSeconds) and NotificationHttpClient connects
+// through pinnedAddresses() rather than its own DNS lookup, so the connection goes to exactly the
+// addresses that were checked - a DNS-rebinding answer between check and connect never gets used.
 //
 // Blocking is opt-out (io.terrakube.notification.ssrf.blockPrivateNetworks=false)
 // rather than hardcoded, because plenty of self-hosted Terrakube installs legitimately want to
@@ -30,14 +36,31 @@ import org.springframework.stereotype.Component;
 @Component
 public class DestinationUrlValidator {
 
+    private static final Duration DEFAULT_DNS_CACHE_TTL = Duration.ofSeconds(30);
+
     private final boolean blockPrivateDestinations;
+    private final Cache<String, List<InetAddress>> resolutions;
 
+    @Autowired
     public DestinationUrlValidator(
-            @Value("${io.terrakube.notification.ssrf.blockPrivateNetworks:true}") boolean blockPrivateDestinations) {
+            @Value("${io.terrakube.notification.ssrf.blockPrivateNetworks:true}") boolean blockPrivateDestinations,
+            NotificationDeliveryProperties notificationDeliveryProperties) {
+        this(blockPrivateDestinations, Duration.ofSeconds(notificationDeliveryProperties.getDnsCacheSeconds()));
+    }
+
+    public DestinationUrlValidator(boolean blockPrivateDestinations) {
+        this(blockPrivateDestinations, DEFAULT_DNS_CACHE_TTL);
+    }
+
+    DestinationUrlValidator(boolean blockPrivateDestinations, Duration dnsCacheTtl) {
         this.blockPrivateDestinations = blockPrivateDestinations;
+        this.resolutions = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(dnsCacheTtl)
+                .build();
     }
 
-    void validate(String channelLabel, String rawUrl) {
+    URI validate(String channelLabel, String rawUrl) {
         URI uri;
         try {
             uri = new URI(rawUrl);
@@ -53,20 +76,41 @@ public class DestinationUrlValidator {
             throw blocked(channelLabel, "destination URL has no host");
         }
         if (!blockPrivateDestinations) {
-            return;
+            return uri;
         }
 
-        InetAddress[] addresses;
+        List<InetAddress> addresses;
         try {
-            addresses = InetAddress.getAllByName(host);
+            addresses = resolve(host);
         } catch (UnknownHostException e) {
             throw blocked(channelLabel, "destination host could not be resolved");
         }
-        for (InetAddress address : addresses) {
-            if (isDisallowed(address)) {
-                throw blocked(channelLabel, "destination resolves to a private/reserved address");
-            }
+        if (addresses.stream().anyMatch(DestinationUrlValidator::isDisallowed)) {
+            throw blocked(channelLabel, "destination resolves to a private/reserved address");
+        }
+        return uri;
+    }
+
+    // What a delivery connection to host may use: the same cached resolution validate() looked at,
+    // checked again because the entry may have been refreshed in between. Failing here fails the
+    // connection, never falls back to a lookup of its own.
+    List<InetAddress> pinnedAddresses(String host) throws UnknownHostException {
+        List<InetAddress> addresses = resolve(host);
+        if (blockPrivateDestinations && addresses.stream().anyMatch(DestinationUrlValidator::isDisallowed)) {
+            throw new UnknownHostException(host + " resolves to a private/reserved address");
+        }
+        return addresses;
+    }
+
+    // Only successful lookups are kept; an unknown host is looked up again on the next send.
+    private List<InetAddress> resolve(String host) throws UnknownHostException {
+        String key = host.toLowerCase(Locale.ROOT);
+        List<InetAddress> addresses = resolutions.getIfPresent(key);
+        if (addresses == null) {
+            addresses = List.of(InetAddress.getAllByName(host));
+            resolutions.put(key, addresses);
         }
+        return addresses;
     }
 
     private static boolean isDisallowed(InetAddress address) {
@@ -7,8 +7,7 @@ import java.time.format.DateTimeParseException;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 // Shared HTTP failure classification for the Slack/Teams/webhook senders: a 429 or 5xx is the
 // destination (or an intermediary) saying "try again later", so it's retryable and may carry a
@@ -21,17 +20,17 @@ final class HttpDeliveryErrors {
     private HttpDeliveryErrors() {
     }
 
-    static NotificationDeliveryException fromStatus(String channelLabel, HttpStatusCodeException e) {
+    static NotificationDeliveryException fromStatus(String channelLabel, WebClientResponseException e) {
         HttpStatusCode status = e.getStatusCode();
         boolean retryable = status.value() == 429 || status.is5xxServerError();
         String message = channelLabel + " endpoint returned status " + status.value();
         if (!retryable) {
             return new NotificationDeliveryException(message, e, false);
         }
-        return new NotificationDeliveryException(message, e, true, parseRetryAfter(e.getResponseHeaders()));
+        return new NotificationDeliveryException(message, e, true, parseRetryAfter(e.getHeaders()));
     }
 
-    static NotificationDeliveryException fromNetworkError(String channelLabel, RestClientException e) {
+    static NotificationDeliveryException fromNetworkError(String channelLabel, Throwable e) {
         return new NotificationDeliveryException("Failed to deliver " + channelLabel + " notification: " + e.getMessage(),
                 e, true);
     }
@@ -0,0 +1,51 @@
+package io.terrakube.api.plugin.notification.sender;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.notification.delivery")
+public class NotificationDeliveryProperties {
+
+    /**
+     * Requests in flight to one destination host. Further deliveries to that host wait for a slot
+     * without holding a thread, deliveries to other hosts are not affected.
+     */
+    private int maxConcurrentPerHost = 4;
+
+    /**
+     * Deliveries allowed to wait for a slot of one host. Past this the delivery fails as retryable
+     * and the outbox poller tries it again later.
+     */
+    private int maxQueuedPerHost = 100;
+
+    /**
+     * How long a delivery waits for a slot of its host before it fails as retryable. Kept well below
+     * the poller's stuck-SENDING threshold so a waiting row is never picked up twice.
+     */
+    private int maxQueueWaitSeconds = 60;
+
+    /**
+     * Consecutive network errors or 5xx responses of one host that open its circuit.
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * How long an open circuit fails deliveries to its host straight away. After that one trial
+     * delivery decides whether it closes again.
+     */
+    private int openSeconds = 60;
+
+    /**
+     * How long a validated DNS resolution of a destination host is reused, by the SSRF check and by
+     * the connection that follows it.
+     */
+    private int dnsCacheSeconds = 30;
+}
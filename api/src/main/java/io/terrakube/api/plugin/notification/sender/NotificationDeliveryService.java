@@ -2,6 +2,7 @@ package io.terrakube.api.plugin.notification.sender;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -20,11 +21,27 @@ public class NotificationDeliveryService {
                 .collect(Collectors.toMap(NotificationSender::supports, Function.identity()));
     }
 
+    // Waits for the result - for callers that answer with it (the test-send endpoints) or run
+    // delivery inline (NotificationDispatchService.attemptDelivery).
     public void deliver(NotificationConfiguration configuration, String payload) {
+        senderFor(configuration).send(configuration, payload).block();
+    }
+
+    // Returns as soon as the request is on its way; the future completes when the destination
+    // answered, exceptionally with a NotificationDeliveryException.
+    public CompletableFuture<Void> deliverAsync(NotificationConfiguration configuration, String payload) {
+        try {
+            return senderFor(configuration).send(configuration, payload).toFuture();
+        } catch (NotificationDeliveryException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private NotificationSender senderFor(NotificationConfiguration configuration) {
         NotificationSender sender = sendersByType.get(configuration.getChannelType());
         if (sender == null) {
             throw new NotificationDeliveryException("No sender registered for channel type " + configuration.getChannelType());
         }
-        sender.send(configuration, payload);
+        return sender;
     }
 }
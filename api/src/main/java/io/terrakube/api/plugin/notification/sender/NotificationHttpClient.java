@@ -0,0 +1,170 @@
+package io.terrakube.api.plugin.notification.sender;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.netty.channel.ChannelOption;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.InetNameResolver;
+import io.netty.resolver.InetSocketAddressResolver;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Non-blocking HTTP client shared by the Slack, Teams and webhook senders. Requests run on the
+ * Reactor Netty event loop, so a destination that is slow to answer costs an open connection, not a
+ * notification-dispatch thread. Each destination host gets its own DestinationGate (concurrency cap
+ * and circuit breaker): a slow or failing endpoint of one organisation can only use its own slots,
+ * deliveries to every other host go out as usual.
+ *
+ * Host names are resolved through DestinationUrlValidator.pinnedAddresses(), never by Netty's own
+ * DNS lookup, so a connection only ever goes to an address the SSRF check accepted. Requests go
+ * through the proxy of the JVM system properties (http(s).proxyHost, http.nonProxyHosts) like the
+ * rest of the API's outbound calls; a proxied request leaves resolving the destination to the proxy,
+ * so pinning only applies to the hosts that are reached directly.
+ */
+@Component
+public class NotificationHttpClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private final DestinationUrlValidator destinationUrlValidator;
+    private final NotificationDeliveryProperties properties;
+    private final ConnectionProvider connectionProvider;
+    private final WebClient webClient;
+    private final Cache<String, DestinationGate> gates;
+
+    public NotificationHttpClient(DestinationUrlValidator destinationUrlValidator,
+            NotificationDeliveryProperties notificationDeliveryProperties) {
+        this.destinationUrlValidator = destinationUrlValidator;
+        this.properties = notificationDeliveryProperties;
+        // Reactor Netty keeps one pool per remote host, so this is a per-host limit like the gate's.
+        this.connectionProvider = ConnectionProvider.builder("notification-delivery")
+                .maxConnections(notificationDeliveryProperties.getMaxConcurrentPerHost())
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+        // Redirects stay off (the Reactor Netty default): the SSRF check only ever looks at the
+        // configured URL, a 3xx from an allowed host must not take the request somewhere else.
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .resolver(new PinnedResolverGroup(destinationUrlValidator))
+                .proxyWithSystemProperties()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MS)
+                .responseTimeout(RESPONSE_TIMEOUT);
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        // Idle gates are dropped; one dropped while a delivery still holds its slot is simply
+        // released into nothing, the next delivery to that host starts a fresh gate.
+        this.gates = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionProvider.dispose();
+    }
+
+    /**
+     * POSTs body to url once the SSRF check passed and a slot of the host is free. Fails with a
+     * NotificationDeliveryException classified by HttpDeliveryErrors, or a retryable one when the
+     * host's circuit is open or its queue is full.
+     */
+    Mono<ResponseEntity<String>> post(String channelLabel, String url, HttpHeaders headers, String body) {
+        return Mono.fromCallable(() -> destinationUrlValidator.validate(channelLabel, url))
+                .flatMap(uri -> {
+                    DestinationGate gate = gates.get(uri.getHost().toLowerCase(Locale.ROOT),
+                            host -> new DestinationGate(host, properties));
+                    return gate.acquire(channelLabel)
+                            .then(Mono.defer(() -> exchange(uri, headers, body, gate)
+                                    .doFinally(_ -> gate.release())));
+                })
+                // retrieve() only fails on 4xx/5xx; a 3xx isn't followed and isn't a delivery either.
+                .flatMap(response -> response.getStatusCode().is2xxSuccessful() ? Mono.just(response)
+                        : Mono.error(new NotificationDeliveryException(
+                                channelLabel + " endpoint returned status " + response.getStatusCode().value())))
+                .onErrorMap(e -> !(e instanceof NotificationDeliveryException),
+                        e -> e instanceof WebClientResponseException response
+                                ? HttpDeliveryErrors.fromStatus(channelLabel, response)
+                                : HttpDeliveryErrors.fromNetworkError(channelLabel, e));
+    }
+
+    private Mono<ResponseEntity<String>> exchange(URI uri, HttpHeaders headers, String body, DestinationGate gate) {
+        return webClient.post()
+                .uri(uri)
+                .headers(h -> h.addAll(headers))
+                .bodyValue(body)
+                .retrieve()
+                .toEntity(String.class)
+                .doOnNext(_ -> gate.recordSuccess())
+                .doOnError(e -> {
+                    // A 4xx is the destination rejecting this request, not the host being down.
+                    if (e instanceof WebClientResponseException response
+                            && !response.getStatusCode().is5xxServerError()) {
+                        gate.recordSuccess();
+                    } else {
+                        gate.recordFailure();
+                    }
+                })
+                .doOnCancel(gate::recordCancel);
+    }
+
+    // Netty's resolver contract, answered from the validator's cache of checked resolutions. A miss
+    // means a blocking lookup, which runs off the event loop.
+    private static final class PinnedResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+
+        private final DestinationUrlValidator destinationUrlValidator;
+
+        private PinnedResolverGroup(DestinationUrlValidator destinationUrlValidator) {
+            this.destinationUrlValidator = destinationUrlValidator;
+        }
+
+        @Override
+        protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) {
+            return new InetSocketAddressResolver(executor, new InetNameResolver(executor) {
+                @Override
+                protected void doResolve(String host, Promise<InetAddress> promise) {
+                    Schedulers.boundedElastic().schedule(() -> {
+                        try {
+                            promise.trySuccess(destinationUrlValidator.pinnedAddresses(host).getFirst());
+                        } catch (Exception e) {
+                            promise.tryFailure(e);
+                        }
+                    });
+                }
+
+                @Override
+                protected void doResolveAll(String host, Promise<List<InetAddress>> promise) {
+                    Schedulers.boundedElastic().schedule(() -> {
+                        try {
+                            promise.trySuccess(destinationUrlValidator.pinnedAddresses(host));
+                        } catch (Exception e) {
+                            promise.tryFailure(e);
+                        }
+                    });
+                }
+            });
+        }
+    }
+}
@@ -2,9 +2,12 @@ package io.terrakube.api.plugin.notification.sender;
 
 import io.terrakube.api.rs.notification.NotificationChannelType;
 import io.terrakube.api.rs.notification.NotificationConfiguration;
+import reactor.core.publisher.Mono;
 
 public interface NotificationSender {
     NotificationChannelType supports();
 
-    void send(NotificationConfiguration configuration, String payload);
+    // Completes empty once the destination accepted the payload, or fails with a
+    // NotificationDeliveryException. Nothing is sent until the result is subscribed to.
+    Mono<Void> send(NotificationConfiguration configuration, String payload);
 }
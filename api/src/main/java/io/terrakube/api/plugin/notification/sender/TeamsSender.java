@@ -1,33 +1,20 @@
 package io.terrakube.api.plugin.notification.sender;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import io.terrakube.api.plugin.proxy.RestTemplateFactory;
 import io.terrakube.api.rs.notification.NotificationChannelType;
 import io.terrakube.api.rs.notification.NotificationConfiguration;
+import reactor.core.publisher.Mono;
 
 @Component
 public class TeamsSender implements NotificationSender {
 
-    private final RestTemplate restTemplate;
-    private final DestinationUrlValidator destinationUrlValidator;
+    private final NotificationHttpClient notificationHttpClient;
 
-    @Autowired
-    public TeamsSender(DestinationUrlValidator destinationUrlValidator) {
-        this(RestTemplateFactory.build(), destinationUrlValidator);
-    }
-
-    TeamsSender(RestTemplate restTemplate, DestinationUrlValidator destinationUrlValidator) {
-        this.restTemplate = restTemplate;
-        this.destinationUrlValidator = destinationUrlValidator;
+    public TeamsSender(NotificationHttpClient notificationHttpClient) {
+        this.notificationHttpClient = notificationHttpClient;
     }
 
     @Override
@@ -36,21 +23,9 @@ public class TeamsSender implements NotificationSender {
     }
 
     @Override
-    public void send(NotificationConfiguration configuration, String payload) {
-        destinationUrlValidator.validate("Teams", configuration.getDestinationUrl());
+    public Mono<Void> send(NotificationConfiguration configuration, String payload) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
-        try {
-            HttpStatusCode status = restTemplate
-                    .postForEntity(configuration.getDestinationUrl(), new HttpEntity<>(payload, headers), String.class)
-                    .getStatusCode();
-            if (!status.is2xxSuccessful()) {
-                throw new NotificationDeliveryException("Teams endpoint returned status " + status.value());
-            }
-        } catch (HttpStatusCodeException e) {
-            throw HttpDeliveryErrors.fromStatus("Teams", e);
-        } catch (RestClientException e) {
-            throw HttpDeliveryErrors.fromNetworkError("Teams", e);
-        }
+        return notificationHttpClient.post("Teams", configuration.getDestinationUrl(), headers, payload).then();
     }
 }
@@ -18,6 +18,7 @@ import io.netty.handler.timeout.WriteTimeoutHandler;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -28,9 +29,11 @@ public class PublicRegistryProxyService {
     
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final RegistryResponseCache registryResponseCache;
 
-    public PublicRegistryProxyService(WebClient.Builder webClientBuilder) {
+    public PublicRegistryProxyService(WebClient.Builder webClientBuilder, RegistryResponseCache registryResponseCache) {
         this.objectMapper = new ObjectMapper();
+        this.registryResponseCache = registryResponseCache;
 
         HttpClient httpClient = HttpClient.create()
                 .compress(true)
@@ -62,22 +65,25 @@ public class PublicRegistryProxyService {
      */
     public ResponseEntity<String> searchProviders(String query, int limit) {
         log.info("Searching Terraform Registry providers: query={}, limit={}", query, limit);
-        
+        String normalizedQuery = normalize(query);
+
         try {
-            String v2Response = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/v2/providers")
-                            .queryParam("filter[name]", query)
-                            .queryParam("page[size]", limit)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .retryWhen(reactor.util.retry.Retry.backoff(3, Duration.ofMillis(500))
-                            .filter(throwable -> !(throwable instanceof WebClientResponseException.NotFound)))
-                    .block(Duration.ofSeconds(30));
-            
-            String transformedResponse = transformV2ProvidersToV1(v2Response);
-            
+            String transformedResponse = registryResponseCache.get(
+                    "providers:" + limit + ":" + normalizedQuery, () -> {
+                        String v2Response = webClient.get()
+                                .uri(uriBuilder -> uriBuilder
+                                        .path("/v2/providers")
+                                        .queryParam("filter[name]", normalizedQuery)
+                                        .queryParam("page[size]", limit)
+                                        .build())
+                                .retrieve()
+                                .bodyToMono(String.class)
+                                .retryWhen(reactor.util.retry.Retry.backoff(3, Duration.ofMillis(500))
+                                        .filter(throwable -> !(throwable instanceof WebClientResponseException.NotFound)))
+                                .block(Duration.ofSeconds(30));
+                        return transformV2ProvidersToV1(v2Response);
+                    });
+
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(transformedResponse);
@@ -158,20 +164,21 @@ public class PublicRegistryProxyService {
      */
     public ResponseEntity<String> searchModules(String query, int limit) {
         log.info("Searching Terraform Registry modules: query={}, limit={}", query, limit);
-        
+        String normalizedQuery = normalize(query);
+
         try {
-            String response = webClient.get()
+            String response = registryResponseCache.get("modules:" + limit + ":" + normalizedQuery, () -> webClient.get()
                     .uri(uriBuilder -> uriBuilder
                             .path("/v1/modules/search")
-                            .queryParam("q", query)
+                            .queryParam("q", normalizedQuery)
                             .queryParam("limit", limit)
                             .build())
                     .retrieve()
                     .bodyToMono(String.class)
                     .retryWhen(reactor.util.retry.Retry.backoff(3, Duration.ofMillis(500))
                             .filter(throwable -> !(throwable instanceof WebClientResponseException.NotFound)))
-                    .block(Duration.ofSeconds(30));
-            
+                    .block(Duration.ofSeconds(30)));
+
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(response);
@@ -188,16 +195,19 @@ public class PublicRegistryProxyService {
      */
     public ResponseEntity<String> getProviderVersions(String namespace, String name) {
         log.info("Getting provider versions: namespace={}, name={}", namespace, name);
-        
+        String normalizedNamespace = normalize(namespace);
+        String normalizedName = normalize(name);
+
         try {
-            String response = webClient.get()
-                    .uri("/v1/providers/{namespace}/{name}/versions", namespace, name)
+            String response = registryResponseCache.get(
+                    "versions:" + normalizedNamespace + "/" + normalizedName, () -> webClient.get()
+                    .uri("/v1/providers/{namespace}/{name}/versions", normalizedNamespace, normalizedName)
                     .retrieve()
                     .bodyToMono(String.class)
                     .retryWhen(reactor.util.retry.Retry.backoff(3, Duration.ofMillis(500))
                             .filter(throwable -> !(throwable instanceof WebClientResponseException.NotFound)))
-                    .block(Duration.ofSeconds(30));
-            
+                    .block(Duration.ofSeconds(30)));
+
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(response);
@@ -215,17 +225,21 @@ public class PublicRegistryProxyService {
     public ResponseEntity<String> getProviderDownload(String namespace, String name, String version, String os, String arch) {
         log.info("Getting provider download: namespace={}, name={}, version={}, os={}, arch={}", 
                 namespace, name, version, os, arch);
-        
+        // Versions keep their case, pre-release labels aren't guaranteed to be case-insensitive.
+        String trimmedVersion = version == null ? "" : version.trim();
+        String address = String.join("/", normalize(namespace), normalize(name), trimmedVersion, normalize(os),
+                normalize(arch));
+
         try {
-            String response = webClient.get()
-                    .uri("/v1/providers/{namespace}/{name}/{version}/download/{os}/{arch}", 
-                            namespace, name, version, os, arch)
+            String response = registryResponseCache.get("download:" + address, () -> webClient.get()
+                    .uri("/v1/providers/{namespace}/{name}/{version}/download/{os}/{arch}",
+                            normalize(namespace), normalize(name), trimmedVersion, normalize(os), normalize(arch))
                     .retrieve()
                     .bodyToMono(String.class)
                     .retryWhen(reactor.util.retry.Retry.backoff(3, Duration.ofMillis(500))
                             .filter(throwable -> !(throwable instanceof WebClientResponseException.NotFound)))
-                    .block(Duration.ofSeconds(30));
-            
+                    .block(Duration.ofSeconds(30)));
+
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(response);
@@ -236,4 +250,9 @@ public class PublicRegistryProxyService {
         }
     }
 
+    // Registry names and searches are case-insensitive, so requests differing only in case or
+    // surrounding spaces share one cached response.
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
 }
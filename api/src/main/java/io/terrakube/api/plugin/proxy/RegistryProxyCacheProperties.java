@@ -0,0 +1,34 @@
+package io.terrakube.api.plugin.proxy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.api.registry-proxy.cache")
+public class RegistryProxyCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * A registry response younger than this is served without asking the registry.
+     */
+    private int freshSeconds = 300;
+
+    /**
+     * After freshSeconds a response is still served for this long while one background refresh
+     * replaces it. Older responses are gone and the next request waits for the registry.
+     */
+    private int staleSeconds = 3600;
+
+    /**
+     * Responses kept in memory on each replica, in front of the copy shared through Redis.
+     */
+    private int maxEntries = 1000;
+}
@@ -0,0 +1,200 @@
+package io.terrakube.api.plugin.proxy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stale-while-revalidate cache for the public registry proxy. Responses are shared between API
+ * replicas through Redis, with a bounded in-memory copy on each replica in front of it:
+ *
+ * - fresh (younger than freshSeconds): served as is;
+ * - stale (up to staleSeconds more): served as is, and one background refresh replaces it. A short
+ *   Redis lock keeps the other replicas from refreshing the same response at the same time;
+ * - missing: fetched from the registry, with concurrent requests for the same key on a replica
+ *   waiting on the same call.
+ *
+ * Only successful responses are kept. If Redis can't be reached the in-memory copy still serves.
+ */
+@Slf4j
+@Component
+public class RegistryResponseCache {
+
+    static final String PREFIX = "terrakube:registry-proxy:";
+    private static final String REFRESH_LOCK = "refreshing:";
+    private static final Duration REFRESH_LOCK_TTL = Duration.ofSeconds(60);
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /** Fetches a response from the registry; the cache decides when. */
+    @FunctionalInterface
+    public interface Upstream {
+        String fetch() throws Exception;
+    }
+
+    record CachedResponse(String body, long fetchedAtMillis) implements Serializable {
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RegistryProxyCacheProperties properties;
+    private final Cache<String, CachedResponse> local;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refreshExecutor;
+
+    public RegistryResponseCache(RedisTemplate<String, Object> redisTemplate,
+            RegistryProxyCacheProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(retention())
+                .build();
+        // Small and bounded: a refresh that can't be queued is skipped, the stale response keeps
+        // being served and the next request asks again.
+        this.refreshExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100), runnable -> {
+                    Thread thread = new Thread(runnable, "registry-proxy-refresh-" + THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * The response cached under key, or upstream's answer if there is none. Exceptions of upstream
+     * reach the caller only when nothing, not even a stale response, can be served.
+     */
+    public String get(String key, Upstream upstream) throws Exception {
+        if (!properties.isEnabled()) {
+            return upstream.fetch();
+        }
+
+        CachedResponse cached = local.getIfPresent(key);
+        if (cached == null || !isFresh(cached)) {
+            CachedResponse shared = readShared(key);
+            if (shared != null && (cached == null || shared.fetchedAtMillis() > cached.fetchedAtMillis())) {
+                local.put(key, shared);
+                cached = shared;
+            }
+        }
+
+        if (cached != null && age(cached) < retention().toMillis()) {
+            if (!isFresh(cached)) {
+                revalidate(key, upstream);
+            }
+            return cached.body();
+        }
+
+        try {
+            return fetch(key, upstream).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void revalidate(String key, Upstream upstream) {
+        if (inFlight.containsKey(key) || !takeRefreshLock(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    fetch(key, upstream).join();
+                } catch (CompletionException e) {
+                    log.warn("Could not refresh registry response {}, serving the stale one: {}", key,
+                            e.getCause().getMessage());
+                } finally {
+                    releaseRefreshLock(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            releaseRefreshLock(key);
+        }
+    }
+
+    // One upstream call per key at a time on this replica, whoever asked first does it.
+    private CompletableFuture<String> fetch(String key, Upstream upstream) {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            String body = upstream.fetch();
+            store(key, new CachedResponse(body, System.currentTimeMillis()));
+            created.complete(body);
+        } catch (Exception e) {
+            created.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, created);
+        }
+        return created;
+    }
+
+    private void store(String key, CachedResponse response) {
+        local.put(key, response);
+        try {
+            redisTemplate.opsForValue().set(PREFIX + key, response, retention());
+        } catch (Exception e) {
+            log.debug("Could not share registry response {} through Redis: {}", key, e.getMessage());
+        }
+    }
+
+    private CachedResponse readShared(String key) {
+        try {
+            return redisTemplate.opsForValue().get(PREFIX + key) instanceof CachedResponse response ? response : null;
+        } catch (Exception e) {
+            log.debug("Could not read registry response {} from Redis: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean takeRefreshLock(String key) {
+        try {
+            return !Boolean.FALSE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(PREFIX + REFRESH_LOCK + key, "1", REFRESH_LOCK_TTL));
+        } catch (Exception e) {
+            // Without Redis every replica refreshes its own copy, still only once per key at a time.
+            return true;
+        }
+    }
+
+    private void releaseRefreshLock(String key) {
+        try {
+            redisTemplate.delete(PREFIX + REFRESH_LOCK + key);
+        } catch (Exception e) {
+            log.debug("Could not release refresh lock of registry response {}, it expires on its own: {}", key,
+                    e.getMessage());
+        }
+    }
+
+    private boolean isFresh(CachedResponse response) {
+        return age(response) < Duration.ofSeconds(properties.getFreshSeconds()).toMillis();
+    }
+
+    private static long age(CachedResponse response) {
+        return System.currentTimeMillis() - response.fetchedAtMillis();
+    }
+
+    private Duration retention() {
+        return Duration.ofSeconds((long) properties.getFreshSeconds() + properties.getStaleSeconds());
+    }
+}
@@ -1,5 +1,6 @@
 package io.terrakube.api.plugin.scheduler;
 
+import io.terrakube.api.plugin.logs.LogStreamRetentionService;
 import io.terrakube.api.plugin.scheduler.job.tcl.TclService;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutionException;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorService;
@@ -14,9 +15,7 @@ import io.terrakube.api.plugin.variable.InvalidVariableCategoryException;
 import io.terrakube.api.plugin.variable.WorkspaceVariableValidationService;
 import io.terrakube.api.plugin.vcs.PrCommentService;
 import io.terrakube.api.plugin.vcs.WebhookService;
-import io.terrakube.api.plugin.vcs.provider.azdevops.AzDevOpsWebhookService;
-import io.terrakube.api.plugin.vcs.provider.github.GitHubWebhookService;
-import io.terrakube.api.plugin.vcs.provider.gitlab.GitLabWebhookService;
+import io.terrakube.api.plugin.vcs.status.CommitStatusPublisher;
 import io.terrakube.api.repository.*;
 import io.terrakube.api.rs.globalvar.Globalvar;
 import io.terrakube.api.rs.job.Job;
@@ -40,8 +39,11 @@ import org.quartz.JobKey;
 import org.quartz.SchedulerException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.text.ParseException;
@@ -71,7 +73,8 @@ public class ScheduleJob implements org.quartz.Job {
     private final TemplateRepository templateRepository;
 
     public static final String JOB_ID = "jobId";
-    private final GitLabWebhookService gitLabWebhookService;
+    // Queues the job's commit status; the VCS call itself happens off this thread.
+    private final CommitStatusPublisher commitStatusPublisher;
 
     // Guarantees only one worker (in this pod or any other replica) processes a given job id at a
     // time - held via withExecutionLock for the entire duration of execute()'s explicit
@@ -99,8 +102,6 @@ public class ScheduleJob implements org.quartz.Job {
 
     RedisTemplate<String, Object> redisTemplate;
 
-    GitHubWebhookService gitHubWebhookService;
-    AzDevOpsWebhookService azDevOpsWebhookService;
     PrCommentService prCommentService;
     GlobalVarRepository globalVarRepository;
     VariableRepository variableRepository;
@@ -112,6 +113,9 @@ public class ScheduleJob implements org.quartz.Job {
     // this so status-change notifications actually fire for real runs, not just for a job
     // updated via a direct API PATCH.
     JobNotificationTrigger jobNotificationTrigger;
+    // Archives the finished job's log stream to storage and removes both of its Redis streams
+    // (log and -context) on its own pool, once the job's final status has committed.
+    LogStreamRetentionService logStreamRetentionService;
 
     @Override
     public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
@@ -125,7 +129,7 @@ public class ScheduleJob implements org.quartz.Job {
                 Job job = jobRepository.getReferenceById(jobId);
                 boolean shouldDeschedule = doRunExecution(job);
                 if (shouldDeschedule) {
-                    redisTemplate.delete(String.valueOf(job.getId()));
+                    archiveLogsAfterCommit(job);
                     removeJobContext(job, jobExecutionContext);
                 }
                 return shouldDeschedule;
@@ -134,6 +138,30 @@ public class ScheduleJob implements org.quartz.Job {
         });
     }
 
+    // After commit, so neither a rejected archive nor the archive itself can roll back the job's
+    // final status; the streams of a rejected one are left to LogStreamSweepJob.
+    void archiveLogsAfterCommit(Job job) {
+        int jobId = job.getId();
+        String organizationId = job.getOrganization() != null ? job.getOrganization().getId().toString() : null;
+        Runnable archive = () -> {
+            try {
+                logStreamRetentionService.archiveAndDeleteAsync(jobId, organizationId);
+            } catch (TaskRejectedException e) {
+                log.warn("Log archive pool is full, leaving the log streams of job {} to the sweeper", jobId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    archive.run();
+                }
+            });
+        } else {
+            archive.run();
+        }
+    }
+
     // Testing entry point: exercises doRunExecution's business logic directly against mocks, so
     // it holds the same execution lock as execute() but without a real Spring transaction - there
     // is no persistence context in these tests for one to commit.
@@ -690,20 +718,7 @@ public class ScheduleJob implements org.quartz.Job {
         // job itself, since callers here include the job-completion path.
         try {
             String runSummary = prCommentService.extractRunSummary(job).orElse(null);
-            switch (job.getWorkspace().getVcs().getVcsType()) {
-                case GITHUB:
-                    gitHubWebhookService.sendCommitStatus(job, jobStatus, runSummary);
-                    break;
-                case GITLAB:
-                    gitLabWebhookService.sendCommitStatus(job, jobStatus, runSummary);
-                    break;
-                case AZURE_DEVOPS:
-                case AZURE_SP_MI:
-                    azDevOpsWebhookService.sendCommitStatus(job, jobStatus, runSummary);
-                    break;
-                default:
-                    break;
-            }
+            commitStatusPublisher.publish(job, jobStatus, runSummary);
         } catch (Exception e) {
             log.error("Failed to update VCS commit status for job {}: {}", job.getId(), e.getMessage());
         }
@@ -0,0 +1,71 @@
+package io.terrakube.api.plugin.scheduler;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps a periodic sweep to one API replica at a time. The recurring Quartz trigger of a sweep only
+ * fires on one cluster member, but every replica also runs the sweep once at startup, and a slow
+ * sweep can still be running when the next tick fires elsewhere.
+ *
+ * Fails open: if Redis can't be reached every replica sweeps, as before. The sweeps are idempotent,
+ * this only saves the duplicate work.
+ */
+@Slf4j
+@AllArgsConstructor
+@Component
+public class SweepLock {
+
+    private static final String PREFIX = "terrakube:sweep-lock:";
+
+    RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * Returns the token to release the lock with, or null if another replica holds it. ttl bounds how
+     * long a replica that dies mid-sweep keeps the others from sweeping.
+     */
+    public String tryAcquire(String sweep, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        try {
+            if (Boolean.FALSE.equals(redisTemplate.opsForValue().setIfAbsent(PREFIX + sweep, token, ttl))) {
+                return null;
+            }
+        } catch (Exception e) {
+            log.warn("Could not take the {} sweep lock, sweeping anyway: {}", sweep, e.getMessage());
+        }
+        return token;
+    }
+
+    /**
+     * Extends a lock this replica still holds, for work that can outlast the ttl it was taken with.
+     * Returns false once another replica took it over.
+     */
+    public boolean renew(String sweep, String token, Duration ttl) {
+        try {
+            if (!token.equals(redisTemplate.opsForValue().get(PREFIX + sweep))) {
+                return false;
+            }
+            redisTemplate.expire(PREFIX + sweep, ttl);
+        } catch (Exception e) {
+            log.debug("Could not renew the {} sweep lock: {}", sweep, e.getMessage());
+        }
+        return true;
+    }
+
+    public void release(String sweep, String token) {
+        try {
+            // Only our own lock: if this sweep outlived the ttl another replica may hold it by now.
+            if (token.equals(redisTemplate.opsForValue().get(PREFIX + sweep))) {
+                redisTemplate.delete(PREFIX + sweep);
+            }
+        } catch (Exception e) {
+            log.debug("Could not release the {} sweep lock, it expires on its own: {}", sweep, e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package io.terrakube.api.plugin.scheduler.inactive;
 
-import io.terrakube.api.plugin.vcs.provider.azdevops.AzDevOpsWebhookService;
-import io.terrakube.api.plugin.vcs.provider.gitlab.GitLabWebhookService;
+import io.terrakube.api.plugin.scheduler.SweepLock;
+import io.terrakube.api.plugin.vcs.status.CommitStatusPublisher;
 import io.terrakube.api.rs.vcs.Vcs;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,10 +9,11 @@ import org.apache.commons.lang3.time.DateUtils;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.quartz.JobKey;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import io.terrakube.api.plugin.vcs.provider.github.GitHubWebhookService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import io.terrakube.api.repository.JobRepository;
 import io.terrakube.api.repository.StepRepository;
 import io.terrakube.api.rs.job.Job;
@@ -20,8 +21,9 @@ import io.terrakube.api.rs.job.JobStatus;
 import io.terrakube.api.rs.job.JobVia;
 import io.terrakube.api.rs.job.step.Step;
 
-import java.util.Arrays;
+import java.time.Duration;
 import java.util.Date;
+import java.util.List;
 
 import static io.terrakube.api.plugin.scheduler.ScheduleJobService.PREFIX_JOB_CONTEXT;
 
@@ -30,40 +32,65 @@ import static io.terrakube.api.plugin.scheduler.ScheduleJobService.PREFIX_JOB_CO
 @AllArgsConstructor
 public class InactiveJobs implements org.quartz.Job {
 
-    private final GitLabWebhookService gitLabWebhookService;
+    static final List<JobStatus> INACTIVE_STATUSES = List.of(
+            JobStatus.pending,
+            JobStatus.running,
+            JobStatus.queue,
+            JobStatus.waitingApproval);
+    static final int MAX_JOB_HOURS = 6;
+    static final int PAGE_SIZE = 500;
+    static final String SWEEP = "inactive-jobs";
+    private static final Duration LOCK_TTL = Duration.ofMinutes(10);
+
+    private final CommitStatusPublisher commitStatusPublisher;
     private final JobRepository jobRepository;
     private final RedisTemplate<String, Object> redisTemplate;
-    private final GitHubWebhookService gitHubWebhookService;
-    private final AzDevOpsWebhookService azDevOpsWebhookService;
     private final StepRepository stepRepository;
+    private final SweepLock sweepLock;
+    private final PlatformTransactionManager transactionManager;
 
-    @Transactional
+    // One transaction per page, as in JobReconciliationSweep: the persistence context and the
+    // transaction stay bounded by PAGE_SIZE, and the lock is only released once the last page
+    // committed.
     @Override
     public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
-        for (Job job : jobRepository.findAllByStatusInOrderByIdAsc(Arrays.asList(
-                JobStatus.pending,
-                JobStatus.running,
-                JobStatus.queue,
-                JobStatus.waitingApproval))) {
-            if (job.getCreatedDate() == null) {
-                log.warn("Skipping inactive job {} because it has no created date", job.getId());
-                continue;
-            }
-
-            Date currentTime = new Date(System.currentTimeMillis());
-            Date jobExpirationDate = DateUtils.addHours(job.getCreatedDate(), 6);
-            log.info("Inactive Job {} should be completed before {}, current time {}", job.getId(), jobExpirationDate, currentTime);
-            if (!currentTime.after(jobExpirationDate)) {
-                continue;
-            }
-
-            try {
-                closeExpiredJob(job, jobExecutionContext);
-            } catch (Exception e) {
-                log.error("Failed to close inactive job {}", job.getId(), e);
-            }
-
-            log.warn("Closing Job {}", job.getId());
+        String lock = sweepLock.tryAcquire(SWEEP, LOCK_TTL);
+        if (lock == null) {
+            log.debug("Inactive jobs sweep already running on another replica, skipping this tick");
+            return;
+        }
+        try {
+            // Only jobs already past the limit are read, a page at a time; jobs without a created
+            // date never match the query and are left alone as before.
+            Date expiredBefore = DateUtils.addHours(new Date(System.currentTimeMillis()), -MAX_JOB_HOURS);
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            int afterId = 0;
+            int pageSize;
+            do {
+                int pageAfterId = afterId;
+                List<Job> page = transactionTemplate.execute(status -> {
+                    List<Job> jobs = jobRepository.findByStatusInAndCreatedDateBeforeAndIdGreaterThanOrderByIdAsc(
+                            INACTIVE_STATUSES, expiredBefore, pageAfterId, Limit.of(PAGE_SIZE));
+                    for (Job job : jobs) {
+                        log.info("Inactive Job {} should have completed within {} hours of {}", job.getId(),
+                                MAX_JOB_HOURS, job.getCreatedDate());
+                        try {
+                            closeExpiredJob(job, jobExecutionContext);
+                        } catch (Exception e) {
+                            log.error("Failed to close inactive job {}", job.getId(), e);
+                        }
+
+                        log.warn("Closing Job {}", job.getId());
+                    }
+                    return jobs;
+                });
+                pageSize = page == null ? 0 : page.size();
+                if (pageSize > 0) {
+                    afterId = page.getLast().getId();
+                }
+            } while (pageSize == PAGE_SIZE);
+        } finally {
+            sweepLock.release(SWEEP, lock);
         }
     }
 
@@ -94,23 +121,8 @@ public class InactiveJobs implements org.quartz.Job {
             return;
         }
 
-        switch (workspaceVcs.getVcsType()) {
-            case GITHUB:
-                log.info("Updating VCS information for GITHUB on job {}", job.getId());
-                gitHubWebhookService.sendCommitStatus(job, JobStatus.unknown, null);
-                break;
-            case GITLAB:
-                log.info("Updating VCS information for GITLAB on job {}", job.getId());
-                gitLabWebhookService.sendCommitStatus(job, JobStatus.unknown, null);
-                break;
-            case AZURE_DEVOPS:
-            case AZURE_SP_MI:
-                log.info("Updating VCS information for AZURE_DEVOPS on job {}", job.getId());
-                azDevOpsWebhookService.sendCommitStatus(job, JobStatus.unknown, null);
-                break;
-            default:
-                break;
-        }
+        log.info("Updating VCS information for {} on job {}", workspaceVcs.getVcsType(), job.getId());
+        commitStatusPublisher.publish(job, JobStatus.unknown, null);
 
         jobExecutionContext.getScheduler().deleteJob(new JobKey(PREFIX_JOB_CONTEXT + job.getId()));
     }
@@ -1,5 +1,9 @@
 package io.terrakube.api.plugin.scheduler.job.tcl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.terrakube.api.plugin.scheduler.job.tcl.model.*;
 import io.terrakube.api.repository.JobRepository;
 import io.terrakube.api.repository.StepRepository;
@@ -18,8 +22,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.yaml.snakeyaml.LoaderOptions;
@@ -28,8 +37,12 @@ import org.yaml.snakeyaml.constructor.Constructor;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @AllArgsConstructor
 @Service
@@ -39,11 +52,28 @@ import java.util.*;
 public class TclService {
 
     private static final String IMPORT_DIRECTORY = "%s/.terraform-spring-boot/importCommands/%s";
+    private static final String FLOW_CONFIG_METRIC = "terrakube.tcl.flow.config";
 
     JobRepository jobRepository;
     StepRepository stepRepository;
     TemplateRepository templateRepository;
     VcsRepository vcsRepository;
+    MeterRegistry meterRegistry;
+
+    // Parsing is a pure function of the TCL text, and the 30s ScheduleJob loop re-parses the same
+    // handful of templates for every step of every active job. Keyed by a hash of the text (a
+    // template can be tens of KB) and holding frozen configs: callers get copies of the flows
+    // they modify (see getNextFlow), never the cached instances.
+    private final Cache<String, FlowConfig> flowConfigCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+    // Keyed by commit (see importCommands), so entries never go stale; the TTL only drops
+    // revisions nobody asks for any more.
+    private final Cache<String, List<Command>> importedCommandsCache = Caffeine.newBuilder()
+            .maximumSize(500)
+            .expireAfterWrite(Duration.ofHours(6))
+            .build();
 
     @Transactional
     public Job initJobConfiguration(Job job) {
@@ -93,13 +123,31 @@ public class TclService {
             return job;
     }
 
+    // Every pending step of every active job goes through here on each ScheduleJob tick, so the
+    // timer (tagged by cache hit or miss) is the per-tick cost of evaluating pending steps.
     private FlowConfig getFlowConfig(String tcl) {
+        String text = tcl == null ? "" : tcl;
+        long started = System.nanoTime();
+        boolean[] parsed = {false};
+        FlowConfig flowConfig = flowConfigCache.get(sha256(text), key -> {
+            parsed[0] = true;
+            return freeze(parseFlowConfig(text));
+        });
+        Timer.builder(FLOW_CONFIG_METRIC)
+                .description("Time to resolve a job's parsed TCL flow config")
+                .tag("cache", parsed[0] ? "miss" : "hit")
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return flowConfig;
+    }
+
+    private FlowConfig parseFlowConfig(String tcl) {
+        // Yaml instances are not thread-safe, and on a cache miss the cost of a new one is noise.
         Yaml yaml = new Yaml(new Constructor(FlowConfig.class, new LoaderOptions()));
         FlowConfig flowConfig = null;
         try {
-            FlowConfig temp = yaml.load(new String(Base64.getDecoder().decode(tcl)));
-            log.info("FlowConfig: \n {}", temp);
             flowConfig = yaml.load(new String(Base64.getDecoder().decode(tcl)));
+            log.info("FlowConfig: \n {}", flowConfig);
 
             if (flowConfig.getFlow().isEmpty()) {
                 log.error("Exception parsing yaml: template with no flows");
@@ -112,6 +160,53 @@ public class TclService {
         return flowConfig;
     }
 
+    private static FlowConfig freeze(FlowConfig flowConfig) {
+        flowConfig.getFlow().forEach(flow -> {
+            flow.setCommands(unmodifiable(flow.getCommands()));
+            flow.setOnFailure(unmodifiable(flow.getOnFailure()));
+            flow.setOnReject(unmodifiable(flow.getOnReject()));
+            flow.setTemplates(unmodifiable(flow.getTemplates()));
+            flow.setInputsEnv(flow.getInputsEnv() == null ? null : Collections.unmodifiableMap(flow.getInputsEnv()));
+            flow.setInputsTerraform(flow.getInputsTerraform() == null ? null
+                    : Collections.unmodifiableMap(flow.getInputsTerraform()));
+        });
+        flowConfig.setFlow(Collections.unmodifiableList(flowConfig.getFlow()));
+        return flowConfig;
+    }
+
+    private static <T> List<T> unmodifiable(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(list);
+    }
+
+    // Shallow: callers only replace a flow's fields (commands from imports or onReject), and
+    // the collections they'd otherwise share are read-only.
+    private static Flow copyOf(Flow flow) {
+        Flow copy = new Flow();
+        copy.setType(flow.getType());
+        copy.setTeam(flow.getTeam());
+        copy.setName(flow.getName());
+        copy.setIgnoreError(flow.isIgnoreError());
+        copy.setError(flow.getError());
+        copy.setStep(flow.getStep());
+        copy.setCommands(flow.getCommands());
+        copy.setOnFailure(flow.getOnFailure());
+        copy.setOnReject(flow.getOnReject());
+        copy.setTemplates(flow.getTemplates());
+        copy.setInputsEnv(flow.getInputsEnv());
+        copy.setInputsTerraform(flow.getInputsTerraform());
+        copy.setImportCommands(flow.getImportCommands());
+        return copy;
+    }
+
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private FlowConfig setErrorFlowYaml(String message) {
         FlowConfig flowConfig = new FlowConfig();
         List<Flow> flowList = new ArrayList();
@@ -139,7 +234,7 @@ public class TclService {
                     .findFirst();
 
             if (nextFlow.isPresent()) {
-                Flow finalFlow = nextFlow.get();
+                Flow finalFlow = copyOf(nextFlow.get());
                 log.info("Checking import commands in YAML");
                 ImportCommands importCommands = finalFlow.getImportCommands();
                 if (importCommands != null) {
@@ -156,62 +251,96 @@ public class TclService {
             return null;
     }
 
+    /**
+     * Commands are cached per repository, ref, folder, VCS and commit: an ls-remote (one round
+     * trip, no objects) tells whether the cached list is still current. Only a new commit costs a
+     * fetch, and that fetch is a depth 1, single ref, no-checkout clone that reads the one file
+     * straight out of the commit's tree.
+     */
     private List<Command> importCommands(String repository, String branch, String folder, String vcsId) {
-        List<Command> commands = new ArrayList<>();
-        try {
-            File importFolder = generateImportFolder();
-            log.info("Get commands text");
-            String commandsText = getCommandList(repository, branch, folder, generateImportFolder(), vcsId);
-
-            log.info("Parsing yaml file");
-            Yaml yaml = new Yaml(new Constructor(CommandConfig.class, new LoaderOptions()));
-            CommandConfig temp = yaml.load(commandsText);
-
-            commands = temp.getCommands();
+        CredentialsProvider credentialsProvider = vcsId != null && !vcsId.isEmpty() ? setupImportCredentials(vcsId) : null;
+        String path = commandsPath(folder);
+
+        ImportRevision revision = resolveImportRevision(repository, branch, credentialsProvider);
+        List<Command> commands;
+        if (revision == null) {
+            commands = loadImportCommands(repository, Constants.R_HEADS + branch, path, credentialsProvider);
+        } else {
+            String key = String.join("\n", repository, revision.ref(), path, vcsId == null ? "" : vcsId,
+                    revision.commitId());
+            commands = importedCommandsCache.get(key,
+                    k -> loadImportCommands(repository, revision.ref(), path, credentialsProvider));
+        }
+        return commands == null ? new ArrayList<>() : commands;
+    }
 
-            log.info("Importing commands \n{}\n", commandsText);
+    private record ImportRevision(String ref, String commitId) {
+    }
 
-            log.info("Cleaning temp directory");
-            FileUtils.cleanDirectory(importFolder);
-        } catch (IOException e) {
-            log.error(e.getMessage());
+    // The branch field also accepts a tag, as it does for workspaces.
+    private ImportRevision resolveImportRevision(String repository, String branch, CredentialsProvider credentialsProvider) {
+        try {
+            Map<String, Ref> refs = Git.lsRemoteRepository()
+                    .setRemote(repository)
+                    .setCredentialsProvider(credentialsProvider)
+                    .setHeads(true)
+                    .setTags(true)
+                    .callAsMap();
+            Ref ref = refs.containsKey(Constants.R_HEADS + branch)
+                    ? refs.get(Constants.R_HEADS + branch)
+                    : refs.get(Constants.R_TAGS + branch);
+            if (ref == null || ref.getObjectId() == null) {
+                log.warn("Import branch {} not found in {}", branch, repository);
+                return null;
+            }
+            return new ImportRevision(ref.getName(), ref.getObjectId().getName());
+        } catch (GitAPIException e) {
+            log.warn("Unable to list refs for import repository {}: {}", repository, e.getMessage());
+            return null;
         }
-        return commands;
     }
 
-    private String getCommandList(String repository, String branch, String folder, File folderImport, String vcsId) {
-        String commandList = "";
-        try {
+    private static String commandsPath(String folder) {
+        String trimmed = folder == null ? "" : folder.replaceAll("^/+|/+$", "");
+        return trimmed.isEmpty() ? "commands.yaml" : trimmed + "/commands.yaml";
+    }
 
-            log.info("Cloning template import repository");
-            if(vcsId !=null && !vcsId.isEmpty()) {
-                Git.cloneRepository()
-                        .setURI(repository)
-                        .setDirectory(folderImport)
-                        .setBranch(branch)
-                        .setCredentialsProvider(setupImportCredentials(vcsId))
-                        .call();
-            } else {
-                log.info("Importing from public repository");
-                Git.cloneRepository()
-                        .setURI(repository)
-                        .setDirectory(folderImport)
-                        .setBranch(branch)
-                        .call();
-            }
-            File importData = null;
-            if (folder.equals("/")) {
-                importData = new File(String.format("%s/commands.yaml", folderImport.getCanonicalPath()));
-            } else {
-                importData = new File(String.format("%s/%s/commands.yaml", folderImport.getCanonicalPath(), folder));
-            }
+    /**
+     * Returns null when the commands can't be read, so a failure is retried on the next call
+     * instead of being cached.
+     */
+    private List<Command> loadImportCommands(String repository, String ref, String path, CredentialsProvider credentialsProvider) {
+        File importFolder = generateImportFolder();
+        log.info("Fetching {} from {} {}", path, repository, ref);
+        try (Git git = Git.cloneRepository()
+                .setURI(repository)
+                .setDirectory(importFolder)
+                .setCredentialsProvider(credentialsProvider)
+                .setBranch(ref)
+                .setBranchesToClone(List.of(ref))
+                .setDepth(1)
+                .setNoCheckout(true)
+                .call()) {
+            Repository gitRepository = git.getRepository();
+            RevCommit commit = gitRepository.parseCommit(gitRepository.resolve(Constants.HEAD));
+            try (TreeWalk treeWalk = TreeWalk.forPath(gitRepository, path, commit.getTree())) {
+                if (treeWalk == null) {
+                    log.error("{} not found in {} {}", path, repository, ref);
+                    return null;
+                }
+                String commandsText = new String(gitRepository.open(treeWalk.getObjectId(0)).getBytes(), StandardCharsets.UTF_8);
+                log.info("Importing commands \n{}\n", commandsText);
 
-            log.info("Reading commands.yaml file");
-            commandList = FileUtils.readFileToString(importData, Charset.defaultCharset());
-        } catch (IOException | GitAPIException e) {
-            log.error(e.getMessage());
+                Yaml yaml = new Yaml(new Constructor(CommandConfig.class, new LoaderOptions()));
+                CommandConfig commandConfig = yaml.load(commandsText);
+                return commandConfig == null ? null : unmodifiable(commandConfig.getCommands());
+            }
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            log.error("Unable to import commands from {} {}: {}", repository, ref, e.getMessage());
+            return null;
+        } finally {
+            FileUtils.deleteQuietly(importFolder);
         }
-        return commandList;
     }
 
     private CredentialsProvider setupImportCredentials(String vcsId) {
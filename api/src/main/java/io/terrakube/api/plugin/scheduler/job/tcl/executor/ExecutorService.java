@@ -3,8 +3,6 @@ package io.terrakube.api.plugin.scheduler.job.tcl.executor;
 import java.net.URISyntaxException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,22 +16,17 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot.CollectionVariables;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot.ResolvedVariable;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ephemeral.EphemeralExecutorService;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.persistent.PersistentExecutorService;
 import io.terrakube.api.plugin.scheduler.job.tcl.model.Flow;
 import io.terrakube.api.plugin.scheduler.job.tcl.model.FlowType;
 import io.terrakube.api.plugin.token.dynamic.DynamicCredentialsService;
 import io.terrakube.api.plugin.vcs.TokenService;
-import io.terrakube.api.repository.GlobalVarRepository;
-import io.terrakube.api.repository.ReferenceRepository;
 import io.terrakube.api.repository.SshRepository;
-import io.terrakube.api.repository.VariableRepository;
 import io.terrakube.api.repository.VcsRepository;
 import io.terrakube.api.repository.WorkspaceRepository;
-import io.terrakube.api.rs.collection.Collection;
-import io.terrakube.api.rs.collection.Reference;
-import io.terrakube.api.rs.collection.item.Item;
-import io.terrakube.api.rs.globalvar.Globalvar;
 import io.terrakube.api.rs.job.Job;
 import io.terrakube.api.rs.job.address.Address;
 import io.terrakube.api.rs.job.address.AddressType;
@@ -42,7 +35,6 @@ import io.terrakube.api.rs.vcs.Vcs;
 import io.terrakube.api.rs.vcs.VcsConnectionType;
 import io.terrakube.api.rs.workspace.Workspace;
 import io.terrakube.api.rs.workspace.parameters.Category;
-import io.terrakube.api.rs.workspace.parameters.Variable;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -55,9 +47,6 @@ public class ExecutorService {
     @Value("${io.terrakube.tools.repository}")
     String toolsRepository;
 
-    @Autowired
-    GlobalVarRepository globalVarRepository;
-
     @Autowired
     SshRepository sshRepository;
 
@@ -78,9 +67,7 @@ public class ExecutorService {
     @Autowired
     WorkspaceRepository workspaceRepository;
     @Autowired
-    private VariableRepository variableRepository;
-    @Autowired
-    private ReferenceRepository referenceRepository;
+    private JobVariableSnapshotService jobVariableSnapshotService;
 
     public void execute(Job job, String stepId, Flow flow) throws ExecutionException {
         log.info("Pending Job: {} WorkspaceId: {}", job.getId(), job.getWorkspace().getId());
@@ -127,10 +114,11 @@ public class ExecutorService {
         environmentVariables.put("TF_IN_AUTOMATION", "1");
         environmentVariables.put("workspaceName", job.getWorkspace().getName());
         environmentVariables.put("organizationName", job.getOrganization().getName());
-        splitWorkspaceVariablesByCategory(job, terraformVariables, environmentVariables);
+        JobVariableSnapshot variables = jobVariableSnapshotService.snapshot(job);
+        splitWorkspaceVariablesByCategory(job, variables.workspaceVariables(), terraformVariables, environmentVariables);
 
-        environmentVariables = loadOtherEnvironmentVariables(job, flow, environmentVariables);
-        terraformVariables = loadOtherTerraformVariables(job, flow, terraformVariables);
+        environmentVariables = loadOtherEnvironmentVariables(job, flow, variables, environmentVariables);
+        terraformVariables = loadOtherTerraformVariables(job, flow, variables, terraformVariables);
 
         executorContext.setVariables(terraformVariables);
         executorContext.setEnvironmentVariables(environmentVariables);
@@ -191,26 +179,26 @@ public class ExecutorService {
         if (executorContext.getEnvironmentVariables().containsKey("TERRAKUBE_ENABLE_EPHEMERAL_EXECUTOR")) {
             ephemeralExecutorService.send(job, executorContext);
         } else {
-            persistentExecutorService.send(job, executorContext);
+            persistentExecutorService.send(job, executorContext, variables);
         }
     }
 
-    void splitWorkspaceVariablesByCategory(Job job, HashMap<String, String> terraformVariables,
-            HashMap<String, String> environmentVariables) throws ExecutionException {
-        List<Variable> variableList = variableRepository.findByWorkspace(job.getWorkspace()).orElse(new ArrayList<>());
-        for (Variable variable : variableList) {
-            if (variable.getCategory() == null) {
+    void splitWorkspaceVariablesByCategory(Job job, List<ResolvedVariable> variableList,
+            HashMap<String, String> terraformVariables, HashMap<String, String> environmentVariables)
+            throws ExecutionException {
+        for (ResolvedVariable variable : variableList) {
+            if (variable.category() == null) {
                 throw new ExecutionException(String.format(
                         "Cannot run job %s: workspace '%s' has variable '%s' with no category (expected TERRAFORM or ENV). "
                                 + "Update the variable's category before retrying.",
-                        job.getId(), job.getWorkspace().getName(), variable.getKey()));
+                        job.getId(), job.getWorkspace().getName(), variable.key()));
             }
-            if (Category.TERRAFORM.equals(variable.getCategory())) {
-                log.info("Adding terraform variable, Key: {}", variable.getKey());
-                terraformVariables.put(variable.getKey(), variable.getValue());
+            if (Category.TERRAFORM.equals(variable.category())) {
+                log.info("Adding terraform variable, Key: {}", variable.key());
+                terraformVariables.put(variable.key(), variable.value());
             } else {
-                log.info("Adding environment variable, Key: {}", variable.getKey());
-                environmentVariables.put(variable.getKey(), variable.getValue());
+                log.info("Adding environment variable, Key: {}", variable.key());
+                environmentVariables.put(variable.key(), variable.value());
             }
         }
     }
@@ -283,25 +271,25 @@ public class ExecutorService {
         workspaceRepository.save(workspace);
     }
 
-    private HashMap<String, String> loadOtherEnvironmentVariables(Job job, Flow flow,
+    private HashMap<String, String> loadOtherEnvironmentVariables(Job job, Flow flow, JobVariableSnapshot variables,
             HashMap<String, String> workspaceEnvVariables) {
         if (flow.getInputsEnv() != null
                 || (flow.getImportCommands() != null && flow.getImportCommands().getInputsEnv() != null)) {
             if (flow.getImportCommands() != null && flow.getImportCommands().getInputsEnv() != null) {
                 log.info("Loading ENV inputs from ImportComands");
-                workspaceEnvVariables = loadInputData(job, Category.ENV,
+                workspaceEnvVariables = loadInputData(job, variables, Category.ENV,
                         new HashMap(flow.getImportCommands().getInputsEnv()), workspaceEnvVariables);
             }
 
             if (flow.getInputsEnv() != null) {
                 log.info("Loading ENV inputs from InputsEnv");
-                workspaceEnvVariables = loadInputData(job, Category.ENV, new HashMap(flow.getInputsEnv()),
+                workspaceEnvVariables = loadInputData(job, variables, Category.ENV, new HashMap(flow.getInputsEnv()),
                         workspaceEnvVariables);
             }
 
         } else {
             log.info("Loading default env variables to job");
-            workspaceEnvVariables = loadDefault(job, Category.ENV, workspaceEnvVariables);
+            workspaceEnvVariables = loadDefault(variables, Category.ENV, workspaceEnvVariables);
         }
 
         if (workspaceEnvVariables.containsKey("ENABLE_DYNAMIC_CREDENTIALS_AZURE")) {
@@ -360,79 +348,61 @@ public class ExecutorService {
         return workspaceEnvVariables;
     }
 
-    private HashMap<String, String> loadOtherTerraformVariables(Job job, Flow flow,
+    private HashMap<String, String> loadOtherTerraformVariables(Job job, Flow flow, JobVariableSnapshot variables,
             HashMap<String, String> workspaceTerraformVariables) {
         if (flow.getInputsTerraform() != null
                 || (flow.getImportCommands() != null && flow.getImportCommands().getInputsTerraform() != null)) {
             if (flow.getImportCommands() != null && flow.getImportCommands().getInputsTerraform() != null) {
                 log.info("Loading TERRAFORM inputs from ImportComands");
-                workspaceTerraformVariables = loadInputData(job, Category.TERRAFORM,
+                workspaceTerraformVariables = loadInputData(job, variables, Category.TERRAFORM,
                         new HashMap(flow.getImportCommands().getInputsTerraform()), workspaceTerraformVariables);
             }
 
             if (flow.getInputsTerraform() != null) {
                 log.info("Loading TERRAFORM inputs from InputsTerraform");
-                workspaceTerraformVariables = loadInputData(job, Category.TERRAFORM,
+                workspaceTerraformVariables = loadInputData(job, variables, Category.TERRAFORM,
                         new HashMap(flow.getInputsTerraform()), workspaceTerraformVariables);
             }
 
         } else {
             log.info("Loading default env variables to job");
-            workspaceTerraformVariables = loadDefault(job, Category.TERRAFORM, workspaceTerraformVariables);
+            workspaceTerraformVariables = loadDefault(variables, Category.TERRAFORM, workspaceTerraformVariables);
         }
         return workspaceTerraformVariables;
     }
 
-    private HashMap<String, String> loadInputData(Job job, Category categoryVar, HashMap<String, String> importFrom,
-            HashMap<String, String> importTo) {
+    private HashMap<String, String> loadInputData(Job job, JobVariableSnapshot variables, Category categoryVar,
+            HashMap<String, String> importFrom, HashMap<String, String> importTo) {
         Map<String, String> finalWorkspaceEnvVariables = importTo;
         importFrom.forEach((key, value) -> {
             java.lang.String searchValue = value.replace("$", "");
-            Globalvar globalvar = globalVarRepository.getGlobalvarByOrganizationAndCategoryAndKey(job.getOrganization(),
-                    categoryVar, searchValue);
+            Optional<ResolvedVariable> globalvar = variables.globalVariable(categoryVar, searchValue);
             log.info("Searching globalvar {} ({}) in Org {} found {}", searchValue, categoryVar,
-                    job.getOrganization().getName(), (globalvar != null) ? true : false);
-            if (globalvar != null) {
-                finalWorkspaceEnvVariables.putIfAbsent(key, globalvar.getValue());
-            }
+                    job.getOrganization().getName(), globalvar.isPresent());
+            globalvar.ifPresent(found -> finalWorkspaceEnvVariables.putIfAbsent(key, found.value()));
         });
 
         return new HashMap(finalWorkspaceEnvVariables);
     }
 
-    private HashMap<String, String> loadDefault(Job job, Category category, HashMap<String, String> workspaceData) {
-        for (Globalvar globalvar : globalVarRepository.findByOrganization(job.getOrganization())) {
-            if (globalvar.getCategory().equals(category)) {
-                workspaceData.putIfAbsent(globalvar.getKey(), globalvar.getValue());
-                log.info("Adding {} Global Variable Key: {} Value {}", category, globalvar.getKey(),
-                        globalvar.isSensitive() ? "sensitive" : globalvar.getValue());
+    private HashMap<String, String> loadDefault(JobVariableSnapshot variables, Category category,
+            HashMap<String, String> workspaceData) {
+        for (ResolvedVariable globalvar : variables.globalVariables()) {
+            if (category.equals(globalvar.category())) {
+                workspaceData.putIfAbsent(globalvar.key(), globalvar.value());
+                log.info("Adding {} Global Variable Key: {} Value {}", category, globalvar.key(),
+                        globalvar.sensitive() ? "sensitive" : globalvar.value());
             }
         }
 
-        List<Reference> referenceList = referenceRepository.findByWorkspace(job.getWorkspace()).orElse(new ArrayList<>());
-
-        List<Collection> collectionList = new ArrayList();
-        for (Reference reference : referenceList) {
-            collectionList.add(reference.getCollection());
-        }
-
-        List<Collection> sortedList = collectionList.stream()
-                .sorted(Comparator.comparing(Collection::getPriority).reversed())
-                .toList();
-
-        sortedList.stream().forEach(collection -> {
-            log.info("Adding data from collection {} using priority {}", collection.getName(), collection.getPriority());
-
-            List<Item> itemList = new ArrayList();
-            itemList = collection.getItem();
-            for (Item item : itemList) {
-                if (item.getCategory().equals(category)) {
-                    workspaceData.putIfAbsent(item.getKey(), item.getValue());
+        for (CollectionVariables collection : variables.collections()) {
+            log.info("Adding data from collection {} using priority {}", collection.name(), collection.priority());
+            for (ResolvedVariable item : collection.items()) {
+                if (category.equals(item.category())) {
+                    workspaceData.putIfAbsent(item.key(), item.value());
                 }
             }
-
-        });
-
+        }
 
         return workspaceData;
     }
@@ -0,0 +1,32 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor;
+
+import java.util.List;
+import java.util.Optional;
+
+import io.terrakube.api.rs.workspace.parameters.Category;
+
+/**
+ * Everything a job's environment is built from, read once and detached from the persistence
+ * context: the workspace variables, the organization global variables and the items of every
+ * collection referenced by the workspace, collections ordered by priority (highest first).
+ */
+public record JobVariableSnapshot(List<ResolvedVariable> workspaceVariables,
+                                  List<ResolvedVariable> globalVariables,
+                                  List<CollectionVariables> collections) {
+
+    public record ResolvedVariable(String key, String value, Category category, boolean sensitive) {
+    }
+
+    public record CollectionVariables(String name, int priority, List<ResolvedVariable> items) {
+    }
+
+    public Optional<ResolvedVariable> globalVariable(Category category, String key) {
+        return globalVariables.stream()
+                .filter(variable -> category.equals(variable.category()) && key.equals(variable.key()))
+                .findFirst();
+    }
+
+    public Optional<ResolvedVariable> globalVariable(String key) {
+        return globalVariables.stream().filter(variable -> key.equals(variable.key())).findFirst();
+    }
+}
@@ -0,0 +1,139 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot.CollectionVariables;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot.ResolvedVariable;
+import io.terrakube.api.repository.GlobalVarRepository;
+import io.terrakube.api.repository.ReferenceRepository;
+import io.terrakube.api.repository.VariableRepository;
+import io.terrakube.api.rs.collection.Collection;
+import io.terrakube.api.rs.collection.Reference;
+import io.terrakube.api.rs.job.Job;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves the variables a job runs with in a fixed number of queries (workspace variables, organization
+ * global variables, and the referenced collections with their items in a single join) and keeps the
+ * result for the job's following steps.
+ *
+ * A snapshot is reused only while the variables generation it was read under is still current. The
+ * generation is a Redis counter bumped after every committed change to a variable, global variable,
+ * collection, collection item or reference (see JobVariablesChangeHook), so a snapshot read by one API
+ * replica is dropped by all of them as soon as anything it may contain changes. If Redis can't be
+ * reached the generation is unknown and every step reads the variables again, as it always did.
+ * Snapshots also expire a few minutes after they were read, however often they are reused: they hold
+ * variable values, sensitive ones included, and a bump lost while Redis was down leaves the
+ * generation unchanged.
+ */
+@Slf4j
+@Service
+public class JobVariableSnapshotService {
+
+    static final String GENERATION_KEY = "terrakube:job-variables:generation";
+    static final Duration MAX_STALENESS = Duration.ofMinutes(5);
+
+    private record Entry(long generation, JobVariableSnapshot snapshot) {
+    }
+
+    @Autowired
+    VariableRepository variableRepository;
+
+    @Autowired
+    GlobalVarRepository globalVarRepository;
+
+    @Autowired
+    ReferenceRepository referenceRepository;
+
+    @Autowired
+    RedisTemplate<String, Object> redisTemplate;
+
+    private final Cache<Integer, Entry> snapshots = Caffeine.newBuilder()
+            .maximumSize(500)
+            .expireAfterWrite(MAX_STALENESS)
+            .build();
+
+    public JobVariableSnapshot snapshot(Job job) {
+        Long generation = currentGeneration();
+        if (generation != null) {
+            Entry entry = snapshots.getIfPresent(job.getId());
+            if (entry != null && entry.generation() == generation) {
+                log.debug("Reusing variables snapshot for job {}", job.getId());
+                return entry.snapshot();
+            }
+        }
+
+        JobVariableSnapshot snapshot = load(job);
+        if (generation != null) {
+            snapshots.put(job.getId(), new Entry(generation, snapshot));
+        } else {
+            snapshots.invalidate(job.getId());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Called once a change to anything a snapshot is built from has been committed.
+     */
+    public void variablesChanged() {
+        snapshots.invalidateAll();
+        try {
+            redisTemplate.opsForValue().increment(GENERATION_KEY);
+        } catch (Exception e) {
+            log.warn("Could not bump the job variables generation, other replicas may reuse a stale snapshot until it changes again: {}",
+                    e.getMessage());
+        }
+    }
+
+    private Long currentGeneration() {
+        try {
+            // INCRBY 0 reads the counter as a number whatever value serializer the template uses,
+            // and creates it at 0 the first time.
+            return redisTemplate.opsForValue().increment(GENERATION_KEY, 0);
+        } catch (Exception e) {
+            log.warn("Could not read the job variables generation, loading variables without the snapshot cache: {}",
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    private JobVariableSnapshot load(Job job) {
+        List<ResolvedVariable> workspaceVariables = variableRepository.findByWorkspace(job.getWorkspace())
+                .orElse(new ArrayList<>())
+                .stream()
+                .map(variable -> new ResolvedVariable(variable.getKey(), variable.getValue(), variable.getCategory(),
+                        variable.isSensitive()))
+                .toList();
+
+        List<ResolvedVariable> globalVariables = globalVarRepository.findByOrganization(job.getOrganization())
+                .stream()
+                .map(globalvar -> new ResolvedVariable(globalvar.getKey(), globalvar.getValue(), globalvar.getCategory(),
+                        globalvar.isSensitive()))
+                .toList();
+
+        List<CollectionVariables> collections = referenceRepository.findByWorkspaceWithItems(job.getWorkspace())
+                .stream()
+                .map(Reference::getCollection)
+                .sorted(Comparator.comparing(Collection::getPriority).reversed())
+                .map(collection -> new CollectionVariables(collection.getName(), collection.getPriority(),
+                        collection.getItem() == null ? List.of() : collection.getItem().stream()
+                                .map(item -> new ResolvedVariable(item.getKey(), item.getValue(), item.getCategory(),
+                                        item.isSensitive()))
+                                .toList()))
+                .toList();
+
+        log.info("Loaded variables snapshot for job {}: {} workspace variables, {} global variables, {} collections",
+                job.getId(), workspaceVariables.size(), globalVariables.size(), collections.size());
+        return new JobVariableSnapshot(workspaceVariables, globalVariables, collections);
+    }
+}
@@ -1,5 +1,6 @@
 package io.terrakube.api.plugin.scheduler.job.tcl.executor.ephemeral;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.fabric8.kubernetes.api.model.*;
 import io.fabric8.kubernetes.api.model.batch.v1.JobBuilder;
@@ -14,6 +15,7 @@ import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorContext;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorUnavailableException;
 import io.terrakube.api.rs.job.Job;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Slf4j
@@ -31,41 +33,37 @@ public class EphemeralExecutorService {
     private static final String PVC_CLAIM_NAME = "PVC_CLAIM_NAME";
     private static final String POD_SECURITY_CONTEXT = "EPHEMERAL_CONFIG_POD_SECURITY_CONTEXT";
     private static final String SECURITY_CONTEXT = "EPHEMERAL_CONFIG_SECURITY_CONTEXT";
-    private static final String EPHEMERAL_CPU_REQUEST = "EPHEMERAL_CPU_REQUEST";
-    private static final String EPHEMERAL_MEMORY_REQUEST = "EPHEMERAL_MEMORY_REQUEST";
-    private static final String EPHEMERAL_STORAGE_REQUEST = "EPHEMERAL_STORAGE_REQUEST";
-    private static final String EPHEMERAL_CPU_LIMIT = "EPHEMERAL_CPU_LIMIT";
-    private static final String EPHEMERAL_MEMORY_LIMIT = "EPHEMERAL_MEMORY_LIMIT";
-    private static final String EPHEMERAL_STORAGE_LIMIT = "EPHEMERAL_STORAGE_LIMIT";
+    static final String EPHEMERAL_CPU_REQUEST = "EPHEMERAL_CPU_REQUEST";
+    static final String EPHEMERAL_MEMORY_REQUEST = "EPHEMERAL_MEMORY_REQUEST";
+    static final String EPHEMERAL_STORAGE_REQUEST = "EPHEMERAL_STORAGE_REQUEST";
+    static final String EPHEMERAL_CPU_LIMIT = "EPHEMERAL_CPU_LIMIT";
+    static final String EPHEMERAL_MEMORY_LIMIT = "EPHEMERAL_MEMORY_LIMIT";
+    static final String EPHEMERAL_STORAGE_LIMIT = "EPHEMERAL_STORAGE_LIMIT";
     private static final String EPHEMERAL_JOB_ENV_VARS = "EPHEMERAL_JOB_ENV_VARS";
     private static final String LABELS = "EPHEMERAL_CONFIG_LABELS";
     private static final String ENVFROM_CONFIG_MAP = "EPHEMERAL_CONFIG_ENVFROM_CONFIG_MAP";
     private static final String POD_ANNOTATIONS = "EPHEMERAL_CONFIG_POD_ANNOTATIONS";
 
+    // Job variables that shape the pod beyond its resources. A job setting any of them needs a pod
+    // built for it and is never handed to a warm pod (see WarmPodPool).
+    static final Set<String> POD_SPEC_VARIABLES = Set.of(NODE_SELECTOR, TOLERATIONS, SERVICE_ACCOUNT, ANNOTATIONS,
+            CONFIG_MAP_NAME, CONFIG_MAP_PATH, TF_CACHE_DIR, PVC_CLAIM_NAME, POD_SECURITY_CONTEXT, SECURITY_CONTEXT,
+            EPHEMERAL_JOB_ENV_VARS, LABELS, ENVFROM_CONFIG_MAP, POD_ANNOTATIONS);
+
     KubernetesClient kubernetesClient;
     EphemeralConfiguration ephemeralConfiguration;
+    WarmPodPool warmPodPool;
 
     public void send(Job job, ExecutorContext executorContext) throws ExecutionException {
-        final String jobName = String.format("job-%s-%s", job.getId(), System.currentTimeMillis());
-        log.info("Ephemeral Executor Image {}, Job: {}, Namespace: {}, NodeSelector: {}", ephemeralConfiguration.getImage(), jobName, ephemeralConfiguration.getNamespace(), ephemeralConfiguration.getNodeSelector());
-        final List<EnvFromSource> executorEnvFromSources = new ArrayList<>();
-        if (ephemeralConfiguration.getSecret() != null) {
-            for (String secretName : ephemeralConfiguration.getSecret()) {
-                if (secretName == null) {
-                    continue;
-                }
-                String trimmed = secretName.trim();
-                if (trimmed.isEmpty()) {
-                    continue;
-                }
-                SecretEnvSource secretEnvSource = new SecretEnvSource();
-                secretEnvSource.setName(trimmed);
-                EnvFromSource envFromSource = new EnvFromSource();
-                envFromSource.setSecretRef(secretEnvSource);
-                executorEnvFromSources.add(envFromSource);
-            }
+        if (warmPodPool != null && warmPodPool.offer(executorContext)) {
+            log.info("Job {} handed to a warm ephemeral executor", job.getId());
+            return;
         }
 
+        final String jobName = jobName(String.valueOf(job.getId()));
+        log.info("Ephemeral Executor Image {}, Job: {}, Namespace: {}, NodeSelector: {}", ephemeralConfiguration.getImage(), jobName, ephemeralConfiguration.getNamespace(), ephemeralConfiguration.getNodeSelector());
+        final List<EnvFromSource> executorEnvFromSources = secretEnvSources(ephemeralConfiguration);
+
         Optional<String> configMapEnvFromNames = Optional.ofNullable(
                 executorContext.getEnvironmentVariables().getOrDefault(ENVFROM_CONFIG_MAP, null));
         if (configMapEnvFromNames.isPresent()) {
@@ -89,9 +87,7 @@ public class EphemeralExecutorService {
         EnvVar executorFlagBatchJsonContent = new EnvVar();
         try {
             executorFlagBatchJsonContent.setName("EphemeralJobData");
-            ObjectMapper mapper = new ObjectMapper();
-            String jobJson = mapper.writeValueAsString(executorContext);
-            executorFlagBatchJsonContent.setValue(Base64.getEncoder().encodeToString(jobJson.getBytes("UTF-8")));
+            executorFlagBatchJsonContent.setValue(jobData(executorContext));
         } catch (Exception e) {
             log.error(e.getMessage());
         }
@@ -360,6 +356,36 @@ public class EphemeralExecutorService {
         }
     }
 
+    static String jobName(String jobId) {
+        return String.format("job-%s-%s", jobId, System.currentTimeMillis());
+    }
+
+    static String jobData(ExecutorContext executorContext) throws JsonProcessingException {
+        String jobJson = new ObjectMapper().writeValueAsString(executorContext);
+        return Base64.getEncoder().encodeToString(jobJson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static List<EnvFromSource> secretEnvSources(EphemeralConfiguration ephemeralConfiguration) {
+        final List<EnvFromSource> executorEnvFromSources = new ArrayList<>();
+        if (ephemeralConfiguration.getSecret() != null) {
+            for (String secretName : ephemeralConfiguration.getSecret()) {
+                if (secretName == null) {
+                    continue;
+                }
+                String trimmed = secretName.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                SecretEnvSource secretEnvSource = new SecretEnvSource();
+                secretEnvSource.setName(trimmed);
+                EnvFromSource envFromSource = new EnvFromSource();
+                envFromSource.setSecretRef(secretEnvSource);
+                executorEnvFromSources.add(envFromSource);
+            }
+        }
+        return executorEnvFromSources;
+    }
+
     // Mirrors PersistentExecutorService's ExecutorUnavailableException split: treat capacity/
     // availability signals from the Kubernetes API as retryable, and genuine request/config
     // rejections (a bad manifest, RBAC denial) as a real failure that retrying will never fix.
@@ -0,0 +1,400 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor.ephemeral;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.kubernetes.api.model.PodSecurityContextBuilder;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.ResourceRequirementsBuilder;
+import io.fabric8.kubernetes.api.model.SecurityContext;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.api.model.batch.v1.JobBuilder;
+import io.fabric8.kubernetes.api.model.batch.v1.JobStatus;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorContext;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.ephemeral.WarmPoolProperties.Profile;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps pre-started ephemeral executor pods per resource profile and hands them jobs through Redis.
+ *
+ * A warm pod is an ordinary ephemeral executor Job started without job data. It registers itself in
+ * the profile's "idle" hash, blocks on the profile's queue and runs exactly one job from it, then exits
+ * like any ephemeral executor (see the executor's WarmPoolWaiter). Handing a job over is a single
+ * LPUSH, so a job starts as soon as a pod pops it instead of after pod scheduling, image pull and JVM
+ * start-up.
+ *
+ * Pods are replaced asynchronously by reconcile(), which runs on one API replica at a time and:
+ * - gives every queued job that no warm pod picked up within claimTimeoutSeconds its own Job, the same
+ *   one the cold path would have created for it;
+ * - records how long claimed jobs waited in the queue, and until their first log line;
+ * - starts new warm pods up to minIdle plus the jobs that waited or went cold since the last run,
+ *   capped at maxIdle. Idle pods beyond that simply time out.
+ *
+ * Redis being unavailable only means jobs take the cold path.
+ */
+@Slf4j
+@Component
+public class WarmPodPool {
+
+    // The prefix is passed to warm pods as EphemeralWarmPool; the executor derives the same suffixes.
+    static final String KEY_PREFIX = "terrakube:warm-pool:";
+    static final String QUEUE = ":queue";
+    static final String IDLE = ":idle";
+    static final String CLAIMS = ":claims";
+    static final String MISSES = ":misses";
+    static final String RECONCILE_LOCK = KEY_PREFIX + "reconcile-lock";
+    static final String PROFILE_LABEL = "terrakube.io/warm-pool";
+    static final String CLAIM_METRIC = "terrakube.executor.ephemeral.warm.claim";
+    static final String FIRST_LOG_METRIC = "terrakube.executor.ephemeral.warm.first.log";
+    private static final String RECORDED = "-";
+
+    private static final List<String> RESOURCE_VARIABLES = List.of(
+            EphemeralExecutorService.EPHEMERAL_CPU_REQUEST, EphemeralExecutorService.EPHEMERAL_MEMORY_REQUEST,
+            EphemeralExecutorService.EPHEMERAL_STORAGE_REQUEST, EphemeralExecutorService.EPHEMERAL_CPU_LIMIT,
+            EphemeralExecutorService.EPHEMERAL_MEMORY_LIMIT, EphemeralExecutorService.EPHEMERAL_STORAGE_LIMIT);
+
+    /**
+     * A queued job. Identifiers and labels travel with the job data so an entry no warm pod claimed can
+     * be started cold without reading the job again.
+     */
+    record Entry(long enqueuedMillis, String jobId, String organizationId, String workspaceId, String jobData) {
+
+        String serialize() {
+            return String.join("|", String.valueOf(enqueuedMillis), jobId, organizationId, workspaceId, jobData);
+        }
+
+        static Entry parse(Object value) {
+            String[] parts = String.valueOf(value).split("\\|", 5);
+            if (parts.length != 5) {
+                return null;
+            }
+            try {
+                return new Entry(Long.parseLong(parts[0]), parts[1], parts[2], parts[3], parts[4]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private final KubernetesClient kubernetesClient;
+    private final EphemeralConfiguration ephemeralConfiguration;
+    private final WarmPoolProperties properties;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public WarmPodPool(KubernetesClient kubernetesClient,
+            EphemeralConfiguration ephemeralConfiguration,
+            WarmPoolProperties properties,
+            RedisTemplate<String, Object> redisTemplate,
+            MeterRegistry meterRegistry) {
+        this.kubernetesClient = kubernetesClient;
+        this.ephemeralConfiguration = ephemeralConfiguration;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    static String profileKey(Profile profile) {
+        return KEY_PREFIX + profile.getName();
+    }
+
+    /**
+     * Hands the job to an idle warm pod of the profile matching its resources. Returns false when the
+     * job has to be started cold: pool disabled, no matching profile, no idle pod left, or Redis
+     * unavailable.
+     */
+    public boolean offer(ExecutorContext executorContext) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        Optional<Profile> match = profileFor(executorContext.getEnvironmentVariables());
+        if (match.isEmpty()) {
+            return false;
+        }
+        Profile profile = match.get();
+        String key = profileKey(profile);
+        try {
+            Long idle = redisTemplate.opsForHash().size(key + IDLE);
+            Long waiting = redisTemplate.opsForList().size(key + QUEUE);
+            if (idle == null || waiting == null || idle <= waiting) {
+                redisTemplate.opsForValue().increment(key + MISSES);
+                dispatched(profile, "cold");
+                return false;
+            }
+            Entry entry = new Entry(System.currentTimeMillis(), executorContext.getJobId(),
+                    executorContext.getOrganizationId(), executorContext.getWorkspaceId(),
+                    EphemeralExecutorService.jobData(executorContext));
+            redisTemplate.opsForList().leftPush(key + QUEUE, entry.serialize());
+        } catch (Exception e) {
+            log.warn("Could not hand job {} to warm pool {}, starting it cold: {}", executorContext.getJobId(),
+                    profile.getName(), e.getMessage());
+            return false;
+        }
+        dispatched(profile, "warm");
+        return true;
+    }
+
+    Optional<Profile> profileFor(Map<String, String> environmentVariables) {
+        Map<String, String> variables = environmentVariables == null ? Map.of() : environmentVariables;
+        if (EphemeralExecutorService.POD_SPEC_VARIABLES.stream().anyMatch(variables::containsKey)) {
+            return Optional.empty();
+        }
+        return properties.getProfiles().stream()
+                .filter(profile -> profile.getName() != null && !profile.getName().isBlank())
+                .filter(profile -> RESOURCE_VARIABLES.stream()
+                        .allMatch(variable -> Objects.equals(variables.get(variable), resource(profile, variable))))
+                .findFirst();
+    }
+
+    @Scheduled(fixedDelay = 10_000)
+    public void reconcile() {
+        if (!properties.isEnabled() || properties.getProfiles().isEmpty()) {
+            return;
+        }
+        try {
+            if (Boolean.FALSE.equals(redisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK, "1", Duration.ofSeconds(9)))) {
+                return;
+            }
+        } catch (Exception e) {
+            log.debug("Could not take the warm pool reconcile lock: {}", e.getMessage());
+            return;
+        }
+        for (Profile profile : properties.getProfiles()) {
+            try {
+                reconcile(profile);
+            } catch (Exception e) {
+                log.warn("Could not reconcile warm pool {}: {}", profile.getName(), e.getMessage());
+            }
+        }
+    }
+
+    void reconcile(Profile profile) {
+        String key = profileKey(profile);
+        startUnclaimed(profile, key);
+
+        Set<String> active = kubernetesClient.batch().v1().jobs()
+                .inNamespace(ephemeralConfiguration.getNamespace())
+                .withLabel(PROFILE_LABEL, profile.getName())
+                .list()
+                .getItems()
+                .stream()
+                .filter(job -> !finished(job.getStatus()))
+                .map(job -> job.getMetadata().getName())
+                .collect(Collectors.toSet());
+
+        long claimed = 0;
+        for (Map.Entry<Object, Object> claim : redisTemplate.opsForHash().entries(key + CLAIMS).entrySet()) {
+            String member = String.valueOf(claim.getKey());
+            if (!active.contains(member)) {
+                recordClaim(profile, member, String.valueOf(claim.getValue()), key, true);
+                redisTemplate.opsForHash().delete(key + CLAIMS, member);
+                continue;
+            }
+            claimed++;
+            recordClaim(profile, member, String.valueOf(claim.getValue()), key, false);
+        }
+        List<Object> gone = redisTemplate.opsForHash().keys(key + IDLE).stream()
+                .filter(member -> !active.contains(String.valueOf(member)))
+                .toList();
+        if (!gone.isEmpty()) {
+            redisTemplate.opsForHash().delete(key + IDLE, gone.toArray());
+        }
+
+        long waiting = Optional.ofNullable(redisTemplate.opsForList().size(key + QUEUE)).orElse(0L);
+        long misses = Optional.ofNullable(redisTemplate.opsForValue().increment(key + MISSES, 0)).orElse(0L);
+        if (misses > 0) {
+            redisTemplate.opsForValue().increment(key + MISSES, -misses);
+        }
+
+        long available = active.size() - claimed;
+        long target = Math.min(profile.getMaxIdle(), profile.getMinIdle() + waiting + misses);
+        if (available < target) {
+            log.info("Warm pool {}: {} pods available, {} waiting, {} cold since last run, starting {}",
+                    profile.getName(), available, waiting, misses, target - available);
+        }
+        for (long i = available; i < target; i++) {
+            startWarm(profile, key);
+        }
+    }
+
+    /**
+     * Queued jobs nobody claimed in time get their own Job. LREM decides between the reconciler and a
+     * pod popping the same entry, so a job is never started twice.
+     */
+    private void startUnclaimed(Profile profile, String key) {
+        List<Object> waiting = redisTemplate.opsForList().range(key + QUEUE, 0, -1);
+        if (waiting == null) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(properties.getClaimTimeoutSeconds());
+        for (Object value : waiting) {
+            Entry entry = Entry.parse(value);
+            if (entry != null && entry.enqueuedMillis() > oldest) {
+                continue;
+            }
+            Long removed = redisTemplate.opsForList().remove(key + QUEUE, 1, value);
+            if (entry == null || removed == null || removed == 0) {
+                continue;
+            }
+            String jobName = EphemeralExecutorService.jobName(entry.jobId());
+            Map<String, String> labels = new HashMap<>();
+            labels.put("terrakube.io/organization", entry.organizationId());
+            labels.put("terrakube.io/workspace", entry.workspaceId());
+            try {
+                create(manifest(jobName, profile, List.of(
+                        env("EphemeralFlagBatch", "true"),
+                        env("EphemeralJobData", entry.jobData())), labels, false));
+                log.warn("No warm pod of {} claimed job {} within {}s, started it as {}", profile.getName(),
+                        entry.jobId(), properties.getClaimTimeoutSeconds(), jobName);
+                dispatched(profile, "unclaimed");
+            } catch (Exception e) {
+                // Back at the oldest end of the queue: a warm pod takes it next, or the next run retries.
+                log.warn("Could not start unclaimed job {}, keeping it queued: {}", entry.jobId(), e.getMessage());
+                redisTemplate.opsForList().rightPush(key + QUEUE, value);
+            }
+        }
+    }
+
+    /**
+     * Warm pods write "enqueuedMillis:claimedMillis" when they pop a job and append ":firstLogMillis"
+     * once the job published its first log line. Both waits are recorded once that has arrived, or
+     * with the claim alone when the pod finished without logging anything; the value is then
+     * replaced, the field itself stays until the pod's Job is gone so it keeps counting as used.
+     */
+    private void recordClaim(Profile profile, String member, String value, String key, boolean gone) {
+        if (RECORDED.equals(value)) {
+            return;
+        }
+        String[] times = value.split(":");
+        if (times.length < 3 && !gone) {
+            return;
+        }
+        try {
+            long enqueued = Long.parseLong(times[0]);
+            meterRegistry.timer(CLAIM_METRIC, "profile", profile.getName())
+                    .record(Math.max(0, Long.parseLong(times[1]) - enqueued), TimeUnit.MILLISECONDS);
+            if (times.length >= 3) {
+                meterRegistry.timer(FIRST_LOG_METRIC, "profile", profile.getName())
+                        .record(Math.max(0, Long.parseLong(times[2]) - enqueued), TimeUnit.MILLISECONDS);
+            }
+        } catch (RuntimeException e) {
+            log.debug("Ignoring malformed warm pool claim {} for {}", value, member);
+        }
+        if (!gone) {
+            redisTemplate.opsForHash().put(key + CLAIMS, member, RECORDED);
+        }
+    }
+
+    private void startWarm(Profile profile, String key) {
+        String jobName = String.format("warm-%s-%s", profile.getName().toLowerCase(Locale.ROOT),
+                UUID.randomUUID().toString().substring(0, 8));
+        create(manifest(jobName, profile, List.of(
+                env("EphemeralFlagBatch", "true"),
+                env("EphemeralWarmPool", key),
+                env("EphemeralWarmPoolMember", jobName),
+                env("EphemeralWarmPoolIdleTimeoutSeconds", String.valueOf(properties.getIdleTimeoutSeconds()))),
+                Map.of(PROFILE_LABEL, profile.getName()), true));
+    }
+
+    private void create(Job job) {
+        kubernetesClient.batch().v1().jobs().inNamespace(ephemeralConfiguration.getNamespace()).resource(job).create();
+    }
+
+    /**
+     * The pod EphemeralExecutorService builds for a job without any pod-shaping variables, with the
+     * profile's resources. Warm pods are not retried: a failed one is simply replaced.
+     */
+    private Job manifest(String jobName, Profile profile, List<EnvVar> env, Map<String, String> labels, boolean warm) {
+        ResourceRequirementsBuilder resourceBuilder = new ResourceRequirementsBuilder();
+        boolean hasResources = false;
+        for (String variable : RESOURCE_VARIABLES) {
+            String value = resource(profile, variable);
+            if (value == null) {
+                continue;
+            }
+            String resource = variable.contains("CPU") ? "cpu" : variable.contains("MEMORY") ? "memory" : "ephemeral-storage";
+            if (variable.endsWith("_REQUEST")) {
+                resourceBuilder.addToRequests(resource, new Quantity(value));
+            } else {
+                resourceBuilder.addToLimits(resource, new Quantity(value));
+            }
+            hasResources = true;
+        }
+
+        return new JobBuilder()
+                .withApiVersion("batch/v1")
+                .withNewMetadata()
+                .withName(jobName)
+                .withLabels(labels)
+                .endMetadata()
+                .withNewSpec()
+                .withBackoffLimit(warm ? 0 : null)
+                .withNewTemplate()
+                .withNewMetadata()
+                .withLabels(labels)
+                .endMetadata()
+                .withNewSpec()
+                .withSecurityContext(new PodSecurityContextBuilder().withFsGroup(1000L).build())
+                .withNodeSelector(ephemeralConfiguration.getNodeSelector())
+                .addNewContainer()
+                .withName("executor")
+                .withEnvFrom(EphemeralExecutorService.secretEnvSources(ephemeralConfiguration))
+                .withImage(ephemeralConfiguration.getImage())
+                .withEnv(new ArrayList<>(env))
+                .withSecurityContext(new SecurityContext())
+                .withResources(hasResources ? resourceBuilder.build() : null)
+                .endContainer()
+                .withRestartPolicy("Never")
+                .endSpec()
+                .endTemplate()
+                .withTtlSecondsAfterFinished(30)
+                .endSpec()
+                .build();
+    }
+
+    private static String resource(Profile profile, String variable) {
+        return switch (variable) {
+            case EphemeralExecutorService.EPHEMERAL_CPU_REQUEST -> profile.getCpuRequest();
+            case EphemeralExecutorService.EPHEMERAL_MEMORY_REQUEST -> profile.getMemoryRequest();
+            case EphemeralExecutorService.EPHEMERAL_STORAGE_REQUEST -> profile.getStorageRequest();
+            case EphemeralExecutorService.EPHEMERAL_CPU_LIMIT -> profile.getCpuLimit();
+            case EphemeralExecutorService.EPHEMERAL_MEMORY_LIMIT -> profile.getMemoryLimit();
+            case EphemeralExecutorService.EPHEMERAL_STORAGE_LIMIT -> profile.getStorageLimit();
+            default -> null;
+        };
+    }
+
+    private static boolean finished(JobStatus status) {
+        return status != null && ((status.getSucceeded() != null && status.getSucceeded() > 0)
+                || (status.getFailed() != null && status.getFailed() > 0));
+    }
+
+    private static EnvVar env(String name, String value) {
+        EnvVar envVar = new EnvVar();
+        envVar.setName(name);
+        envVar.setValue(value);
+        return envVar;
+    }
+
+    private void dispatched(Profile profile, String path) {
+        meterRegistry.counter("terrakube.executor.ephemeral.dispatch", "profile", profile.getName(), "path", path)
+                .increment();
+    }
+}
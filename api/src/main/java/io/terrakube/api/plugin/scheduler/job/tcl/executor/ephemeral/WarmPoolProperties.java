@@ -0,0 +1,63 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor.ephemeral;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional pool of pre-started ephemeral executor pods. Each profile keeps its own idle pods, started
+ * with the profile's resources, and a job is only handed to a warm pod when it asks for exactly those
+ * resources and nothing else that changes the pod (node selector, volumes, annotations...). Everything
+ * else keeps creating its own Kubernetes Job as before.
+ */
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.executor.ephemeral.warm-pool")
+public class WarmPoolProperties {
+
+    private boolean enabled;
+
+    /**
+     * A warm pod that hasn't been given a job for this long exits; the reconciler starts a new one if
+     * the pool is below its minimum.
+     */
+    private int idleTimeoutSeconds = 900;
+
+    /**
+     * A job handed to the pool that no warm pod picked up within this time gets its own Kubernetes Job.
+     */
+    private int claimTimeoutSeconds = 60;
+
+    private List<Profile> profiles = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Profile {
+
+        private String name;
+
+        /**
+         * Idle pods kept when nothing is waiting. The pool grows by the number of jobs waiting for a
+         * warm pod or sent cold for lack of one since the last reconciliation, up to maxIdle.
+         */
+        private int minIdle = 1;
+        private int maxIdle = 5;
+
+        // Same values as the EPHEMERAL_* job variables a job has to set to use this profile; a
+        // profile with none of them serves jobs that don't set any.
+        private String cpuRequest;
+        private String memoryRequest;
+        private String storageRequest;
+        private String cpuLimit;
+        private String memoryLimit;
+        private String storageLimit;
+    }
+}
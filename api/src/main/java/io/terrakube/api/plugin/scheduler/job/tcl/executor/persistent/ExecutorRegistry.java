@@ -0,0 +1,127 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor.persistent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads the replicas persistent executors register for their pool (see the executor's
+ * ExecutorRegistration): one Redis hash per pool URL, one field per replica URL holding
+ * "freeSlots:heartbeatMillis".
+ *
+ * A replica is handed to one dispatch at a time through a short claim (SET NX), so two API
+ * instances dispatching at the same moment don't both pick the same idle replica before it has
+ * published that it's busy.
+ */
+@AllArgsConstructor
+@Component
+@Slf4j
+public class ExecutorRegistry {
+
+    // Duplicated as a literal in executor's ExecutorRegistration - separate Spring Boot apps, no
+    // shared module for this constant.
+    static final String REGISTRY_PREFIX = "terrakube:executor-registry:";
+    private static final String CLAIM_PREFIX = "terrakube:executor-claim:";
+
+    /**
+     * registered is false when no replica of the pool has a live registration, meaning the pool
+     * doesn't take part in registration (or Redis can't be read) and dispatch should go to the pool
+     * URL as before.
+     */
+    public record Replicas(boolean registered, List<String> free) {
+        static final Replicas UNREGISTERED = new Replicas(false, List.of());
+    }
+
+    RedisTemplate<String, Object> redisTemplate;
+    PersistentExecutorClientProperties clientProperties;
+
+    static String registryKey(String poolUrl) {
+        String normalized = poolUrl.trim().toLowerCase(Locale.ROOT);
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return REGISTRY_PREFIX + normalized;
+    }
+
+    public Replicas replicas(String poolUrl) {
+        String key = registryKey(poolUrl);
+        Map<Object, Object> entries;
+        try {
+            entries = redisTemplate.opsForHash().entries(key);
+        } catch (Exception e) {
+            log.warn("Could not read executor registrations for {}, dispatching to the pool url: {}", poolUrl,
+                    e.getMessage());
+            return Replicas.UNREGISTERED;
+        }
+        if (entries == null || entries.isEmpty()) {
+            return Replicas.UNREGISTERED;
+        }
+
+        long oldestLive = System.currentTimeMillis() - clientProperties.getRegistrationTtlSeconds() * 1000L;
+        boolean registered = false;
+        List<String> free = new ArrayList<>();
+        List<Object> stale = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String[] state = String.valueOf(entry.getValue()).split(":");
+            long heartbeat;
+            int freeSlots;
+            try {
+                freeSlots = Integer.parseInt(state[0]);
+                heartbeat = Long.parseLong(state[1]);
+            } catch (RuntimeException e) {
+                stale.add(entry.getKey());
+                continue;
+            }
+            if (heartbeat < oldestLive) {
+                stale.add(entry.getKey());
+                continue;
+            }
+            registered = true;
+            if (freeSlots > 0) {
+                free.add(String.valueOf(entry.getKey()));
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            try {
+                redisTemplate.opsForHash().delete(key, stale.toArray());
+            } catch (Exception e) {
+                log.debug("Could not remove stale executor registrations for {}: {}", poolUrl, e.getMessage());
+            }
+        }
+        // Spread jobs across idle replicas rather than always filling the same one first.
+        Collections.shuffle(free);
+        return new Replicas(registered, free);
+    }
+
+    /**
+     * Best-effort: if Redis can't be reached the replica is used anyway, and a replica that turns
+     * out to be busy still answers 503.
+     */
+    public boolean claim(String replicaUrl) {
+        try {
+            return !Boolean.FALSE.equals(redisTemplate.opsForValue().setIfAbsent(CLAIM_PREFIX + replicaUrl, "1",
+                    Duration.ofSeconds(clientProperties.getClaimSeconds())));
+        } catch (Exception e) {
+            log.debug("Could not claim executor replica {}: {}", replicaUrl, e.getMessage());
+            return true;
+        }
+    }
+
+    public void release(String replicaUrl) {
+        try {
+            redisTemplate.delete(CLAIM_PREFIX + replicaUrl);
+        } catch (Exception e) {
+            log.debug("Could not release executor replica {}: {}", replicaUrl, e.getMessage());
+        }
+    }
+}
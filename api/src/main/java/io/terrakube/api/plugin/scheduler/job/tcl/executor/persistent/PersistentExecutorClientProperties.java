@@ -0,0 +1,71 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor.persistent;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection pooling for job dispatch to persistent executors and agents. Every executor or agent
+ * host gets its own pool, so a slow agent can only exhaust its own connections.
+ */
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.executor.dispatch")
+public class PersistentExecutorClientProperties {
+
+    /**
+     * Open connections kept per executor or agent host.
+     */
+    private int maxConnections = 20;
+
+    /**
+     * Dispatches allowed to wait for a free connection of a single executor before failing fast
+     * (as a retryable "executor unavailable").
+     */
+    private int pendingAcquireMaxCount = 100;
+
+    /**
+     * How long a dispatch waits for a free connection.
+     */
+    private int pendingAcquireTimeoutSeconds = 30;
+
+    /**
+     * Idle connections are closed after this, ahead of most load balancer and ingress idle timeouts.
+     */
+    private int maxIdleTimeSeconds = 30;
+
+    /**
+     * Connections are recycled after this, so new executor replicas behind a Service start receiving
+     * work from an API instance that already holds connections to the old ones.
+     */
+    private int maxLifeTimeSeconds = 300;
+
+    /**
+     * The pool of a host nothing was dispatched to for this long is disposed along with its
+     * metrics, so executor replicas that come and go don't leave pools behind.
+     */
+    private int poolInactivitySeconds = 600;
+
+    /**
+     * Lifetime of the internal token sent with each dispatch. The token is reused until a quarter
+     * of its lifetime is left.
+     */
+    private int tokenLifetimeSeconds = 120;
+
+    /**
+     * An executor replica whose registration hasn't been refreshed for this long is no longer routed
+     * to. Replicas refresh it every 5 seconds and on every job they take or finish.
+     */
+    private int registrationTtlSeconds = 20;
+
+    /**
+     * How long a replica picked for a dispatch is kept from other dispatches. Released as soon as the
+     * replica answers; only an unreachable replica stays skipped for the full period.
+     */
+    private int claimSeconds = 15;
+}
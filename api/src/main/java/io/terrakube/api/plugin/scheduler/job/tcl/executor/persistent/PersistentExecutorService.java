@@ -4,8 +4,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
@@ -21,15 +22,20 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.netty.channel.ChannelOption;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutionException;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorContext;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorUnavailableException;
-import io.terrakube.api.repository.GlobalVarRepository;
-import io.terrakube.api.rs.globalvar.Globalvar;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot.ResolvedVariable;
 import io.terrakube.api.rs.job.Job;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import javax.crypto.SecretKey;
 
@@ -40,52 +46,126 @@ public class PersistentExecutorService {
     @Value("${io.terrakube.executor.url}")
     private String executorUrl;
 
-    @Autowired
-    private GlobalVarRepository globalVarRepository;
-
     @Autowired
     private WebClient.Builder webClientBuilder;
 
+    private final ExecutorRegistry executorRegistry;
+
     @Value("${io.terrakube.token.internal}")
     private String base64KeyInternal;
 
+    private final PersistentExecutorClientProperties clientProperties;
+
+    private final MeterRegistry meterRegistry;
+
     // Manual all-args constructor because Lombok will not copy @Value
     public PersistentExecutorService(
         @Value("${io.terrakube.executor.url}") String executorUrl,
-        @Autowired GlobalVarRepository globalVarRepository,
         @Autowired WebClient.Builder webClientBuilder,
-        @Value("${io.terrakube.token.internal}") String internalJwtSecret) {
+        @Value("${io.terrakube.token.internal}") String internalJwtSecret,
+        @Autowired PersistentExecutorClientProperties clientProperties,
+        @Autowired MeterRegistry meterRegistry,
+        @Autowired ExecutorRegistry executorRegistry) {
             this.executorUrl = executorUrl;
-            this.globalVarRepository = globalVarRepository;
             this.webClientBuilder = webClientBuilder;
             this.base64KeyInternal = internalJwtSecret;
+            this.clientProperties = clientProperties;
+            this.meterRegistry = meterRegistry;
+            this.executorRegistry = executorRegistry;
     }
 
     private static final int CONNECT_TIMEOUT_MS = 10_000;
     private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(60);
+    private static final String DISPATCH_METRIC = "terrakube.executor.dispatch";
 
-    public void send(Job job, ExecutorContext executorContext) throws ExecutionException {
-        HttpClient httpClient = HttpClient.create()
-                .proxyWithSystemProperties()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MS)
-                .responseTimeout(RESPONSE_TIMEOUT);
+    private record SystemToken(String token, Instant renewAfter) {
+    }
 
-        WebClient webClient = webClientBuilder
-                .clone()
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .build();
+    // One connection provider for every executor and agent: Reactor Netty keeps a bounded pool per
+    // remote host inside it, so dispatches reuse kept-alive connections instead of paying a new
+    // TCP/TLS handshake per job and a slow agent can only exhaust its own pool. Pools of hosts that
+    // stop receiving work (executor replicas that were scaled down or rescheduled) are disposed in
+    // the background. One client per scheme on top of it, since only https negotiates HTTP/2.
+    private volatile ConnectionProvider connectionProvider;
+    private final Map<String, WebClient> webClients = new ConcurrentHashMap<>();
+
+    private volatile SystemToken systemToken;
+
+    // Thrown when a reachable executor rejected the job because its one slot was already taken.
+    private static class ExecutorBusyException extends ExecutorUnavailableException {
+        ExecutorBusyException(Throwable cause) {
+            super(cause);
+        }
+    }
 
+    /**
+     * Routes the job to a replica of its executor pool that has registered a free slot (see
+     * ExecutorRegistry). When the pool's replicas are registered but none is free, the job isn't
+     * posted anywhere: ExecutorUnavailableException keeps it in ScheduleJob's FIFO dispatch queue,
+     * and the executor-available signal of the next replica to finish wakes the front of that
+     * queue. Pools without registrations (agents, executors without a pool url configured, or no
+     * Redis) are dispatched to their URL and rely on the 503 retry as before. The default executor
+     * is read from variables, the snapshot executorContext was built from.
+     */
+    public void send(Job job, ExecutorContext executorContext, JobVariableSnapshot variables)
+            throws ExecutionException {
         String executorUrlForRequest;
+        String poolOrigin;
+        try {
+            executorUrlForRequest = getExecutorUrl(job, variables);
+            poolOrigin = origin(executorUrlForRequest);
+        } catch (URISyntaxException e) {
+            throw new ExecutionException(e);
+        }
+
+        ExecutorRegistry.Replicas replicas = executorRegistry.replicas(executorUrlForRequest);
+        if (!replicas.registered()) {
+            dispatch(executorUrlForRequest, poolOrigin, executorContext);
+            return;
+        }
+
+        for (String replicaUrl : replicas.free()) {
+            if (!executorRegistry.claim(replicaUrl)) {
+                continue;
+            }
+            try {
+                log.info("Job {} routed to executor replica {} of {}", job.getId(), replicaUrl, executorUrlForRequest);
+                dispatch(replicaUrl, poolOrigin, executorContext);
+                // The replica publishes itself busy before it answers 202, so the claim has done its job.
+                executorRegistry.release(replicaUrl);
+                return;
+            } catch (ExecutorBusyException e) {
+                executorRegistry.release(replicaUrl);
+                log.info("Executor replica {} was busy, trying the next one", replicaUrl);
+            } catch (ExecutorUnavailableException e) {
+                // Keep the claim so this replica is skipped until it expires or re-registers.
+                log.warn("Executor replica {} is unreachable, trying the next one: {}", replicaUrl, e.getMessage());
+            } catch (ExecutionException e) {
+                // The replica answered, so it is up; it just rejected this job.
+                executorRegistry.release(replicaUrl);
+                throw e;
+            }
+        }
+        throw new ExecutorUnavailableException(String.format(
+                "No replica of executor %s has a free slot, job stays queued until one is released",
+                executorUrlForRequest));
+    }
+
+    private void dispatch(String url, String metricsOrigin, ExecutorContext executorContext)
+            throws ExecutionException {
+        WebClient webClient;
         try {
-            executorUrlForRequest = getExecutorUrl(job);
+            webClient = webClients.computeIfAbsent(origin(url).startsWith("https://") ? "https" : "http",
+                    this::buildWebClient);
         } catch (URISyntaxException e) {
             throw new ExecutionException(e);
         }
 
         ResponseEntity<ExecutorContext> response = null;
+        long started = System.nanoTime();
         try {
             response = webClient.post()
-                    .uri(executorUrlForRequest)
+                    .uri(url)
                     .contentType(MediaType.APPLICATION_JSON)
                     .header("Authorization", "Bearer " + generateSystemToken())
                     .bodyValue(executorContext)
@@ -94,23 +174,27 @@ public class PersistentExecutorService {
                     .block();
         } catch (Exception ex) {
             if (ex instanceof WebClientRequestException) {
+                recordDispatch(metricsOrigin, "unreachable", started);
                 // No response was ever received: connection refused, timed out, or (in Kubernetes,
                 // when every replica is mid-job and REFUSING_TRAFFIC) the Service has no ready
                 // endpoints. This is a capacity problem, not a broken job, so it's retryable.
                 String hint = String.format(
                         " Cannot connect to executor at %s. Check that the executor is running and reachable (io.terrakube.executor.url / AzBuilderExecutorUrl).",
-                        executorUrlForRequest);
+                        url);
                 throw new ExecutorUnavailableException(new Throwable(ex.getMessage() + hint, ex));
             }
             if (ex instanceof WebClientResponseException wcre
                     && wcre.getStatusCode().equals(HttpStatus.SERVICE_UNAVAILABLE)) {
+                recordDispatch(metricsOrigin, "busy", started);
                 // The executor pod's per-pod capacity gate was already held by another job
                 // (persistent-executor-admission-control) - retryable, not a job failure.
-                throw new ExecutorUnavailableException(new Throwable(
-                        "Executor at " + executorUrlForRequest + " is busy (503), will retry", ex));
+                throw new ExecutorBusyException(new Throwable(
+                        "Executor at " + url + " is busy (503), will retry", ex));
             }
+            recordDispatch(metricsOrigin, "error", started);
             throw new ExecutionException(new Throwable(ex.getMessage(), ex));
         }
+        recordDispatch(metricsOrigin, response.getStatusCode().equals(HttpStatus.ACCEPTED) ? "accepted" : "error", started);
 
         log.debug("Sending Job: /n {}", executorContext.toBuilder()
                 .accessToken("****")
@@ -127,27 +211,110 @@ public class PersistentExecutorService {
         }
     }
 
-    private String getExecutorUrl(Job job) throws URISyntaxException {
+    private String getExecutorUrl(Job job, JobVariableSnapshot variables) throws URISyntaxException {
         String agentUrl = job.getWorkspace().getAgent() != null
                 ? job.getWorkspace().getAgent().getUrl() + "/api/v1/terraform-rs"
-                : validateDefaultExecutor(job);
+                : validateDefaultExecutor(variables);
         log.info("Job {} Executor agent url: {}", job.getId(), agentUrl);
         return new URI(agentUrl).normalize().toString();
     }
 
-    private String validateDefaultExecutor(Job job) {
-        Optional<Globalvar> executor = globalVarRepository.findByOrganizationAndKey(job.getOrganization(),
-                "TERRAKUBE_DEFAULT_EXECUTOR");
+    private String validateDefaultExecutor(JobVariableSnapshot variables) {
+        Optional<String> executor = variables.globalVariable("TERRAKUBE_DEFAULT_EXECUTOR")
+                .map(ResolvedVariable::value);
         if (executor.isPresent()) {
-            log.info("Found executor url {}", executor.get().getValue());
-            return executor.get().getValue() + "/api/v1/terraform-rs";
+            log.info("Found executor url {}", executor.get());
+            return executor.get() + "/api/v1/terraform-rs";
         } else {
             log.info("No default executor found, using default executor url {}", this.executorUrl);
             return this.executorUrl;
         }
     }
 
+    private static String origin(String url) throws URISyntaxException {
+        URI uri = new URI(url);
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new URISyntaxException(url, "Executor url needs a scheme and a host");
+        }
+        return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() == -1 ? "" : ":" + uri.getPort());
+    }
+
+    private synchronized ConnectionProvider connectionProvider() {
+        if (connectionProvider == null) {
+            // Pool metrics (reactor.netty.connection.provider.active.connections, pending.connections, ...)
+            // are published tagged with the remote address of each pool, so a saturated agent pool shows
+            // up next to the dispatch latency below; they are removed with the pool when it's disposed.
+            connectionProvider = ConnectionProvider.builder("executor-dispatch")
+                    .maxConnections(clientProperties.getMaxConnections())
+                    .pendingAcquireMaxCount(clientProperties.getPendingAcquireMaxCount())
+                    .pendingAcquireTimeout(Duration.ofSeconds(clientProperties.getPendingAcquireTimeoutSeconds()))
+                    .maxIdleTime(Duration.ofSeconds(clientProperties.getMaxIdleTimeSeconds()))
+                    .maxLifeTime(Duration.ofSeconds(clientProperties.getMaxLifeTimeSeconds()))
+                    .evictInBackground(Duration.ofSeconds(clientProperties.getMaxIdleTimeSeconds()))
+                    .disposeInactivePoolsInBackground(Duration.ofSeconds(clientProperties.getMaxIdleTimeSeconds()),
+                            Duration.ofSeconds(clientProperties.getPoolInactivitySeconds()))
+                    .metrics(true)
+                    .build();
+        }
+        return connectionProvider;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+    }
+
+    private WebClient buildWebClient(String scheme) {
+        log.info("Creating {} dispatch client for executors", scheme);
+        HttpClient httpClient = HttpClient.create(connectionProvider())
+                .proxyWithSystemProperties()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MS)
+                .responseTimeout(RESPONSE_TIMEOUT)
+                .keepAlive(true);
+        if (scheme.equals("https")) {
+            // HTTP/2 is negotiated through ALPN and falls back to HTTP/1.1; plain http executors stay
+            // on HTTP/1.1 since cleartext HTTP/2 needs the server to opt in.
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        return webClientBuilder
+                .clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    private void recordDispatch(String origin, String outcome, long started) {
+        Timer.builder(DISPATCH_METRIC)
+                .description("Time to hand a job step to a persistent executor or agent")
+                .tag("executor", origin)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    // The token is reused until a quarter of its lifetime is left, which still covers the dispatch
+    // response timeout; the executor only checks signature, issuer and expiry.
     public String generateSystemToken() {
+        SystemToken current = systemToken;
+        if (current != null && Instant.now().isBefore(current.renewAfter())) {
+            return current.token();
+        }
+        synchronized (this) {
+            current = systemToken;
+            if (current == null || !Instant.now().isBefore(current.renewAfter())) {
+                Instant issuedAt = Instant.now();
+                long lifetime = clientProperties.getTokenLifetimeSeconds();
+                current = new SystemToken(signSystemToken(issuedAt, issuedAt.plusSeconds(lifetime)),
+                        issuedAt.plusSeconds(lifetime - lifetime / 4));
+                systemToken = current;
+            }
+            return current.token();
+        }
+    }
+
+    private String signSystemToken(Instant issuedAt, Instant expiresAt) {
         return Jwts.builder()
                 .issuer("TERRAKUBE_INTERNAL")
                 .subject(String.format("%s (Token)", "Terrakube Internal"))
@@ -156,10 +323,8 @@ public class PersistentExecutorService {
                 .claim("email", "internal@terrakube.io")
                 .claim("email_verified", true)
                 .claim("name", "Terrakube Api")
-                .issuedAt(Date.from(Instant.now()))
-                .expiration(Date.from(
-                        Instant.now().plus(10, ChronoUnit.SECONDS)
-                        )
-                ).signWith(Keys.hmacShaKeyFor(Decoders.BASE64URL.decode(this.base64KeyInternal))).compact();
+                .issuedAt(Date.from(issuedAt))
+                .expiration(Date.from(expiresAt))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64URL.decode(this.base64KeyInternal))).compact();
     }
 }
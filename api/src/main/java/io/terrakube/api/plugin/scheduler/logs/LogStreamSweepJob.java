@@ -0,0 +1,29 @@
+package io.terrakube.api.plugin.scheduler.logs;
+
+import io.terrakube.api.plugin.logs.LogStreamRetentionService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.stereotype.Component;
+
+// Quartz is clustered, so exactly one replica runs each sweep; @DisallowConcurrentExecution
+// keeps a slow SCAN on a large Redis from overlapping the next firing.
+@Slf4j
+@Component
+@AllArgsConstructor
+@DisallowConcurrentExecution
+public class LogStreamSweepJob implements Job {
+
+    private final LogStreamRetentionService logStreamRetentionService;
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        int removed = logStreamRetentionService.sweep();
+        if (removed > 0) {
+            log.info("Log stream sweep removed the streams of {} jobs", removed);
+        }
+    }
+}
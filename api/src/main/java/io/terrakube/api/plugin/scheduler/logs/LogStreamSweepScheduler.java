@@ -0,0 +1,59 @@
+package io.terrakube.api.plugin.scheduler.logs;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.*;
+import org.springframework.stereotype.Service;
+
+import java.text.ParseException;
+
+@Service
+@Slf4j
+@AllArgsConstructor
+public class LogStreamSweepScheduler {
+
+    private static final String PREFIX_LOG_STREAM_SWEEP = "TerrakubeV2_LogStreamSweep";
+
+    private Scheduler scheduler;
+
+    @PostConstruct
+    public void initLogStreamSweep() {
+        try {
+            log.info("Setup log stream sweep");
+            JobDetail jobDetail = scheduler.getJobDetail(new JobKey(PREFIX_LOG_STREAM_SWEEP));
+            if (jobDetail != null) {
+                scheduler.deleteJob(new JobKey(PREFIX_LOG_STREAM_SWEEP));
+            }
+            // Every 5 minutes - frequent enough to keep the active-job memory gauge useful, and
+            // the orphan grace period (15 minutes by default) is what bounds how long a leftover
+            // stream survives anyway.
+            setupLogStreamSweep("0 */5 * ? * *");
+        } catch (Exception ex) {
+            log.error(ex.getMessage());
+        }
+    }
+
+    public void setupLogStreamSweep(String quartzSchedule) throws ParseException, SchedulerException {
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put("LogStreamSweep", "LogStreamSweepV1");
+
+        JobDetail jobDetail = JobBuilder.newJob().ofType(LogStreamSweepJob.class)
+                .storeDurably()
+                .setJobData(jobDataMap)
+                .withIdentity(PREFIX_LOG_STREAM_SWEEP)
+                .withDescription("LogStreamSweepV1")
+                .build();
+
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .startNow()
+                .forJob(jobDetail)
+                .withIdentity(PREFIX_LOG_STREAM_SWEEP)
+                .withDescription("LogStreamSweepV1")
+                .withSchedule(CronScheduleBuilder.cronSchedule(new CronExpression(quartzSchedule)))
+                .build();
+
+        log.info("Create schedule job trigger for log stream sweep {}", jobDetail.getKey());
+        scheduler.scheduleJob(jobDetail, trigger);
+    }
+}
@@ -0,0 +1,176 @@
+package io.terrakube.api.plugin.scheduler.module;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.terrakube.api.plugin.ssh.TerrakubeSshdSessionFactory;
+import io.terrakube.api.plugin.vcs.TokenService;
+import io.terrakube.api.plugin.vcs.provider.azdevops.AzDevOpsTokenService;
+import io.terrakube.api.rs.module.Module;
+import io.terrakube.api.rs.ssh.Ssh;
+import io.terrakube.api.rs.vcs.Vcs;
+import io.terrakube.api.rs.vcs.VcsConnectionType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LsRemoteCommand;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.SshTransport;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the git side of module refresh off the Quartz pool. Modules are grouped by repository and
+ * credentials, and one ls-remote answers for every module of a group: a monorepo publishing dozens
+ * of modules costs one remote call per refresh cycle instead of one per module. Concurrent requests
+ * for a group wait on the same call, and its tags are reused for sharedResultSeconds.
+ *
+ * A failed ls-remote isn't kept, the next module of the group tries again. The sharing is per API
+ * replica: modules whose triggers fire on different cluster members can still each call the remote.
+ */
+@Slf4j
+@Component
+public class ModuleRefreshEngine {
+
+    private static final int GIT_TIMEOUT_SECONDS = 30;
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * Modules whose tags come from the same ls-remote: the same repository reached with the same
+     * credentials. Only the VCS connection or SSH key id is part of the key, the token itself is
+     * fetched when the group is listed.
+     */
+    record RefreshGroup(String source, UUID vcsId, UUID sshId) {
+    }
+
+    private final TokenService tokenService;
+    private final AzDevOpsTokenService azDevOpsTokenService;
+    private final ExecutorService refreshExecutor;
+    private final AsyncCache<RefreshGroup, Map<String, Ref>> tagsByGroup;
+
+    public ModuleRefreshEngine(TokenService tokenService, AzDevOpsTokenService azDevOpsTokenService,
+            ModuleRefreshProperties moduleRefreshProperties) {
+        this.tokenService = tokenService;
+        this.azDevOpsTokenService = azDevOpsTokenService;
+        this.refreshExecutor = Executors.newFixedThreadPool(moduleRefreshProperties.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "module-refresh-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.tagsByGroup = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(moduleRefreshProperties.getSharedResultSeconds()))
+                .executor(refreshExecutor)
+                .buildAsync();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdown();
+        try {
+            if (!refreshExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                refreshExecutor.shutdownNow();
+            }
+        } catch (InterruptedException _) {
+            refreshExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The tags of the module's repository, without the refs/tags/ prefix. Shared with the other
+     * modules of its group, so the map is read-only.
+     */
+    public CompletableFuture<Map<String, Ref>> tags(Module module) {
+        return tagsByGroup.get(groupOf(module), (group, executor) -> CompletableFuture.supplyAsync(() -> {
+            log.info("Listing tags of {} for module refresh", module.getSource());
+            try {
+                return Collections.unmodifiableMap(lsRemote(module.getSource(), module.getVcs(), module.getSsh()));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor));
+    }
+
+    /**
+     * Where the version diff of a refreshed module runs, so it doesn't occupy a Quartz thread either.
+     */
+    public Executor executor() {
+        return refreshExecutor;
+    }
+
+    static RefreshGroup groupOf(Module module) {
+        return new RefreshGroup(normalizeSource(module.getSource()),
+                module.getVcs() != null ? module.getVcs().getId() : null,
+                module.getSsh() != null ? module.getSsh().getId() : null);
+    }
+
+    // Only differences that don't change the repository: surrounding spaces, trailing slashes and a
+    // .git suffix. Paths stay case-sensitive, not every git server ignores case.
+    static String normalizeSource(String source) {
+        String normalized = source == null ? "" : source.trim();
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        if (normalized.endsWith(".git")) {
+            normalized = normalized.substring(0, normalized.length() - 4);
+        }
+        return normalized;
+    }
+
+    private Map<String, Ref> lsRemote(String source, Vcs vcs, Ssh ssh) throws Exception {
+        Map<String, Ref> tags = new HashMap<>();
+        LsRemoteCommand lsRemote = Git.lsRemoteRepository()
+                .setTags(true)
+                .setRemote(source)
+                .setTimeout(GIT_TIMEOUT_SECONDS);
+
+        // An SSH key wins over a VCS connection when a module has both.
+        if (ssh != null) {
+            log.info("vcs using ssh {}", ssh.getId());
+            lsRemote.setTransportConfigCallback(transport -> {
+                if (transport instanceof SshTransport sshTransport) {
+                    TerrakubeSshdSessionFactory terrakubeSshdSessionFactory = TerrakubeSshdSessionFactory
+                            .builder()
+                            .sshId(ssh.getId().toString())
+                            .sshFileName(ssh.getSshType().getFileName())
+                            .privateKey(ssh.getPrivateKey())
+                            .build();
+                    sshTransport.setSshSessionFactory(terrakubeSshdSessionFactory.getSshdSessionFactory());
+                    sshTransport.setTimeout(GIT_TIMEOUT_SECONDS);
+                }
+            });
+        } else if (vcs != null) {
+            log.info("vcs using {}", vcs.getVcsType().toString());
+            lsRemote.setCredentialsProvider(credentialsProvider(source, vcs));
+        }
+
+        lsRemote.callAsMap().forEach((key, value) -> tags.put(key.replace("refs/tags/", ""), value));
+        return tags;
+    }
+
+    private CredentialsProvider credentialsProvider(String source, Vcs vcs) throws Exception {
+        return switch (vcs.getVcsType()) {
+            case GITHUB -> vcs.getConnectionType() == VcsConnectionType.OAUTH
+                    ? new UsernamePasswordCredentialsProvider(vcs.getAccessToken(), "")
+                    : new UsernamePasswordCredentialsProvider("x-access-token", tokenService.getAccessToken(source, vcs));
+            case BITBUCKET -> new UsernamePasswordCredentialsProvider("x-token-auth", vcs.getAccessToken());
+            case GITLAB -> new UsernamePasswordCredentialsProvider("oauth2", vcs.getAccessToken());
+            case AZURE_DEVOPS -> new UsernamePasswordCredentialsProvider("dummy", vcs.getAccessToken());
+            case AZURE_SP_MI -> new UsernamePasswordCredentialsProvider("dummy", azDevOpsTokenService.getAzureDefaultToken());
+            default -> null;
+        };
+    }
+}
@@ -1,56 +1,43 @@
 package io.terrakube.api.plugin.scheduler.module;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import org.semver4j.Semver;
-import io.terrakube.api.plugin.ssh.TerrakubeSshdSessionFactory;
-import io.terrakube.api.plugin.vcs.TokenService;
-import io.terrakube.api.plugin.vcs.provider.azdevops.AzDevOpsTokenService;
 import io.terrakube.api.repository.ModuleRepository;
 import io.terrakube.api.repository.ModuleVersionRepository;
 import io.terrakube.api.rs.module.Module;
 import io.terrakube.api.rs.module.ModuleVersion;
-import io.terrakube.api.rs.ssh.Ssh;
-import io.terrakube.api.rs.vcs.Vcs;
-import io.terrakube.api.rs.vcs.VcsConnectionType;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.TransportConfigCallback;
-import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Ref;
-import org.eclipse.jgit.transport.CredentialsProvider;
-import org.eclipse.jgit.transport.SshTransport;
-import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.quartz.SchedulerException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.net.URISyntaxException;
-import java.security.NoSuchAlgorithmException;
-import java.security.spec.InvalidKeySpecException;
 import java.util.*;
 
+/**
+ * Fires per module every 300 seconds, but only looks the module up on the Quartz thread: the ls-remote and the version diff run on ModuleRefreshEngine's pool, which shares one ls-remote
+ * between the modules of a repository, so a slow git server never holds a Quartz thread.
+ */
 @Slf4j
 @Component
 public class ModuleRefreshJob implements Job {
 
-    private static final int GIT_TIMEOUT_SECONDS = 30;
     @Autowired
     private ModuleRefreshService moduleRefreshService;
     @Autowired
-    private TokenService tokenService;
+    private ModuleRefreshEngine moduleRefreshEngine;
     @Autowired
     private ModuleRepository moduleRepository;
     @Autowired
     private ModuleVersionRepository moduleVersionRepository;
     @Autowired
-    private AzDevOpsTokenService azDevOpsTokenService;
+    private PlatformTransactionManager transactionManager;
 
     @Override
-    @Transactional
     public void execute(JobExecutionContext context) throws JobExecutionException {
         String moduleId = context.getJobDetail().getJobDataMap().getString(moduleRefreshService.getJobDataKey());
         Optional<Module> search = moduleRepository.findById(UUID.fromString(moduleId));
@@ -67,22 +54,26 @@ public class ModuleRefreshJob implements Job {
 
         String organizationName = module.getOrganization().getName();
         log.info("Refreshing module {} on {}", module.getName(), organizationName);
-        Map<String, Ref> rawRepoTags = null;
-
-        try {
-            rawRepoTags = getVersionFromRepository(module.getSource(), module.getVcs(), module.getSsh());
-        } catch (Exception e) {
-            // Broad catch is intentional: this is a scheduled Quartz job refreshing one module among many.
-            // Any VCS/network failure here must not propagate and abort the whole job execution.
-            log.error("Failed to refresh module {} on organization/user {}, error {}", module.getName(),
-                    organizationName, e.getMessage());
-        }
+        moduleRefreshEngine.tags(module)
+                .thenAcceptAsync(rawRepoTags -> new TransactionTemplate(transactionManager)
+                        .executeWithoutResult(status -> applyTags(module.getId(), rawRepoTags)),
+                        moduleRefreshEngine.executor())
+                .exceptionally(e -> {
+                    // Any VCS/network failure ends this module's refresh only, the next tick retries.
+                    log.error("Failed to refresh module {} on organization/user {}, error {}", module.getName(),
+                            organizationName, e.getMessage());
+                    return null;
+                });
+    }
 
-        if (rawRepoTags == null) {
-            log.error("There are no tags available for module {} on organization/user {}, error {}", module.getName(),
-                    organizationName, "No versions found");
+    // Runs on the engine's pool in its own transaction, so the module is read again there.
+    void applyTags(UUID moduleId, Map<String, Ref> rawRepoTags) {
+        Optional<Module> search = moduleRepository.findById(moduleId);
+        if (search.isEmpty() || search.get().getOrganization() == null) {
             return;
         }
+        Module module = search.get();
+        String organizationName = module.getOrganization().getName();
 
         Map<String, ModuleVersionNormalizer.NormalizedVersion> canonicalVersions =
                 resolveCanonicalVersions(rawRepoTags, module.getTagPrefix(), module.getName());
@@ -91,13 +82,12 @@ public class ModuleRefreshJob implements Job {
                 .ofNullable(moduleVersionRepository.findAllByModuleId(module.getId())).orElse(Collections.emptyList());
         List<String> currentDatabaseVersions = currentModuleVersion.stream().map(ModuleVersion::getVersion).toList();
 
-        Map<String, Ref> resolvedRepoTags = rawRepoTags;
         List<ModuleVersion> newModuleVersions = new ArrayList<>();
         canonicalVersions.forEach((canonicalVersion, normalized) -> {
             if (currentDatabaseVersions.contains(canonicalVersion)) {
                 return;
             }
-            Ref ref = resolvedRepoTags.get(normalized.originalTag());
+            Ref ref = rawRepoTags.get(normalized.originalTag());
             if (ref == null || ref.getObjectId() == null) {
                 log.warn("Skipping version {} (tag {}) for module {}: tag has no resolvable commit", canonicalVersion,
                         normalized.originalTag(), module.getName());
@@ -167,84 +157,4 @@ public class ModuleRefreshJob implements Job {
             log.error("Failed to delete stale module refresh task for module {}, error {}", moduleId, e.getMessage());
         }
     }
-
-    private Map<String, Ref> getVersionFromRepository(String source, Vcs vcs, Ssh ssh)
-            throws JsonProcessingException, NoSuchAlgorithmException, InvalidKeySpecException,
-            URISyntaxException, GitAPIException {
-        CredentialsProvider credentialsProvider = null;
-        TransportConfigCallback transportConfigCallback = null;
-        Map<String, Ref> tags = new HashMap<>(), originalTags = new HashMap<>();
-        if (vcs != null) {
-            log.info("vcs using {}", vcs.getVcsType().toString());
-            switch (vcs.getVcsType()) {
-                case GITHUB:
-                    if (vcs.getConnectionType() == VcsConnectionType.OAUTH) {
-                        credentialsProvider = new UsernamePasswordCredentialsProvider(vcs.getAccessToken(), "");
-                    } else {
-                        credentialsProvider = new UsernamePasswordCredentialsProvider("x-access-token",
-                                tokenService.getAccessToken(source, vcs));
-                    }
-                    break;
-                case BITBUCKET:
-                    credentialsProvider = new UsernamePasswordCredentialsProvider("x-token-auth",
-                            vcs.getAccessToken());
-                    break;
-                case GITLAB:
-                    credentialsProvider = new UsernamePasswordCredentialsProvider("oauth2", vcs.getAccessToken());
-                    break;
-                case AZURE_DEVOPS:
-                    credentialsProvider = new UsernamePasswordCredentialsProvider("dummy", vcs.getAccessToken());
-                    break;
-                case AZURE_SP_MI:
-                    credentialsProvider = new UsernamePasswordCredentialsProvider("dummy", azDevOpsTokenService.getAzureDefaultToken());
-                    break;
-                default:
-                    credentialsProvider = null;
-                    break;
-            }
-
-            originalTags = Git.lsRemoteRepository()
-                    .setTags(true)
-                    .setRemote(source)
-                    .setCredentialsProvider(credentialsProvider)
-                    .setTimeout(GIT_TIMEOUT_SECONDS)
-                    .callAsMap();
-        }
-
-        if (ssh != null) {
-            log.info("vcs using ssh {}", ssh.getId());
-
-            transportConfigCallback = transport -> {
-                if (transport instanceof SshTransport sshTransport) {
-                    TerrakubeSshdSessionFactory terrakubeSshdSessionFactory = TerrakubeSshdSessionFactory
-                            .builder()
-                            .sshId(ssh.getId().toString())
-                            .sshFileName(ssh.getSshType().getFileName())
-                            .privateKey(ssh.getPrivateKey())
-                            .build();
-                    sshTransport.setSshSessionFactory(terrakubeSshdSessionFactory.getSshdSessionFactory());
-                    sshTransport.setTimeout(GIT_TIMEOUT_SECONDS);
-                }
-            };
-
-            originalTags = Git.lsRemoteRepository()
-                    .setTags(true)
-                    .setRemote(source)
-                    .setTransportConfigCallback(transportConfigCallback)
-                    .setTimeout(GIT_TIMEOUT_SECONDS)
-                    .callAsMap();
-        }
-
-        if (ssh == null && vcs == null) {
-            originalTags = Git.lsRemoteRepository()
-                    .setTags(true)
-                    .setRemote(source)
-                    .setTimeout(GIT_TIMEOUT_SECONDS)
-                    .callAsMap();
-        }
-
-        originalTags.forEach((key, value) -> tags.put(key.replace("refs/tags/", ""), value));
-
-        return tags;
-    }
 }
@@ -0,0 +1,28 @@
+package io.terrakube.api.plugin.scheduler.module;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.api.module.refresh")
+public class ModuleRefreshProperties {
+
+    /**
+     * Threads running ls-remote and the version diff, separate from the Quartz pool that also
+     * dispatches terraform jobs.
+     */
+    private int threads = 4;
+
+    /**
+     * How long one ls-remote answers for every module sharing its repository and credentials. Kept
+     * below the 300s refresh interval so a module never reuses the result of its own previous run.
+     */
+    private int sharedResultSeconds = 240;
+}
@@ -10,9 +10,7 @@ import org.springframework.stereotype.Service;
 
 import io.terrakube.api.plugin.scheduler.ScheduleServiceBase;
 import io.terrakube.api.repository.ModuleRepository;
-import io.terrakube.api.repository.ModuleVersionRepository;
 import io.terrakube.api.rs.module.Module;
-import io.terrakube.api.rs.module.ModuleVersion;
 import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.Getter;
@@ -30,22 +28,16 @@ public class ModuleRefreshService extends ScheduleServiceBase {
     @Autowired
     private ModuleRepository moduleRepository;
     @Autowired
-    private ModuleVersionRepository moduleVersionRepository;
-    @Autowired
     private OrganizationRepository organizationRepository;
 
     @PostConstruct
     @Transactional
     public void initModuleRefreshJob() {
-        List<Module> modules = moduleRepository.findByOrganizationIn(organizationRepository.findAll()); // this will return only enabled organization modules
+        // One query for the modules still without versions, only those of enabled organizations;
+        // modules that already have versions keep their existing refresh trigger.
+        List<Module> modules = moduleRepository.findWithoutVersionsByOrganizationIn(organizationRepository.findAll());
 
         for (Module module : modules) {
-            List<ModuleVersion> versions = moduleVersionRepository.findAllByModuleId(module.getId());
-            if (versions != null && !versions.isEmpty()) {
-                log.debug("Module {}/{}/{} has prefetched versions", module.getOrganization().getName(),
-                        module.getName(), module.getProvider());
-                continue;
-            }
             log.info("Module {}/{}/{} has no versions in the database, creating a scheduler job to fetch the versions",
                     module.getOrganization().getName(), module.getName(), module.getProvider());
             try {
@@ -1,47 +1,35 @@
 package io.terrakube.api.plugin.scheduler.notification;
 
 import java.util.Date;
-import java.util.List;
-import java.util.concurrent.RejectedExecutionException;
 
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
-import io.terrakube.api.plugin.notification.NotificationDispatchService;
+import io.terrakube.api.plugin.notification.NotificationOutboxDrainer;
 import io.terrakube.api.plugin.notification.NotificationOutboxTransactions;
-import io.terrakube.api.repository.NotificationOutboxRepository;
-import io.terrakube.api.rs.notification.NotificationOutbox;
-import io.terrakube.api.rs.notification.NotificationOutboxStatus;
 
-import lombok.extern.slf4j.Slf4j;
-
-@Slf4j
+// Safety net behind NotificationOutboxDrainer's signals: returns stuck SENDING rows to PENDING and
+// drains whatever is due - retries whose backoff elapsed and rows whose signal never arrived.
+// Fresh rows don't wait for this tick, they are dispatched right after their commit.
 @Component
 @DisallowConcurrentExecution
 public class NotificationOutboxPollerJob implements Job {
 
     private static final int MAX_ATTEMPTS = 3;
 
-    private final NotificationOutboxRepository notificationOutboxRepository;
-    private final NotificationDispatchService notificationDispatchService;
+    private final NotificationOutboxDrainer notificationOutboxDrainer;
     private final NotificationOutboxTransactions notificationOutboxTransactions;
-    private final int batchSize;
     private final long stuckSendingThresholdMillis;
 
-    public NotificationOutboxPollerJob(NotificationOutboxRepository notificationOutboxRepository,
-            NotificationDispatchService notificationDispatchService,
+    public NotificationOutboxPollerJob(NotificationOutboxDrainer notificationOutboxDrainer,
             NotificationOutboxTransactions notificationOutboxTransactions,
-            @Value("${io.terrakube.notification.poller.batchSize:200}") int batchSize,
             @Value("${io.terrakube.notification.poller.stuckSendingThresholdMinutes:5}") long stuckSendingThresholdMinutes) {
-        this.notificationOutboxRepository = notificationOutboxRepository;
-        this.notificationDispatchService = notificationDispatchService;
+        this.notificationOutboxDrainer = notificationOutboxDrainer;
         this.notificationOutboxTransactions = notificationOutboxTransactions;
-        this.batchSize = batchSize;
         this.stuckSendingThresholdMillis = stuckSendingThresholdMinutes * 60_000L;
     }
 
@@ -55,27 +43,6 @@ public class NotificationOutboxPollerJob implements Job {
         // below go through.
         notificationOutboxTransactions.sweepStuckSendingRows(
                 new Date(System.currentTimeMillis() - stuckSendingThresholdMillis), MAX_ATTEMPTS);
-        dispatchDueRows();
-    }
-
-    private void dispatchDueRows() {
-        List<NotificationOutbox> due = notificationOutboxRepository.findDueForDispatch(NotificationOutboxStatus.PENDING,
-                new Date(), PageRequest.of(0, batchSize));
-
-        int dispatched = 0;
-        for (NotificationOutbox outbox : due) {
-            try {
-                notificationDispatchService.dispatchAsync(outbox.getId());
-                dispatched++;
-            } catch (RejectedExecutionException e) {
-                // The dispatch executor's queue is full - this row is still PENDING (this
-                // submission never claimed it) and will be picked up again on the next tick.
-                log.warn("Notification dispatch executor rejected outbox {}, will retry next poll cycle",
-                        outbox.getId());
-            }
-        }
-        if (dispatched > 0) {
-            log.info("Notification outbox poller dispatched {} pending row(s)", dispatched);
-        }
+        notificationOutboxDrainer.drain();
     }
 }
@@ -0,0 +1,43 @@
+package io.terrakube.api.plugin.scheduler.provider;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spaces the requests of a WebClient so no host gets more than requestsPerSecond. Each request
+ * reserves the next free slot of its host and waits for it on a timer, no thread is blocked. The
+ * slot is taken when the request is subscribed, so retries queue up again like any other request.
+ */
+class HostRateLimiter implements ExchangeFilterFunction {
+
+    private final long intervalNanos;
+    private final Map<String, AtomicLong> nextSlotByHost = new ConcurrentHashMap<>();
+
+    HostRateLimiter(int requestsPerSecond) {
+        this.intervalNanos = requestsPerSecond > 0 ? 1_000_000_000L / requestsPerSecond : 0;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (intervalNanos == 0) {
+            return next.exchange(request);
+        }
+        return Mono.defer(() -> {
+            long now = System.nanoTime();
+            long previous = nextSlotByHost.computeIfAbsent(request.url().getHost(), host -> new AtomicLong(now))
+                    .getAndAccumulate(now, (slot, current) -> Math.max(slot, current) + intervalNanos);
+            long delay = Math.max(previous, now) - now;
+            return delay <= 0
+                    ? next.exchange(request)
+                    : Mono.delay(Duration.ofNanos(delay)).then(next.exchange(request));
+        });
+    }
+}
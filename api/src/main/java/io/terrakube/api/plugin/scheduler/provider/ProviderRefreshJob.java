@@ -1,7 +1,6 @@
 package io.terrakube.api.plugin.scheduler.provider;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.terrakube.api.plugin.scheduler.provider.ProviderRegistryClient.RegistryVersion;
 import io.terrakube.api.repository.ProviderImplementationRepository;
 import io.terrakube.api.repository.ProviderRepository;
 import io.terrakube.api.repository.ProviderVersionRepository;
@@ -13,13 +12,13 @@ import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -34,8 +33,6 @@ import java.util.stream.Collectors;
 @Component
 public class ProviderRefreshJob implements Job {
 
-    private static final String TERRAFORM_REGISTRY_BASE_URL = "https://registry.terraform.io";
-
     /** Standard platforms to import for each version */
     private static final List<String[]> STANDARD_PLATFORMS = List.of(
             new String[]{"linux", "amd64"},
@@ -54,25 +51,20 @@ public class ProviderRefreshJob implements Job {
     @Autowired
     private ProviderImplementationRepository providerImplementationRepository;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private ProviderRegistryClient providerRegistryClient;
 
-    private final WebClient webClient;
+    @Autowired
+    private ProviderRefreshProperties providerRefreshProperties;
 
-    public ProviderRefreshJob() {
-        this.webClient = WebClient.builder()
-                .baseUrl(TERRAFORM_REGISTRY_BASE_URL)
-                .defaultHeaders(h -> {
-                    h.setAccept(List.of(MediaType.APPLICATION_JSON));
-                    h.add("User-Agent", "Terrakube/1.0 (https://terrakube.io)");
-                })
-                .codecs(configurer -> configurer
-                        .defaultCodecs()
-                        .maxInMemorySize(16 * 1024 * 1024))
-                .build();
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** A new version and the platforms fetched for it, waiting to be saved. */
+    private record FetchedVersion(RegistryVersion registryVersion, List<Implementation> implementations) {
     }
 
     @Override
-    @Transactional
     public void execute(JobExecutionContext context) throws JobExecutionException {
         String providerId = context.getJobDetail().getJobDataMap().getString("providerId");
         log.info("ProviderRefreshJob running for providerId={}", providerId);
@@ -95,6 +87,10 @@ public class ProviderRefreshJob implements Job {
     /**
      * Fetches all versions from the public registry for this provider,
      * compares with existing versions in the DB, and imports any new ones.
+     *
+     * The registry requests of new versions run concurrently, up to the configured concurrency and
+     * under ProviderRegistryClient's per-host rate limit, and fetched versions are saved in batches,
+     * each in its own short transaction. The Quartz thread only waits for the whole import once.
      */
     private void refreshProvider(Provider provider) {
         // Use the dedicated registryNamespace field for imported providers
@@ -108,196 +104,86 @@ public class ProviderRefreshJob implements Job {
 
         log.info("Checking registry for new versions of {}/{}", namespace, name);
 
-        // 1. Fetch all versions from the public registry
-        List<RegistryVersion> registryVersions = fetchRegistryVersions(namespace, name);
-        if (registryVersions.isEmpty()) {
-            log.info("No versions found in registry for {}/{}", namespace, name);
-            return;
-        }
-
-        // 2. Get existing versions from DB
-        List<Version> existingVersions = providerVersionRepository.findAllByProviderId(provider.getId());
-        Set<String> existingVersionNumbers = existingVersions.stream()
+        Set<String> existingVersionNumbers = providerVersionRepository.findAllByProviderId(provider.getId()).stream()
                 .map(Version::getVersionNumber)
                 .collect(Collectors.toSet());
 
-        // 3. Find new versions
-        List<RegistryVersion> newVersions = registryVersions.stream()
-                .filter(rv -> !existingVersionNumbers.contains(rv.version))
-                .collect(Collectors.toList());
-
-        if (newVersions.isEmpty()) {
-            log.info("Provider {}/{} is up to date ({} versions)", namespace, name, existingVersions.size());
-            return;
-        }
-
-        log.info("Found {} new version(s) for {}/{}: {}", newVersions.size(), namespace, name,
-                newVersions.stream().map(v -> v.version).collect(Collectors.joining(", ")));
-
-        // 4. Import each new version
-        for (RegistryVersion rv : newVersions) {
-            try {
-                importVersion(provider, namespace, name, rv);
-            } catch (Exception e) {
-                log.error("Failed to import version {} for {}/{}: {}",
-                        rv.version, namespace, name, e.getMessage());
-            }
+        Integer imported = providerRegistryClient.versions(namespace, name)
+                .filter(rv -> !existingVersionNumbers.contains(rv.version()))
+                .flatMap(rv -> fetchVersion(namespace, name, rv), Math.max(1, providerRefreshProperties.getConcurrency()))
+                .buffer(Math.max(1, providerRefreshProperties.getBatchSize()))
+                .publishOn(Schedulers.boundedElastic())
+                .map(batch -> saveBatch(provider, batch))
+                .reduce(0, Integer::sum)
+                .block();
+
+        if (imported == null || imported == 0) {
+            log.info("Provider {}/{} is up to date ({} versions)", namespace, name, existingVersionNumbers.size());
+        } else {
+            log.info("Imported {} new version(s) for {}/{}", imported, namespace, name);
         }
     }
 
     /**
-     * Fetches the list of versions from the Terraform Registry v1 API.
+     * Fetches the download info of every standard platform the version was published for, one
+     * request after the other so the version counts once against the import's concurrency. A
+     * platform that can't be fetched is left out, the version is still imported.
      */
-    private List<RegistryVersion> fetchRegistryVersions(String namespace, String name) {
-        try {
-            String response = webClient.get()
-                    .uri("/v1/providers/{namespace}/{name}/versions", namespace, name)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .retryWhen(reactor.util.retry.Retry.backoff(2, Duration.ofMillis(500))
-                            .filter(t -> !(t instanceof WebClientResponseException.NotFound)))
-                    .block(Duration.ofSeconds(30));
-
-            if (response == null) return Collections.emptyList();
-
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode versionsNode = root.path("versions");
-            if (!versionsNode.isArray()) return Collections.emptyList();
-
-            List<RegistryVersion> result = new ArrayList<>();
-            for (JsonNode vNode : versionsNode) {
-                String version = vNode.path("version").asText("");
-                if (version.isEmpty()) continue;
-
-                String protocols = "";
-                JsonNode protocolsNode = vNode.path("protocols");
-                if (protocolsNode.isArray()) {
-                    List<String> protoList = new ArrayList<>();
-                    protocolsNode.forEach(p -> protoList.add(p.asText()));
-                    protocols = String.join(",", protoList);
-                }
-
-                List<String[]> platforms = new ArrayList<>();
-                JsonNode platformsNode = vNode.path("platforms");
-                if (platformsNode.isArray()) {
-                    for (JsonNode pNode : platformsNode) {
-                        platforms.add(new String[]{
-                                pNode.path("os").asText(""),
-                                pNode.path("arch").asText("")
-                        });
-                    }
-                }
-
-                result.add(new RegistryVersion(version, protocols, platforms));
-            }
-            return result;
-        } catch (Exception e) {
-            log.error("Failed to fetch versions from registry for {}/{}: {}", namespace, name, e.getMessage());
-            return Collections.emptyList();
-        }
-    }
-
-    /**
-     * Imports a single version: creates a Version record and Implementation records
-     * for each available platform.
-     */
-    private void importVersion(Provider provider, String namespace, String name, RegistryVersion rv) {
-        // Create the Version entity
-        Version version = new Version();
-        version.setVersionNumber(rv.version);
-        version.setProtocols(rv.protocols.isEmpty() ? "5.0" : rv.protocols);
-        version.setProvider(provider);
-        version = providerVersionRepository.save(version);
-
-        log.info("Created version {} for provider {}", rv.version, provider.getName());
-
+    private Mono<FetchedVersion> fetchVersion(String namespace, String name, RegistryVersion rv) {
         // Determine which platforms to import (intersection of available and standard)
         List<String[]> platformsToImport = STANDARD_PLATFORMS.stream()
-                .filter(std -> rv.platforms.stream()
+                .filter(std -> rv.platforms().stream()
                         .anyMatch(p -> p[0].equals(std[0]) && p[1].equals(std[1])))
                 .collect(Collectors.toList());
 
-        // Fetch download info and create implementations for each platform
-        for (String[] platform : platformsToImport) {
-            try {
-                importImplementation(provider, namespace, name, version, rv.version, platform[0], platform[1]);
-            } catch (Exception e) {
-                log.warn("Failed to import implementation {}/{} for {}/{} v{}: {}",
-                        platform[0], platform[1], namespace, name, rv.version, e.getMessage());
-            }
-        }
+        return Flux.fromIterable(platformsToImport)
+                .concatMap(platform -> providerRegistryClient
+                        .implementation(namespace, name, rv.version(), platform[0], platform[1])
+                        .onErrorResume(e -> {
+                            log.warn("Failed to import implementation {}/{} for {}/{} v{}: {}",
+                                    platform[0], platform[1], namespace, name, rv.version(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .collectList()
+                .map(implementations -> new FetchedVersion(rv, implementations));
     }
 
     /**
-     * Fetches download info for a specific platform and creates an Implementation record.
+     * Creates the Version records of a batch and the Implementation records of their platforms in
+     * one transaction. A failed batch is logged and skipped; its versions are retried next refresh.
      */
-    private void importImplementation(Provider provider, String namespace, String name,
-                                       Version version, String versionNumber,
-                                       String os, String arch) {
-        String response = webClient.get()
-                .uri("/v1/providers/{namespace}/{name}/{version}/download/{os}/{arch}",
-                        namespace, name, versionNumber, os, arch)
-                .retrieve()
-                .bodyToMono(String.class)
-                .retryWhen(reactor.util.retry.Retry.backoff(2, Duration.ofMillis(500))
-                        .filter(t -> !(t instanceof WebClientResponseException.NotFound)))
-                .block(Duration.ofSeconds(30));
-
-        if (response == null) return;
-
+    private int saveBatch(Provider provider, List<FetchedVersion> batch) {
         try {
-            JsonNode dl = objectMapper.readTree(response);
-
-            Implementation impl = new Implementation();
-            impl.setOs(truncate(dl.path("os").asText(""), 32));
-            impl.setArch(truncate(dl.path("arch").asText(""), 32));
-            impl.setFilename(truncate(dl.path("filename").asText(""), 512));
-            impl.setDownloadUrl(truncate(dl.path("download_url").asText(""), 1024));
-            impl.setShasumsUrl(truncate(dl.path("shasums_url").asText(""), 1024));
-            impl.setShasumsSignatureUrl(truncate(dl.path("shasums_signature_url").asText(""), 1024));
-            impl.setShasum(truncate(dl.path("shasum").asText(""), 1024));
-
-            // GPG key info
-            JsonNode gpgKeys = dl.path("signing_keys").path("gpg_public_keys");
-            if (gpgKeys.isArray() && gpgKeys.size() > 0) {
-                JsonNode key = gpgKeys.get(0);
-                impl.setKeyId(truncate(key.path("key_id").asText(""), 32));
-                impl.setAsciiArmor(key.path("ascii_armor").asText(""));
-                impl.setTrustSignature(key.path("trust_signature").asText(""));
-                impl.setSource(truncate(key.path("source").asText("unknown"), 64));
-                impl.setSourceUrl(truncate(key.path("source_url").asText("https://unknown"), 512));
-            } else {
-                impl.setKeyId("");
-                impl.setAsciiArmor("");
-                impl.setTrustSignature("");
-                impl.setSource("unknown");
-                impl.setSourceUrl("https://unknown");
-            }
-
-            impl.setVersion(version);
-            providerImplementationRepository.save(impl);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                List<Version> versions = new ArrayList<>();
+                for (FetchedVersion fetched : batch) {
+                    Version version = new Version();
+                    version.setVersionNumber(fetched.registryVersion().version());
+                    version.setProtocols(fetched.registryVersion().protocols().isEmpty() ? "5.0"
+                            : fetched.registryVersion().protocols());
+                    version.setProvider(provider);
+                    versions.add(version);
+                }
+                List<Version> saved = providerVersionRepository.saveAll(versions);
 
-            log.debug("Created implementation {}/{} for {} v{}", os, arch, provider.getName(), versionNumber);
+                List<Implementation> implementations = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    for (Implementation implementation : batch.get(i).implementations()) {
+                        implementation.setVersion(saved.get(i));
+                        implementations.add(implementation);
+                    }
+                }
+                providerImplementationRepository.saveAll(implementations);
+            });
+            log.info("Created versions {} for provider {}", batch.stream()
+                    .map(fetched -> fetched.registryVersion().version())
+                    .collect(Collectors.joining(", ")), provider.getName());
+            return batch.size();
         } catch (Exception e) {
-            log.error("Failed to parse download info for {}/{} {}/{}: {}", namespace, name, os, arch, e.getMessage());
-        }
-    }
-
-    private static String truncate(String value, int maxLength) {
-        if (value == null) return "";
-        return value.length() > maxLength ? value.substring(0, maxLength) : value;
-    }
-
-    /** Internal record for a version from the registry API */
-    private static class RegistryVersion {
-        final String version;
-        final String protocols;
-        final List<String[]> platforms;
-
-        RegistryVersion(String version, String protocols, List<String[]> platforms) {
-            this.version = version;
-            this.protocols = protocols;
-            this.platforms = platforms;
+            log.error("Failed to import versions {} for provider {}: {}", batch.stream()
+                    .map(fetched -> fetched.registryVersion().version())
+                    .collect(Collectors.joining(", ")), provider.getName(), e.getMessage());
+            return 0;
         }
     }
 }
@@ -0,0 +1,34 @@
+package io.terrakube.api.plugin.scheduler.provider;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.api.provider.refresh")
+public class ProviderRefreshProperties {
+
+    private String registryUrl = "https://registry.terraform.io";
+
+    /**
+     * Registry requests a provider import keeps in flight at once.
+     */
+    private int concurrency = 8;
+
+    /**
+     * Requests per second sent to one registry host, shared by every import running on this replica.
+     * 0 disables the limit.
+     */
+    private int requestsPerSecond = 10;
+
+    /**
+     * Versions, with their platforms, saved per transaction.
+     */
+    private int batchSize = 25;
+}
@@ -0,0 +1,162 @@
+package io.terrakube.api.plugin.scheduler.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.terrakube.api.rs.provider.implementation.Implementation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking reads of the Terraform Registry v1 provider API for ProviderRefreshJob. One instance
+ * serves every refresh, so its per-host rate limit holds across providers refreshing at the same time.
+ */
+@Slf4j
+@Component
+public class ProviderRegistryClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /** A version listed by the registry, with the os/arch pairs it was published for. */
+    record RegistryVersion(String version, String protocols, List<String[]> platforms) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WebClient webClient;
+
+    public ProviderRegistryClient(ProviderRefreshProperties providerRefreshProperties) {
+        this.webClient = WebClient.builder()
+                .baseUrl(providerRefreshProperties.getRegistryUrl())
+                .defaultHeaders(h -> {
+                    h.setAccept(List.of(MediaType.APPLICATION_JSON));
+                    h.add("User-Agent", "Terrakube/1.0 (https://terrakube.io)");
+                })
+                .codecs(configurer -> configurer
+                        .defaultCodecs()
+                        .maxInMemorySize(16 * 1024 * 1024))
+                .filter(new HostRateLimiter(providerRefreshProperties.getRequestsPerSecond()))
+                .build();
+    }
+
+    /**
+     * Every version the registry lists for namespace/name. Empty if the registry can't be read.
+     */
+    public Flux<RegistryVersion> versions(String namespace, String name) {
+        return get("/v1/providers/{namespace}/{name}/versions", namespace, name)
+                .flatMapMany(response -> Flux.fromIterable(parseVersions(response)))
+                .onErrorResume(e -> {
+                    log.error("Failed to fetch versions from registry for {}/{}: {}", namespace, name, e.getMessage());
+                    return Flux.empty();
+                });
+    }
+
+    /**
+     * The download of one platform of a version as an Implementation without its Version. Errors are
+     * left to the caller, which decides whether the version is imported without this platform.
+     */
+    public Mono<Implementation> implementation(String namespace, String name, String version, String os,
+            String arch) {
+        return get("/v1/providers/{namespace}/{name}/{version}/download/{os}/{arch}", namespace, name, version, os,
+                arch)
+                .map(this::parseImplementation);
+    }
+
+    private Mono<String> get(String uri, Object... variables) {
+        return webClient.get()
+                .uri(uri, variables)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(REQUEST_TIMEOUT)
+                .retryWhen(Retry.backoff(2, Duration.ofMillis(500))
+                        .filter(t -> !(t instanceof WebClientResponseException.NotFound)));
+    }
+
+    private List<RegistryVersion> parseVersions(String response) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(response);
+        } catch (Exception e) {
+            throw new IllegalStateException("Registry answered with invalid JSON: " + e.getMessage(), e);
+        }
+        JsonNode versionsNode = root.path("versions");
+        if (!versionsNode.isArray()) return List.of();
+
+        List<RegistryVersion> result = new ArrayList<>();
+        for (JsonNode vNode : versionsNode) {
+            String version = vNode.path("version").asText("");
+            if (version.isEmpty()) continue;
+
+            String protocols = "";
+            JsonNode protocolsNode = vNode.path("protocols");
+            if (protocolsNode.isArray()) {
+                List<String> protoList = new ArrayList<>();
+                protocolsNode.forEach(p -> protoList.add(p.asText()));
+                protocols = String.join(",", protoList);
+            }
+
+            List<String[]> platforms = new ArrayList<>();
+            JsonNode platformsNode = vNode.path("platforms");
+            if (platformsNode.isArray()) {
+                for (JsonNode pNode : platformsNode) {
+                    platforms.add(new String[]{
+                            pNode.path("os").asText(""),
+                            pNode.path("arch").asText("")
+                    });
+                }
+            }
+
+            result.add(new RegistryVersion(version, protocols, platforms));
+        }
+        return result;
+    }
+
+    private Implementation parseImplementation(String response) {
+        JsonNode dl;
+        try {
+            dl = objectMapper.readTree(response);
+        } catch (Exception e) {
+            throw new IllegalStateException("Registry answered with invalid JSON: " + e.getMessage(), e);
+        }
+
+        Implementation impl = new Implementation();
+        impl.setOs(truncate(dl.path("os").asText(""), 32));
+        impl.setArch(truncate(dl.path("arch").asText(""), 32));
+        impl.setFilename(truncate(dl.path("filename").asText(""), 512));
+        impl.setDownloadUrl(truncate(dl.path("download_url").asText(""), 1024));
+        impl.setShasumsUrl(truncate(dl.path("shasums_url").asText(""), 1024));
+        impl.setShasumsSignatureUrl(truncate(dl.path("shasums_signature_url").asText(""), 1024));
+        impl.setShasum(truncate(dl.path("shasum").asText(""), 1024));
+
+        // GPG key info
+        JsonNode gpgKeys = dl.path("signing_keys").path("gpg_public_keys");
+        if (gpgKeys.isArray() && gpgKeys.size() > 0) {
+            JsonNode key = gpgKeys.get(0);
+            impl.setKeyId(truncate(key.path("key_id").asText(""), 32));
+            impl.setAsciiArmor(key.path("ascii_armor").asText(""));
+            impl.setTrustSignature(key.path("trust_signature").asText(""));
+            impl.setSource(truncate(key.path("source").asText("unknown"), 64));
+            impl.setSourceUrl(truncate(key.path("source_url").asText("https://unknown"), 512));
+        } else {
+            impl.setKeyId("");
+            impl.setAsciiArmor("");
+            impl.setTrustSignature("");
+            impl.setSource("unknown");
+            impl.setSourceUrl("https://unknown");
+        }
+        return impl;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null) return "";
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -1,6 +1,7 @@
 package io.terrakube.api.plugin.scheduler.reconciliation;
 
 import io.terrakube.api.plugin.scheduler.ScheduleJobService;
+import io.terrakube.api.plugin.scheduler.SweepLock;
 import io.terrakube.api.repository.JobRepository;
 import io.terrakube.api.repository.StepRepository;
 import io.terrakube.api.repository.WorkspaceRepository;
@@ -17,10 +18,12 @@ import org.quartz.ObjectAlreadyExistsException;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.text.ParseException;
 import java.time.Duration;
@@ -28,11 +31,13 @@ import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import static io.terrakube.api.plugin.scheduler.ScheduleJobService.PREFIX_JOB_CONTEXT;
 
 /**
- * Runs every 30 seconds to repair two ways a job can get stuck:
+ * Runs every 30 seconds, on one replica at a time (see SweepLock), to repair two ways a job can
+ * get stuck:
  *
  * 1. Its Quartz trigger was lost (e.g. a crash between Quartz committing a trigger delete and
  *    Spring committing the job's status change - separate transactions) - recreate it.
@@ -58,22 +63,55 @@ public class JobReconciliationSweep implements org.quartz.Job {
     // re-populate before trusting a missing key means the executor is actually dead.
     private static final Duration REDIS_WARMUP_PERIOD = Duration.ofSeconds(90);
 
+    static final int PAGE_SIZE = 500;
+    static final String SWEEP = "job-reconciliation";
+    // Far longer than a sweep takes; only matters if a replica dies while holding the lock.
+    private static final Duration LOCK_TTL = Duration.ofMinutes(5);
+
     JobRepository jobRepository;
     StepRepository stepRepository;
     WorkspaceRepository workspaceRepository;
     Scheduler scheduler;
     ScheduleJobService scheduleJobService;
     RedisTemplate<String, Object> redisTemplate;
+    QuartzJobLookup quartzJobLookup;
+    SweepLock sweepLock;
+    PlatformTransactionManager transactionManager;
 
-    @Transactional
+    // Active jobs are read a page at a time, and each page costs one Quartz query and one Redis
+    // MGET however many jobs it holds, instead of a query and a Redis call per job. Every page runs
+    // in a transaction of its own, so neither the persistence context nor the transaction grows
+    // with the number of active jobs, and the lock is only released once the last one committed.
     @Override
     public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
-        boolean redisRecentlyRestarted = isRedisWithinWarmupPeriod();
-        for (Job job : jobRepository.findAllByStatusInOrderByIdAsc(ACTIVE_STATUSES)) {
-            reconcileTrigger(job);
-            if (isExecutorOwnedStatus(job.getStatus())) {
-                failIfExecutorHeartbeatExpired(job, redisRecentlyRestarted);
-            }
+        String lock = sweepLock.tryAcquire(SWEEP, LOCK_TTL);
+        if (lock == null) {
+            log.debug("Job reconciliation sweep already running on another replica, skipping this tick");
+            return;
+        }
+        try {
+            boolean redisRecentlyRestarted = isRedisWithinWarmupPeriod();
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            int afterId = 0;
+            int pageSize;
+            do {
+                int pageAfterId = afterId;
+                List<Job> page = transactionTemplate.execute(status -> {
+                    List<Job> jobs = jobRepository.findByStatusInAndIdGreaterThanOrderByIdAsc(ACTIVE_STATUSES,
+                            pageAfterId, Limit.of(PAGE_SIZE));
+                    if (!jobs.isEmpty()) {
+                        reconcileTriggers(jobs);
+                        failJobsWithExpiredHeartbeat(jobs, redisRecentlyRestarted);
+                    }
+                    return jobs;
+                });
+                pageSize = page == null ? 0 : page.size();
+                if (pageSize > 0) {
+                    afterId = page.getLast().getId();
+                }
+            } while (pageSize == PAGE_SIZE);
+        } finally {
+            sweepLock.release(SWEEP, lock);
         }
     }
 
@@ -100,13 +138,25 @@ public class JobReconciliationSweep implements org.quartz.Job {
         return status == JobStatus.queue || status == JobStatus.running;
     }
 
-    private void reconcileTrigger(Job job) {
+    private void reconcileTriggers(List<Job> page) {
+        Set<String> existing;
         try {
-            JobKey key = new JobKey(PREFIX_JOB_CONTEXT + job.getId());
-            if (!scheduler.checkExists(key)) {
-                log.warn("Job {} has no Quartz trigger despite status {}, recreating it", job.getId(), job.getStatus());
-                scheduleJobService.createJobContext(job);
+            existing = quartzJobLookup.existing(page.stream().map(job -> PREFIX_JOB_CONTEXT + job.getId()).toList());
+        } catch (SchedulerException e) {
+            log.warn("Could not check Quartz triggers for {} jobs, will retry next sweep: {}", page.size(), e.getMessage());
+            return;
+        }
+        for (Job job : page) {
+            if (!existing.contains(PREFIX_JOB_CONTEXT + job.getId())) {
+                recreateTrigger(job);
             }
+        }
+    }
+
+    private void recreateTrigger(Job job) {
+        try {
+            log.warn("Job {} has no Quartz trigger despite status {}, recreating it", job.getId(), job.getStatus());
+            scheduleJobService.createJobContext(job);
         } catch (ObjectAlreadyExistsException e) {
             log.info("Job {}'s trigger was recreated by another cluster member first, ignoring", job.getId());
         } catch (ParseException | SchedulerException e) {
@@ -114,34 +164,45 @@ public class JobReconciliationSweep implements org.quartz.Job {
         }
     }
 
-    // Fails a job whose executor heartbeat has expired. Skips jobs younger than
+    // Fails jobs whose executor heartbeat has expired. Skips jobs younger than
     // HEARTBEAT_GRACE_PERIOD so a freshly-dispatched job gets a full refresh cycle first. Unlike
     // most Redis errors elsewhere in this codebase, an unreachable Redis here does nothing rather
-    // than assuming the job is dead - presuming a live job dead risks failing it mid-apply.
-    private void failIfExecutorHeartbeatExpired(Job job, boolean redisRecentlyRestarted) {
-        if (job.getUpdatedDate() == null) {
-            return;
-        }
-        Duration age = Duration.between(job.getUpdatedDate().toInstant(), Instant.now());
-        if (age.compareTo(HEARTBEAT_GRACE_PERIOD) < 0) {
+    // than assuming the jobs are dead - presuming a live job dead risks failing it mid-apply.
+    private void failJobsWithExpiredHeartbeat(List<Job> page, boolean redisRecentlyRestarted) {
+        Instant now = Instant.now();
+        List<Job> candidates = page.stream()
+                .filter(job -> isExecutorOwnedStatus(job.getStatus()))
+                .filter(job -> job.getUpdatedDate() != null)
+                .filter(job -> Duration.between(job.getUpdatedDate().toInstant(), now).compareTo(HEARTBEAT_GRACE_PERIOD) >= 0)
+                .toList();
+        if (candidates.isEmpty()) {
             return;
         }
         if (redisRecentlyRestarted) {
-            log.info("Redis was recently restarted, skipping heartbeat judgment for Job {} this sweep", job.getId());
+            log.info("Redis was recently restarted, skipping heartbeat judgment for {} jobs this sweep", candidates.size());
             return;
         }
 
-        boolean alive;
+        List<Object> heartbeats;
         try {
-            alive = Boolean.TRUE.equals(redisTemplate.hasKey(HEARTBEAT_PREFIX + job.getId()));
+            heartbeats = redisTemplate.opsForValue()
+                    .multiGet(candidates.stream().map(job -> HEARTBEAT_PREFIX + job.getId()).toList());
         } catch (DataAccessException e) {
-            log.warn("Could not check executor heartbeat for Job {}, leaving it as-is this sweep: {}", job.getId(), e.getMessage());
+            log.warn("Could not check executor heartbeats for {} jobs, leaving them as-is this sweep: {}", candidates.size(), e.getMessage());
             return;
         }
-        if (alive) {
+        if (heartbeats == null || heartbeats.size() != candidates.size()) {
+            // MGET inside a pipeline/transaction answers null - no answer is not "dead".
             return;
         }
+        for (int i = 0; i < candidates.size(); i++) {
+            if (heartbeats.get(i) == null) {
+                failJob(candidates.get(i), Duration.between(candidates.get(i).getUpdatedDate().toInstant(), now));
+            }
+        }
+    }
 
+    private void failJob(Job job, Duration age) {
         log.warn("Job {} has no executor heartbeat after {}, the executor that had it is gone - failing it", job.getId(), age);
         jobRepository.updateStatusById(JobStatus.failed, job.getId());
         for (Step step : stepRepository.findByJobId(job.getId())) {
@@ -0,0 +1,38 @@
+package io.terrakube.api.plugin.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Executors upload step output gzipped when io.terrakube.executor.output.compress is enabled,
+ * while older outputs (and the api's own fallback paths) are plain text. The gzip magic header
+ * tells both apart, so no extra metadata has to be stored next to the blob.
+ */
+@Slf4j
+public final class StepOutputDecoder {
+
+    private StepOutputDecoder() {
+    }
+
+    public static boolean isCompressed(byte[] output) {
+        return output != null
+                && output.length >= 2
+                && (output[0] & 0xff) == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                && (output[1] & 0xff) == ((GZIPInputStream.GZIP_MAGIC >> 8) & 0xff);
+    }
+
+    public static byte[] decode(byte[] output) {
+        if (!isCompressed(output)) {
+            return output;
+        }
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(output))) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            log.error("Unable to decompress step output: {}", e.getMessage());
+            return output;
+        }
+    }
+}
@@ -7,6 +7,12 @@ public interface StorageTypeService {
 
     byte[] getStepOutput(String organizationId, String jobId, String stepId);
 
+    /**
+     * Stores the gzipped Redis log stream of a finished job next to its step outputs, so
+     * deleteWorkspaceOutputData removes it together with the rest of the job output.
+     */
+    void archiveJobLogs(String organizationId, String jobId, byte[] compressedLogs);
+
     byte[] getTerraformPlan(String organizationId, String workspaceId, String jobId, String stepId);
 
     byte[] getTerraformStateJson(String organizationId, String workspaceId, String stateFileName);
@@ -5,6 +5,7 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.StringUtils;
 import org.apache.sshd.common.util.io.IoUtils;
+import io.terrakube.api.plugin.storage.StepOutputDecoder;
 import io.terrakube.api.plugin.storage.StorageTypeService;
 import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.core.sync.RequestBody;
@@ -24,6 +25,7 @@ public class AwsStorageTypeServiceImpl implements StorageTypeService {
 
     private static final String TERRAFORM_PLAN_FILE = "terraformLibrary.tfPlan";
     private static final String BUCKET_LOCATION_OUTPUT = "tfoutput/%s/%s/%s.tfoutput";
+    private static final String BUCKET_LOCATION_LOG_ARCHIVE = "tfoutput/%s/%s/logs.archive.gz";
     private static final String BUCKET_STATE_LOCATION = "tfstate/%s/%s/%s/%s/" + TERRAFORM_PLAN_FILE;
 
     private static final String BUCKET_STATE_JSON = "tfstate/%s/%s/state/%s.json";
@@ -70,7 +72,19 @@ public class AwsStorageTypeServiceImpl implements StorageTypeService {
 
     @Override
     public byte[] getStepOutput(String organizationId, String jobId, String stepId) {
-        return downloadObjectFromBucket(bucketName, String.format(BUCKET_LOCATION_OUTPUT, organizationId, jobId, stepId));
+        return StepOutputDecoder.decode(downloadObjectFromBucket(bucketName, String.format(BUCKET_LOCATION_OUTPUT, organizationId, jobId, stepId)));
+    }
+
+    @Override
+    public void archiveJobLogs(String organizationId, String jobId, byte[] compressedLogs) {
+        String blobKey = String.format(BUCKET_LOCATION_LOG_ARCHIVE, organizationId, jobId);
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(blobKey)
+                .build();
+
+        s3client.putObject(putObjectRequest, RequestBody.fromBytes(compressedLogs));
+        log.info("Upload Object {} completed", blobKey);
     }
 
     @Override
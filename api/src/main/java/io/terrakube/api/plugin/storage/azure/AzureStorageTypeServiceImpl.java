@@ -9,6 +9,7 @@ import com.azure.storage.blob.models.ListBlobsOptions;
 import lombok.Builder;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import io.terrakube.api.plugin.storage.StepOutputDecoder;
 import io.terrakube.api.plugin.storage.StorageTypeService;
 
 import java.io.IOException;
@@ -26,6 +27,7 @@ public class AzureStorageTypeServiceImpl implements StorageTypeService {
 
     private static final String CONTAINER_TERRAFORM_CONTENT = "content";
     private static final String CONTEXT_FILE = "context/%s/context.json";
+    private static final String LOG_ARCHIVE_FILE = "%s/%s/logs.archive.gz";
 
     private static final String TERRAFORM_TAR_GZ = "content/%s/terraformContent.tar.gz";
 
@@ -42,7 +44,18 @@ public class AzureStorageTypeServiceImpl implements StorageTypeService {
         } catch (Exception e) {
             log.error(e.getMessage());
         }
-        return response;
+        return StepOutputDecoder.decode(response);
+    }
+
+    @Override
+    public void archiveJobLogs(String organizationId, String jobId, byte[] compressedLogs) {
+        BlobContainerClient containerClient = blobServiceClient.getBlobContainerClient(CONTAINER_NAME_OUTPUT);
+        if (!containerClient.exists()) {
+            containerClient.create();
+        }
+        String blobName = String.format(LOG_ARCHIVE_FILE, organizationId, jobId);
+        log.info("Log archive file: {}", blobName);
+        containerClient.getBlobClient(blobName).upload(BinaryData.fromBytes(compressedLogs), true);
     }
 
     @Override
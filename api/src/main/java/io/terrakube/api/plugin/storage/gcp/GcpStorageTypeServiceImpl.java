@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.StringUtils;
+import io.terrakube.api.plugin.storage.StepOutputDecoder;
 import io.terrakube.api.plugin.storage.StorageTypeService;
 
 import java.io.IOException;
@@ -27,6 +28,7 @@ public class GcpStorageTypeServiceImpl implements StorageTypeService {
     private static final String GCP_HISTORY_RAW_STATE = "tfstate/%s/%s/state/%s.raw.json";
     private static final String GCP_CURRENT_STATE = "tfstate/%s/%s/terraform.tfstate/default.tfstate";
     private static final String CONTEXT_JSON = "tfoutput/context/%s/context.json";
+    private static final String GCP_LOG_ARCHIVE = "tfoutput/%s/%s/logs.archive.gz";
 
     private static final String TERRAFORM_TAR_GZ = "content/%s/terraformContent.tar.gz";
 
@@ -48,7 +50,14 @@ public class GcpStorageTypeServiceImpl implements StorageTypeService {
         } catch (Exception e) {
             log.error(e.getMessage());
         }
-        return response;
+        return StepOutputDecoder.decode(response);
+    }
+
+    @Override
+    public void archiveJobLogs(String organizationId, String jobId, byte[] compressedLogs) {
+        String blobKey = String.format(GCP_LOG_ARCHIVE, organizationId, jobId);
+        log.info("archiveJobLogs {}", blobKey);
+        storage.create(BlobInfo.newBuilder(BlobId.of(bucketName, blobKey)).build(), compressedLogs);
     }
 
     @Override
@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import io.terrakube.api.plugin.storage.StepOutputDecoder;
 import io.terrakube.api.plugin.storage.StorageTypeService;
 
 import java.io.File;
@@ -23,6 +24,7 @@ public class LocalStorageTypeServiceImpl implements StorageTypeService {
 
     private static final String OUTPUT_DIRECTORY = "/.terraform-spring-boot/local/output/%s/%s/%s.tfoutput";
     private static final String CONTENT_DIRECTORY = "/.terraform-spring-boot/local/content/%s/terraformContent.tar.gz";
+    private static final String LOG_ARCHIVE_FILE = "/.terraform-spring-boot/local/output/%s/%s/logs.archive.gz";
     private static final String CONTEXT_DIRECTORY = "/.terraform-spring-boot/local/output/context/%s/context.json";
     private static final String STATE_DIRECTORY = "/.terraform-spring-boot/local/state/%s/%s/%s/%s/terraformLibrary.tfPlan";
     private static final String STATE_DIRECTORY_JSON = "/.terraform-spring-boot/local/state/%s/%s/state/%s.json";
@@ -35,7 +37,20 @@ public class LocalStorageTypeServiceImpl implements StorageTypeService {
     public byte[] getStepOutput(String organizationId, String jobId, String stepId) {
         log.info("Searching: /.terraform-spring-boot/local/tfoutput/{}/{}/{}.tfoutput", organizationId, jobId, stepId);
         String outputFilePath = String.format(OUTPUT_DIRECTORY, organizationId, jobId, stepId);
-        return getOutputBytes(outputFilePath);
+        return StepOutputDecoder.decode(getOutputBytes(outputFilePath));
+    }
+
+    @Override
+    public void archiveJobLogs(String organizationId, String jobId, byte[] compressedLogs) {
+        try {
+            String archiveFilename = String.format(LOG_ARCHIVE_FILE, organizationId, jobId);
+            log.info("logArchiveFile: {}", archiveFilename);
+            File archive = new File(FileUtils.getUserDirectoryPath().concat(FilenameUtils.separatorsToSystem(archiveFilename)));
+            FileUtils.forceMkdir(archive.getParentFile());
+            FileUtils.writeByteArrayToFile(archive, compressedLogs);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
     }
 
     @Override
@@ -0,0 +1,163 @@
+package io.terrakube.api.plugin.subscription;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Fans job status events out to the GraphQL subscribers of this replica. Each channel has one Redis
+ * listener however many clients watch it, registered with the first subscriber and removed with the
+ * last; an event is decoded once and handed to every subscriber of its channel.
+ *
+ * A subscriber only receives as fast as its WebSocket takes events. Until then it holds the latest
+ * status per job - a newer status of a job replaces the one still waiting - and at most
+ * MAX_PENDING_PER_SUBSCRIBER jobs, the oldest dropped first, so a slow client costs a bounded amount
+ * of memory and still ends up with the current state of what it watches.
+ */
+@Slf4j
+@Component
+public class JobStatusFanout {
+
+    static final int MAX_PENDING_PER_SUBSCRIBER = 256;
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final RedisSerializer<JobStatusEvent> jobStatusEventSerializer;
+    private final ConcurrentHashMap<String, ChannelListener> channels = new ConcurrentHashMap<>();
+
+    public JobStatusFanout(RedisMessageListenerContainer redisMessageListenerContainer,
+            RedisSerializer<JobStatusEvent> jobStatusEventSerializer) {
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+        this.jobStatusEventSerializer = jobStatusEventSerializer;
+    }
+
+    public Flux<JobStatusEvent> listenOn(String channel) {
+        return Flux.create(sink -> {
+            LatestStateBuffer subscriber = new LatestStateBuffer(sink);
+            join(channel, subscriber);
+            sink.onRequest(_ -> subscriber.drain());
+            sink.onDispose(() -> leave(channel, subscriber));
+        });
+    }
+
+    int channelCount() {
+        return channels.size();
+    }
+
+    // compute() keeps joining and leaving of one channel in order, so its listener is never removed
+    // while a subscriber that just joined still counts on it.
+    private void join(String channel, LatestStateBuffer subscriber) {
+        channels.compute(channel, (name, listener) -> {
+            if (listener == null) {
+                listener = new ChannelListener(name);
+                redisMessageListenerContainer.addMessageListener(listener, new ChannelTopic(name));
+            }
+            listener.subscribers.add(subscriber);
+            return listener;
+        });
+    }
+
+    private void leave(String channel, LatestStateBuffer subscriber) {
+        channels.computeIfPresent(channel, (name, listener) -> {
+            listener.subscribers.remove(subscriber);
+            if (!listener.subscribers.isEmpty()) {
+                return listener;
+            }
+            redisMessageListenerContainer.removeMessageListener(listener, new ChannelTopic(name));
+            return null;
+        });
+    }
+
+    private final class ChannelListener implements MessageListener {
+
+        private final String channel;
+        private final Set<LatestStateBuffer> subscribers = ConcurrentHashMap.newKeySet();
+
+        private ChannelListener(String channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            JobStatusEvent event;
+            try {
+                event = jobStatusEventSerializer.deserialize(message.getBody());
+            } catch (Exception e) {
+                log.warn("Dropping undecodable job status event on {}: {}", channel, e.getMessage());
+                return;
+            }
+            if (event == null) {
+                return;
+            }
+            for (LatestStateBuffer subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    // Pending events of one subscriber, keyed by job. Events are only pushed into the sink while the
+    // subscriber has demand, so the sink's own buffer never grows.
+    private static final class LatestStateBuffer {
+
+        private final FluxSink<JobStatusEvent> sink;
+        private final LinkedHashMap<Integer, JobStatusEvent> pending = new LinkedHashMap<>();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private LatestStateBuffer(FluxSink<JobStatusEvent> sink) {
+            this.sink = sink;
+        }
+
+        void offer(JobStatusEvent event) {
+            synchronized (pending) {
+                pending.put(event.jobId(), event);
+                if (pending.size() > MAX_PENDING_PER_SUBSCRIBER) {
+                    Iterator<JobStatusEvent> oldest = pending.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                }
+            }
+            drain();
+        }
+
+        // Whoever moves wip off zero emits, for itself and for every offer/request that came in
+        // meanwhile; the others just leave their work to it.
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!sink.isCancelled() && sink.requestedFromDownstream() > 0) {
+                    JobStatusEvent next;
+                    synchronized (pending) {
+                        Iterator<JobStatusEvent> iterator = pending.values().iterator();
+                        if (!iterator.hasNext()) {
+                            break;
+                        }
+                        next = iterator.next();
+                        iterator.remove();
+                    }
+                    sink.next(next);
+                }
+                if (sink.isCancelled()) {
+                    synchronized (pending) {
+                        pending.clear();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -9,10 +9,6 @@ import io.terrakube.api.rs.checks.membership.MembershipService;
 import io.terrakube.api.rs.team.Team;
 import io.terrakube.api.rs.workspace.Workspace;
 import lombok.AllArgsConstructor;
-import org.springframework.data.redis.connection.MessageListener;
-import org.springframework.data.redis.listener.ChannelTopic;
-import org.springframework.data.redis.listener.RedisMessageListenerContainer;
-import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
 import org.springframework.security.core.Authentication;
@@ -27,8 +23,7 @@ import java.util.UUID;
 @AllArgsConstructor
 public class JobStatusSubscriptionResolver {
 
-    RedisMessageListenerContainer redisMessageListenerContainer;
-    RedisSerializer<JobStatusEvent> jobStatusEventSerializer;
+    JobStatusFanout jobStatusFanout;
     WorkspaceRepository workspaceRepository;
     OrganizationRepository organizationRepository;
     MembershipService membershipService;
@@ -54,7 +49,7 @@ public class JobStatusSubscriptionResolver {
             return Flux.error(new SecurityException("Not authorized to view this workspace"));
         }
 
-        return listenOn(JobStatusPublisher.channelFor(workspaceId));
+        return jobStatusFanout.listenOn(JobStatusPublisher.channelFor(workspaceId));
     }
 
     Flux<JobStatusEvent> organizationJobStatusChanged(String organizationId, User user) {
@@ -67,22 +62,10 @@ public class JobStatusSubscriptionResolver {
             return Flux.error(new SecurityException("Not authorized to view this organization"));
         }
 
-        return listenOn(JobStatusPublisher.organizationChannelFor(organizationId));
+        return jobStatusFanout.listenOn(JobStatusPublisher.organizationChannelFor(organizationId));
     }
 
     private boolean isAuthorized(User user, List<Team> teams) {
         return authenticatedUser.isSuperUser(user) || membershipService.checkMembership(user, teams);
     }
-
-    private Flux<JobStatusEvent> listenOn(String channel) {
-        ChannelTopic topic = new ChannelTopic(channel);
-
-        return Flux.create(sink -> {
-            MessageListener listener = (message, pattern) ->
-                    sink.next(jobStatusEventSerializer.deserialize(message.getBody()));
-
-            redisMessageListenerContainer.addMessageListener(listener, topic);
-            sink.onDispose(() -> redisMessageListenerContainer.removeMessageListener(listener, topic));
-        });
-    }
 }
@@ -0,0 +1,285 @@
+package io.terrakube.api.plugin.token.dynamic;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Holds the dynamic credentials keys parsed and ready to use: the private key tokens are signed
+ * with, and the JWKS document published for cloud STS providers to verify them.
+ *
+ * The key files are checked for changes (modification time and size - a plain stat) at most
+ * every 30 seconds, on use. That also catches Kubernetes secret updates, which swap a symlink
+ * rather than write the file a WatchService would be watching.
+ *
+ * Rollover: with an empty kid, each key's kid is its RFC 7638 thumbprint, so a new key gets a new
+ * kid. When the signing key changes, the previous public key stays in the JWKS (under its own
+ * kid) for the token TTL plus the JWKS max-age, so tokens already handed out keep verifying
+ * against a cached document. The next key can also be published ahead of the switch through
+ * additional-public-key-paths.
+ */
+@Slf4j
+@Component
+public class DynamicCredentialsKeyManager {
+
+    private static final long CHECK_INTERVAL_MILLIS = 30_000;
+
+    @Value("${io.terrakube.dynamic.credentials.public-key-path}")
+    String publicKeyPath;
+
+    @Value("${io.terrakube.dynamic.credentials.private-key-path}")
+    String privateKeyPath;
+
+    @Value("${io.terrakube.dynamic.credentials.kid}")
+    String kid;
+
+    @Value("${io.terrakube.dynamic.credentials.additional-public-key-paths:}")
+    List<String> additionalPublicKeyPaths = List.of();
+
+    @Value("${io.terrakube.dynamic.credentials.ttl}")
+    int dynamicCredentialTtl;
+
+    @Value("${io.terrakube.dynamic.credentials.jwks-max-age:300}")
+    long jwksMaxAge = 300;
+
+    private final Object reloadLock = new Object();
+    private volatile KeySet keySet;
+    private volatile long nextCheck;
+
+    public record SigningKey(String kid, PrivateKey privateKey) {
+    }
+
+    public record Jwks(JwkData document, String etag) {
+    }
+
+    private record PublishedKey(String kid, RSAPublicKey publicKey, Instant retiredUntil) {
+    }
+
+    private record KeySet(SigningKey signingKey, List<PublishedKey> publishedKeys, Jwks jwks,
+                          Map<String, String> fileStamps, Instant nextRetirement) {
+    }
+
+    /**
+     * Returns null when no private key is configured or it can't be loaded.
+     */
+    public SigningKey signingKey() {
+        return current().signingKey();
+    }
+
+    public Jwks jwks() {
+        return current().jwks();
+    }
+
+    public long getJwksMaxAge() {
+        return jwksMaxAge;
+    }
+
+    /**
+     * Base64 DER of the current public key, as the PEM file holds it without the armor.
+     */
+    public String publicKey() {
+        KeySet current = current();
+        return current.publishedKeys().stream()
+                .filter(key -> key.retiredUntil() == null)
+                .findFirst()
+                .map(key -> Base64.getEncoder().encodeToString(key.publicKey().getEncoded()))
+                .orElse("");
+    }
+
+    private KeySet current() {
+        KeySet current = keySet;
+        long now = System.currentTimeMillis();
+        if (current != null && now < nextCheck) {
+            return current;
+        }
+        synchronized (reloadLock) {
+            current = keySet;
+            if (current != null && now < nextCheck) {
+                return current;
+            }
+            nextCheck = now + CHECK_INTERVAL_MILLIS;
+            Map<String, String> fileStamps = fileStamps();
+            boolean retirementDue = current != null && current.nextRetirement() != null
+                    && current.nextRetirement().isBefore(Instant.now());
+            if (current == null || retirementDue || !current.fileStamps().equals(fileStamps)) {
+                keySet = load(current, fileStamps);
+            }
+            return keySet;
+        }
+    }
+
+    private List<String> allPaths() {
+        List<String> paths = new ArrayList<>();
+        paths.add(privateKeyPath);
+        paths.add(publicKeyPath);
+        if (additionalPublicKeyPaths != null) {
+            paths.addAll(additionalPublicKeyPaths);
+        }
+        return paths.stream().filter(path -> path != null && !path.isBlank()).map(String::trim).toList();
+    }
+
+    private Map<String, String> fileStamps() {
+        Map<String, String> fileStamps = new LinkedHashMap<>();
+        for (String path : allPaths()) {
+            try {
+                Path file = Path.of(path);
+                fileStamps.put(path, Files.getLastModifiedTime(file).toMillis() + ":" + Files.size(file));
+            } catch (IOException e) {
+                fileStamps.put(path, "missing");
+            }
+        }
+        return fileStamps;
+    }
+
+    private KeySet load(KeySet previous, Map<String, String> fileStamps) {
+        if (privateKeyPath == null || privateKeyPath.isBlank()) {
+            return emptyKeySet(fileStamps);
+        }
+        try {
+            PrivateKey privateKey = KeyFactory.getInstance("RSA")
+                    .generatePrivate(new PKCS8EncodedKeySpec(readPem(privateKeyPath)));
+            RSAPublicKey publicKey = publicKeyPath == null || publicKeyPath.isBlank() ? null : readPublicKey(publicKeyPath);
+            String signingKid = kid == null || kid.isBlank()
+                    ? (publicKey != null ? thumbprint(publicKey) : null)
+                    : kid;
+
+            Instant now = Instant.now();
+            List<PublishedKey> publishedKeys = new ArrayList<>();
+            if (publicKey != null) {
+                publishedKeys.add(new PublishedKey(signingKid, publicKey, null));
+            }
+            for (String path : additionalPublicKeyPaths == null ? List.<String>of() : additionalPublicKeyPaths) {
+                if (path != null && !path.isBlank()) {
+                    RSAPublicKey additionalKey = readPublicKey(path.trim());
+                    addIfNewKid(publishedKeys, new PublishedKey(thumbprint(additionalKey), additionalKey, null));
+                }
+            }
+            if (previous != null) {
+                Instant retiredUntil = now.plus(dynamicCredentialTtl, ChronoUnit.MINUTES).plusSeconds(jwksMaxAge);
+                for (PublishedKey key : previous.publishedKeys()) {
+                    if (key.retiredUntil() == null && previous.signingKey() != null
+                            && key.kid().equals(previous.signingKey().kid())) {
+                        if (key.kid().equals(signingKid) && publicKey != null
+                                && !key.publicKey().getModulus().equals(publicKey.getModulus())) {
+                            log.warn("Dynamic credentials key changed but kept kid {}: tokens signed with the "
+                                    + "previous key stop verifying once the JWKS is refreshed. Leave "
+                                    + "DynamicCredentialId empty to derive the kid from the key.", key.kid());
+                        }
+                        addIfNewKid(publishedKeys, new PublishedKey(key.kid(), key.publicKey(), retiredUntil));
+                    } else if (key.retiredUntil() != null && key.retiredUntil().isAfter(now)) {
+                        addIfNewKid(publishedKeys, key);
+                    }
+                }
+            }
+
+            SigningKey signingKey = new SigningKey(signingKid, privateKey);
+            Instant nextRetirement = publishedKeys.stream()
+                    .map(PublishedKey::retiredUntil)
+                    .filter(Objects::nonNull)
+                    .min(Instant::compareTo)
+                    .orElse(null);
+            log.info("Loaded dynamic credentials keys, signing kid {}, published kids {}", signingKid,
+                    publishedKeys.stream().map(PublishedKey::kid).toList());
+            return new KeySet(signingKey, List.copyOf(publishedKeys), buildJwks(publishedKeys), fileStamps, nextRetirement);
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException | ClassCastException e) {
+            // A half-written file during an update shouldn't take token minting down: keep the
+            // last good keys, and since the stamps aren't recorded the load is retried on the next check.
+            log.error("Unable to load dynamic credentials keys: {}", e.getMessage());
+            return previous != null ? previous : emptyKeySet(Map.of());
+        }
+    }
+
+    private static void addIfNewKid(List<PublishedKey> publishedKeys, PublishedKey candidate) {
+        if (publishedKeys.stream().noneMatch(key -> key.kid().equals(candidate.kid()))) {
+            publishedKeys.add(candidate);
+        }
+    }
+
+    private static KeySet emptyKeySet(Map<String, String> fileStamps) {
+        JwkData document = new JwkData();
+        document.setKeys(List.of());
+        return new KeySet(null, List.of(), new Jwks(document, etag(List.of())), fileStamps, null);
+    }
+
+    private static Jwks buildJwks(List<PublishedKey> publishedKeys) {
+        List<JwkElement> elements = publishedKeys.stream().map(key -> {
+            JwkElement element = new JwkElement();
+            element.setKty("RSA");
+            element.setN(toUnsignedBase64(key.publicKey().getModulus()));
+            element.setE(toUnsignedBase64(key.publicKey().getPublicExponent()));
+            element.setKid(key.kid());
+            element.setUse("sig");
+            element.setAlg("RS512");
+            return element;
+        }).toList();
+        JwkData document = new JwkData();
+        document.setKeys(elements);
+        return new Jwks(document, etag(elements));
+    }
+
+    private static String etag(List<JwkElement> elements) {
+        StringBuilder content = new StringBuilder();
+        elements.forEach(element -> content.append(element.getKid()).append(':').append(element.getN()).append(':')
+                .append(element.getE()).append('\n'));
+        return "\"" + HexFormat.of().formatHex(Arrays.copyOf(sha256(content.toString()), 16)) + "\"";
+    }
+
+    private static RSAPublicKey readPublicKey(String path) throws IOException, GeneralSecurityException {
+        return (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(readPem(path)));
+    }
+
+    private static byte[] readPem(String path) throws IOException {
+        String pem = Files.readString(Path.of(path), StandardCharsets.UTF_8);
+        return Base64.getDecoder().decode(pem.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", ""));
+    }
+
+    // RFC 7638: SHA-256 over the required members in lexicographic order, no whitespace.
+    static String thumbprint(RSAPublicKey publicKey) {
+        String members = String.format("{\"e\":\"%s\",\"kty\":\"RSA\",\"n\":\"%s\"}",
+                toUnsignedBase64(publicKey.getPublicExponent()), toUnsignedBase64(publicKey.getModulus()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256(members));
+    }
+
+    private static byte[] sha256(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toUnsignedBase64(BigInteger value) {
+        byte[] array = value.toByteArray();
+
+        if (array.length > 1 && array[0] == 0) {
+            byte[] unsignedArray = new byte[array.length - 1];
+            System.arraycopy(array, 1, unsignedArray, 0, unsignedArray.length);
+            array = unsignedArray;
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(array);
+    }
+}
@@ -4,22 +4,14 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
-import java.security.interfaces.RSAPublicKey;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
-import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -27,67 +19,18 @@ import java.util.Optional;
 public class JwksController {
 
     @Autowired
-    DynamicCredentialsService dynamicCredentialsService;
-
-    @Value("${io.terrakube.dynamic.credentials.kid}")
-    String kid;
-
-    private JwkData jwkData;
+    DynamicCredentialsKeyManager dynamicCredentialsKeyManager;
 
+    // The document is built once per key change by DynamicCredentialsKeyManager. Cache-Control
+    // lets STS providers and proxies keep it, and the ETag turns their revalidation into a 304
+    // (Spring answers If-None-Match itself for a ResponseEntity carrying an ETag).
     @GetMapping(produces = "application/json")
-    public ResponseEntity<JwkData> jwksEndpoint() throws NoSuchAlgorithmException, InvalidKeySpecException {
-        if (jwkData == null) {
-            jwkData = getJwkData();
-        }
-        return ResponseEntity.of(Optional.of(jwkData));
-
-    }
-
-    private String toUnsignedBase64(BigInteger value) {
-        byte[] array = value.toByteArray();
-
-        if (array.length > 1 && array[0] == 0) {
-            byte[] unsignedArray = new byte[array.length - 1];
-            System.arraycopy(array, 1, unsignedArray, 0, unsignedArray.length);
-            array = unsignedArray;
-        }
-
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(array);
-    }
-
-    private JwkData getJwkData() throws NoSuchAlgorithmException, InvalidKeySpecException {
-        String publicKey = dynamicCredentialsService.getPublicKey();
-
-        if(publicKey != null && !publicKey.isEmpty()) {
-
-            byte[] encoded = Base64.getDecoder().decode(publicKey);
-
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            X509EncodedKeySpec keySpec = new X509EncodedKeySpec(encoded);
-
-            RSAPublicKey rsa = (RSAPublicKey) keyFactory.generatePublic(keySpec);
-            String exponent = toUnsignedBase64(rsa.getPublicExponent());
-            String modulus = toUnsignedBase64(rsa.getModulus());
-            log.info("RSA Exponent: {}", exponent);
-            log.info("RSA Modulus: {}", modulus);
-
-            JwkData jwkData = new JwkData();
-            jwkData.setKeys(new ArrayList());
-
-            JwkElement jwkElement = new JwkElement();
-            jwkElement.setKty("RSA");
-            jwkElement.setN(modulus);
-            jwkElement.setE(exponent);
-            jwkElement.setKid(kid);
-            jwkElement.setUse("sig");
-            jwkElement.setAlg("RS512");
-
-            jwkData.getKeys().add(jwkElement);
-
-            return jwkData;
-        } else {
-            return new JwkData();
-        }
+    public ResponseEntity<JwkData> jwksEndpoint() {
+        DynamicCredentialsKeyManager.Jwks jwks = dynamicCredentialsKeyManager.jwks();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(dynamicCredentialsKeyManager.getJwksMaxAge(), TimeUnit.SECONDS).cachePublic())
+                .eTag(jwks.etag())
+                .body(jwks.document());
     }
 }
 
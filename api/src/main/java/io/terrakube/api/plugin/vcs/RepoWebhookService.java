@@ -161,9 +161,37 @@ public class RepoWebhookService {
 
     @Transactional
     public void processV2Webhook(String repoWebhookId, String jsonPayload, Map<String, String> headers) {
-        RepoWebhook repoWebhook = repoWebhookRepository.findById(UUID.fromString(repoWebhookId))
+        RepoWebhook repoWebhook = findRepoWebhook(repoWebhookId);
+        verifyV2Webhook(repoWebhook, jsonPayload, headers);
+        processVerifiedV2Webhook(repoWebhook, jsonPayload, headers);
+    }
+
+    /**
+     * Checks the secret of a v2 webhook request without processing it. Throws
+     * IllegalArgumentException for an unknown repo webhook and SecurityException for a request that
+     * fails verification.
+     */
+    @Transactional(readOnly = true)
+    public void verifyV2Webhook(String repoWebhookId, String jsonPayload, Map<String, String> headers) {
+        verifyV2Webhook(findRepoWebhook(repoWebhookId), jsonPayload, headers);
+    }
+
+    /**
+     * Processes a v2 webhook request whose secret was already verified when it was received (see
+     * WebhookDeliveryQueue).
+     */
+    @Transactional
+    public void processVerifiedV2Webhook(String repoWebhookId, String jsonPayload, Map<String, String> headers) {
+        processVerifiedV2Webhook(findRepoWebhook(repoWebhookId), jsonPayload, headers);
+    }
+
+    private RepoWebhook findRepoWebhook(String repoWebhookId) {
+        return repoWebhookRepository.findById(UUID.fromString(repoWebhookId))
                 .orElseThrow(() -> new IllegalArgumentException("Repo webhook not found: " + repoWebhookId));
+    }
 
+    private void verifyV2Webhook(RepoWebhook repoWebhook, String jsonPayload, Map<String, String> headers) {
+        String repoWebhookId = repoWebhook.getId().toString();
         boolean gitlab = isGitLab(repoWebhook);
         boolean azureDevOps = isAzureDevOps(repoWebhook);
         if (azureDevOps) {
@@ -180,7 +208,12 @@ public class RepoWebhookService {
             log.error("Signature verification failed for repo webhook {}", repoWebhookId);
             throw new SecurityException("HMAC signature verification failed");
         }
+    }
 
+    private void processVerifiedV2Webhook(RepoWebhook repoWebhook, String jsonPayload, Map<String, String> headers) {
+        String repoWebhookId = repoWebhook.getId().toString();
+        boolean gitlab = isGitLab(repoWebhook);
+        boolean azureDevOps = isAzureDevOps(repoWebhook);
         WebhookResult webhookResult;
         if (azureDevOps) {
             webhookResult = azDevOpsWebhookService.parseAzDevOpsPayload(jsonPayload, headers);
@@ -14,6 +14,9 @@ import javax.crypto.spec.SecretKeySpec;
 
 import io.terrakube.api.rs.job.JobStatus;
 
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.commons.lang3.function.TriFunction;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -31,6 +34,23 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class WebhookServiceBase {
 
+    // One pooled client for the REST calls of every VCS provider instead of a new client, and
+    // connection pool, per request. useSystemProperties() keeps honouring the JVM proxy settings
+    // like the per-request client did.
+    private static final RestTemplate API_REST_TEMPLATE = new RestTemplate(new HttpComponentsClientHttpRequestFactory(
+            HttpClients.custom()
+                    .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                            .setMaxConnTotal(100)
+                            .setMaxConnPerRoute(20)
+                            .build())
+                    .evictIdleConnections(TimeValue.ofSeconds(30))
+                    .useSystemProperties()
+                    .build()));
+
+    protected RestTemplate apiRestTemplate() {
+        return API_REST_TEMPLATE;
+    }
+
     protected String[] extractOwnerAndRepo(String repoUrl) {
         try {
             URI uri = new URI(repoUrl);
@@ -105,9 +125,8 @@ public class WebhookServiceBase {
     }
 
     protected ResponseEntity<String> makeApiRequest(HttpHeaders headers, String body, String apiUrl, HttpMethod method) {
-        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory());
         HttpEntity<String> entity = new HttpEntity<>(body, headers);
-        return restTemplate.exchange(apiUrl, method, entity, String.class);
+        return apiRestTemplate().exchange(apiUrl, method, entity, String.class);
     }
 
     protected String parseTerrakubeCommand(String commentBody) {
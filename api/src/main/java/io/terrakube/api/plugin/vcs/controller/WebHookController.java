@@ -7,7 +7,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
-import io.terrakube.api.plugin.vcs.RepoWebhookService;
+import io.terrakube.api.plugin.vcs.intake.WebhookDeliveryQueue;
 import io.terrakube.api.plugin.vcs.WebhookService;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -28,7 +28,7 @@ public class WebHookController {
     WebhookService webhookService;
 
     @Autowired
-    RepoWebhookService repoWebhookService;
+    WebhookDeliveryQueue webhookDeliveryQueue;
 
     @Autowired
     ObjectMapper objectMapper;
@@ -55,7 +55,8 @@ public class WebHookController {
         log.info("Processing v2 webhook");
         try {
             String jsonPayload = objectMapper.writeValueAsString(payload);
-            repoWebhookService.processV2Webhook(repoWebhookId, jsonPayload, headers);
+            // Verified and queued only: a slow push must not outlast the provider's delivery timeout.
+            webhookDeliveryQueue.accept(repoWebhookId, jsonPayload, headers);
         } catch (IllegalArgumentException | SecurityException e) {
             log.warn("V2 webhook request rejected");
             return ResponseEntity.status(401).build();
@@ -0,0 +1,8 @@
+package io.terrakube.api.plugin.vcs.intake;
+
+import java.util.Date;
+import java.util.UUID;
+
+record ClaimedWebhookDelivery(UUID id, String repoWebhookId, String payload, String headers, int attemptCount,
+        Date receivedAt) {
+}
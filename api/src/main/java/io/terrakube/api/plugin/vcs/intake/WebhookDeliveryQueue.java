@@ -0,0 +1,397 @@
+package io.terrakube.api.plugin.vcs.intake;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.terrakube.api.plugin.scheduler.SweepLock;
+import io.terrakube.api.plugin.vcs.RepoWebhookService;
+import io.terrakube.api.rs.webhook.WebhookDeliveryStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Takes v2 webhook requests off the request thread. accept() verifies the secret and stores the
+ * request in webhook_delivery, and the provider gets its answer right away; parsing, fetching the
+ * changed files and creating jobs happen afterwards, however long a large push takes. A delivery
+ * the provider sends again - after a timeout, or redelivered by hand - is recognized by its delivery
+ * id and not processed twice.
+ *
+ * Deliveries are processed by a small worker pool, one repository at a time per worker: the
+ * deliveries of a repo webhook are processed one after the other, in the order they were received,
+ * and across replicas too while Redis is reachable. A delivery that fails is retried with backoff
+ * before the ones after it.
+ *
+ * Metrics: terrakube.webhook.ack (time to answer the provider, by outcome), terrakube.webhook.queue.depth
+ * (deliveries not processed yet, refreshed every poll) and terrakube.webhook.queue.wait (time from
+ * receiving a delivery to processing it).
+ */
+@Slf4j
+@Component
+public class WebhookDeliveryQueue {
+
+    static final String ACK_METRIC = "terrakube.webhook.ack";
+    static final String DEPTH_METRIC = "terrakube.webhook.queue.depth";
+    static final String WAIT_METRIC = "terrakube.webhook.queue.wait";
+    static final String LOCK_PREFIX = "webhook-delivery:";
+
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(30);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(10);
+    private static final int MAX_DELIVERY_ID_LENGTH = 255;
+    private static final int MAX_ERROR_LENGTH = 1000;
+    // Provider delivery ids, most specific first. GitLab's Idempotency-Key stays the same when a
+    // delivery is retried, its event UUID is the fallback for older versions.
+    private static final List<String> DELIVERY_ID_HEADERS = List.of("x-github-delivery", "idempotency-key",
+            "x-gitlab-event-uuid");
+    // Only needed to verify the request, which already happened - not worth keeping in the table.
+    private static final Set<String> SECRET_HEADERS = Set.of("x-hub-signature-256", "x-hub-signature",
+            "x-gitlab-token", "authorization", "cookie");
+
+    private final RepoWebhookService repoWebhookService;
+    private final WebhookDeliveryTransactions webhookDeliveryTransactions;
+    private final SweepLock sweepLock;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final WebhookIntakeProperties properties;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+
+    private final Set<String> activeRepositories = ConcurrentHashMap.newKeySet();
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicBoolean passQueued = new AtomicBoolean();
+
+    public WebhookDeliveryQueue(RepoWebhookService repoWebhookService,
+            WebhookDeliveryTransactions webhookDeliveryTransactions,
+            SweepLock sweepLock,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            WebhookIntakeProperties properties) {
+        this.repoWebhookService = repoWebhookService;
+        this.webhookDeliveryTransactions = webhookDeliveryTransactions;
+        this.sweepLock = sweepLock;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("webhook-delivery-poll"));
+        this.workers = Executors.newFixedThreadPool(Math.max(1, properties.getWorkerThreads()),
+                daemon("webhook-delivery-worker"));
+        Gauge.builder(DEPTH_METRIC, depth, AtomicLong::get)
+                .description("Webhook deliveries received and not processed yet")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void startPolling() {
+        long pollSeconds = Math.max(1, properties.getPollSeconds());
+        scheduler.scheduleWithFixedDelay(this::poll, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Verifies a v2 webhook request and queues it. Returns false for a delivery already queued.
+     * Throws IllegalArgumentException for an unknown repo webhook and SecurityException for a
+     * request that fails verification, as RepoWebhookService.processV2Webhook does.
+     */
+    public boolean accept(String repoWebhookId, String jsonPayload, Map<String, String> headers) {
+        long started = System.nanoTime();
+        String outcome = "error";
+        try {
+            repoWebhookService.verifyV2Webhook(repoWebhookId, jsonPayload, headers);
+            String deliveryId = deliveryId(jsonPayload, headers);
+            boolean stored;
+            try {
+                stored = webhookDeliveryTransactions.store(repoWebhookId, deliveryId, jsonPayload,
+                        storedHeaders(headers), new Date());
+            } catch (DataIntegrityViolationException e) {
+                // Only a duplicate if a concurrent request stored the same delivery a moment ago. Any
+                // other violation must not be acknowledged: the provider has to send it again.
+                if (!webhookDeliveryTransactions.isStored(repoWebhookId, deliveryId)) {
+                    throw e;
+                }
+                stored = false;
+            }
+            if (stored) {
+                outcome = "queued";
+                depth.incrementAndGet();
+                wake();
+            } else {
+                outcome = "duplicate";
+                log.info("Ignoring webhook delivery already received for repo webhook {}", repoWebhookId);
+            }
+            return stored;
+        } catch (IllegalArgumentException | SecurityException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            Timer.builder(ACK_METRIC)
+                    .description("Time to verify and queue an inbound webhook delivery")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void poll() {
+        try {
+            Date now = new Date();
+            webhookDeliveryTransactions.sweepStuckProcessingRows(new Date(
+                    now.getTime() - Duration.ofMinutes(properties.getStuckProcessingThresholdMinutes()).toMillis()));
+            webhookDeliveryTransactions.pruneTerminalRowsOlderThan(
+                    new Date(now.getTime() - Duration.ofDays(properties.getRetentionDays()).toMillis()));
+            depth.set(webhookDeliveryTransactions.countOpen());
+            drain();
+        } catch (Exception e) {
+            // An exception would cancel the fixed-delay schedule for good.
+            log.error("Webhook delivery poll failed: {}", e.getMessage());
+        }
+    }
+
+    // Queues a drain pass unless one is already queued, like NotificationOutboxDrainer.wake().
+    void wake() {
+        if (passQueued.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    passQueued.set(false);
+                    try {
+                        drain();
+                    } catch (Exception e) {
+                        log.error("Webhook delivery drain failed: {}", e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                passQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Hands every repository with a due delivery, and not already being worked on here, to a worker.
+     * Returns how many were handed over.
+     */
+    synchronized int drain() {
+        int started = 0;
+        for (String repoWebhookId : webhookDeliveryTransactions.dueRepositories(properties.getBatchSize())) {
+            if (!activeRepositories.add(repoWebhookId)) {
+                continue;
+            }
+            try {
+                workers.execute(() -> processRepository(repoWebhookId));
+                started++;
+            } catch (RejectedExecutionException e) {
+                activeRepositories.remove(repoWebhookId);
+                break;
+            }
+        }
+        return started;
+    }
+
+    // Works through the queue of one repository until it is empty, its head has to wait, or the
+    // batch is done - then the repository goes back in line so one busy repository can't keep a
+    // worker to itself.
+    void processRepository(String repoWebhookId) {
+        String lock = LOCK_PREFIX + repoWebhookId;
+        Duration ttl = Duration.ofMinutes(properties.getStuckProcessingThresholdMinutes());
+        String token = sweepLock.tryAcquire(lock, ttl);
+        if (token == null) {
+            // Another replica is working on this repository.
+            activeRepositories.remove(repoWebhookId);
+            return;
+        }
+        // A monorepo push can take longer than the threshold: keep the lock and the claimed row alive
+        // for as long as this worker is on them, so neither the lock expiring nor the stuck-row sweep
+        // hands the delivery to another worker halfway through.
+        AtomicReference<ClaimedWebhookDelivery> current = new AtomicReference<>();
+        long heartbeatMillis = Math.max(1_000, ttl.toMillis() / 3);
+        ScheduledFuture<?> heartbeat = scheduler.scheduleAtFixedRate(() -> heartbeat(lock, token, ttl, current),
+                heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        int processed = 0;
+        try {
+            while (processed < properties.getBatchSize()) {
+                ClaimedWebhookDelivery claimed = webhookDeliveryTransactions.claimNext(repoWebhookId);
+                if (claimed == null) {
+                    break;
+                }
+                current.set(claimed);
+                process(claimed);
+                current.set(null);
+                processed++;
+            }
+        } catch (Exception e) {
+            log.error("Processing the webhook deliveries of repo webhook {} failed: {}", repoWebhookId,
+                    e.getMessage());
+        } finally {
+            heartbeat.cancel(false);
+            sweepLock.release(lock, token);
+            activeRepositories.remove(repoWebhookId);
+        }
+        if (processed >= properties.getBatchSize()) {
+            wake();
+        }
+    }
+
+    void heartbeat(String lock, String token, Duration ttl, AtomicReference<ClaimedWebhookDelivery> current) {
+        try {
+            if (!sweepLock.renew(lock, token, ttl)) {
+                log.warn("Lost the webhook delivery lock {} while processing, ordering is no longer guaranteed", lock);
+            }
+            ClaimedWebhookDelivery claimed = current.get();
+            if (claimed != null && !webhookDeliveryTransactions.heartbeat(claimed)) {
+                log.warn("Webhook delivery {} was reclaimed while still being processed", claimed.id());
+            }
+        } catch (Exception e) {
+            // An exception would cancel the heartbeat for good.
+            log.warn("Webhook delivery heartbeat for {} failed: {}", lock, e.getMessage());
+        }
+    }
+
+    private void process(ClaimedWebhookDelivery claimed) {
+        if (claimed.attemptCount() == 1 && claimed.receivedAt() != null) {
+            Timer.builder(WAIT_METRIC)
+                    .description("Time from receiving a webhook delivery to processing it")
+                    .register(meterRegistry)
+                    .record(Math.max(0, System.currentTimeMillis() - claimed.receivedAt().getTime()),
+                            TimeUnit.MILLISECONDS);
+        }
+        try {
+            Map<String, String> headers = claimed.headers() == null ? Map.of()
+                    : objectMapper.readValue(claimed.headers(), new TypeReference<Map<String, String>>() {
+                    });
+            repoWebhookService.processVerifiedV2Webhook(claimed.repoWebhookId(), claimed.payload(), headers);
+            webhookDeliveryTransactions.recordResult(claimed, WebhookDeliveryStatus.PROCESSED, null, null);
+            depth.updateAndGet(value -> Math.max(0, value - 1));
+        } catch (IllegalArgumentException e) {
+            // The repo webhook was deleted since, trying again won't help.
+            log.warn("Dropping webhook delivery {}: {}", claimed.id(), e.getMessage());
+            webhookDeliveryTransactions.recordResult(claimed, WebhookDeliveryStatus.FAILED, truncate(e.getMessage()),
+                    null);
+            depth.updateAndGet(value -> Math.max(0, value - 1));
+        } catch (Exception e) {
+            if (claimed.attemptCount() >= properties.getMaxAttempts()) {
+                log.error("Giving up on webhook delivery {} after {} attempt(s): {}", claimed.id(),
+                        claimed.attemptCount(), e.getMessage());
+                webhookDeliveryTransactions.recordResult(claimed, WebhookDeliveryStatus.FAILED,
+                        truncate(e.getMessage()), null);
+                depth.updateAndGet(value -> Math.max(0, value - 1));
+                return;
+            }
+            Duration delay = retryDelay(claimed.attemptCount());
+            log.warn("Processing webhook delivery {} failed, retrying in {}: {}", claimed.id(), delay, e.getMessage());
+            webhookDeliveryTransactions.recordResult(claimed, WebhookDeliveryStatus.PENDING, truncate(e.getMessage()),
+                    new Date(System.currentTimeMillis() + delay.toMillis()));
+            try {
+                scheduler.schedule(this::wake, delay.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rejected) {
+                log.debug("Webhook delivery queue is shutting down, leaving the retry to the next poll");
+            }
+        }
+    }
+
+    String deliveryId(String jsonPayload, Map<String, String> headers) {
+        Map<String, String> lowerCase = lowerCaseKeys(headers);
+        for (String header : DELIVERY_ID_HEADERS) {
+            String value = lowerCase.get(header);
+            if (value != null && !value.isBlank()) {
+                return limit(value.trim());
+            }
+        }
+        // Azure DevOps service hooks carry the event id in the payload.
+        try {
+            JsonNode id = objectMapper.readTree(jsonPayload).path("id");
+            if (id.isTextual() && !id.asText().isBlank()) {
+                return limit(id.asText());
+            }
+        } catch (Exception e) {
+            log.debug("Webhook payload has no readable id: {}", e.getMessage());
+        }
+        return "sha256:" + sha256(jsonPayload);
+    }
+
+    private String storedHeaders(Map<String, String> headers) {
+        Map<String, String> stored = lowerCaseKeys(headers);
+        stored.keySet().removeAll(SECRET_HEADERS);
+        try {
+            return objectMapper.writeValueAsString(stored);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not serialize webhook headers", e);
+        }
+    }
+
+    // Header names are case-insensitive; the payload parsers look them up in lower case.
+    private static Map<String, String> lowerCaseKeys(Map<String, String> headers) {
+        Map<String, String> lowerCase = new LinkedHashMap<>();
+        if (headers != null) {
+            headers.forEach((name, value) -> lowerCase.put(name.toLowerCase(Locale.ROOT), value));
+        }
+        return lowerCase;
+    }
+
+    static Duration retryDelay(int attemptCount) {
+        long delay = FIRST_RETRY_DELAY.toMillis() << Math.min(Math.max(attemptCount - 1, 0), 10);
+        return Duration.ofMillis(Math.min(delay, MAX_RETRY_DELAY.toMillis()));
+    }
+
+    private static String limit(String deliveryId) {
+        return deliveryId.length() > MAX_DELIVERY_ID_LENGTH ? deliveryId.substring(0, MAX_DELIVERY_ID_LENGTH)
+                : deliveryId;
+    }
+
+    private static String truncate(String message) {
+        String text = String.valueOf(message);
+        return text.length() > MAX_ERROR_LENGTH ? text.substring(0, MAX_ERROR_LENGTH) : text;
+    }
+
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
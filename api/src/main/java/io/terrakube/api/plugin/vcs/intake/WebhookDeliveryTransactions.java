@@ -0,0 +1,133 @@
+package io.terrakube.api.plugin.vcs.intake;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.terrakube.api.repository.WebhookDeliveryRepository;
+import io.terrakube.api.rs.webhook.WebhookDelivery;
+import io.terrakube.api.rs.webhook.WebhookDeliveryStatus;
+
+import lombok.extern.slf4j.Slf4j;
+
+// A separate bean for the same reason as NotificationOutboxTransactions: WebhookDeliveryQueue
+// calling these "this."-style would bypass the transactional proxy.
+@Slf4j
+@Service
+public class WebhookDeliveryTransactions {
+
+    private static final List<WebhookDeliveryStatus> OPEN_STATUSES = List.of(WebhookDeliveryStatus.PENDING,
+            WebhookDeliveryStatus.PROCESSING);
+
+    private final WebhookDeliveryRepository webhookDeliveryRepository;
+
+    WebhookDeliveryTransactions(WebhookDeliveryRepository webhookDeliveryRepository) {
+        this.webhookDeliveryRepository = webhookDeliveryRepository;
+    }
+
+    /**
+     * Stores a delivery. Returns false when it was already stored, i.e. the provider sent it again.
+     * Two copies arriving at once both pass the check; the unique (repo webhook, delivery id)
+     * constraint then fails the second flush with a DataIntegrityViolationException.
+     */
+    @Transactional
+    boolean store(String repoWebhookId, String deliveryId, String payload, String headers, Date receivedAt) {
+        if (webhookDeliveryRepository.existsByRepoWebhookIdAndDeliveryId(repoWebhookId, deliveryId)) {
+            return false;
+        }
+        WebhookDelivery delivery = new WebhookDelivery();
+        delivery.setId(UUID.randomUUID());
+        delivery.setRepoWebhookId(repoWebhookId);
+        delivery.setDeliveryId(deliveryId);
+        delivery.setPayload(payload);
+        delivery.setHeaders(headers);
+        delivery.setReceivedAt(receivedAt);
+        webhookDeliveryRepository.saveAndFlush(delivery);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    boolean isStored(String repoWebhookId, String deliveryId) {
+        return webhookDeliveryRepository.existsByRepoWebhookIdAndDeliveryId(repoWebhookId, deliveryId);
+    }
+
+    /**
+     * Claims the oldest open delivery of a repository if it is due. Returns null while that delivery
+     * is being processed elsewhere or waiting for its retry - the ones after it wait too, so the
+     * deliveries of a repository are processed in the order they were received.
+     */
+    @Transactional
+    ClaimedWebhookDelivery claimNext(String repoWebhookId) {
+        WebhookDelivery head = webhookDeliveryRepository
+                .findFirstByRepoWebhookIdAndStatusInOrderByReceivedAtAscIdAsc(repoWebhookId, OPEN_STATUSES)
+                .orElse(null);
+        Date now = new Date();
+        if (head == null || head.getStatus() != WebhookDeliveryStatus.PENDING
+                || (head.getNextAttemptAt() != null && head.getNextAttemptAt().after(now))) {
+            return null;
+        }
+        if (webhookDeliveryRepository.claimForProcessing(head.getId(), WebhookDeliveryStatus.PENDING,
+                WebhookDeliveryStatus.PROCESSING, now) == 0) {
+            return null;
+        }
+        // Read back for the attempt number the claim just set.
+        return webhookDeliveryRepository.findById(head.getId())
+                .map(claimed -> new ClaimedWebhookDelivery(claimed.getId(), repoWebhookId, claimed.getPayload(),
+                        claimed.getHeaders(), claimed.getAttemptCount(), claimed.getReceivedAt()))
+                .orElse(null);
+    }
+
+    @Transactional
+    void recordResult(ClaimedWebhookDelivery claimed, WebhookDeliveryStatus newStatus, String lastError,
+            Date nextAttemptAt) {
+        int updated = webhookDeliveryRepository.recordResult(claimed.id(), WebhookDeliveryStatus.PROCESSING,
+                claimed.attemptCount(), newStatus, lastError, nextAttemptAt, new Date());
+        if (updated == 0) {
+            log.warn("Discarding stale result for webhook delivery {} - it was reclaimed by the stuck-row sweep "
+                    + "before this attempt finished", claimed.id());
+        }
+    }
+
+    /**
+     * Marks a claimed delivery as still being processed. Returns false when it was reclaimed meanwhile.
+     */
+    @Transactional
+    boolean heartbeat(ClaimedWebhookDelivery claimed) {
+        return webhookDeliveryRepository.touchProcessing(claimed.id(), WebhookDeliveryStatus.PROCESSING,
+                claimed.attemptCount(), new Date()) > 0;
+    }
+
+    @Transactional
+    void sweepStuckProcessingRows(Date cutoff) {
+        int reclaimed = webhookDeliveryRepository.reclaimStuckProcessingRows(WebhookDeliveryStatus.PROCESSING,
+                WebhookDeliveryStatus.PENDING, cutoff, new Date());
+        if (reclaimed > 0) {
+            log.warn("Webhook delivery sweep reclaimed {} stuck PROCESSING row(s)", reclaimed);
+        }
+    }
+
+    @Transactional
+    int pruneTerminalRowsOlderThan(Date cutoff) {
+        int deleted = webhookDeliveryRepository.deleteTerminalRowsUpdatedBefore(
+                List.of(WebhookDeliveryStatus.PROCESSED, WebhookDeliveryStatus.FAILED), cutoff);
+        if (deleted > 0) {
+            log.info("Webhook delivery retention sweep deleted {} row(s) older than {}", deleted, cutoff);
+        }
+        return deleted;
+    }
+
+    @Transactional(readOnly = true)
+    List<String> dueRepositories(int limit) {
+        return webhookDeliveryRepository.findRepoWebhookIdsWithDueDeliveries(WebhookDeliveryStatus.PENDING,
+                new Date(), PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    long countOpen() {
+        return webhookDeliveryRepository.countByStatusIn(OPEN_STATUSES);
+    }
+}
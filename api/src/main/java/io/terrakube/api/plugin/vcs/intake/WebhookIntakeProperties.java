@@ -0,0 +1,53 @@
+package io.terrakube.api.plugin.vcs.intake;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.webhook.intake")
+public class WebhookIntakeProperties {
+
+    /**
+     * Repositories whose webhook deliveries are processed at once by this replica. The deliveries
+     * of one repository are always processed one after the other.
+     */
+    private int workerThreads = 4;
+
+    /**
+     * Attempts to process a delivery before it is given up on. Retries back off from 30 seconds,
+     * and later deliveries of the same repository wait for them.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Seconds between polls for deliveries left behind by another replica or whose retry is due.
+     */
+    private int pollSeconds = 15;
+
+    /**
+     * Minutes without a heartbeat after which a delivery still being processed is assumed lost with
+     * its replica. A replica processing a delivery renews it, and the lock on its repository, every
+     * third of this time however long the delivery takes, so this only bounds how long a crashed
+     * replica holds up its repositories.
+     */
+    private int stuckProcessingThresholdMinutes = 10;
+
+    /**
+     * Days processed and failed deliveries are kept, and with them the delivery ids a redelivery is
+     * recognized by.
+     */
+    private int retentionDays = 7;
+
+    /**
+     * Repositories picked up per poll, and deliveries processed per repository before its turn is
+     * handed back.
+     */
+    private int batchSize = 50;
+}
@@ -371,22 +371,22 @@ public class AzDevOpsWebhookService extends WebhookServiceBase {
         }
     }
 
-    public void sendCommitStatus(Job job, JobStatus jobStatus, String runSummary) {
+    public boolean sendCommitStatus(Job job, JobStatus jobStatus, String runSummary) {
         Workspace workspace = job.getWorkspace();
         if (job.getCommitId() == null || job.getCommitId().isBlank()) {
             log.warn("No commit id available for job {}, skipping Azure DevOps commit status", job.getId());
-            return;
+            return false;
         }
 
         AzureRepo repo = parseSource(workspace.getSource());
         if (repo == null) {
             log.error(UNABLE_TO_PARSE_SOURCE_MESSAGE, workspace.getSource());
-            return;
+            return false;
         }
         String[] repositoryAndProject = resolveRepository(workspace.getVcs(), repo);
         if (repositoryAndProject.length == 0) {
             log.error("Unable to resolve Azure DevOps repository id for commit status on {}", workspace.getSource());
-            return;
+            return false;
         }
 
         String jobUrl = String.format("%s/organizations/%s/workspaces/%s/runs/%s", uiUrl,
@@ -429,13 +429,14 @@ public class AzDevOpsWebhookService extends WebhookServiceBase {
                     apiUrl, HttpMethod.POST);
             if (response != null && response.getStatusCode().is2xxSuccessful()) {
                 log.info("Job status sent successfully to Azure DevOps for commit {}", job.getCommitId());
-            } else {
-                log.error("Failed to send job status to Azure DevOps, message {}",
-                        response != null ? response.getBody() : NO_RESPONSE);
+                return true;
             }
+            log.error("Failed to send job status to Azure DevOps, message {}",
+                    response != null ? response.getBody() : NO_RESPONSE);
         } catch (Exception e) {
             log.error("Error sending commit status to Azure DevOps", e);
         }
+        return false;
     }
 
     /**
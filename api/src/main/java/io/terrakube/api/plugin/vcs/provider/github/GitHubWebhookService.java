@@ -212,7 +212,8 @@ public class GitHubWebhookService extends WebhookServiceBase {
         return result;
     }
 
-    public void sendCommitStatus(Job job, JobStatus jobStatus, String runSummary) {
+    // Returns whether GitHub accepted the commit status; the pull request statuses are best effort.
+    public boolean sendCommitStatus(Job job, JobStatus jobStatus, String runSummary) {
         Workspace workspace = job.getWorkspace();
         String jobUrl = String.format("%s/organizations/%s/workspaces/%s/runs/%s", uiUrl,
                 workspace.getOrganization().getId(), workspace.getId(), job.getId());
@@ -258,10 +259,11 @@ public class GitHubWebhookService extends WebhookServiceBase {
         if (response == null) {
             log.error("Failed to send job status on workspace {} in organization {} to GitHub", workspace.getName(),
                     workspace.getOrganization().getName());
-            return;
+            return false;
         }
 
-        if (response.getStatusCode().value() == 201) {
+        boolean sent = response.getStatusCode().value() == 201;
+        if (sent) {
             log.info("Job status sent successfully to GitHub");
         } else {
             log.error(String.format("Failed to send job status to GitHub, message %s", response.getBody()));
@@ -294,6 +296,7 @@ public class GitHubWebhookService extends WebhookServiceBase {
         } catch (Exception e) {
             log.error("Error occurred while checking PRs for commit {}: {}", job.getCommitId(), e.getMessage());
         }
+        return sent;
     }
 
     // GitHub's commit-status description has a hard 140-character API limit.
@@ -0,0 +1,100 @@
+package io.terrakube.api.plugin.vcs.provider.gitlab;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * GitLab project ids by (API url, namespace/path). A project keeps its id for life, so every webhook,
+ * merge request and commit status call of a repository can share one lookup instead of searching the
+ * project again each time.
+ *
+ * Ids are kept in Redis, shared by the replicas and surviving restarts, with a short-lived local copy
+ * in front. An id is dropped when a lookup no longer finds the project or a call using it gets a 404,
+ * for the rare project deleted and recreated under the same path. Without Redis only the local copy is
+ * used.
+ */
+@Slf4j
+@Component
+public class GitLabProjectIdCache {
+
+    static final String KEY_PREFIX = "terrakube:gitlab-project-id:";
+    private static final Duration REDIS_TTL = Duration.ofDays(7);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // Bounds how long an id evicted on another replica is still used here.
+    private final Cache<String, String> local = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    @Autowired
+    public GitLabProjectIdCache(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    // Local only, for GitLabWebhookService instances created outside Spring.
+    GitLabProjectIdCache() {
+        this(null);
+    }
+
+    /**
+     * Returns the cached id, or null when the project has to be looked up.
+     */
+    public String get(String apiUrl, String ownerAndRepo) {
+        String key = key(apiUrl, ownerAndRepo);
+        String projectId = local.getIfPresent(key);
+        if (projectId != null || redisTemplate == null) {
+            return projectId;
+        }
+        try {
+            Object cached = redisTemplate.opsForValue().get(key);
+            if (cached instanceof String id && !id.isEmpty()) {
+                local.put(key, id);
+                return id;
+            }
+        } catch (Exception e) {
+            log.warn("Could not read the cached GitLab project id of {}: {}", ownerAndRepo, e.getMessage());
+        }
+        return null;
+    }
+
+    public void put(String apiUrl, String ownerAndRepo, String projectId) {
+        String key = key(apiUrl, ownerAndRepo);
+        local.put(key, projectId);
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(key, projectId, REDIS_TTL);
+        } catch (Exception e) {
+            log.warn("Could not cache the GitLab project id of {}: {}", ownerAndRepo, e.getMessage());
+        }
+    }
+
+    public void evict(String apiUrl, String ownerAndRepo) {
+        String key = key(apiUrl, ownerAndRepo);
+        local.invalidate(key);
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("Could not drop the cached GitLab project id of {}: {}", ownerAndRepo, e.getMessage());
+        }
+    }
+
+    private static String key(String apiUrl, String ownerAndRepo) {
+        String base = apiUrl == null ? "" : apiUrl.replaceAll("/+$", "");
+        return KEY_PREFIX + base + "|" + ownerAndRepo;
+    }
+}
@@ -19,18 +19,22 @@ import io.terrakube.api.rs.vcs.Vcs;
 import io.terrakube.api.rs.webhook.RepoWebhook;
 import io.terrakube.api.rs.webhook.Webhook;
 import io.terrakube.api.rs.webhook.WebhookEventType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import io.terrakube.api.plugin.vcs.WebhookResult;
 import io.terrakube.api.plugin.vcs.WebhookServiceBase;
 import io.terrakube.api.rs.workspace.Workspace;
@@ -39,6 +43,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
@@ -52,14 +57,31 @@ public class GitLabWebhookService extends WebhookServiceBase {
     private String uiUrl;
     private int pagesize = 25;
     private int timeout = 30;
+    private final GitLabProjectIdCache gitLabProjectIdCache;
+    private final ConnectionProvider connectionProvider;
+    private final ReactorClientHttpConnector gitlabConnector;
 
-    public GitLabWebhookService(ObjectMapper objectMapper, @Value("${io.terrakube.hostname}") String hostname, @Value("${io.terrakube.ui.url}") String uiUrl, WebClient.Builder webClientBuilder, @Value("${io.terrakube.vcs.gitlab.timeout}") int timeout, @Value("${io.terrakube.vcs.gitlab.pageSize}") int pageSize) {
+    @Autowired
+    public GitLabWebhookService(ObjectMapper objectMapper, @Value("${io.terrakube.hostname}") String hostname, @Value("${io.terrakube.ui.url}") String uiUrl, WebClient.Builder webClientBuilder, @Value("${io.terrakube.vcs.gitlab.timeout}") int timeout, @Value("${io.terrakube.vcs.gitlab.pageSize}") int pageSize, GitLabProjectIdCache gitLabProjectIdCache) {
         this.objectMapper = objectMapper;
         this.hostname = hostname;
         this.webClientBuilder = webClientBuilder;
         this.uiUrl = uiUrl;
         this.pagesize = pageSize;
         this.timeout = timeout;
+        this.gitLabProjectIdCache = gitLabProjectIdCache;
+        // One pool for every GitLab API call instead of a new client (and its connections) per request.
+        this.connectionProvider = ConnectionProvider.builder("gitlab-api")
+                .maxConnections(50)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+        this.gitlabConnector = new ReactorClientHttpConnector(HttpClient.create(connectionProvider).proxyWithSystemProperties());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionProvider.dispose();
     }
 
     public WebhookResult processWebhook(String jsonPayload, Map<String, String> headers, String token, Workspace workspace) {
@@ -288,7 +310,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
                     .baseUrl(apiUrl)
                     .defaultHeader("Authorization", "Bearer " + accessToken)
                     .defaultHeader("Content-Type", "application/json")
-                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create().proxyWithSystemProperties()))
+                    .clientConnector(gitlabConnector)
                     .filter(ExchangeFilterFunction.ofRequestProcessor(clientRequest -> {
                         log.debug("WebClient Request: {} {}", clientRequest.method(), clientRequest.url());
                         clientRequest.headers().forEach((name, values) ->
@@ -414,7 +436,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
         String ownerAndRepo = extractOwnerAndRepoGitlab(workspace.getSource());
         String token = workspace.getVcs().getAccessToken();
         String webhookUrl = String.format("https://%s/webhook/v1/%s", hostname, webhook.getId());
-        RestTemplate restTemplate = new RestTemplate();
+        RestTemplate restTemplate = apiRestTemplate();
 
         // Create the headers
         HttpHeaders headers = new HttpHeaders();
@@ -474,6 +496,29 @@ public class GitLabWebhookService extends WebhookServiceBase {
     }
 
     public String getGitlabProjectId(String ownerAndRepo, String accessToken, String gitlabBaseUrl) throws IOException, InterruptedException {
+        String cachedProjectId = gitLabProjectIdCache.get(gitlabBaseUrl, ownerAndRepo);
+        if (cachedProjectId != null) {
+            log.debug("Using cached project id {} for {}", cachedProjectId, ownerAndRepo);
+            return cachedProjectId;
+        }
+        String projectId = lookupGitlabProjectId(ownerAndRepo, accessToken, gitlabBaseUrl);
+        if (projectId.isEmpty()) {
+            gitLabProjectIdCache.evict(gitlabBaseUrl, ownerAndRepo);
+        } else {
+            gitLabProjectIdCache.put(gitlabBaseUrl, ownerAndRepo, projectId);
+        }
+        return projectId;
+    }
+
+    // A 404 on a project-scoped call can mean the cached id belongs to a project that no longer
+    // exists under this path; the next call looks it up again.
+    private void forgetProjectIdOnNotFound(Exception e, String gitlabBaseUrl, String ownerAndRepo) {
+        if (e instanceof WebClientResponseException.NotFound || e instanceof HttpClientErrorException.NotFound) {
+            gitLabProjectIdCache.evict(gitlabBaseUrl, ownerAndRepo);
+        }
+    }
+
+    private String lookupGitlabProjectId(String ownerAndRepo, String accessToken, String gitlabBaseUrl) throws IOException, InterruptedException {
         AtomicReference<String> projectId = new AtomicReference<>("");
 
         WebClient webClient = webClientBuilder
@@ -481,7 +526,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
                 .baseUrl(gitlabBaseUrl)
                 .defaultHeader("Authorization", "Bearer " + accessToken)
                 .defaultHeader("Content-Type", "application/json")
-                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().proxyWithSystemProperties()))
+                .clientConnector(gitlabConnector)
                 .build();
 
         AtomicInteger currentPage = new AtomicInteger(1);
@@ -600,7 +645,8 @@ public class GitLabWebhookService extends WebhookServiceBase {
             String projectId = getGitlabProjectId(ownerAndRepo, workspace.getVcs().getAccessToken(), workspace.getVcs().getApiUrl());
             String apiUrl = workspace.getVcs().getApiUrl() + "/projects/" + projectId + "/hooks/" + webhookRemoteId;
 
-            ResponseEntity<String> response = callGitlabApi(workspace.getVcs().getAccessToken(), "", apiUrl, HttpMethod.DELETE);
+            ResponseEntity<String> response = callGitlabProjectApi(workspace.getVcs().getApiUrl(), ownerAndRepo,
+                    workspace.getVcs().getAccessToken(), "", apiUrl, HttpMethod.DELETE);
             if (response.getStatusCode().value() == 204) {
                 log.info("Webhook with remote hook id {} on repository {} deleted successfully", webhookRemoteId, ownerAndRepo);
             } else {
@@ -625,10 +671,20 @@ public class GitLabWebhookService extends WebhookServiceBase {
         return response;
     }
 
+    private ResponseEntity<String> callGitlabProjectApi(String gitlabBaseUrl, String ownerAndRepo, String token, String body,
+            String apiUrl, HttpMethod httpMethod) {
+        try {
+            return callGitlabApi(token, body, apiUrl, httpMethod);
+        } catch (HttpClientErrorException.NotFound e) {
+            forgetProjectIdOnNotFound(e, gitlabBaseUrl, ownerAndRepo);
+            throw e;
+        }
+    }
+
     public String postMergeRequestNote(Job job, String markdownBody) {
         Workspace workspace = job.getWorkspace();
+        String ownerAndRepo = extractOwnerAndRepoGitlab(workspace.getSource());
         try {
-            String ownerAndRepo = extractOwnerAndRepoGitlab(workspace.getSource());
             String projectId = getGitlabProjectId(ownerAndRepo, workspace.getVcs().getAccessToken(), workspace.getVcs().getApiUrl());
 
             WebClient webClient = webClientBuilder
@@ -636,7 +692,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
                     .baseUrl(workspace.getVcs().getApiUrl())
                     .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
                     .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + workspace.getVcs().getAccessToken())
-                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create().proxyWithSystemProperties()))
+                    .clientConnector(gitlabConnector)
                     .build();
 
             Map<String, Object> requestBody = new HashMap<>();
@@ -660,6 +716,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
                 log.error("Error posting MR note on MR !{} in workspace {}: {}", job.getPrNumber(), workspace.getName(), e.getMessage());
                 Thread.currentThread().interrupt();
             }
+            forgetProjectIdOnNotFound(e, workspace.getVcs().getApiUrl(), ownerAndRepo);
             log.error("Error posting MR note on MR !{} in workspace {}", job.getPrNumber(), workspace.getName(), e);
         }
         return null;
@@ -667,8 +724,8 @@ public class GitLabWebhookService extends WebhookServiceBase {
 
     public boolean updateMergeRequestNote(Job job, String noteId, String markdownBody) {
         Workspace workspace = job.getWorkspace();
+        String ownerAndRepo = extractOwnerAndRepoGitlab(workspace.getSource());
         try {
-            String ownerAndRepo = extractOwnerAndRepoGitlab(workspace.getSource());
             String projectId = getGitlabProjectId(ownerAndRepo, workspace.getVcs().getAccessToken(), workspace.getVcs().getApiUrl());
 
             WebClient webClient = webClientBuilder
@@ -676,7 +733,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
                     .baseUrl(workspace.getVcs().getApiUrl())
                     .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
                     .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + workspace.getVcs().getAccessToken())
-                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create().proxyWithSystemProperties()))
+                    .clientConnector(gitlabConnector)
                     .build();
 
             Map<String, Object> requestBody = new HashMap<>();
@@ -695,14 +752,15 @@ public class GitLabWebhookService extends WebhookServiceBase {
             if (e instanceof InterruptedException) {
                 Thread.currentThread().interrupt();
             }
+            forgetProjectIdOnNotFound(e, workspace.getVcs().getApiUrl(), ownerAndRepo);
             log.error("Error updating MR note {} on MR !{} in workspace {}", noteId, job.getPrNumber(), workspace.getName(), e);
             return false;
         }
     }
 
     public void addNoteReaction(Workspace workspace, Number prNumber, String noteId, String emojiName) {
+        String ownerAndRepo = extractOwnerAndRepoGitlab(workspace.getSource());
         try {
-            String ownerAndRepo = extractOwnerAndRepoGitlab(workspace.getSource());
             String projectId = getGitlabProjectId(ownerAndRepo, workspace.getVcs().getAccessToken(), workspace.getVcs().getApiUrl());
 
             WebClient webClient = webClientBuilder
@@ -710,7 +768,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
                     .baseUrl(workspace.getVcs().getApiUrl())
                     .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
                     .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + workspace.getVcs().getAccessToken())
-                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create().proxyWithSystemProperties()))
+                    .clientConnector(gitlabConnector)
                     .build();
 
             Map<String, Object> requestBody = new HashMap<>();
@@ -728,11 +786,12 @@ public class GitLabWebhookService extends WebhookServiceBase {
             if (e instanceof InterruptedException) {
                 Thread.currentThread().interrupt();
             }
+            forgetProjectIdOnNotFound(e, workspace.getVcs().getApiUrl(), ownerAndRepo);
             log.error("Error adding award emoji to MR note {} in workspace {}", noteId, workspace.getName(), e);
         }
     }
 
-    public void sendCommitStatus(Job job, JobStatus jobStatus, String runSummary) {
+    public boolean sendCommitStatus(Job job, JobStatus jobStatus, String runSummary) {
         Workspace workspace = job.getWorkspace();
         String jobUrl = String.format("%s/organizations/%s/workspaces/%s/runs/%s", uiUrl,
                 workspace.getOrganization().getId(), workspace.getId(), job.getId());
@@ -769,7 +828,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
                     .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
                     .defaultHeader(HttpHeaders.ACCEPT, "application/json")
                     .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + job.getWorkspace().getVcs().getAccessToken())
-                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create().proxyWithSystemProperties()))
+                    .clientConnector(gitlabConnector)
                     .build();
 
             // Create request body
@@ -788,15 +847,16 @@ public class GitLabWebhookService extends WebhookServiceBase {
                     .block();
 
             log.info("Commit status sent to GitLab: {}", response);
-
+            return true;
         } catch (Exception e) {
             if (e instanceof InterruptedException) {
                 log.error("Error sending commit status to GitLab", e);
                 Thread.currentThread().interrupt();
             }
+            forgetProjectIdOnNotFound(e, workspace.getVcs().getApiUrl(), ownerAndRepos);
             log.error("Error sending commit status to GitLab", e);
+            return false;
         }
-
     }
 
     /**
@@ -993,7 +1053,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
         ResponseEntity<String> response;
         if (remoteHookId == null || remoteHookId.isEmpty()) {
             String apiUrl = vcs.getApiUrl() + "/projects/" + projectId + "/hooks";
-            response = callGitlabApi(token, body, apiUrl, HttpMethod.POST);
+            response = callGitlabProjectApi(vcs.getApiUrl(), ownerAndRepo, token, body, apiUrl, HttpMethod.POST);
             if (response != null && response.getStatusCode().value() == 201) {
                 try {
                     JsonNode rootNode = objectMapper.readTree(response.getBody());
@@ -1005,7 +1065,7 @@ public class GitLabWebhookService extends WebhookServiceBase {
             }
         } else {
             String apiUrl = vcs.getApiUrl() + "/projects/" + projectId + "/hooks/" + remoteHookId;
-            response = callGitlabApi(token, body, apiUrl, HttpMethod.PUT);
+            response = callGitlabProjectApi(vcs.getApiUrl(), ownerAndRepo, token, body, apiUrl, HttpMethod.PUT);
             log.info("GitLab repo webhook updated with status {} and id {}",
                     response != null ? response.getStatusCode() : "no response", remoteHookId);
         }
@@ -1028,7 +1088,8 @@ public class GitLabWebhookService extends WebhookServiceBase {
             String projectId = getGitlabProjectId(ownerAndRepo, vcs.getAccessToken(), vcs.getApiUrl());
             String apiUrl = vcs.getApiUrl() + "/projects/" + projectId + "/hooks/" + repoWebhook.getRemoteHookId();
 
-            ResponseEntity<String> response = callGitlabApi(vcs.getAccessToken(), "", apiUrl, HttpMethod.DELETE);
+            ResponseEntity<String> response = callGitlabProjectApi(vcs.getApiUrl(), ownerAndRepo, vcs.getAccessToken(), "",
+                    apiUrl, HttpMethod.DELETE);
             if (response != null && response.getStatusCode().value() == 204) {
                 log.info("Repo webhook with remote hook id {} deleted successfully", repoWebhook.getRemoteHookId());
             } else {
@@ -0,0 +1,8 @@
+package io.terrakube.api.plugin.vcs.status;
+
+import io.terrakube.api.rs.job.JobStatus;
+import io.terrakube.api.rs.vcs.VcsType;
+
+record ClaimedCommitStatus(long revision, int attemptCount, int jobId, VcsType vcsType, JobStatus jobStatus,
+        String runSummary) {
+}
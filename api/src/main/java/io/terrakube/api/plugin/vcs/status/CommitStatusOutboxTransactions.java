@@ -0,0 +1,132 @@
+package io.terrakube.api.plugin.vcs.status;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.terrakube.api.repository.CommitStatusOutboxRepository;
+import io.terrakube.api.rs.job.JobStatus;
+import io.terrakube.api.rs.vcs.CommitStatusOutbox;
+import io.terrakube.api.rs.vcs.CommitStatusOutboxStatus;
+import io.terrakube.api.rs.vcs.VcsType;
+
+import lombok.extern.slf4j.Slf4j;
+
+// A separate bean for the same reason as NotificationOutboxTransactions: CommitStatusPublisher
+// calling these "this."-style would bypass the transactional proxy.
+@Slf4j
+@Service
+public class CommitStatusOutboxTransactions {
+
+    private final CommitStatusOutboxRepository commitStatusOutboxRepository;
+
+    CommitStatusOutboxTransactions(CommitStatusOutboxRepository commitStatusOutboxRepository) {
+        this.commitStatusOutboxRepository = commitStatusOutboxRepository;
+    }
+
+    // Joins the caller's transaction - usually the job's own (ScheduleJob, InactiveJobs) - so the
+    // state is queued if and only if the job change it describes commits. There is no unique key on
+    // the status key: two jobs of one commit recording its first state at once each insert a row,
+    // and claim() folds them together instead of one of them failing the job's transaction.
+    @Transactional
+    void record(String statusKey, String repository, String commitId, String context, int jobId, VcsType vcsType,
+            JobStatus jobStatus, String runSummary, Date dueAt) {
+        Date now = new Date();
+        int rows = commitStatusOutboxRepository.supersede(statusKey, jobId, vcsType, jobStatus, runSummary, dueAt,
+                CommitStatusOutboxStatus.SENDING, CommitStatusOutboxStatus.PENDING, now);
+        if (rows > 0) {
+            return;
+        }
+        CommitStatusOutbox outbox = new CommitStatusOutbox();
+        outbox.setId(UUID.randomUUID());
+        outbox.setStatusKey(statusKey);
+        outbox.setRepository(repository);
+        outbox.setCommitId(commitId);
+        outbox.setContext(context);
+        outbox.setJobId(jobId);
+        outbox.setVcsType(vcsType);
+        outbox.setJobStatus(jobStatus);
+        outbox.setRunSummary(runSummary);
+        outbox.setNextAttemptAt(dueAt);
+        commitStatusOutboxRepository.save(outbox);
+    }
+
+    @Transactional
+    ClaimedCommitStatus claim(UUID outboxId) {
+        if (!foldDuplicates(outboxId)) {
+            return null;
+        }
+        int rows = commitStatusOutboxRepository.claimForDelivery(outboxId, CommitStatusOutboxStatus.PENDING,
+                CommitStatusOutboxStatus.SENDING, new Date());
+        if (rows == 0) {
+            return null;
+        }
+        // Read in the claiming transaction, so the state and revision are the ones just claimed.
+        return commitStatusOutboxRepository.findById(outboxId)
+                .map(outbox -> new ClaimedCommitStatus(outbox.getRevision(), outbox.getAttemptCount(),
+                        outbox.getJobId(), outbox.getVcsType(), outbox.getJobStatus(), outbox.getRunSummary()))
+                .orElse(null);
+    }
+
+    // Keeps only the newest row of the status key, the one whose state was recorded last; the others
+    // go unless they are being sent right now. Returns whether outboxId is that row and no other row
+    // of its commit is in flight - as with supersede, that delivery finishes first and the next poll
+    // folds it away.
+    private boolean foldDuplicates(UUID outboxId) {
+        CommitStatusOutbox outbox = commitStatusOutboxRepository.findById(outboxId).orElse(null);
+        if (outbox == null) {
+            return false;
+        }
+        List<CommitStatusOutbox> rows = commitStatusOutboxRepository
+                .findByStatusKeyOrderByCreatedDateDescIdDesc(outbox.getStatusKey());
+        if (rows.size() <= 1) {
+            return true;
+        }
+        List<CommitStatusOutbox> older = rows.subList(1, rows.size());
+        int deleted = commitStatusOutboxRepository.deleteUnlessSending(
+                older.stream().map(CommitStatusOutbox::getId).toList(), CommitStatusOutboxStatus.SENDING);
+        log.debug("Folded {} duplicate commit status row(s) of job {}", deleted, outbox.getJobId());
+        return rows.get(0).getId().equals(outboxId)
+                && older.stream().noneMatch(row -> row.getStatus() == CommitStatusOutboxStatus.SENDING);
+    }
+
+    /**
+     * Records how the delivery of a claimed revision went. Returns false when a newer state arrived
+     * while it was being sent; that state is then due for delivery instead.
+     */
+    @Transactional
+    boolean recordResult(UUID outboxId, long revision, CommitStatusOutboxStatus newStatus, String lastError,
+            Date nextAttemptAt) {
+        Date now = new Date();
+        int updated = commitStatusOutboxRepository.recordDeliveryResult(outboxId, CommitStatusOutboxStatus.SENDING,
+                revision, newStatus, lastError, nextAttemptAt, now);
+        if (updated > 0) {
+            return true;
+        }
+        commitStatusOutboxRepository.releaseSuperseded(outboxId, CommitStatusOutboxStatus.SENDING,
+                CommitStatusOutboxStatus.PENDING, now);
+        return false;
+    }
+
+    @Transactional
+    void sweepStuckSendingRows(Date cutoff) {
+        int reclaimed = commitStatusOutboxRepository.reclaimStuckSendingRows(CommitStatusOutboxStatus.SENDING,
+                CommitStatusOutboxStatus.PENDING, cutoff, new Date());
+        if (reclaimed > 0) {
+            log.warn("Commit status outbox sweep reclaimed {} stuck SENDING row(s) for retry", reclaimed);
+        }
+    }
+
+    @Transactional
+    int pruneTerminalRowsOlderThan(Date cutoff) {
+        int deleted = commitStatusOutboxRepository.deleteTerminalRowsUpdatedBefore(
+                List.of(CommitStatusOutboxStatus.SENT, CommitStatusOutboxStatus.FAILED), cutoff);
+        if (deleted > 0) {
+            log.info("Commit status outbox retention sweep deleted {} row(s) older than {}", deleted, cutoff);
+        }
+        return deleted;
+    }
+}
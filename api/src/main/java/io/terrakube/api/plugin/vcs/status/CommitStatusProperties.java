@@ -0,0 +1,53 @@
+package io.terrakube.api.plugin.vcs.status;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.vcs.status")
+public class CommitStatusProperties {
+
+    /**
+     * How long a new commit status waits before it is sent. A job moving on within this time
+     * replaces it, so its intermediate states never reach the VCS.
+     */
+    private long coalesceMillis = 2000;
+
+    /**
+     * Commit status requests per second sent to one VCS provider by this replica.
+     */
+    private double requestsPerSecond = 5;
+
+    /**
+     * Attempts before a commit status is given up on. Retries back off from 30 seconds up to 10
+     * minutes.
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * Seconds between polls for statuses whose retry is due or that another replica left behind.
+     */
+    private int pollSeconds = 30;
+
+    /**
+     * Minutes after which a status still being sent is assumed lost with its replica and sent again.
+     */
+    private int stuckSendingThresholdMinutes = 5;
+
+    /**
+     * Days sent and failed statuses are kept.
+     */
+    private int retentionDays = 7;
+
+    /**
+     * Statuses handed to the senders per pass, and at most in flight on this replica.
+     */
+    private int batchSize = 100;
+}
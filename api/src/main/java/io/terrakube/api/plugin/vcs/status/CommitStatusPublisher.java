@@ -0,0 +1,307 @@
+package io.terrakube.api.plugin.vcs.status;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.terrakube.api.plugin.vcs.provider.azdevops.AzDevOpsWebhookService;
+import io.terrakube.api.plugin.vcs.provider.github.GitHubWebhookService;
+import io.terrakube.api.plugin.vcs.provider.gitlab.GitLabWebhookService;
+import io.terrakube.api.repository.CommitStatusOutboxRepository;
+import io.terrakube.api.repository.JobRepository;
+import io.terrakube.api.rs.job.Job;
+import io.terrakube.api.rs.job.JobStatus;
+import io.terrakube.api.rs.vcs.CommitStatusOutbox;
+import io.terrakube.api.rs.vcs.CommitStatusOutboxStatus;
+import io.terrakube.api.rs.vcs.VcsType;
+import io.terrakube.api.rs.workspace.Workspace;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes job states as VCS commit statuses without making the job wait for the VCS.
+ *
+ * publish() only records the state in commit_status_outbox, one row per (repository, commit,
+ * workspace), in the caller's transaction: a job change that rolls back queues no status. The row is sent coalesceMillis later, so a job that moves on within that time - or
+ * while the previous state is still being sent - replaces its state and only the latest one reaches
+ * the VCS. Sends are paced per provider (requestsPerSecond) on a small scheduler, so a burst of jobs
+ * can't exhaust a provider's rate limit, and a failed send is retried with backoff instead of being
+ * lost.
+ *
+ * Every replica polls the outbox for retries that came due and for rows a crashed replica left
+ * behind; the conditional claim makes sure only one of them sends a row.
+ */
+@Slf4j
+@Component
+public class CommitStatusPublisher {
+
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(30);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(10);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final CommitStatusOutboxRepository commitStatusOutboxRepository;
+    private final CommitStatusOutboxTransactions commitStatusOutboxTransactions;
+    private final JobRepository jobRepository;
+    private final GitHubWebhookService gitHubWebhookService;
+    private final GitLabWebhookService gitLabWebhookService;
+    private final AzDevOpsWebhookService azDevOpsWebhookService;
+    private final CommitStatusProperties properties;
+    private final ScheduledExecutorService scheduler;
+
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<VcsType, Long> nextSendAt = new EnumMap<>(VcsType.class);
+    private final AtomicBoolean passQueued = new AtomicBoolean();
+
+    public CommitStatusPublisher(CommitStatusOutboxRepository commitStatusOutboxRepository,
+            CommitStatusOutboxTransactions commitStatusOutboxTransactions,
+            JobRepository jobRepository,
+            GitHubWebhookService gitHubWebhookService,
+            GitLabWebhookService gitLabWebhookService,
+            AzDevOpsWebhookService azDevOpsWebhookService,
+            CommitStatusProperties properties) {
+        this.commitStatusOutboxRepository = commitStatusOutboxRepository;
+        this.commitStatusOutboxTransactions = commitStatusOutboxTransactions;
+        this.jobRepository = jobRepository;
+        this.gitHubWebhookService = gitHubWebhookService;
+        this.gitLabWebhookService = gitLabWebhookService;
+        this.azDevOpsWebhookService = azDevOpsWebhookService;
+        this.properties = properties;
+        // Sends block on the VCS call, so a few threads: the pacing, not the pool, bounds the rate.
+        this.scheduler = Executors.newScheduledThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "commit-status-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void startPolling() {
+        long pollSeconds = Math.max(1, properties.getPollSeconds());
+        scheduler.scheduleWithFixedDelay(this::poll, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Records jobStatus as the commit status of the job's commit, replacing any state of that commit
+     * and workspace not sent yet. Never throws: a commit status is a side effect of the job.
+     */
+    public void publish(Job job, JobStatus jobStatus, String runSummary) {
+        Workspace workspace = job.getWorkspace();
+        if (workspace == null || workspace.getVcs() == null || job.getCommitId() == null
+                || job.getCommitId().isBlank()) {
+            return;
+        }
+        VcsType vcsType = workspace.getVcs().getVcsType();
+        if (!supports(vcsType)) {
+            return;
+        }
+
+        String context = workspace.getId().toString();
+        String statusKey = statusKey(workspace.getSource(), job.getCommitId(), context);
+        Date dueAt = new Date(System.currentTimeMillis() + properties.getCoalesceMillis());
+        try {
+            commitStatusOutboxTransactions.record(statusKey, workspace.getSource(), job.getCommitId(), context,
+                    job.getId(), vcsType, jobStatus, runSummary, dueAt);
+        } catch (Exception e) {
+            log.error("Could not queue commit status {} for job {}: {}", jobStatus, job.getId(), e.getMessage());
+            return;
+        }
+        log.debug("Queued commit status {} for job {} on commit {}", jobStatus, job.getId(), job.getCommitId());
+        // The row only becomes visible once the caller's transaction commits.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(CommitStatusPublisher.this::wake, properties.getCoalesceMillis());
+                }
+            });
+        } else {
+            schedule(this::wake, properties.getCoalesceMillis());
+        }
+    }
+
+    void poll() {
+        try {
+            Date now = new Date();
+            commitStatusOutboxTransactions.sweepStuckSendingRows(
+                    new Date(now.getTime() - Duration.ofMinutes(properties.getStuckSendingThresholdMinutes()).toMillis()));
+            commitStatusOutboxTransactions.pruneTerminalRowsOlderThan(
+                    new Date(now.getTime() - Duration.ofDays(properties.getRetentionDays()).toMillis()));
+            drain();
+        } catch (Exception e) {
+            // An exception would cancel the fixed-delay schedule for good.
+            log.error("Commit status outbox poll failed: {}", e.getMessage());
+        }
+    }
+
+    // Queues a drain pass unless one is already queued, like NotificationOutboxDrainer.wake().
+    void wake() {
+        if (passQueued.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    passQueued.set(false);
+                    try {
+                        drain();
+                    } catch (Exception e) {
+                        log.error("Commit status outbox drain failed: {}", e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                passQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Schedules every due row not yet scheduled on this replica at the next free slot of its
+     * provider. Rows stay PENDING until their slot comes, so they can still be superseded meanwhile.
+     * Returns how many rows were scheduled.
+     */
+    synchronized int drain() {
+        int capacity = properties.getBatchSize() - inFlight.size();
+        if (capacity <= 0) {
+            return 0;
+        }
+        List<CommitStatusOutbox> due = commitStatusOutboxRepository.findDueForDelivery(
+                CommitStatusOutboxStatus.PENDING, new Date(), PageRequest.of(0, properties.getBatchSize()));
+        int scheduled = 0;
+        for (CommitStatusOutbox outbox : due) {
+            if (scheduled >= capacity) {
+                break;
+            }
+            UUID outboxId = outbox.getId();
+            if (!inFlight.add(outboxId)) {
+                continue;
+            }
+            if (!schedule(() -> deliver(outboxId), reserveSlot(outbox.getVcsType()))) {
+                inFlight.remove(outboxId);
+                break;
+            }
+            scheduled++;
+        }
+        return scheduled;
+    }
+
+    // Delay until the next send to this provider is allowed, reserving that slot.
+    synchronized long reserveSlot(VcsType vcsType) {
+        long interval = (long) Math.ceil(1000 / Math.max(0.001, properties.getRequestsPerSecond()));
+        long now = System.currentTimeMillis();
+        long slot = Math.max(now, nextSendAt.getOrDefault(vcsType, 0L));
+        nextSendAt.put(vcsType, slot + interval);
+        return slot - now;
+    }
+
+    void deliver(UUID outboxId) {
+        try {
+            ClaimedCommitStatus claimed = commitStatusOutboxTransactions.claim(outboxId);
+            if (claimed == null) {
+                // Sent by another replica, or not due anymore.
+                return;
+            }
+            String error = send(claimed);
+            CommitStatusOutboxStatus newStatus;
+            Date nextAttemptAt = null;
+            if (error == null) {
+                newStatus = CommitStatusOutboxStatus.SENT;
+            } else if (claimed.attemptCount() >= properties.getMaxAttempts()) {
+                newStatus = CommitStatusOutboxStatus.FAILED;
+                log.error("Giving up on commit status {} of job {} after {} attempt(s): {}", claimed.jobStatus(),
+                        claimed.jobId(), claimed.attemptCount(), error);
+            } else {
+                newStatus = CommitStatusOutboxStatus.PENDING;
+                nextAttemptAt = new Date(System.currentTimeMillis() + retryDelay(claimed.attemptCount()).toMillis());
+            }
+            if (!commitStatusOutboxTransactions.recordResult(outboxId, claimed.revision(), newStatus, error,
+                    nextAttemptAt)) {
+                log.debug("Commit status of job {} was superseded while being sent", claimed.jobId());
+                schedule(this::wake, properties.getCoalesceMillis());
+            } else if (nextAttemptAt != null) {
+                log.warn("Commit status {} of job {} not delivered, retrying in {}: {}", claimed.jobStatus(),
+                        claimed.jobId(), retryDelay(claimed.attemptCount()), error);
+                schedule(this::wake, nextAttemptAt.getTime() - System.currentTimeMillis());
+            }
+        } catch (Exception e) {
+            // Left SENDING; the stuck-row sweep hands it back for another attempt.
+            log.error("Commit status delivery of outbox {} failed: {}", outboxId, e.getMessage());
+        } finally {
+            inFlight.remove(outboxId);
+        }
+    }
+
+    // Returns null once the provider accepted the status, the reason it didn't otherwise.
+    private String send(ClaimedCommitStatus claimed) {
+        Job job = jobRepository.findById(claimed.jobId()).orElse(null);
+        if (job == null) {
+            return "Job " + claimed.jobId() + " no longer exists";
+        }
+        try {
+            boolean sent = switch (claimed.vcsType()) {
+                case GITHUB -> gitHubWebhookService.sendCommitStatus(job, claimed.jobStatus(), claimed.runSummary());
+                case GITLAB -> gitLabWebhookService.sendCommitStatus(job, claimed.jobStatus(), claimed.runSummary());
+                case AZURE_DEVOPS, AZURE_SP_MI ->
+                    azDevOpsWebhookService.sendCommitStatus(job, claimed.jobStatus(), claimed.runSummary());
+                default -> true;
+            };
+            return sent ? null : claimed.vcsType() + " did not accept the commit status";
+        } catch (Exception e) {
+            String message = String.valueOf(e.getMessage());
+            return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        }
+    }
+
+    static Duration retryDelay(int attemptCount) {
+        long delay = FIRST_RETRY_DELAY.toMillis() << Math.min(Math.max(attemptCount - 1, 0), 10);
+        return Duration.ofMillis(Math.min(delay, MAX_RETRY_DELAY.toMillis()));
+    }
+
+    private boolean schedule(Runnable task, long delayMillis) {
+        try {
+            scheduler.schedule(task, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("Commit status publisher is shutting down, leaving the rest to the next poll");
+            return false;
+        }
+    }
+
+    // Bitbucket has no commit status support yet.
+    private static boolean supports(VcsType vcsType) {
+        return vcsType == VcsType.GITHUB || vcsType == VcsType.GITLAB || vcsType == VcsType.AZURE_DEVOPS
+                || vcsType == VcsType.AZURE_SP_MI;
+    }
+
+    static String statusKey(String repository, String commitId, String context) {
+        try {
+            String key = repository + "\n" + commitId + "\n" + context;
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
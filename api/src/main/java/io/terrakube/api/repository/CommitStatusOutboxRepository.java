@@ -0,0 +1,83 @@
+package io.terrakube.api.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import io.terrakube.api.rs.job.JobStatus;
+import io.terrakube.api.rs.vcs.CommitStatusOutbox;
+import io.terrakube.api.rs.vcs.CommitStatusOutboxStatus;
+import io.terrakube.api.rs.vcs.VcsType;
+
+// Same conditional-UPDATE discipline as NotificationOutboxRepository: every state change names
+// the state (and, for results, the revision) it expects, so concurrent replicas can't both act on
+// one row. @Modifying(clearAutomatically = true) for the same first-level cache reason.
+public interface CommitStatusOutboxRepository extends JpaRepository<CommitStatusOutbox, UUID> {
+
+    // A newer state replaces whatever the row held and is due again from scratch. A row being sent
+    // right now stays SENDING: its delivery finishes first, and recordDeliveryResult's revision
+    // check then hands the newer state back as PENDING, so two states of one commit are never in
+    // flight together and can't land out of order.
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE commit_status_outbox o SET o.jobId = :jobId, o.vcsType = :vcsType, o.jobStatus = :jobStatus, "
+            + "o.runSummary = :runSummary, o.revision = o.revision + 1, o.attemptCount = 0, o.lastError = null, "
+            + "o.nextAttemptAt = :dueAt, o.updatedDate = :now, "
+            + "o.status = CASE WHEN o.status = :sending THEN o.status ELSE :pending END "
+            + "WHERE o.statusKey = :statusKey")
+    int supersede(@Param("statusKey") String statusKey, @Param("jobId") int jobId, @Param("vcsType") VcsType vcsType,
+            @Param("jobStatus") JobStatus jobStatus, @Param("runSummary") String runSummary,
+            @Param("dueAt") Date dueAt, @Param("sending") CommitStatusOutboxStatus sending,
+            @Param("pending") CommitStatusOutboxStatus pending, @Param("now") Date now);
+
+    List<CommitStatusOutbox> findByStatusKeyOrderByCreatedDateDescIdDesc(String statusKey);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM commit_status_outbox o WHERE o.id IN :ids AND o.status <> :sending")
+    int deleteUnlessSending(@Param("ids") List<UUID> ids, @Param("sending") CommitStatusOutboxStatus sending);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE commit_status_outbox o SET o.status = :sending, o.attemptCount = o.attemptCount + 1, "
+            + "o.lastAttemptAt = :now, o.updatedDate = :now "
+            + "WHERE o.id = :id AND o.status = :pending")
+    int claimForDelivery(@Param("id") UUID id, @Param("pending") CommitStatusOutboxStatus pending,
+            @Param("sending") CommitStatusOutboxStatus sending, @Param("now") Date now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE commit_status_outbox o SET o.status = :newStatus, o.lastError = :lastError, "
+            + "o.nextAttemptAt = :nextAttemptAt, o.updatedDate = :now "
+            + "WHERE o.id = :id AND o.status = :sending AND o.revision = :revision")
+    int recordDeliveryResult(@Param("id") UUID id, @Param("sending") CommitStatusOutboxStatus sending,
+            @Param("revision") long revision, @Param("newStatus") CommitStatusOutboxStatus newStatus,
+            @Param("lastError") String lastError, @Param("nextAttemptAt") Date nextAttemptAt, @Param("now") Date now);
+
+    // The delivered state was superseded while in flight: the newer one is due as soon as the
+    // coalescing delay it was recorded with has passed.
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE commit_status_outbox o SET o.status = :pending, o.updatedDate = :now "
+            + "WHERE o.id = :id AND o.status = :sending")
+    int releaseSuperseded(@Param("id") UUID id, @Param("sending") CommitStatusOutboxStatus sending,
+            @Param("pending") CommitStatusOutboxStatus pending, @Param("now") Date now);
+
+    @Query("SELECT o FROM commit_status_outbox o WHERE o.status = :status "
+            + "AND (o.nextAttemptAt IS NULL OR o.nextAttemptAt <= :now) ORDER BY o.updatedDate ASC, o.id ASC")
+    List<CommitStatusOutbox> findDueForDelivery(@Param("status") CommitStatusOutboxStatus status,
+            @Param("now") Date now, Pageable pageable);
+
+    // Crash recovery for a replica that died mid-delivery, as for the notification outbox.
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE commit_status_outbox o SET o.status = :pending, o.updatedDate = :now "
+            + "WHERE o.status = :sending AND o.lastAttemptAt < :cutoff")
+    int reclaimStuckSendingRows(@Param("sending") CommitStatusOutboxStatus sending,
+            @Param("pending") CommitStatusOutboxStatus pending, @Param("cutoff") Date cutoff, @Param("now") Date now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM commit_status_outbox o WHERE o.status IN :terminalStatuses AND o.updatedDate < :cutoff")
+    int deleteTerminalRowsUpdatedBefore(@Param("terminalStatuses") List<CommitStatusOutboxStatus> terminalStatuses,
+            @Param("cutoff") Date cutoff);
+}
@@ -4,6 +4,7 @@ import io.terrakube.api.rs.Organization;
 import io.terrakube.api.rs.job.Job;
 import io.terrakube.api.rs.job.JobStatus;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,6 +12,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import io.terrakube.api.rs.workspace.Workspace;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,7 +23,9 @@ public interface JobRepository extends JpaRepository<Job, Integer> {
     String TERMINAL_JOB_STATUSES = "'failed','completed','rejected','cancelled','noChanges'";
 
     List<Job> findAllByOrganizationAndStatusNotInOrderByIdAsc(Organization organization, List<JobStatus> status);
-    List<Job> findAllByStatusInOrderByIdAsc(List<JobStatus> status);
+    // Keyset pages for the periodic sweeps: pass the last id of the previous page (0 to start).
+    List<Job> findByStatusInAndIdGreaterThanOrderByIdAsc(List<JobStatus> status, int id, Limit limit);
+    List<Job> findByStatusInAndCreatedDateBeforeAndIdGreaterThanOrderByIdAsc(List<JobStatus> status, Date createdDate, int id, Limit limit);
     List<Job> findAllByOrganizationNameAndStatusInOrderByIdAsc(String organizationName, List<JobStatus> status);
 
 
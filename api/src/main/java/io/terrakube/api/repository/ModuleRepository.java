@@ -5,6 +5,8 @@ import java.util.UUID;
 
 import io.terrakube.api.rs.Organization;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import io.terrakube.api.rs.module.Module;
 
 public interface ModuleRepository extends JpaRepository<Module, UUID> {
@@ -12,4 +14,8 @@ public interface ModuleRepository extends JpaRepository<Module, UUID> {
     List<Module> findByOrganizationId(UUID organizationId);
     List<Module> findByOrganizationIn(List<Organization> organizations);
     List<Module> findAllByOrganizationIdAndNameAndProvider(UUID organizationId, String name, String provider);
+
+    @Query("select m from module m where m.organization in :organizations"
+            + " and not exists (select v.id from module_version v where v.module = m)")
+    List<Module> findWithoutVersionsByOrganizationIn(@Param("organizations") List<Organization> organizations);
 }
@@ -56,11 +56,21 @@ public interface NotificationOutboxRepository extends JpaRepository<Notification
     // Bounded, fairness-ordered (oldest first) replacement for the old pair of unbounded,
     // unordered finders. nextAttemptAt is null for a row that has never failed with a
     // server-supplied delay (e.g. Retry-After); such a row is due as soon as it's PENDING.
+    // id breaks createdDate ties so findDueForDispatchAfter can continue exactly where a page ended.
     @Query("SELECT o FROM notification_outbox o WHERE o.status = :status "
-            + "AND (o.nextAttemptAt IS NULL OR o.nextAttemptAt <= :now) ORDER BY o.createdDate ASC")
+            + "AND (o.nextAttemptAt IS NULL OR o.nextAttemptAt <= :now) ORDER BY o.createdDate ASC, o.id ASC")
     List<NotificationOutbox> findDueForDispatch(@Param("status") NotificationOutboxStatus status,
             @Param("now") Date now, Pageable pageable);
 
+    // The page of due rows after (afterCreatedDate, afterId) in findDueForDispatch's order.
+    @Query("SELECT o FROM notification_outbox o WHERE o.status = :status "
+            + "AND (o.nextAttemptAt IS NULL OR o.nextAttemptAt <= :now) "
+            + "AND (o.createdDate > :afterCreatedDate OR (o.createdDate = :afterCreatedDate AND o.id > :afterId)) "
+            + "ORDER BY o.createdDate ASC, o.id ASC")
+    List<NotificationOutbox> findDueForDispatchAfter(@Param("status") NotificationOutboxStatus status,
+            @Param("now") Date now, @Param("afterCreatedDate") Date afterCreatedDate, @Param("afterId") UUID afterId,
+            Pageable pageable);
+
     // Crash recovery: a pod that claimed a row (PENDING -> SENDING) and died mid-HTTP-call
     // leaves it stuck in SENDING forever without this. attemptCount is NOT bumped again here -
     // the attempt was already counted at claim time.
@@ -1,6 +1,8 @@
 package io.terrakube.api.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import io.terrakube.api.rs.collection.Collection;
 import io.terrakube.api.rs.collection.Reference;
 import io.terrakube.api.rs.workspace.Workspace;
@@ -13,5 +15,8 @@ public interface ReferenceRepository extends JpaRepository<Reference, UUID> {
 
     Optional<List<Reference>> findByWorkspace(Workspace workspace);
 
+    @Query("select distinct r from reference r join fetch r.collection c left join fetch c.item where r.workspace = :workspace")
+    List<Reference> findByWorkspaceWithItems(@Param("workspace") Workspace workspace);
+
     boolean existsByWorkspaceAndCollection(Workspace workspace, Collection collection);
 }
@@ -0,0 +1,71 @@
+package io.terrakube.api.repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import io.terrakube.api.rs.webhook.WebhookDelivery;
+import io.terrakube.api.rs.webhook.WebhookDeliveryStatus;
+
+// Conditional UPDATEs as in NotificationOutboxRepository, with @Modifying(clearAutomatically = true)
+// for the same first-level cache reason.
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, UUID> {
+
+    boolean existsByRepoWebhookIdAndDeliveryId(String repoWebhookId, String deliveryId);
+
+    // The head of one repository's queue: its oldest delivery still to be (or being) processed.
+    Optional<WebhookDelivery> findFirstByRepoWebhookIdAndStatusInOrderByReceivedAtAscIdAsc(String repoWebhookId,
+            Collection<WebhookDeliveryStatus> statuses);
+
+    @Query("SELECT DISTINCT d.repoWebhookId FROM webhook_delivery d WHERE d.status = :status "
+            + "AND (d.nextAttemptAt IS NULL OR d.nextAttemptAt <= :now)")
+    List<String> findRepoWebhookIdsWithDueDeliveries(@Param("status") WebhookDeliveryStatus status,
+            @Param("now") Date now, Pageable pageable);
+
+    long countByStatusIn(Collection<WebhookDeliveryStatus> statuses);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE webhook_delivery d SET d.status = :processing, d.attemptCount = d.attemptCount + 1, "
+            + "d.lastAttemptAt = :now, d.updatedDate = :now "
+            + "WHERE d.id = :id AND d.status = :pending")
+    int claimForProcessing(@Param("id") UUID id, @Param("pending") WebhookDeliveryStatus pending,
+            @Param("processing") WebhookDeliveryStatus processing, @Param("now") Date now);
+
+    // Keyed on the attempt number of the claim, so the result of an attempt that was reclaimed by the
+    // stuck-row sweep and claimed again can't overwrite the newer attempt. Not on lastAttemptAt as
+    // NotificationOutboxRepository.recordDeliveryResult does: that moves with every heartbeat.
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE webhook_delivery d SET d.status = :newStatus, d.lastError = :lastError, "
+            + "d.nextAttemptAt = :nextAttemptAt, d.updatedDate = :now "
+            + "WHERE d.id = :id AND d.status = :processing AND d.attemptCount = :attemptCount")
+    int recordResult(@Param("id") UUID id, @Param("processing") WebhookDeliveryStatus processing,
+            @Param("attemptCount") int attemptCount, @Param("newStatus") WebhookDeliveryStatus newStatus,
+            @Param("lastError") String lastError, @Param("nextAttemptAt") Date nextAttemptAt, @Param("now") Date now);
+
+    // Heartbeat of a delivery still being processed, so the stuck-row sweep leaves it alone however
+    // long it takes.
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE webhook_delivery d SET d.lastAttemptAt = :now "
+            + "WHERE d.id = :id AND d.status = :processing AND d.attemptCount = :attemptCount")
+    int touchProcessing(@Param("id") UUID id, @Param("processing") WebhookDeliveryStatus processing,
+            @Param("attemptCount") int attemptCount, @Param("now") Date now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE webhook_delivery d SET d.status = :pending, d.updatedDate = :now "
+            + "WHERE d.status = :processing AND d.lastAttemptAt < :cutoff")
+    int reclaimStuckProcessingRows(@Param("processing") WebhookDeliveryStatus processing,
+            @Param("pending") WebhookDeliveryStatus pending, @Param("cutoff") Date cutoff, @Param("now") Date now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM webhook_delivery d WHERE d.status IN :terminalStatuses AND d.updatedDate < :cutoff")
+    int deleteTerminalRowsUpdatedBefore(@Param("terminalStatuses") List<WebhookDeliveryStatus> terminalStatuses,
+            @Param("cutoff") Date cutoff);
+}
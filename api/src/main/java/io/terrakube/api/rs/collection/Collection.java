@@ -9,6 +9,7 @@ import io.terrakube.api.plugin.security.audit.GenericAuditFields;
 import io.terrakube.api.rs.IdConverter;
 import io.terrakube.api.rs.Organization;
 import io.terrakube.api.rs.collection.item.Item;
+import io.terrakube.api.rs.hooks.variable.JobVariablesChangeHook;
 
 import java.sql.Types;
 import java.util.List;
@@ -18,6 +19,9 @@ import java.util.UUID;
 @CreatePermission(expression = "team manage collection")
 @UpdatePermission(expression = "team manage collection")
 @DeletePermission(expression = "team manage collection")
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.CREATE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.UPDATE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.DELETE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
 @Include(rootLevel = false)
 @Getter
 @Setter
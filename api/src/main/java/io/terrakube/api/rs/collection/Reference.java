@@ -1,16 +1,21 @@
 package io.terrakube.api.rs.collection;
 
 import com.yahoo.elide.annotation.Include;
+import com.yahoo.elide.annotation.LifeCycleHookBinding;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.JdbcTypeCode;
 import io.terrakube.api.rs.IdConverter;
 import io.terrakube.api.rs.workspace.Workspace;
+import io.terrakube.api.rs.hooks.variable.JobVariablesChangeHook;
 
 import java.sql.Types;
 import java.util.UUID;
 
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.CREATE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.UPDATE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.DELETE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
 @Include
 @Getter
 @Setter
@@ -18,6 +18,7 @@ import com.yahoo.elide.core.security.RequestScope;
 
 import io.terrakube.api.plugin.notification.JobNotificationTrigger;
 import io.terrakube.api.plugin.notification.NotificationDispatchService;
+import io.terrakube.api.plugin.notification.NotificationOutboxDrainer;
 import io.terrakube.api.rs.job.Job;
 
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +37,9 @@ public class JobNotificationHook implements LifeCycleHook<Job> {
     @Autowired
     NotificationDispatchService notificationDispatchService;
 
+    @Autowired
+    NotificationOutboxDrainer notificationOutboxDrainer;
+
     // Keyed by job id (not a flat list) because a single Elide transaction can update more than
     // one Job entity's status on the same thread - Elide fires PRECOMMIT/POSTCOMMIT once per
     // updated entity, so a flat, reset-on-every-PRECOMMIT list would have a second job's
@@ -74,17 +78,22 @@ public class JobNotificationHook implements LifeCycleHook<Job> {
             if (outboxIds == null) {
                 return;
             }
+            boolean rejected = false;
             for (UUID outboxId : outboxIds) {
                 try {
                     notificationDispatchService.dispatchAsync(outboxId);
                 } catch (RejectedExecutionException e) {
                     // The dispatch executor's queue is full - the row is still PENDING (this
-                    // submission never claimed it), so the outbox poller will pick it up on its
-                    // next tick. Never let this escape into the Elide POSTCOMMIT lifecycle.
-                    log.warn("Notification dispatch executor rejected outbox {}, will be picked up by the poller",
+                    // submission never claimed it), so the outbox drain picks it up as soon as a
+                    // replica has room. Never let this escape into the Elide POSTCOMMIT lifecycle.
+                    log.warn("Notification dispatch executor rejected outbox {}, signalling the outbox drain",
                             outboxId);
+                    rejected = true;
                 }
             }
+            if (rejected) {
+                notificationOutboxDrainer.requestDrain();
+            }
         } finally {
             if (pending.isEmpty()) {
                 PENDING_OUTBOX_IDS_BY_JOB.remove();
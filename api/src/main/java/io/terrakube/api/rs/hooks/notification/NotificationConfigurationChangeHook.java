@@ -0,0 +1,31 @@
+package io.terrakube.api.rs.hooks.notification;
+
+import java.util.Optional;
+
+import com.yahoo.elide.annotation.LifeCycleHookBinding;
+import com.yahoo.elide.core.lifecycle.LifeCycleHook;
+import com.yahoo.elide.core.security.ChangeSpec;
+import com.yahoo.elide.core.security.RequestScope;
+
+import io.terrakube.api.plugin.notification.NotificationConfigResolver;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bound after commit to notification configurations and workspaces, so the configurations cached
+ * per workspace by NotificationConfigResolver are resolved again once either of them changes.
+ */
+@AllArgsConstructor
+@Slf4j
+public class NotificationConfigurationChangeHook implements LifeCycleHook<Object> {
+
+    private NotificationConfigResolver notificationConfigResolver;
+
+    @Override
+    public void execute(LifeCycleHookBinding.Operation operation,
+            LifeCycleHookBinding.TransactionPhase transactionPhase, Object entity, RequestScope requestScope,
+            Optional<ChangeSpec> optional) {
+        log.debug("{} {}, dropping cached notification configurations", operation, entity.getClass().getSimpleName());
+        notificationConfigResolver.configurationsChanged();
+    }
+}
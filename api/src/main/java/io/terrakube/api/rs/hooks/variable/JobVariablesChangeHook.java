@@ -0,0 +1,32 @@
+package io.terrakube.api.rs.hooks.variable;
+
+import java.util.Optional;
+
+import com.yahoo.elide.annotation.LifeCycleHookBinding;
+import com.yahoo.elide.core.lifecycle.LifeCycleHook;
+import com.yahoo.elide.core.security.ChangeSpec;
+import com.yahoo.elide.core.security.RequestScope;
+
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshotService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bound after commit to every entity a job's variables are resolved from (workspace variables, global
+ * variables, collections, collection items and collection references), so cached job variable
+ * snapshots are dropped once any of them changes.
+ */
+@AllArgsConstructor
+@Slf4j
+public class JobVariablesChangeHook implements LifeCycleHook<Object> {
+
+    private JobVariableSnapshotService jobVariableSnapshotService;
+
+    @Override
+    public void execute(LifeCycleHookBinding.Operation operation,
+            LifeCycleHookBinding.TransactionPhase transactionPhase, Object entity, RequestScope requestScope,
+            Optional<ChangeSpec> optional) {
+        log.debug("{} {}, dropping cached job variable snapshots", operation, entity.getClass().getSimpleName());
+        jobVariableSnapshotService.variablesChanged();
+    }
+}
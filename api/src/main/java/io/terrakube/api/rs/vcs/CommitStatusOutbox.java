@@ -0,0 +1,84 @@
+package io.terrakube.api.rs.vcs;
+
+import java.sql.Types;
+import java.util.Date;
+import java.util.UUID;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import io.terrakube.api.plugin.security.audit.GenericAuditFields;
+import io.terrakube.api.rs.IdConverter;
+import io.terrakube.api.rs.job.JobStatus;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import lombok.Getter;
+import lombok.Setter;
+
+// The commit status Terrakube wants a VCS to show for one (repository, commit, context), where the
+// context is the workspace. There is one row per status key - two inserted at once are folded into
+// one when claimed: a newer job state replaces the one still waiting, so only the latest is ever
+// delivered (see CommitStatusPublisher).
+@Getter
+@Setter
+@Entity(name = "commit_status_outbox")
+public class CommitStatusOutbox extends GenericAuditFields {
+
+    @Id
+    @JdbcTypeCode(Types.VARCHAR)
+    @Convert(converter = IdConverter.class)
+    private UUID id;
+
+    // SHA-256 of repository, commit and context - short enough to index on every database, unlike
+    // the repository URL itself.
+    @Column(name = "status_key")
+    private String statusKey;
+
+    private String repository;
+
+    @Column(name = "commit_id")
+    private String commitId;
+
+    private String context;
+
+    @Column(name = "job_id")
+    private int jobId;
+
+    @Column(name = "vcs_type")
+    @Enumerated(EnumType.STRING)
+    private VcsType vcsType;
+
+    @Column(name = "job_status")
+    @Enumerated(EnumType.STRING)
+    private JobStatus jobStatus;
+
+    // Plain text column, not @Lob - see NotificationOutbox.payload.
+    @Column(name = "run_summary")
+    private String runSummary;
+
+    @Enumerated(EnumType.STRING)
+    private CommitStatusOutboxStatus status = CommitStatusOutboxStatus.PENDING;
+
+    // Bumped whenever a newer state replaces this one, so the result of a delivery of the older
+    // state can't mark the newer one as sent.
+    private long revision = 0;
+
+    @Column(name = "attempt_count")
+    private int attemptCount = 0;
+
+    @Column(name = "last_attempt_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastAttemptAt;
+
+    @Column(name = "next_attempt_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextAttemptAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+}
@@ -0,0 +1,8 @@
+package io.terrakube.api.rs.vcs;
+
+public enum CommitStatusOutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
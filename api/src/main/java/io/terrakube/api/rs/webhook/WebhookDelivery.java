@@ -0,0 +1,69 @@
+package io.terrakube.api.rs.webhook;
+
+import java.sql.Types;
+import java.util.Date;
+import java.util.UUID;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import io.terrakube.api.plugin.security.audit.GenericAuditFields;
+import io.terrakube.api.rs.IdConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import lombok.Getter;
+import lombok.Setter;
+
+// An inbound v2 webhook request, stored once its secret was verified and processed afterwards (see
+// WebhookDeliveryQueue). Unique per repo webhook and provider delivery id, so a delivery the
+// provider sends again is only processed once.
+@Getter
+@Setter
+@Entity(name = "webhook_delivery")
+public class WebhookDelivery extends GenericAuditFields {
+
+    @Id
+    @JdbcTypeCode(Types.VARCHAR)
+    @Convert(converter = IdConverter.class)
+    private UUID id;
+
+    // Also the ordering key: deliveries of one repo webhook - one repository - are processed one
+    // at a time, in the order they were received.
+    @Column(name = "repo_webhook_id")
+    private String repoWebhookId;
+
+    @Column(name = "delivery_id")
+    private String deliveryId;
+
+    // Plain text columns, not @Lob - see NotificationOutbox.payload.
+    private String payload;
+
+    // The request headers as JSON, without the secret or signature headers.
+    private String headers;
+
+    @Enumerated(EnumType.STRING)
+    private WebhookDeliveryStatus status = WebhookDeliveryStatus.PENDING;
+
+    @Column(name = "received_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date receivedAt;
+
+    @Column(name = "attempt_count")
+    private int attemptCount = 0;
+
+    @Column(name = "last_attempt_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastAttemptAt;
+
+    @Column(name = "next_attempt_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextAttemptAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+}
@@ -0,0 +1,8 @@
+package io.terrakube.api.rs.webhook;
+
+public enum WebhookDeliveryStatus {
+    PENDING,
+    PROCESSING,
+    PROCESSED,
+    FAILED
+}
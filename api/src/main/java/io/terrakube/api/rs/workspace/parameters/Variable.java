@@ -2,16 +2,21 @@ package io.terrakube.api.rs.workspace.parameters;
 
 import com.yahoo.elide.annotation.Include;
 import com.yahoo.elide.annotation.ReadPermission;
+import com.yahoo.elide.annotation.LifeCycleHookBinding;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.JdbcTypeCode;
 import io.terrakube.api.rs.IdConverter;
 import io.terrakube.api.rs.workspace.Workspace;
+import io.terrakube.api.rs.hooks.variable.JobVariablesChangeHook;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import java.sql.Types;
 import java.util.UUID;
 
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.CREATE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.UPDATE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
+@LifeCycleHookBinding(operation = LifeCycleHookBinding.Operation.DELETE, phase = LifeCycleHookBinding.TransactionPhase.POSTCOMMIT, hook = JobVariablesChangeHook.class)
 @Include(rootLevel = false)
 @Getter
 @Setter
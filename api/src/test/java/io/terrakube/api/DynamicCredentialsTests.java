@@ -2,6 +2,7 @@ package io.terrakube.api;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.terrakube.api.plugin.token.dynamic.DynamicCredentialsKeyManager;
 import io.terrakube.api.plugin.token.dynamic.DynamicCredentialsService;
 import io.terrakube.api.plugin.token.dynamic.JwksController;
 import io.terrakube.api.plugin.token.dynamic.OpenIdConfigurationController;
@@ -42,6 +43,9 @@ public class DynamicCredentialsTests extends ServerApplicationTests {
     @Autowired
     JwksController jwksController;
 
+    @Autowired
+    DynamicCredentialsKeyManager dynamicCredentialsKeyManager;
+
     private static Path publicKeyFile;
     private static Path privateKeyFile;
 
@@ -80,10 +84,12 @@ public class DynamicCredentialsTests extends ServerApplicationTests {
         MockitoAnnotations.openMocks(this);
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
 
-        // Inject the key paths into the service using ReflectionTestUtils
-        ReflectionTestUtils.setField(dynamicCredentialsService, "publicKeyPath", publicKeyFile.toString());
-        ReflectionTestUtils.setField(dynamicCredentialsService, "privateKeyPath", privateKeyFile.toString());
-        ReflectionTestUtils.setField(dynamicCredentialsService, "kid", "03446895-220d-47e1-9564-4eeaa3691b42");
+        // Inject the key paths into the key manager using ReflectionTestUtils, and drop whatever
+        // it loaded for a previous test so the next use reads them
+        ReflectionTestUtils.setField(dynamicCredentialsKeyManager, "publicKeyPath", publicKeyFile.toString());
+        ReflectionTestUtils.setField(dynamicCredentialsKeyManager, "privateKeyPath", privateKeyFile.toString());
+        ReflectionTestUtils.setField(dynamicCredentialsKeyManager, "kid", "03446895-220d-47e1-9564-4eeaa3691b42");
+        ReflectionTestUtils.setField(dynamicCredentialsKeyManager, "keySet", null);
         ReflectionTestUtils.setField(dynamicCredentialsService, "dynamicCredentialTtl", 60);
     }
 
@@ -289,11 +295,30 @@ public class DynamicCredentialsTests extends ServerApplicationTests {
                 .body("keys[0].e", notNullValue());
     }
 
+    @Test
+    void testJwksEndpointIsCacheableAndRevalidates() {
+        String etag = given()
+                .when()
+                .get("/.well-known/jwks")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .header("Cache-Control", containsString("max-age="))
+                .header("ETag", notNullValue())
+                .extract().header("ETag");
+
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/.well-known/jwks")
+                .then()
+                .statusCode(HttpStatus.NOT_MODIFIED.value());
+    }
+
     @Test
     void testJwksEndpointReturnsEmptyKeysWhenNoPublicKey() {
         // Set an invalid public key path
-        ReflectionTestUtils.setField(dynamicCredentialsService, "publicKeyPath", "/nonexistent/path.pem");
-        ReflectionTestUtils.setField(jwksController, "jwkData", null);
+        ReflectionTestUtils.setField(dynamicCredentialsKeyManager, "publicKeyPath", "/nonexistent/path.pem");
+        ReflectionTestUtils.setField(dynamicCredentialsKeyManager, "keySet", null);
 
         given()
                 .when()
@@ -0,0 +1,47 @@
+package io.terrakube.api;
+
+import io.terrakube.api.helpers.FailUnkownMethod;
+import io.terrakube.api.plugin.scheduler.ScheduleJob;
+import io.terrakube.api.plugin.scheduler.ScheduleJobService;
+import io.terrakube.api.plugin.scheduler.reconciliation.QuartzJobLookup;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobBuilder;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+// Runs QuartzJobLookup's query against the Quartz tables the changelogs create, with a scheduler
+// that only answers its name: a fallback to checkExists would fail the test.
+class QuartzJobLookupTests extends ServerApplicationTests {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    Scheduler scheduler;
+
+    @Test
+    void findsTheStoredJobsAmongAPageWithOneQuery() throws Exception {
+        String stored = ScheduleJobService.PREFIX_JOB_CONTEXT + "lookup-" + UUID.randomUUID();
+        String missing = ScheduleJobService.PREFIX_JOB_CONTEXT + "lookup-" + UUID.randomUUID();
+        scheduler.addJob(JobBuilder.newJob(ScheduleJob.class).withIdentity(stored).storeDurably().build(), true);
+        try {
+            Scheduler nameOnly = mock(Scheduler.class, new FailUnkownMethod<Scheduler>());
+            doReturn(scheduler.getSchedulerName()).when(nameOnly).getSchedulerName();
+
+            QuartzJobLookup subject = new QuartzJobLookup(dataSource, nameOnly);
+
+            assertThat(subject.existing(List.of(stored, missing))).containsExactly(stored);
+        } finally {
+            scheduler.deleteJob(new JobKey(stored));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.terrakube.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.terrakube.api.plugin.vcs.WebhookResult;
+import io.terrakube.api.plugin.vcs.provider.gitlab.GitLabProjectIdCache;
 import io.terrakube.api.plugin.vcs.provider.gitlab.GitLabWebhookService;
 import io.terrakube.api.rs.vcs.Vcs;
 import io.terrakube.api.rs.vcs.VcsType;
@@ -55,7 +56,7 @@ public class VcsGitlabTests extends ServerApplicationTests {
                         .withStatus(HttpStatus.OK.value())
                         .withBody(simpleSearch)));
 
-        GitLabWebhookService gitLabWebhookService = new GitLabWebhookService(new ObjectMapper(), "localhost", "http://localhost", WebClient.builder(), 30, 25);
+        GitLabWebhookService gitLabWebhookService = new GitLabWebhookService(new ObjectMapper(), "localhost", "http://localhost", WebClient.builder(), 30, 25, new GitLabProjectIdCache(null));
 
         Assert.isTrue("5397249".equals(gitLabWebhookService.getGitlabProjectId("alfespa17/simple-terraform", "12345", "http://localhost:"+ wireMockServer.port())), "GitLab project id not found");
 
@@ -117,7 +118,7 @@ public class VcsGitlabTests extends ServerApplicationTests {
                                                 .withStatus(HttpStatus.OK.value())
                                                 .withBody(directProjectResponse)));
 
-                GitLabWebhookService gitLabWebhookService = new GitLabWebhookService(new ObjectMapper(), "localhost", "http://localhost", WebClient.builder(), 30, 25);
+                GitLabWebhookService gitLabWebhookService = new GitLabWebhookService(new ObjectMapper(), "localhost", "http://localhost", WebClient.builder(), 30, 25, new GitLabProjectIdCache(null));
 
                 Assert.isTrue("5397249".equals(gitLabWebhookService.getGitlabProjectId("alfespa17/simple-terraform", "12345", "http://localhost:" + wireMockServer.port())), "Direct GitLab project id not found");
         }
@@ -321,7 +322,7 @@ public class VcsGitlabTests extends ServerApplicationTests {
                         .withHeader("x-total", "1")
                         .withBody(mergeRequestDiffPayload)));
 
-        GitLabWebhookService gitLabWebhookService = new GitLabWebhookService(new ObjectMapper(), "localhost", "http://localhost", WebClient.builder(), 30, 25);
+        GitLabWebhookService gitLabWebhookService = new GitLabWebhookService(new ObjectMapper(), "localhost", "http://localhost", WebClient.builder(), 30, 25, new GitLabProjectIdCache(null));
 
         Vcs vcs = new Vcs();
         vcs.setAccessToken("1234567890");
@@ -0,0 +1,179 @@
+package io.terrakube.api.plugin.completion;
+
+import io.terrakube.api.plugin.notification.JobNotificationTrigger;
+import io.terrakube.api.plugin.scheduler.ScheduleJobService;
+import io.terrakube.api.plugin.subscription.JobStatusEvent;
+import io.terrakube.api.plugin.subscription.JobStatusPublisher;
+import io.terrakube.api.repository.JobRepository;
+import io.terrakube.api.repository.StepRepository;
+import io.terrakube.api.repository.WorkspaceRepository;
+import io.terrakube.api.rs.Organization;
+import io.terrakube.api.rs.job.Job;
+import io.terrakube.api.rs.job.JobStatus;
+import io.terrakube.api.rs.job.step.Step;
+import io.terrakube.api.rs.workspace.Workspace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.SchedulerException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class StepCompletionServiceTest {
+
+    JobRepository jobRepository;
+    StepRepository stepRepository;
+    WorkspaceRepository workspaceRepository;
+    ScheduleJobService scheduleJobService;
+    JobStatusPublisher jobStatusPublisher;
+    JobNotificationTrigger jobNotificationTrigger;
+    StepCompletionService subject;
+
+    UUID stepId = UUID.randomUUID();
+
+    @BeforeEach
+    void setup() {
+        jobRepository = mock(JobRepository.class);
+        stepRepository = mock(StepRepository.class);
+        workspaceRepository = mock(WorkspaceRepository.class);
+        scheduleJobService = mock(ScheduleJobService.class);
+        jobStatusPublisher = mock(JobStatusPublisher.class);
+        jobNotificationTrigger = mock(JobNotificationTrigger.class);
+        subject = new StepCompletionService(jobRepository, stepRepository, workspaceRepository,
+                scheduleJobService, jobStatusPublisher, jobNotificationTrigger);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private Job job(JobStatus status, int stepCount) {
+        Organization organization = new Organization();
+        organization.setId(UUID.randomUUID());
+        Workspace workspace = new Workspace();
+        workspace.setId(UUID.randomUUID());
+        Job job = new Job();
+        job.setId(4711);
+        job.setStatus(status);
+        job.setOrganization(organization);
+        job.setWorkspace(workspace);
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < stepCount; i++) {
+            steps.add(new Step());
+        }
+        job.setStep(steps);
+        doReturn(Optional.of(job)).when(jobRepository).findById(4711);
+        return job;
+    }
+
+    private Step step(Job job, JobStatus status) {
+        Step step = new Step();
+        step.setId(stepId);
+        step.setJob(job);
+        step.setStatus(status);
+        doReturn(Optional.of(step)).when(stepRepository).findById(stepId);
+        return step;
+    }
+
+    private StepCompletionRequest request(boolean successful, boolean plan, int exitCode) {
+        StepCompletionRequest request = new StepCompletionRequest();
+        request.setSuccessful(successful);
+        request.setPlan(plan);
+        request.setExitCode(exitCode);
+        request.setOutput("tfoutput/org/4711/step.tfoutput");
+        request.setTerraformPlan("plan-file");
+        request.setCommitId("commit-1");
+        return request;
+    }
+
+    private void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    }
+
+    @Test
+    void planOnlyJobWithChangesIsCompletedInOneCall() throws SchedulerException {
+        Job job = job(JobStatus.running, 1);
+        Step step = step(job, JobStatus.running);
+
+        StepCompletionResponse response = subject.completeStep(4711, stepId, request(true, true, 2)).orElseThrow();
+
+        assertTrue(response.isApplied());
+        assertEquals(JobStatus.completed, job.getStatus());
+        assertTrue(job.isPlanChanges());
+        assertEquals("plan-file", job.getTerraformPlan());
+        assertEquals("commit-1", job.getCommitId());
+        assertEquals(JobStatus.completed, step.getStatus());
+        assertEquals("tfoutput/org/4711/step.tfoutput", step.getOutput());
+        assertEquals(JobStatus.completed, job.getWorkspace().getLastJobStatus());
+        verify(jobNotificationTrigger).notifyStatusChanged(job);
+        verify(scheduleJobService, never()).createJobContextNow(any());
+
+        commit();
+
+        verify(scheduleJobService).createJobContextNow(job);
+        verify(jobStatusPublisher).publish(new JobStatusEvent(4711, job.getWorkspace().getId().toString(), "completed"),
+                job.getOrganization().getId().toString());
+    }
+
+    @Test
+    void planWithChangesAndFurtherStepsLeavesTheJobPending() {
+        Job job = job(JobStatus.running, 2);
+        step(job, JobStatus.running);
+
+        subject.completeStep(4711, stepId, request(true, true, 2));
+
+        assertEquals(JobStatus.pending, job.getStatus());
+    }
+
+    @Test
+    void aRepeatedCompletionChangesNothing() {
+        Job job = job(JobStatus.pending, 2);
+        step(job, JobStatus.completed);
+
+        StepCompletionResponse response = subject.completeStep(4711, stepId, request(false, false, 1)).orElseThrow();
+
+        assertFalse(response.isApplied());
+        assertEquals(JobStatus.pending, job.getStatus());
+        verify(stepRepository, never()).save(any());
+        verify(jobRepository, never()).save(any());
+        verify(jobNotificationTrigger, never()).notifyStatusChanged(any());
+    }
+
+    @Test
+    void rejectedJobMarksTheStepFailedAndKeepsTheJobStatus() {
+        Job job = job(JobStatus.rejected, 2);
+        Step step = step(job, JobStatus.running);
+
+        subject.completeStep(4711, stepId, request(true, false, 0));
+
+        assertEquals(JobStatus.failed, step.getStatus());
+        assertEquals(JobStatus.rejected, job.getStatus());
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void aStepOfAnotherJobIsNotFound() {
+        job(JobStatus.running, 1);
+        Job otherJob = new Job();
+        otherJob.setId(1);
+        step(otherJob, JobStatus.running);
+
+        assertTrue(subject.completeStep(4711, stepId, request(true, false, 0)).isEmpty());
+    }
+}
@@ -0,0 +1,162 @@
+package io.terrakube.api.plugin.logs;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.terrakube.api.plugin.storage.StorageTypeService;
+import io.terrakube.api.repository.JobRepository;
+import io.terrakube.api.rs.Organization;
+import io.terrakube.api.rs.job.Job;
+import io.terrakube.api.rs.job.JobStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LogStreamRetentionServiceTest {
+
+    RedisTemplate<String, Object> redisTemplate;
+    StreamOperations<String, Object, Object> streamOperations;
+    StorageTypeService storageTypeService;
+    JobRepository jobRepository;
+    LogStreamRetentionProperties properties;
+    SimpleMeterRegistry meterRegistry;
+    LogStreamRetentionService subject;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        redisTemplate = mock(RedisTemplate.class);
+        streamOperations = mock(StreamOperations.class);
+        storageTypeService = mock(StorageTypeService.class);
+        jobRepository = mock(JobRepository.class);
+        properties = new LogStreamRetentionProperties();
+        properties.setArchivePageSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        doReturn(streamOperations).when(redisTemplate).opsForStream();
+        subject = new LogStreamRetentionService(redisTemplate, storageTypeService, jobRepository, properties, meterRegistry);
+    }
+
+    private MapRecord<String, Object, Object> record(String id, String output) {
+        return StreamRecords.newRecord().in("7").withId(RecordId.of(id)).ofMap(Map.<Object, Object>of("output", output));
+    }
+
+    private Job job(int id, JobStatus status, Instant updatedDate) {
+        Organization organization = new Organization();
+        organization.setId(UUID.fromString("0a3a1bd0-8b5d-4a3e-9f32-000000000001"));
+        Job job = new Job();
+        job.setId(id);
+        job.setStatus(status);
+        job.setOrganization(organization);
+        job.setUpdatedDate(Date.from(updatedDate));
+        return job;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamKeys(String... keys) {
+        Cursor<String> cursor = mock(Cursor.class);
+        Iterator<String> iterator = List.of(keys).iterator();
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        doReturn(cursor).when(redisTemplate).scan(any(ScanOptions.class));
+    }
+
+    private String gunzip(byte[] archive) throws IOException {
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(archive))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void archiveAndDeletePagesThroughTheStreamAndRemovesBothStreams() throws IOException {
+        when(streamOperations.range(eq("7"), any(Range.class), any(Limit.class)))
+                .thenReturn(List.of(record("1-0", "Initializing"), record("2-0", "Planning")))
+                .thenReturn(List.of(record("2-0", "Planning"), record("3-0", "Done")))
+                .thenReturn(List.of(record("3-0", "Done")));
+
+        subject.archiveAndDelete(7, "org-1");
+
+        ArgumentCaptor<byte[]> archive = ArgumentCaptor.forClass(byte[].class);
+        verify(storageTypeService).archiveJobLogs(eq("org-1"), eq("7"), archive.capture());
+        assertEquals("Initializing\nPlanning\nDone\n", gunzip(archive.getValue()));
+        verify(redisTemplate).delete(List.of("7", "7-context"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void archiveAndDeleteSkipsTheUploadForAnEmptyStream() {
+        when(streamOperations.range(eq("7"), any(Range.class), any(Limit.class))).thenReturn(List.of());
+
+        subject.archiveAndDelete(7, "org-1");
+
+        verify(storageTypeService, never()).archiveJobLogs(anyString(), anyString(), any());
+        verify(redisTemplate).delete(List.of("7", "7-context"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sweepRemovesMissingAndStaleFinishedJobsAndMeasuresActiveOnes() {
+        streamKeys("1", "1-context", "2", "3", "4-context", "executor-job-heartbeat:5");
+        Instant now = Instant.now();
+        doReturn(List.of(
+                job(2, JobStatus.running, now),
+                job(3, JobStatus.completed, now.minus(1, ChronoUnit.HOURS)),
+                job(4, JobStatus.failed, now)))
+                .when(jobRepository).findAllById(any());
+        when(streamOperations.range(eq("3"), any(Range.class), any(Limit.class))).thenReturn(List.of());
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        doReturn(2048L).when(redisTemplate).execute(any(RedisCallback.class));
+
+        assertEquals(2, subject.sweep());
+
+        verify(redisTemplate).delete(List.of("1", "1-context"));
+        verify(redisTemplate).delete(List.of("3", "3-context"));
+        verify(redisTemplate, never()).delete(List.of("2", "2-context"));
+        // Job 4 finished inside the grace period - the completion path still owns it.
+        verify(redisTemplate, never()).delete(List.of("4", "4-context"));
+        assertEquals(2048.0, meterRegistry.get(LogStreamRetentionService.STREAM_MEMORY_METRIC).gauge().value());
+        assertEquals(1.0, meterRegistry.get(LogStreamRetentionService.PENDING_ARCHIVE_METRIC).gauge().value());
+        Gauge oldest = meterRegistry.get(LogStreamRetentionService.OLDEST_PENDING_ARCHIVE_METRIC).gauge();
+        assertTrue(oldest.value() >= 0 && oldest.value() < 60, "oldest pending archive " + oldest.value());
+        assertTrue(meterRegistry.get(LogStreamRetentionService.STREAM_MEMORY_METRIC).gauge().getId().getTags().isEmpty());
+    }
+
+    @Test
+    void gaugesReportNothingOnAReplicaThatHasNotSwept() {
+        assertTrue(Double.isNaN(meterRegistry.get(LogStreamRetentionService.STREAM_MEMORY_METRIC).gauge().value()));
+        assertTrue(Double.isNaN(meterRegistry.get(LogStreamRetentionService.PENDING_ARCHIVE_METRIC).gauge().value()));
+    }
+}
@@ -0,0 +1,58 @@
+package io.terrakube.api.plugin.logs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class LogsControllerTest {
+
+    private final LogsService logsService = mock(LogsService.class);
+    private final LogStreamRetentionProperties properties = new LogStreamRetentionProperties();
+    private final LogsController subject = new LogsController(logsService, new ObjectMapper(), properties);
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String batch(String output) {
+        return "{\"data\":[{\"jobId\":7,\"stepId\":\"step-1\",\"lineNumber\":1,\"output\":\"" + output + "\"}]}";
+    }
+
+    @Test
+    void aGzippedBatchIsInflatedAndAppended() throws IOException {
+        ResponseEntity<Void> response = subject.appendCompressedLogs(gzip(batch("hello")));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(logsService).appendLogs(anyList());
+    }
+
+    @Test
+    void aBatchInflatingPastTheLimitIsRejectedWithoutBeingAppended() throws IOException {
+        properties.setMaxInflatedBodyBytes(1024);
+        // A few hundred bytes on the wire, a megabyte once inflated.
+        byte[] bomb = gzip(batch("a".repeat(1024 * 1024)));
+        assertThat(bomb.length).isLessThan(4096);
+
+        ResponseEntity<Void> response = subject.appendCompressedLogs(bomb);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONTENT_TOO_LARGE);
+        verify(logsService, never()).appendLogs(any());
+    }
+}
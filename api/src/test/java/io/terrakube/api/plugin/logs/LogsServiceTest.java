@@ -0,0 +1,68 @@
+package io.terrakube.api.plugin.logs;
+
+import io.terrakube.api.plugin.state.model.logs.Log;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StreamOperations;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class LogsServiceTest {
+
+    private Log log(int jobId, int lineNumber, String output) {
+        Log log = new Log();
+        log.setJobId(jobId);
+        log.setStepId("step-1");
+        log.setLineNumber(lineNumber);
+        log.setOutput(output);
+        return log;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void appendLogsWritesTheWholeBatchInOnePipelineAndTrimsEachStreamOnce() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        StreamOperations<String, Object, Object> streamOperations = mock(StreamOperations.class);
+        doReturn(streamOperations).when(operations).opsForStream();
+        doAnswer(invocation -> {
+            invocation.getArgument(0, SessionCallback.class).execute(operations);
+            return List.of();
+        }).when(redisTemplate).executePipelined(any(SessionCallback.class));
+
+        LogStreamRetentionProperties properties = new LogStreamRetentionProperties();
+        properties.setStreamMaxLength(5000);
+        LogsService subject = new LogsService(redisTemplate, properties);
+
+        subject.appendLogs(List.of(log(7, 1, "a"), log(7, 2, "b"), log(8, 1, "c")));
+
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        verify(streamOperations, times(2)).add(eq("7"), any(Map.class));
+        verify(streamOperations, times(1)).add(eq("8"), any(Map.class));
+        verify(streamOperations).trim("7", 5000L, true);
+        verify(streamOperations).trim("8", 5000L, true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void anEmptyBatchDoesNotTouchRedis() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        LogsService subject = new LogsService(redisTemplate, new LogStreamRetentionProperties());
+
+        subject.appendLogs(List.of());
+
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+}
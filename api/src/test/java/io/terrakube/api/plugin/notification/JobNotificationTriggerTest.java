@@ -22,6 +22,7 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -39,6 +40,8 @@ class JobNotificationTriggerTest {
     NotificationOutboxRepository notificationOutboxRepository;
     @Mock
     NotificationDispatchService notificationDispatchService;
+    @Mock
+    NotificationOutboxDrainer notificationOutboxDrainer;
 
     @InjectMocks
     JobNotificationTrigger subject;
@@ -160,6 +163,22 @@ class JobNotificationTriggerTest {
         verify(notificationDispatchService, times(1)).dispatchAsync(any());
     }
 
+    @Test
+    void notifyStatusChanged_signalsTheOutboxDrainWhenTheDispatchPoolIsFull() {
+        Job job = jobWithStatus(JobStatus.failed);
+        NotificationConfiguration slack = configWithTrigger(NotificationChannelType.SLACK, JobStatus.failed);
+        NotificationConfiguration teams = configWithTrigger(NotificationChannelType.TEAMS, JobStatus.failed);
+        when(notificationConfigResolver.resolve(job.getWorkspace())).thenReturn(List.of(slack, teams));
+        when(notificationPayloadRenderer.render(any(), any())).thenReturn("{}");
+        doThrow(new RejectedExecutionException("pool full")).doNothing()
+                .when(notificationDispatchService).dispatchAsync(any());
+
+        subject.notifyStatusChanged(job);
+
+        verify(notificationDispatchService, times(2)).dispatchAsync(any());
+        verify(notificationOutboxDrainer).requestDrain();
+    }
+
     @Test
     void enqueue_configScopedToADifferentTemplateIsSkipped() {
         Job job = jobWithStatus(JobStatus.failed);
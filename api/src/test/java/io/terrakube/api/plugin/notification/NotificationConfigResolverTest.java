@@ -5,16 +5,26 @@ import io.terrakube.api.rs.Organization;
 import io.terrakube.api.rs.notification.NotificationChannelType;
 import io.terrakube.api.rs.notification.NotificationConfiguration;
 import io.terrakube.api.rs.workspace.Workspace;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
 
 import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,9 +33,30 @@ class NotificationConfigResolverTest {
     @Mock
     NotificationConfigurationRepository notificationConfigurationRepository;
 
+    @Mock
+    RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    ValueOperations<String, Object> valueOperations;
+
     @InjectMocks
     NotificationConfigResolver resolver;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(valueOperations.increment(anyString(), anyLong())).thenReturn(1L);
+    }
+
+    private Workspace workspace(UUID workspaceId, UUID orgId) {
+        Workspace workspace = new Workspace();
+        workspace.setId(workspaceId);
+        Organization organization = new Organization();
+        organization.setId(orgId);
+        workspace.setOrganization(organization);
+        return workspace;
+    }
+
     private NotificationConfiguration config(NotificationChannelType type, String name) {
         NotificationConfiguration c = new NotificationConfiguration();
         c.setId(UUID.randomUUID());
@@ -80,4 +111,96 @@ class NotificationConfigResolverTest {
 
         assertThat(resolver.resolve(workspace)).containsExactly(orgSlack);
     }
+
+    @Test
+    void workspaceWithoutConfigsIsServedFromTheCacheWithoutQueries() {
+        UUID orgId = UUID.randomUUID();
+        UUID workspaceId = UUID.randomUUID();
+        Workspace workspace = workspace(workspaceId, orgId);
+        when(notificationConfigurationRepository.findByWorkspaceIdAndActiveTrue(workspaceId)).thenReturn(List.of());
+        when(notificationConfigurationRepository.findByOrganizationIdAndWorkspaceIsNullAndActiveTrue(orgId))
+                .thenReturn(List.of());
+
+        assertThat(resolver.resolve(workspace)).isEmpty();
+        assertThat(resolver.resolve(workspace)).isEmpty();
+        assertThat(resolver.resolve(workspace)).isEmpty();
+
+        verify(notificationConfigurationRepository, times(1)).findByWorkspaceIdAndActiveTrue(workspaceId);
+        verify(notificationConfigurationRepository, times(1)).findByOrganizationIdAndWorkspaceIsNullAndActiveTrue(orgId);
+        verify(notificationConfigurationRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void cachedConfigsAreReloadedByIdInResolutionOrderAndInactiveOnesDropped() {
+        UUID orgId = UUID.randomUUID();
+        UUID workspaceId = UUID.randomUUID();
+        Workspace workspace = workspace(workspaceId, orgId);
+        NotificationConfiguration workspaceSlack = config(NotificationChannelType.SLACK, "workspace-slack");
+        NotificationConfiguration orgTeams = config(NotificationChannelType.TEAMS, "org-teams");
+        NotificationConfiguration disabledOrgTeams = config(NotificationChannelType.TEAMS, "org-teams");
+        disabledOrgTeams.setId(orgTeams.getId());
+        disabledOrgTeams.setActive(false);
+        when(notificationConfigurationRepository.findByWorkspaceIdAndActiveTrue(workspaceId))
+                .thenReturn(List.of(workspaceSlack));
+        when(notificationConfigurationRepository.findByOrganizationIdAndWorkspaceIsNullAndActiveTrue(orgId))
+                .thenReturn(List.of(orgTeams));
+        when(notificationConfigurationRepository.findAllById(List.of(workspaceSlack.getId(), orgTeams.getId())))
+                .thenReturn(List.of(orgTeams, workspaceSlack), List.of(disabledOrgTeams, workspaceSlack));
+
+        assertThat(resolver.resolve(workspace)).containsExactly(workspaceSlack, orgTeams);
+        assertThat(resolver.resolve(workspace)).containsExactly(workspaceSlack, orgTeams);
+        assertThat(resolver.resolve(workspace)).containsExactly(workspaceSlack);
+
+        verify(notificationConfigurationRepository, times(1)).findByWorkspaceIdAndActiveTrue(workspaceId);
+    }
+
+    @Test
+    void resolvesAgainOnceTheGenerationChanges() {
+        UUID orgId = UUID.randomUUID();
+        UUID workspaceId = UUID.randomUUID();
+        Workspace workspace = workspace(workspaceId, orgId);
+        NotificationConfiguration orgSlack = config(NotificationChannelType.SLACK, "org-slack");
+        when(valueOperations.increment(anyString(), anyLong())).thenReturn(1L, 1L, 2L);
+        when(notificationConfigurationRepository.findByWorkspaceIdAndActiveTrue(workspaceId)).thenReturn(List.of());
+        when(notificationConfigurationRepository.findByOrganizationIdAndWorkspaceIsNullAndActiveTrue(orgId))
+                .thenReturn(List.of(), List.of(orgSlack));
+
+        assertThat(resolver.resolve(workspace)).isEmpty();
+        assertThat(resolver.resolve(workspace)).isEmpty();
+        // Another replica committed a new org-wide configuration and bumped the generation.
+        assertThat(resolver.resolve(workspace)).containsExactly(orgSlack);
+    }
+
+    @Test
+    void queriesEveryTimeWhenTheGenerationIsUnavailable() {
+        UUID orgId = UUID.randomUUID();
+        UUID workspaceId = UUID.randomUUID();
+        Workspace workspace = workspace(workspaceId, orgId);
+        when(valueOperations.increment(anyString(), anyLong())).thenThrow(new IllegalStateException("redis down"));
+        when(notificationConfigurationRepository.findByWorkspaceIdAndActiveTrue(workspaceId)).thenReturn(List.of());
+        when(notificationConfigurationRepository.findByOrganizationIdAndWorkspaceIsNullAndActiveTrue(orgId))
+                .thenReturn(List.of());
+
+        resolver.resolve(workspace);
+        resolver.resolve(workspace);
+
+        verify(notificationConfigurationRepository, times(2)).findByWorkspaceIdAndActiveTrue(workspaceId);
+    }
+
+    @Test
+    void configurationsChangedDropsLocalEntriesAndBumpsTheGeneration() {
+        UUID orgId = UUID.randomUUID();
+        UUID workspaceId = UUID.randomUUID();
+        Workspace workspace = workspace(workspaceId, orgId);
+        when(notificationConfigurationRepository.findByWorkspaceIdAndActiveTrue(workspaceId)).thenReturn(List.of());
+        when(notificationConfigurationRepository.findByOrganizationIdAndWorkspaceIsNullAndActiveTrue(orgId))
+                .thenReturn(List.of());
+
+        resolver.resolve(workspace);
+        resolver.configurationsChanged();
+        resolver.resolve(workspace);
+
+        verify(valueOperations).increment(NotificationConfigResolver.GENERATION_KEY);
+        verify(notificationConfigurationRepository, times(2)).findByWorkspaceIdAndActiveTrue(workspaceId);
+    }
 }
@@ -0,0 +1,117 @@
+package io.terrakube.api.plugin.notification;
+
+import io.terrakube.api.repository.NotificationOutboxRepository;
+import io.terrakube.api.rs.notification.NotificationOutbox;
+import io.terrakube.api.rs.notification.NotificationOutboxStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotificationOutboxDrainerTest {
+
+    private final NotificationOutboxRepository notificationOutboxRepository = mock(NotificationOutboxRepository.class);
+    private final NotificationDispatchService notificationDispatchService = mock(NotificationDispatchService.class);
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    private final RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+    private final NotificationOutboxDrainer subject = new NotificationOutboxDrainer(notificationOutboxRepository,
+            notificationDispatchService, redisTemplate, container, 2);
+
+    @AfterEach
+    void tearDown() {
+        subject.shutdown();
+    }
+
+    private static NotificationOutbox row(long createdAt) {
+        NotificationOutbox outbox = new NotificationOutbox();
+        outbox.setId(UUID.randomUUID());
+        outbox.setStatus(NotificationOutboxStatus.PENDING);
+        outbox.setCreatedDate(new Date(createdAt));
+        return outbox;
+    }
+
+    @Test
+    void keepsPagingWhileFullPagesComeBack() {
+        NotificationOutbox first = row(1);
+        NotificationOutbox second = row(2);
+        NotificationOutbox third = row(3);
+        when(notificationOutboxRepository.findDueForDispatch(eq(NotificationOutboxStatus.PENDING), any(),
+                any(Pageable.class))).thenReturn(List.of(first, second));
+        when(notificationOutboxRepository.findDueForDispatchAfter(eq(NotificationOutboxStatus.PENDING), any(),
+                eq(second.getCreatedDate()), eq(second.getId()), any(Pageable.class))).thenReturn(List.of(third));
+
+        assertThat(subject.drain()).isEqualTo(3);
+
+        verify(notificationDispatchService).dispatchAsync(first.getId());
+        verify(notificationDispatchService).dispatchAsync(second.getId());
+        verify(notificationDispatchService).dispatchAsync(third.getId());
+    }
+
+    @Test
+    void aRejectedDispatchDoesNotStopTheRestOfThePageButEndsThePass() {
+        NotificationOutbox first = row(1);
+        NotificationOutbox second = row(2);
+        when(notificationOutboxRepository.findDueForDispatch(any(), any(), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        doThrow(new RejectedExecutionException("pool full")).when(notificationDispatchService)
+                .dispatchAsync(first.getId());
+
+        assertThat(subject.drain()).isEqualTo(1);
+
+        verify(notificationDispatchService).dispatchAsync(second.getId());
+        verify(notificationOutboxRepository, never()).findDueForDispatchAfter(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void wakeUpsWhileAPassIsQueuedCostOnePass() throws Exception {
+        CountDownLatch firstPassRunning = new CountDownLatch(1);
+        CountDownLatch releaseFirstPass = new CountDownLatch(1);
+        List<Integer> passes = new ArrayList<>();
+        when(notificationOutboxRepository.findDueForDispatch(any(), any(), any(Pageable.class))).thenAnswer(_ -> {
+            synchronized (passes) {
+                passes.add(passes.size());
+            }
+            firstPassRunning.countDown();
+            releaseFirstPass.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        subject.onMessage(null, null);
+        assertThat(firstPassRunning.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 10; i++) {
+            subject.onMessage(null, null);
+        }
+        releaseFirstPass.countDown();
+
+        verify(notificationOutboxRepository, timeout(5_000).times(2)).findDueForDispatch(any(), any(),
+                any(Pageable.class));
+        Thread.sleep(200);
+        assertThat(passes).hasSize(2);
+    }
+
+    @Test
+    void drainsLocallyWhenTheSignalCannotBePublished() {
+        doThrow(new RedisConnectionFailureException("connection refused")).when(redisTemplate)
+                .convertAndSend(any(), any());
+        when(notificationOutboxRepository.findDueForDispatch(any(), any(), any(Pageable.class))).thenReturn(List.of());
+
+        subject.requestDrain();
+
+        verify(notificationOutboxRepository, timeout(5_000)).findDueForDispatch(any(), any(), any(Pageable.class));
+    }
+}
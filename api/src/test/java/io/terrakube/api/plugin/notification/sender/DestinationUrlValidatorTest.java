@@ -1,5 +1,7 @@
 package io.terrakube.api.plugin.notification.sender;
 
+import java.net.UnknownHostException;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -62,4 +64,12 @@ class DestinationUrlValidatorTest {
         assertThatCode(() -> permissive.validate("Webhook", "http://127.0.0.1:8080/hook"))
                 .doesNotThrowAnyException();
     }
+
+    @Test
+    void connectionsOnlyGetAddressesThatPassTheCheck() {
+        assertThatThrownBy(() -> blocking.pinnedAddresses("127.0.0.1"))
+                .isInstanceOf(UnknownHostException.class);
+        assertThatCode(() -> permissive.pinnedAddresses("127.0.0.1"))
+                .doesNotThrowAnyException();
+    }
 }
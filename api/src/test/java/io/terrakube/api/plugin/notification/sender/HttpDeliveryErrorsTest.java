@@ -1,5 +1,6 @@
 package io.terrakube.api.plugin.notification.sender;
 
+import java.net.ConnectException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.ZonedDateTime;
@@ -8,9 +9,7 @@ import java.time.format.DateTimeFormatter;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -18,8 +17,8 @@ class HttpDeliveryErrorsTest {
 
     @Test
     void tooManyRequestsIsRetryable() {
-        HttpClientErrorException e = HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests",
-                new HttpHeaders(), new byte[0], StandardCharsets.UTF_8);
+        WebClientResponseException e = WebClientResponseException.create(HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too Many Requests", new HttpHeaders(), new byte[0], StandardCharsets.UTF_8);
 
         NotificationDeliveryException result = HttpDeliveryErrors.fromStatus("Slack", e);
 
@@ -29,7 +28,7 @@ class HttpDeliveryErrorsTest {
 
     @Test
     void serverErrorIsRetryable() {
-        HttpServerErrorException e = HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE,
+        WebClientResponseException e = WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(),
                 "Service Unavailable", new HttpHeaders(), new byte[0], StandardCharsets.UTF_8);
 
         NotificationDeliveryException result = HttpDeliveryErrors.fromStatus("Teams", e);
@@ -41,8 +40,8 @@ class HttpDeliveryErrorsTest {
     void otherClientErrorsAreNotRetryable() {
         for (HttpStatus status : new HttpStatus[] { HttpStatus.BAD_REQUEST, HttpStatus.UNAUTHORIZED,
                 HttpStatus.FORBIDDEN, HttpStatus.NOT_FOUND, HttpStatus.GONE }) {
-            HttpClientErrorException e = HttpClientErrorException.create(status, status.getReasonPhrase(), new HttpHeaders(),
-                    new byte[0], StandardCharsets.UTF_8);
+            WebClientResponseException e = WebClientResponseException.create(status.value(), status.getReasonPhrase(),
+                    new HttpHeaders(), new byte[0], StandardCharsets.UTF_8);
 
             NotificationDeliveryException result = HttpDeliveryErrors.fromStatus("Webhook", e);
 
@@ -55,8 +54,8 @@ class HttpDeliveryErrorsTest {
     void parsesDeltaSecondsRetryAfterHeader() {
         HttpHeaders headers = new HttpHeaders();
         headers.set(HttpHeaders.RETRY_AFTER, "30");
-        HttpClientErrorException e = HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests",
-                headers, new byte[0], StandardCharsets.UTF_8);
+        WebClientResponseException e = WebClientResponseException.create(HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too Many Requests", headers, new byte[0], StandardCharsets.UTF_8);
 
         NotificationDeliveryException result = HttpDeliveryErrors.fromStatus("Slack", e);
 
@@ -68,7 +67,7 @@ class HttpDeliveryErrorsTest {
         ZonedDateTime target = ZonedDateTime.now(java.time.ZoneOffset.UTC).plusMinutes(2).withNano(0);
         HttpHeaders headers = new HttpHeaders();
         headers.set(HttpHeaders.RETRY_AFTER, target.format(DateTimeFormatter.RFC_1123_DATE_TIME));
-        HttpServerErrorException e = HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE,
+        WebClientResponseException e = WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(),
                 "Service Unavailable", headers, new byte[0], StandardCharsets.UTF_8);
 
         NotificationDeliveryException result = HttpDeliveryErrors.fromStatus("Teams", e);
@@ -81,8 +80,8 @@ class HttpDeliveryErrorsTest {
     void malformedRetryAfterHeaderIsIgnored() {
         HttpHeaders headers = new HttpHeaders();
         headers.set(HttpHeaders.RETRY_AFTER, "not-a-valid-value");
-        HttpClientErrorException e = HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests",
-                headers, new byte[0], StandardCharsets.UTF_8);
+        WebClientResponseException e = WebClientResponseException.create(HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too Many Requests", headers, new byte[0], StandardCharsets.UTF_8);
 
         NotificationDeliveryException result = HttpDeliveryErrors.fromStatus("Slack", e);
 
@@ -92,7 +91,7 @@ class HttpDeliveryErrorsTest {
 
     @Test
     void networkErrorsAreRetryable() {
-        ResourceAccessException e = new ResourceAccessException("connect timed out");
+        ConnectException e = new ConnectException("Connection refused");
 
         NotificationDeliveryException result = HttpDeliveryErrors.fromNetworkError("Webhook", e);
 
@@ -0,0 +1,204 @@
+package io.terrakube.api.plugin.notification.sender;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationHttpClientTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final List<ExecutorService> serverThreads = new ArrayList<>();
+    private NotificationHttpClient client;
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+        serverThreads.forEach(ExecutorService::shutdownNow);
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+
+    private NotificationHttpClient client(NotificationDeliveryProperties properties) {
+        // block-private-destinations off: the stub endpoints run on loopback.
+        client = new NotificationHttpClient(new DestinationUrlValidator(false), properties);
+        return client;
+    }
+
+    private HttpServer server(InetSocketAddress address, StubHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        ExecutorService threads = Executors.newCachedThreadPool();
+        server.setExecutor(threads);
+        server.createContext("/hook", exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        servers.add(server);
+        serverThreads.add(threads);
+        return server;
+    }
+
+    private CompletableFuture<Void> post(String url) {
+        return client.post("Webhook", url, new HttpHeaders(), "{}").then().toFuture();
+    }
+
+    @Test
+    void aSlowDestinationDoesNotHoldBackDeliveriesToOtherHosts() throws Exception {
+        NotificationDeliveryProperties properties = new NotificationDeliveryProperties();
+        properties.setMaxConcurrentPerHost(4);
+        client(properties);
+        AtomicInteger slowInFlight = new AtomicInteger();
+        AtomicInteger slowMaxInFlight = new AtomicInteger();
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        HttpServer slow = server(new InetSocketAddress("127.0.0.1", 0), exchange -> {
+            slowMaxInFlight.accumulateAndGet(slowInFlight.incrementAndGet(), Math::max);
+            try {
+                releaseSlow.await(20, TimeUnit.SECONDS);
+                respond(exchange, 200);
+            } finally {
+                slowInFlight.decrementAndGet();
+            }
+        });
+        HttpServer fast = server(new InetSocketAddress(0), exchange -> respond(exchange, 200));
+
+        // Far more deliveries to the slow endpoint than the dispatch pool has threads.
+        List<CompletableFuture<Void>> slowDeliveries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            slowDeliveries.add(post("http://127.0.0.1:" + slow.getAddress().getPort() + "/hook"));
+        }
+
+        long started = System.nanoTime();
+        List<CompletableFuture<Void>> fastDeliveries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            fastDeliveries.add(post("http://localhost:" + fast.getAddress().getPort() + "/hook"));
+        }
+        CompletableFuture.allOf(fastDeliveries.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        long fastMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(fastMillis).isLessThan(5_000);
+        assertThat(slowDeliveries).noneMatch(CompletableFuture::isDone);
+        assertThat(slowMaxInFlight).hasValue(4);
+
+        releaseSlow.countDown();
+        CompletableFuture.allOf(slowDeliveries.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void opensTheCircuitOfAFailingHostAndKeepsOtherHostsClosed() throws Exception {
+        NotificationDeliveryProperties properties = new NotificationDeliveryProperties();
+        properties.setFailureThreshold(2);
+        properties.setOpenSeconds(60);
+        client(properties);
+        AtomicInteger failingCalls = new AtomicInteger();
+        HttpServer failing = server(new InetSocketAddress("127.0.0.1", 0), exchange -> {
+            failingCalls.incrementAndGet();
+            respond(exchange, 503);
+        });
+        HttpServer healthy = server(new InetSocketAddress(0), exchange -> respond(exchange, 200));
+        String failingUrl = "http://127.0.0.1:" + failing.getAddress().getPort() + "/hook";
+
+        for (int i = 0; i < 2; i++) {
+            NotificationDeliveryException e = catchDeliveryException(failingUrl);
+            assertThat(e.getMessage()).contains("returned status 503");
+        }
+        NotificationDeliveryException open = catchDeliveryException(failingUrl);
+
+        assertThat(open.getMessage()).contains("circuit open");
+        assertThat(open.isRetryable()).isTrue();
+        assertThat(open.getRetryAfter()).isPositive();
+        assertThat(failingCalls).hasValue(2);
+        post("http://localhost:" + healthy.getAddress().getPort() + "/hook").get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void rejectsDeliveriesPastTheQueueOfAHostAsRetryable() throws Exception {
+        NotificationDeliveryProperties properties = new NotificationDeliveryProperties();
+        properties.setMaxConcurrentPerHost(1);
+        properties.setMaxQueuedPerHost(1);
+        client(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer slow = server(new InetSocketAddress("127.0.0.1", 0), exchange -> {
+            release.await(20, TimeUnit.SECONDS);
+            respond(exchange, 200);
+        });
+        String url = "http://127.0.0.1:" + slow.getAddress().getPort() + "/hook";
+
+        CompletableFuture<Void> sending = post(url);
+        CompletableFuture<Void> waiting = post(url);
+        NotificationDeliveryException rejected = catchDeliveryException(url);
+
+        assertThat(rejected.isRetryable()).isTrue();
+        assertThat(rejected.getMessage()).contains("already waiting");
+        release.countDown();
+        CompletableFuture.allOf(sending, waiting).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void goesThroughTheSystemProxyWithoutResolvingTheDestinationItself() throws Exception {
+        AtomicReference<String> proxiedUri = new AtomicReference<>();
+        HttpServer proxy = server(new InetSocketAddress("127.0.0.1", 0), exchange -> {
+            proxiedUri.set(exchange.getRequestURI().toString());
+            respond(exchange, 200);
+        });
+        Properties previous = (Properties) System.getProperties().clone();
+        try {
+            System.setProperty("http.proxyHost", "127.0.0.1");
+            System.setProperty("http.proxyPort", String.valueOf(proxy.getAddress().getPort()));
+            // Replaces the default list, which leaves loopback out of the proxy.
+            System.setProperty("http.nonProxyHosts", "direct.invalid");
+            client(new NotificationDeliveryProperties());
+        } finally {
+            System.setProperties(previous);
+        }
+
+        // .invalid never resolves, so this only succeeds through the proxy.
+        post("http://destination.invalid/hook").get(5, TimeUnit.SECONDS);
+
+        assertThat(proxiedUri).hasValue("http://destination.invalid/hook");
+    }
+
+    private NotificationDeliveryException catchDeliveryException(String url) {
+        try {
+            client.post("Webhook", url, new HttpHeaders(), "{}").block();
+        } catch (NotificationDeliveryException e) {
+            return e;
+        }
+        throw new AssertionError("expected NotificationDeliveryException to be thrown");
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StubHandler {
+        void handle(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+}
@@ -3,7 +3,6 @@ package io.terrakube.api.plugin.notification.sender;
 import java.time.Duration;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
-import io.terrakube.api.plugin.proxy.RestTemplateFactory;
 import io.terrakube.api.rs.notification.NotificationChannelType;
 import io.terrakube.api.rs.notification.NotificationConfiguration;
 import org.junit.jupiter.api.AfterEach;
@@ -19,7 +18,9 @@ class SlackSenderTest {
 
     private WireMockServer wireMockServer;
     // block-private-destinations off: WireMock runs on localhost, which is a loopback address.
-    private final SlackSender sender = new SlackSender(RestTemplateFactory.build(), new DestinationUrlValidator(false));
+    private final NotificationHttpClient client = new NotificationHttpClient(new DestinationUrlValidator(false),
+            new NotificationDeliveryProperties());
+    private final SlackSender sender = new SlackSender(client);
 
     @BeforeEach
     void setUp() {
@@ -30,6 +31,7 @@ class SlackSenderTest {
     @AfterEach
     void tearDown() {
         wireMockServer.stop();
+        client.shutdown();
     }
 
     private NotificationConfiguration configuration() {
@@ -43,7 +45,7 @@ class SlackSenderTest {
     void postsBlockKitPayloadToIncomingWebhookUrl() {
         wireMockServer.stubFor(post(urlPathEqualTo("/services/X/Y/Z")).willReturn(aResponse().withStatus(200).withBody("ok")));
 
-        sender.send(configuration(), "{\"text\":\"fallback\",\"attachments\":[{\"blocks\":[]}]}");
+        sender.send(configuration(), "{\"text\":\"fallback\",\"attachments\":[{\"blocks\":[]}]}").block();
 
         wireMockServer.verify(postRequestedFor(urlPathEqualTo("/services/X/Y/Z")));
     }
@@ -65,8 +67,8 @@ class SlackSenderTest {
     void throwsNotificationDeliveryExceptionOnNon2xxResponse() {
         wireMockServer.stubFor(post(urlPathEqualTo("/services/X/Y/Z")).willReturn(aResponse().withStatus(404)));
 
-        assertThatThrownBy(() -> sender.send(configuration(), "{}"))
-                .isInstanceOf(NotificationDeliveryException.class);
+        assertThatThrownBy(() -> sender.send(configuration(), "{}").block())
+                .isInstanceOf(NotificationDeliveryException.class).block();
     }
 
     @Test
@@ -91,7 +93,7 @@ class SlackSenderTest {
 
     private NotificationDeliveryException catchDeliveryException() {
         try {
-            sender.send(configuration(), "{}");
+            sender.send(configuration(), "{}").block();
         } catch (NotificationDeliveryException e) {
             return e;
         }
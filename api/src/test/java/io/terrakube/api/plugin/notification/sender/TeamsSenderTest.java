@@ -1,7 +1,6 @@
 package io.terrakube.api.plugin.notification.sender;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
-import io.terrakube.api.plugin.proxy.RestTemplateFactory;
 import io.terrakube.api.rs.notification.NotificationChannelType;
 import io.terrakube.api.rs.notification.NotificationConfiguration;
 import org.junit.jupiter.api.AfterEach;
@@ -16,7 +15,9 @@ class TeamsSenderTest {
 
     private WireMockServer wireMockServer;
     // block-private-destinations off: WireMock runs on localhost, which is a loopback address.
-    private final TeamsSender sender = new TeamsSender(RestTemplateFactory.build(), new DestinationUrlValidator(false));
+    private final NotificationHttpClient client = new NotificationHttpClient(new DestinationUrlValidator(false),
+            new NotificationDeliveryProperties());
+    private final TeamsSender sender = new TeamsSender(client);
 
     @BeforeEach
     void setUp() {
@@ -27,6 +28,7 @@ class TeamsSenderTest {
     @AfterEach
     void tearDown() {
         wireMockServer.stop();
+        client.shutdown();
     }
 
     private NotificationConfiguration configuration() {
@@ -40,7 +42,7 @@ class TeamsSenderTest {
     void postsAdaptiveCardPayloadToIncomingWebhookUrl() {
         wireMockServer.stubFor(post(urlPathEqualTo("/webhookb2/X")).willReturn(aResponse().withStatus(200)));
 
-        sender.send(configuration(), "{\"type\":\"AdaptiveCard\"}");
+        sender.send(configuration(), "{\"type\":\"AdaptiveCard\"}").block();
 
         wireMockServer.verify(postRequestedFor(urlPathEqualTo("/webhookb2/X")));
     }
@@ -65,7 +67,7 @@ class TeamsSenderTest {
 
     private NotificationDeliveryException catchDeliveryException() {
         try {
-            sender.send(configuration(), "{}");
+            sender.send(configuration(), "{}").block();
         } catch (NotificationDeliveryException e) {
             return e;
         }
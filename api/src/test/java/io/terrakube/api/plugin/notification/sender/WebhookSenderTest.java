@@ -7,7 +7,6 @@ import java.time.format.DateTimeFormatter;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import io.terrakube.api.plugin.notification.payload.HmacSigner;
-import io.terrakube.api.plugin.proxy.RestTemplateFactory;
 import io.terrakube.api.rs.notification.NotificationChannelType;
 import io.terrakube.api.rs.notification.NotificationConfiguration;
 import org.junit.jupiter.api.AfterEach;
@@ -23,7 +22,9 @@ class WebhookSenderTest {
 
     private WireMockServer wireMockServer;
     // block-private-destinations off: WireMock runs on localhost, which is a loopback address.
-    private final WebhookSender sender = new WebhookSender(RestTemplateFactory.build(), new DestinationUrlValidator(false));
+    private final NotificationHttpClient client = new NotificationHttpClient(new DestinationUrlValidator(false),
+            new NotificationDeliveryProperties());
+    private final WebhookSender sender = new WebhookSender(client);
 
     @BeforeEach
     void setUp() {
@@ -34,6 +35,7 @@ class WebhookSenderTest {
     @AfterEach
     void tearDown() {
         wireMockServer.stop();
+        client.shutdown();
     }
 
     private NotificationConfiguration configuration(String path, String secret) {
@@ -50,7 +52,7 @@ class WebhookSenderTest {
                 .withHeader("Content-Type", equalTo("application/json"))
                 .willReturn(aResponse().withStatus(200)));
 
-        sender.send(configuration("/hook", null), "{\"a\":1}");
+        sender.send(configuration("/hook", null), "{\"a\":1}").block();
 
         wireMockServer.verify(postRequestedFor(urlPathEqualTo("/hook"))
                 .withoutHeader("X-Terrakube-Signature"));
@@ -64,7 +66,7 @@ class WebhookSenderTest {
                 .withHeader("X-Terrakube-Signature", equalTo(expectedSignature))
                 .willReturn(aResponse().withStatus(200)));
 
-        sender.send(configuration("/hook", "my-secret"), payload);
+        sender.send(configuration("/hook", "my-secret"), payload).block();
 
         wireMockServer.verify(postRequestedFor(urlPathEqualTo("/hook")));
     }
@@ -73,8 +75,8 @@ class WebhookSenderTest {
     void throwsNotificationDeliveryExceptionOnNon2xxResponse() {
         wireMockServer.stubFor(post(urlPathEqualTo("/hook")).willReturn(aResponse().withStatus(500)));
 
-        assertThatThrownBy(() -> sender.send(configuration("/hook", null), "{}"))
-                .isInstanceOf(NotificationDeliveryException.class);
+        assertThatThrownBy(() -> sender.send(configuration("/hook", null), "{}").block())
+                .isInstanceOf(NotificationDeliveryException.class).block();
     }
 
     @Test
@@ -111,7 +113,7 @@ class WebhookSenderTest {
 
     private NotificationDeliveryException catchDeliveryException() {
         try {
-            sender.send(configuration("/hook", null), "{}");
+            sender.send(configuration("/hook", null), "{}").block();
         } catch (NotificationDeliveryException e) {
             return e;
         }
@@ -0,0 +1,173 @@
+package io.terrakube.api.plugin.proxy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the cache against a map-backed Redis shared by every cache instance of a test, so two
+ * instances behave like two API replicas.
+ */
+class RegistryResponseCacheTest {
+
+    private final Map<String, Object> redis = new ConcurrentHashMap<>();
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    private final ValueOperations<String, Object> values = mock(ValueOperations.class);
+    private final List<RegistryResponseCache> caches = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        doReturn(values).when(redisTemplate).opsForValue();
+        doAnswer(invocation -> redis.get(invocation.<String>getArgument(0))).when(values).get(anyString());
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(values).set(anyString(), any(), any(Duration.class));
+        doAnswer(invocation -> redis.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null)
+                .when(values).setIfAbsent(anyString(), any(), any(Duration.class));
+        doAnswer(invocation -> redis.remove(invocation.<String>getArgument(0)) != null)
+                .when(redisTemplate).delete(anyString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        caches.forEach(RegistryResponseCache::shutdown);
+    }
+
+    private RegistryResponseCache cache(int freshSeconds) {
+        RegistryProxyCacheProperties properties = new RegistryProxyCacheProperties();
+        properties.setFreshSeconds(freshSeconds);
+        properties.setStaleSeconds(60);
+        RegistryResponseCache cache = new RegistryResponseCache(redisTemplate, properties);
+        caches.add(cache);
+        return cache;
+    }
+
+    @Test
+    void servesAFreshResponseWithoutAskingTheRegistryAgain() throws Exception {
+        RegistryResponseCache cache = cache(300);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(cache.get("providers:20:aws", () -> "aws-" + calls.incrementAndGet())).isEqualTo("aws-1");
+        assertThat(cache.get("providers:20:aws", () -> "aws-" + calls.incrementAndGet())).isEqualTo("aws-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void sharesResponsesBetweenReplicasThroughRedis() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        cache(300).get("modules:20:vpc", () -> "vpc-" + calls.incrementAndGet());
+
+        assertThat(cache(300).get("modules:20:vpc", () -> "vpc-" + calls.incrementAndGet())).isEqualTo("vpc-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void servesAStaleResponseWhileOneBackgroundRefreshReplacesIt() throws Exception {
+        RegistryResponseCache cache = cache(0);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        cache.get("versions:hashicorp/aws", () -> "v" + calls.incrementAndGet());
+
+        RegistryResponseCache.Upstream slowRegistry = () -> {
+            release.await(10, TimeUnit.SECONDS);
+            return "v" + calls.incrementAndGet();
+        };
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.get("versions:hashicorp/aws", slowRegistry)).isEqualTo("v1");
+        }
+        // A second replica finds the refresh already taken.
+        assertThat(cache(0).get("versions:hashicorp/aws", slowRegistry)).isEqualTo("v1");
+        assertThat(calls).hasValue(1);
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (calls.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(calls).hasValue(2);
+        while (redis.keySet().stream().anyMatch(key -> key.contains("refreshing:"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(cache.get("versions:hashicorp/aws", () -> "v" + calls.incrementAndGet())).isEqualTo("v2");
+    }
+
+    @Test
+    void coalescesConcurrentMissesIntoOneRegistryCall() throws Exception {
+        RegistryResponseCache cache = cache(300);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RegistryResponseCache.Upstream slowRegistry = () -> {
+            calls.incrementAndGet();
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return "gcp";
+        };
+
+        ExecutorService requests = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(requests.submit(() -> cache.get("providers:20:gcp", slowRegistry)));
+            }
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<String> response : responses) {
+                assertThat(response.get(5, TimeUnit.SECONDS)).isEqualTo("gcp");
+            }
+            assertThat(calls).hasValue(1);
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+
+    @Test
+    void doesNotKeepAFailedResponse() throws Exception {
+        RegistryResponseCache cache = cache(300);
+
+        assertThatThrownBy(() -> cache.get("modules:20:eks", () -> {
+            throw new IllegalStateException("registry unavailable");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("registry unavailable");
+
+        assertThat(cache.get("modules:20:eks", () -> "eks")).isEqualTo("eks");
+    }
+
+    @Test
+    void keepsCachingInMemoryWhenRedisIsDown() throws Exception {
+        doThrow(new RedisConnectionFailureException("connection refused")).when(redisTemplate).opsForValue();
+        RegistryResponseCache cache = cache(300);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("download:hashicorp/aws/5.0.0/linux/amd64", () -> "zip-" + calls.incrementAndGet());
+
+        assertThat(cache.get("download:hashicorp/aws/5.0.0/linux/amd64", () -> "zip-" + calls.incrementAndGet()))
+                .isEqualTo("zip-1");
+    }
+}
@@ -34,11 +34,15 @@ import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.Scheduler;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import graphql.Assert;
 import io.terrakube.api.helpers.FailUnkownMethod;
+import io.terrakube.api.plugin.logs.LogStreamRetentionService;
 import io.terrakube.api.plugin.notification.JobNotificationTrigger;
 import io.terrakube.api.plugin.scheduler.job.tcl.TclService;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutionException;
@@ -55,8 +59,7 @@ import io.terrakube.api.plugin.variable.InvalidVariableCategoryException;
 import io.terrakube.api.plugin.variable.WorkspaceVariableValidationService;
 import io.terrakube.api.plugin.vcs.PrCommentService;
 import io.terrakube.api.plugin.vcs.WebhookService;
-import io.terrakube.api.plugin.vcs.provider.github.GitHubWebhookService;
-import io.terrakube.api.plugin.vcs.provider.gitlab.GitLabWebhookService;
+import io.terrakube.api.plugin.vcs.status.CommitStatusPublisher;
 import io.terrakube.api.repository.GlobalVarRepository;
 import io.terrakube.api.repository.JobRepository;
 import io.terrakube.api.repository.ScheduleRepository;
@@ -90,12 +93,11 @@ public class ScheduleJobTest {
     WorkspaceRepository workspaceRepository;
     SoftDeleteService softDeleteService;
     ScheduleJobService scheduleJobService;
-    GitHubWebhookService gitHubWebhookService;
     PrCommentService prCommentService;
     ScheduleRepository scheduleRepository;
     TemplateRepository templateRepository;
     EphemeralExecutorService ephemeralExecutorService;
-    GitLabWebhookService gitLabWebhookService;
+    CommitStatusPublisher commitStatusPublisher;
     GlobalVarRepository globalVarRepository;
     VariableRepository variableRepository;
     WorkspaceVariableValidationService workspaceVariableValidationService;
@@ -103,6 +105,7 @@ public class ScheduleJobTest {
     ValueOperations<String, Object> valueOperations;
     PlatformTransactionManager transactionManager;
     JobNotificationTrigger jobNotificationTrigger;
+    LogStreamRetentionService logStreamRetentionService = mock(LogStreamRetentionService.class);
 
     UUID stepId = UUID.randomUUID();
 
@@ -115,11 +118,10 @@ public class ScheduleJobTest {
         workspaceRepository = mock(WorkspaceRepository.class, new FailUnkownMethod<WorkspaceRepository>());
         softDeleteService = mock(SoftDeleteService.class, new FailUnkownMethod<SoftDeleteService>());
         scheduleJobService = mock(ScheduleJobService.class, new FailUnkownMethod<ScheduleJobService>());
-        gitHubWebhookService = mock(GitHubWebhookService.class, new FailUnkownMethod<GitHubWebhookService>());
         prCommentService = mock(PrCommentService.class, new FailUnkownMethod<PrCommentService>());
         scheduleRepository = mock(ScheduleRepository.class, new FailUnkownMethod<ScheduleRepository>());
         templateRepository = mock(TemplateRepository.class, new FailUnkownMethod<TemplateRepository>());
-        gitLabWebhookService = mock(GitLabWebhookService.class, new FailUnkownMethod<GitLabWebhookService>());
+        commitStatusPublisher = mock(CommitStatusPublisher.class, new FailUnkownMethod<CommitStatusPublisher>());
         globalVarRepository = mock(GlobalVarRepository.class, new FailUnkownMethod<GlobalVarRepository>());
         variableRepository = mock(VariableRepository.class, new FailUnkownMethod<VariableRepository>());
         workspaceVariableValidationService = mock(
@@ -152,7 +154,7 @@ public class ScheduleJobTest {
         return new ScheduleJob(
                 scheduleRepository,
                 templateRepository,
-                gitLabWebhookService,
+                commitStatusPublisher,
                 jobRepository,
                 stepRepository,
                 tclService,
@@ -161,14 +163,13 @@ public class ScheduleJobTest {
                 softDeleteService,
                 scheduleJobService,
                 redisTemplate,
-                gitHubWebhookService,
-                null,
                 prCommentService,
                 globalVarRepository,
                 variableRepository,
                 workspaceVariableValidationService,
                 transactionManager,
-                jobNotificationTrigger);
+                jobNotificationTrigger,
+                logStreamRetentionService);
     }
 
     private Job job(JobStatus status) {
@@ -207,11 +208,11 @@ public class ScheduleJobTest {
         doReturn(job).when(jobRepository).save(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         Assertions.assertTrue(subject().runExecution(job));
 
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.unknown, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.unknown, null);
         Assertions.assertEquals(JobStatus.failed, job.getStatus());
     }
 
@@ -223,7 +224,7 @@ public class ScheduleJobTest {
         doReturn(job).when(jobRepository).save(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doThrow(new RuntimeException("Boom!")).when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doThrow(new RuntimeException("Boom!")).when(commitStatusPublisher).publish(any(), any(), any());
 
         Assertions.assertTrue(subject().runExecution(job));
 
@@ -288,14 +289,14 @@ public class ScheduleJobTest {
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
         doThrow(new ExecutionException(new Exception("Boom!"))).when(executorService).execute(any(), any(), any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         // Seems odd that we do not remove the job from the scheduler?
         Assert.assertTrue(subject().runExecution(job));
 
         verify(jobRepository, times(1)).save(job);
         verify(workspaceRepository, times(1)).save(job.getWorkspace());
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.unknown, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.unknown, null);
         Assertions.assertEquals(JobStatus.failed, job.getStatus());
         Assertions.assertEquals(JobStatus.failed, job.getStep().get(0).getStatus());
     }
@@ -323,7 +324,7 @@ public class ScheduleJobTest {
         doReturn(job.getStep().get(0)).when(stepRepository).getReferenceById(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         // A malformed legacy variable must fail the job outright, not leave it pending/retrying.
         Assertions.assertTrue(subject().runExecution(job));
@@ -358,7 +359,7 @@ public class ScheduleJobTest {
         doReturn(job.getStep().get(0)).when(stepRepository).getReferenceById(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         Assertions.assertTrue(subject().runExecution(job));
 
@@ -395,7 +396,7 @@ public class ScheduleJobTest {
 
         verify(jobRepository, times(0)).save(any());
         verify(stepRepository, times(0)).save(any());
-        verify(gitLabWebhookService, times(0)).sendCommitStatus(any(), any(), any());
+        verify(commitStatusPublisher, times(0)).publish(any(), any(), any());
         Assertions.assertEquals(JobStatus.pending, job.getStatus());
     }
 
@@ -427,7 +428,7 @@ public class ScheduleJobTest {
         verify(executorService, times(0)).execute(any(), any(), any());
         verify(jobRepository, times(0)).save(any());
         verify(stepRepository, times(0)).save(any());
-        verify(gitLabWebhookService, times(0)).sendCommitStatus(any(), any(), any());
+        verify(commitStatusPublisher, times(0)).publish(any(), any(), any());
         Assertions.assertEquals(JobStatus.pending, job.getStatus());
     }
 
@@ -689,11 +690,11 @@ public class ScheduleJobTest {
         doReturn(job).when(jobRepository).save(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         Assert.assertTrue(subject().runExecution(job));
 
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.unknown, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.unknown, null);
         Assertions.assertEquals(JobStatus.failed, job.getStatus());
         Assertions.assertEquals(JobStatus.failed, job.getStep().get(0).getStatus());
     }
@@ -721,14 +722,14 @@ public class ScheduleJobTest {
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
         doReturn(job).when(jobRepository).save(any());
 
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         // Seems odd that we do not remove the job from the scheduler?
         Assert.assertTrue(subject().runExecution(job));
 
         verify(jobRepository, times(1)).save(job);
         verify(workspaceRepository, times(2)).save(job.getWorkspace());
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.completed, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.completed, null);
         Assertions.assertEquals(JobStatus.completed, job.getStatus());
         verify(jobNotificationTrigger, times(1)).notifyStatusChanged(job);
     }
@@ -784,13 +785,13 @@ public class ScheduleJobTest {
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
         doThrow(new ExecutionException(new Exception("Boom!"))).when(executorService).execute(any(), any(), any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         // TODO Could be true with no extra scheduling, because we know we are done
         Assert.assertTrue(subject().runExecution(job));
 
         verify(workspaceRepository, times(1)).save(job.getWorkspace());
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.unknown, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.unknown, null);
         Assertions.assertEquals(JobStatus.failed, job.getStatus());
         Assertions.assertEquals(JobStatus.failed, job.getStep().get(0).getStatus());
     }
@@ -821,7 +822,7 @@ public class ScheduleJobTest {
         Assert.assertFalse(subject().runExecution(job));
 
         verify(stepRepository, times(0)).save(any());
-        verify(gitLabWebhookService, times(0)).sendCommitStatus(any(), any(), any());
+        verify(commitStatusPublisher, times(0)).publish(any(), any(), any());
         Assertions.assertEquals(JobStatus.approved, job.getStatus());
     }
 
@@ -855,7 +856,7 @@ public class ScheduleJobTest {
                          anyList(),
                          anyInt());
          doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
-         doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+         doNothing().when(commitStatusPublisher).publish(any(), any(), any());
          doNothing().when(jobRepository).delete(any());
           // Passed directly to other mock, so list does not matter
          doReturn(Collections.emptyList()).when(stepRepository).findByJobId(anyInt());
@@ -897,7 +898,7 @@ public class ScheduleJobTest {
                         anyList(),
                         anyInt());
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
         doNothing().when(jobRepository).delete(any());
         // Passed directly to other mock, so list does not matter
         doReturn(Collections.emptyList()).when(stepRepository).findByJobId(anyInt());
@@ -944,7 +945,7 @@ public class ScheduleJobTest {
                         anyList(),
                         anyInt());
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
         doReturn(job).when(jobRepository).save(any());
         doReturn(Collections.emptyList()).when(stepRepository).findByJobId(anyInt());
 
@@ -962,12 +963,12 @@ public class ScheduleJobTest {
         Job job = job(JobStatus.completed);
         doReturn(Optional.of("Plan: 2 to add, 0 to change, 1 to destroy."))
                 .when(prCommentService).extractRunSummary(job);
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         subject().updateJobStatusOnVcs(job, JobStatus.completed);
 
-        verify(gitLabWebhookService, times(1))
-                .sendCommitStatus(job, JobStatus.completed, "Plan: 2 to add, 0 to change, 1 to destroy.");
+        verify(commitStatusPublisher, times(1))
+                .publish(job, JobStatus.completed, "Plan: 2 to add, 0 to change, 1 to destroy.");
     }
 
     @Test
@@ -987,12 +988,12 @@ public class ScheduleJobTest {
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         Assert.assertTrue(subject().runExecution(job));
 
         verify(workspaceRepository, times(1)).save(job.getWorkspace());
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.completed, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.completed, null);
         Assertions.assertEquals(JobStatus.notExecuted, job.getStep().get(0).getStatus());
     }
 
@@ -1014,7 +1015,7 @@ public class ScheduleJobTest {
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
         doReturn(job).when(jobRepository).getReferenceById(job.getId());
         lenient().doReturn(true).when(redisTemplate).delete(anyString());
 
@@ -1063,11 +1064,11 @@ public class ScheduleJobTest {
         doReturn(null).when(stepRepository).save(any());
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
 
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
 
         Assert.assertTrue(subject().runExecution(job));
 
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.failed, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.failed, null);
         Assertions.assertEquals(JobStatus.failed, job.getStep().get(0).getStatus());
     }
 
@@ -1292,7 +1293,7 @@ public class ScheduleJobTest {
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
         doNothing().when(prCommentService).postApplyResult(any());
         doNothing().when(prCommentService).acknowledgeCompletion(any());
 
@@ -1326,7 +1327,7 @@ public class ScheduleJobTest {
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
         doNothing().when(prCommentService).postPlanResult(any());
         doNothing().when(prCommentService).acknowledgeCompletion(any());
 
@@ -1349,7 +1350,7 @@ public class ScheduleJobTest {
         doReturn(job.getWorkspace()).when(workspaceRepository).save(any());
         doReturn(job.getStep()).when(stepRepository).findByJobId(anyInt());
         doReturn(null).when(stepRepository).save(any());
-        doNothing().when(gitLabWebhookService).sendCommitStatus(any(), any(), any());
+        doNothing().when(commitStatusPublisher).publish(any(), any(), any());
     }
 
     private Flow approvalFlowWithOnReject() {
@@ -1384,7 +1385,7 @@ public class ScheduleJobTest {
         Assertions.assertEquals(flow.getOnReject(), flowCaptor.getValue().getCommands());
         Assertions.assertEquals(JobStatus.rejected, job.getStatus());
         Assertions.assertEquals(JobStatus.failed, job.getStep().get(0).getStatus());
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.failed, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.failed, null);
     }
 
     @Test
@@ -1416,6 +1417,33 @@ public class ScheduleJobTest {
 
         Assertions.assertEquals(JobStatus.rejected, job.getStatus());
         Assertions.assertEquals(JobStatus.failed, job.getStep().get(0).getStatus());
-        verify(gitLabWebhookService, times(1)).sendCommitStatus(job, JobStatus.failed, null);
+        verify(commitStatusPublisher, times(1)).publish(job, JobStatus.failed, null);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void logsAreArchivedOnlyOnceTheJobsTransactionCommits() {
+        Job job = job(JobStatus.completed);
+        job.getOrganization().setId(UUID.randomUUID());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            subject().archiveLogsAfterCommit(job);
+
+            verify(logStreamRetentionService, never()).archiveAndDeleteAsync(anyInt(), any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(logStreamRetentionService).archiveAndDeleteAsync(job.getId(),
+                job.getOrganization().getId().toString());
+    }
+
+    @Test
+    public void aFullLogArchivePoolLeavesTheStreamsToTheSweeper() {
+        Job job = job(JobStatus.completed);
+        doThrow(new TaskRejectedException("full")).when(logStreamRetentionService).archiveAndDeleteAsync(anyInt(),
+                any());
+
+        Assertions.assertDoesNotThrow(() -> subject().archiveLogsAfterCommit(job));
+    }
+}
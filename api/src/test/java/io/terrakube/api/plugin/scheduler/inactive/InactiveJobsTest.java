@@ -0,0 +1,103 @@
+package io.terrakube.api.plugin.scheduler.inactive;
+
+import io.terrakube.api.plugin.scheduler.SweepLock;
+import io.terrakube.api.plugin.vcs.status.CommitStatusPublisher;
+import io.terrakube.api.repository.JobRepository;
+import io.terrakube.api.repository.StepRepository;
+import io.terrakube.api.rs.job.Job;
+import io.terrakube.api.rs.job.JobStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class InactiveJobsTest {
+
+    JobRepository jobRepository;
+    StepRepository stepRepository;
+    RedisTemplate<String, Object> redisTemplate;
+    CommitStatusPublisher commitStatusPublisher;
+    SweepLock sweepLock;
+    PlatformTransactionManager transactionManager;
+    JobExecutionContext jobExecutionContext;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        jobRepository = mock(JobRepository.class);
+        stepRepository = mock(StepRepository.class);
+        redisTemplate = mock(RedisTemplate.class);
+        commitStatusPublisher = mock(CommitStatusPublisher.class);
+        sweepLock = mock(SweepLock.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        jobExecutionContext = mock(JobExecutionContext.class);
+        doReturn(mock(Scheduler.class)).when(jobExecutionContext).getScheduler();
+        doReturn(List.of()).when(stepRepository).findByJobId(anyInt());
+    }
+
+    private InactiveJobs subject() {
+        return new InactiveJobs(commitStatusPublisher, jobRepository, redisTemplate, stepRepository, sweepLock,
+                transactionManager);
+    }
+
+    // Jobs of a deleted workspace: closing them needs no VCS status.
+    private static List<Job> jobs(int fromId, int toId) {
+        return IntStream.rangeClosed(fromId, toId).mapToObj(id -> {
+            Job job = new Job();
+            job.setId(id);
+            job.setStatus(JobStatus.running);
+            job.setCreatedDate(new Date(0));
+            return job;
+        }).toList();
+    }
+
+    private void expiredJobsAfter(int afterId, List<Job> page) {
+        doReturn(page).when(jobRepository).findByStatusInAndCreatedDateBeforeAndIdGreaterThanOrderByIdAsc(
+                eq(InactiveJobs.INACTIVE_STATUSES), any(Date.class), eq(afterId), eq(Limit.of(InactiveJobs.PAGE_SIZE)));
+    }
+
+    @Test
+    void closesEveryExpiredJobAPageAtATimeAndReleasesTheLockAfterTheLastCommit() throws Exception {
+        doReturn("token").when(sweepLock).tryAcquire(eq(InactiveJobs.SWEEP), any(Duration.class));
+        expiredJobsAfter(0, jobs(1, InactiveJobs.PAGE_SIZE));
+        expiredJobsAfter(InactiveJobs.PAGE_SIZE, jobs(InactiveJobs.PAGE_SIZE + 1, InactiveJobs.PAGE_SIZE + 1));
+
+        subject().execute(jobExecutionContext);
+
+        verify(jobRepository, times(InactiveJobs.PAGE_SIZE + 1)).updateStatusById(eq(JobStatus.failed), anyInt());
+        verify(jobRepository).updateStatusById(JobStatus.failed, InactiveJobs.PAGE_SIZE + 1);
+        InOrder inOrder = inOrder(transactionManager, sweepLock);
+        inOrder.verify(transactionManager, times(2)).commit(any());
+        inOrder.verify(sweepLock).release(InactiveJobs.SWEEP, "token");
+    }
+
+    @Test
+    void skipsTheTickWhileAnotherReplicaHoldsTheLock() throws Exception {
+        doReturn(null).when(sweepLock).tryAcquire(eq(InactiveJobs.SWEEP), any(Duration.class));
+
+        subject().execute(jobExecutionContext);
+
+        verifyNoInteractions(jobRepository, transactionManager);
+        verify(sweepLock, never()).release(any(), any());
+    }
+}
@@ -4,19 +4,27 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.terrakube.api.helpers.FailUnkownMethod;
 import io.terrakube.api.plugin.scheduler.job.tcl.model.Command;
 import io.terrakube.api.plugin.scheduler.job.tcl.model.Flow;
@@ -36,6 +44,7 @@ public class TclServiceTest {
     StepRepository stepRepository;
     TemplateRepository templateRepository;
     VcsRepository vcsRepository;
+    SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     public void setup() {
@@ -43,10 +52,11 @@ public class TclServiceTest {
         stepRepository = mock(StepRepository.class, new FailUnkownMethod<StepRepository>());
         templateRepository = mock(TemplateRepository.class, new FailUnkownMethod<TemplateRepository>());
         vcsRepository = mock(VcsRepository.class, new FailUnkownMethod<VcsRepository>());
+        meterRegistry = new SimpleMeterRegistry();
     }
 
     private TclService subject() {
-        return new TclService(jobRepository, stepRepository, templateRepository, vcsRepository);
+        return new TclService(jobRepository, stepRepository, templateRepository, vcsRepository, meterRegistry);
     }
 
     private String encodeYaml(String yaml) {
@@ -271,6 +281,126 @@ public class TclServiceTest {
         Assertions.assertEquals("echo rejected", command.getScript());
     }
 
+    @Test
+    public void getNextFlow_returnsACopySoChangesDoNotLeakIntoTheCachedTemplate() {
+        String yaml = """
+            flow:
+              - type: approval
+                step: 150
+                commands:
+                  - runtime: BASH
+                    priority: 100
+                    before: true
+                    script: "echo approve"
+                onReject:
+                  - runtime: BASH
+                    priority: 100
+                    after: true
+                    script: "echo rejected"
+            """;
+
+        Step step = new Step();
+        step.setId(UUID.randomUUID());
+        step.setStepNumber(150);
+        step.setStatus(JobStatus.pending);
+
+        Job job = new Job();
+        job.setId(4711);
+        job.setTcl(encodeYaml(yaml));
+
+        doReturn(List.of(step)).when(stepRepository).findByJobId(4711);
+
+        TclService subject = subject();
+        Flow rejected = subject.getNextFlow(job);
+        // What ScheduleJob does when the approval is rejected.
+        rejected.setCommands(rejected.getOnReject());
+
+        Flow next = subject.getNextFlow(job);
+        Assertions.assertNotSame(rejected, next);
+        Assertions.assertEquals("echo approve", next.getCommands().get(0).getScript());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> next.getCommands().clear());
+        Assertions.assertEquals("approval", subject.getFlowTypeForStep(job, 150));
+    }
+
+    @Test
+    public void getFlowTypeForStep_timesEachLookupByCacheOutcome() {
+        String yaml = """
+            flow:
+              - type: terraformPlan
+                step: 100
+              - type: terraformApply
+                step: 200
+            """;
+
+        Job job = new Job();
+        job.setId(4712);
+        job.setTcl(encodeYaml(yaml));
+
+        TclService subject = subject();
+        Assertions.assertEquals("terraformPlan", subject.getFlowTypeForStep(job, 100));
+        Assertions.assertEquals("terraformApply", subject.getFlowTypeForStep(job, 200));
+        Assertions.assertEquals("terraformPlan", subject.getFlowTypeForStep(job, 100));
+
+        Assertions.assertEquals(1, meterRegistry.get("terrakube.tcl.flow.config").tag("cache", "miss").timer().count());
+        Assertions.assertEquals(2, meterRegistry.get("terrakube.tcl.flow.config").tag("cache", "hit").timer().count());
+    }
+
+    private RevCommit commitCommands(Git git, String script) throws Exception {
+        File commands = new File(git.getRepository().getWorkTree(), "library/commands.yaml");
+        FileUtils.writeStringToFile(commands, """
+            commands:
+              - runtime: BASH
+                priority: 100
+                before: true
+                script: "%s"
+            """.formatted(script), StandardCharsets.UTF_8);
+        git.add().addFilepattern("library/commands.yaml").call();
+        return git.commit().setMessage(script)
+                .setAuthor("Terrakube Test", "test@example.com")
+                .setCommitter("Terrakube Test", "test@example.com")
+                .call();
+    }
+
+    @Test
+    public void getNextFlow_importsCommandsForTheCurrentRevisionAndCleansUp(@TempDir Path testHome) throws Exception {
+        String userHome = System.getProperty("user.home");
+        System.setProperty("user.home", testHome.toString());
+        File library = testHome.resolve("library-repository").toFile();
+        try (Git libraryGit = Git.init().setDirectory(library).call()) {
+            commitCommands(libraryGit, "echo v1");
+            String yaml = """
+                flow:
+                  - type: terraformPlan
+                    step: 100
+                    importCommands:
+                      repository: "%s"
+                      branch: "%s"
+                      folder: "/library/"
+                """.formatted(library.toURI(), libraryGit.getRepository().getBranch());
+
+            Step step = new Step();
+            step.setId(UUID.randomUUID());
+            step.setStepNumber(100);
+            step.setStatus(JobStatus.pending);
+            Job job = new Job();
+            job.setId(4711);
+            job.setTcl(encodeYaml(yaml));
+            doReturn(List.of(step)).when(stepRepository).findByJobId(4711);
+
+            TclService subject = subject();
+            Assertions.assertEquals("echo v1", subject.getNextFlow(job).getCommands().get(0).getScript());
+            Assertions.assertEquals("echo v1", subject.getNextFlow(job).getCommands().get(0).getScript());
+
+            commitCommands(libraryGit, "echo v2");
+            Assertions.assertEquals("echo v2", subject.getNextFlow(job).getCommands().get(0).getScript());
+
+            File importDirectory = testHome.resolve(".terraform-spring-boot/importCommands").toFile();
+            Assertions.assertEquals(0, importDirectory.list().length);
+        } finally {
+            System.setProperty("user.home", userHome);
+        }
+    }
+
     @Test
     public void initJobConfiguration_locksJobBeforeCreatingSteps_soAConcurrentCallSeesThemAlreadyCreated() {
         String yaml = """
@@ -4,23 +4,20 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot.ResolvedVariable;
 import io.terrakube.api.plugin.scheduler.job.tcl.model.Flow;
 import io.terrakube.api.plugin.scheduler.job.tcl.model.FlowType;
-import io.terrakube.api.repository.VariableRepository;
 import io.terrakube.api.repository.WorkspaceRepository;
 import io.terrakube.api.rs.job.Job;
 import io.terrakube.api.rs.ssh.Ssh;
 import io.terrakube.api.rs.vcs.Vcs;
 import io.terrakube.api.rs.workspace.Workspace;
 import io.terrakube.api.rs.workspace.parameters.Category;
-import io.terrakube.api.rs.workspace.parameters.Variable;
 import io.terrakube.api.rs.job.address.Address;
 import io.terrakube.api.rs.job.address.AddressType;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -31,9 +28,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 @ExtendWith(MockitoExtension.class)
 class ExecutorServiceTest {
 
-    @Mock
-    private VariableRepository variableRepository;
-
     @Mock
     private WorkspaceRepository workspaceRepository;
 
@@ -61,21 +55,13 @@ class ExecutorServiceTest {
 
     @Test
     void shouldRouteTerraformAndEnvVariablesToTheirRespectiveMaps() throws ExecutionException {
-        Variable terraformVariable = new Variable();
-        terraformVariable.setKey("instance_type");
-        terraformVariable.setValue("t3.micro");
-        terraformVariable.setCategory(Category.TERRAFORM);
-
-        Variable envVariable = new Variable();
-        envVariable.setKey("AWS_REGION");
-        envVariable.setValue("us-east-1");
-        envVariable.setCategory(Category.ENV);
-
-        when(variableRepository.findByWorkspace(workspace)).thenReturn(Optional.of(List.of(terraformVariable, envVariable)));
+        ResolvedVariable terraformVariable = new ResolvedVariable("instance_type", "t3.micro", Category.TERRAFORM, false);
+        ResolvedVariable envVariable = new ResolvedVariable("AWS_REGION", "us-east-1", Category.ENV, false);
 
         HashMap<String, String> terraformVariables = new HashMap<>();
         HashMap<String, String> environmentVariables = new HashMap<>();
-        executorService.splitWorkspaceVariablesByCategory(job, terraformVariables, environmentVariables);
+        executorService.splitWorkspaceVariablesByCategory(job, List.of(terraformVariable, envVariable),
+                terraformVariables, environmentVariables);
 
         assertThat(terraformVariables).containsEntry("instance_type", "t3.micro");
         assertThat(environmentVariables).containsEntry("AWS_REGION", "us-east-1");
@@ -83,14 +69,10 @@ class ExecutorServiceTest {
 
     @Test
     void shouldFailClearlyWithWorkspaceAndKeyWhenCategoryIsNull() {
-        Variable malformedVariable = new Variable();
-        malformedVariable.setKey("LEGACY_VAR");
-        malformedVariable.setValue("super-secret");
-        malformedVariable.setCategory(null);
-
-        when(variableRepository.findByWorkspace(workspace)).thenReturn(Optional.of(List.of(malformedVariable)));
+        ResolvedVariable malformedVariable = new ResolvedVariable("LEGACY_VAR", "super-secret", null, false);
 
-        assertThatThrownBy(() -> executorService.splitWorkspaceVariablesByCategory(job, new HashMap<>(), new HashMap<>()))
+        assertThatThrownBy(() -> executorService.splitWorkspaceVariablesByCategory(job, List.of(malformedVariable),
+                new HashMap<>(), new HashMap<>()))
                 .isInstanceOf(ExecutionException.class)
                 .hasMessageContaining("my-workspace")
                 .hasMessageContaining("LEGACY_VAR")
@@ -99,11 +81,9 @@ class ExecutorServiceTest {
 
     @Test
     void shouldNotThrowWhenWorkspaceHasNoVariables() throws ExecutionException {
-        when(variableRepository.findByWorkspace(workspace)).thenReturn(Optional.empty());
-
         HashMap<String, String> terraformVariables = new HashMap<>();
         HashMap<String, String> environmentVariables = new HashMap<>();
-        executorService.splitWorkspaceVariablesByCategory(job, terraformVariables, environmentVariables);
+        executorService.splitWorkspaceVariablesByCategory(job, List.of(), terraformVariables, environmentVariables);
 
         assertThat(terraformVariables).isEmpty();
         assertThat(environmentVariables).isEmpty();
@@ -0,0 +1,151 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import io.terrakube.api.repository.GlobalVarRepository;
+import io.terrakube.api.repository.ReferenceRepository;
+import io.terrakube.api.repository.VariableRepository;
+import io.terrakube.api.rs.Organization;
+import io.terrakube.api.rs.collection.Collection;
+import io.terrakube.api.rs.collection.Reference;
+import io.terrakube.api.rs.collection.item.Item;
+import io.terrakube.api.rs.globalvar.Globalvar;
+import io.terrakube.api.rs.job.Job;
+import io.terrakube.api.rs.workspace.Workspace;
+import io.terrakube.api.rs.workspace.parameters.Category;
+import io.terrakube.api.rs.workspace.parameters.Variable;
+
+@ExtendWith(MockitoExtension.class)
+class JobVariableSnapshotServiceTest {
+
+    @Mock
+    private VariableRepository variableRepository;
+
+    @Mock
+    private GlobalVarRepository globalVarRepository;
+
+    @Mock
+    private ReferenceRepository referenceRepository;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    @InjectMocks
+    private JobVariableSnapshotService jobVariableSnapshotService;
+
+    private Job job;
+    private Workspace workspace;
+    private Organization organization;
+
+    @BeforeEach
+    void setUp() {
+        organization = new Organization();
+        workspace = new Workspace();
+        job = new Job();
+        job.setId(7);
+        job.setOrganization(organization);
+        job.setWorkspace(workspace);
+
+        Variable variable = new Variable();
+        variable.setKey("instance_type");
+        variable.setValue("t3.micro");
+        variable.setCategory(Category.TERRAFORM);
+        when(variableRepository.findByWorkspace(workspace)).thenReturn(Optional.of(List.of(variable)));
+
+        Globalvar globalvar = new Globalvar();
+        globalvar.setKey("TERRAKUBE_DEFAULT_EXECUTOR");
+        globalvar.setValue("http://executor:8090");
+        globalvar.setCategory(Category.ENV);
+        when(globalVarRepository.findByOrganization(organization)).thenReturn(List.of(globalvar));
+
+        when(referenceRepository.findByWorkspaceWithItems(workspace))
+                .thenReturn(List.of(reference("low", 1, "REGION", "us-east-1"), reference("high", 10, "REGION", "eu-west-1")));
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    private Reference reference(String name, int priority, String key, String value) {
+        Item item = new Item();
+        item.setKey(key);
+        item.setValue(value);
+        item.setCategory(Category.ENV);
+        Collection collection = new Collection();
+        collection.setName(name);
+        collection.setPriority(priority);
+        collection.setItem(List.of(item));
+        Reference reference = new Reference();
+        reference.setCollection(collection);
+        return reference;
+    }
+
+    @Test
+    void shouldResolveEverythingOnceAndOrderCollectionsByPriority() {
+        when(valueOperations.increment(anyString(), anyLong())).thenReturn(3L);
+
+        JobVariableSnapshot snapshot = jobVariableSnapshotService.snapshot(job);
+
+        assertThat(snapshot.workspaceVariables()).extracting(JobVariableSnapshot.ResolvedVariable::key)
+                .containsExactly("instance_type");
+        assertThat(snapshot.globalVariable("TERRAKUBE_DEFAULT_EXECUTOR")).isPresent();
+        assertThat(snapshot.globalVariable(Category.TERRAFORM, "TERRAKUBE_DEFAULT_EXECUTOR")).isEmpty();
+        assertThat(snapshot.collections()).extracting(JobVariableSnapshot.CollectionVariables::name)
+                .containsExactly("high", "low");
+    }
+
+    @Test
+    void shouldReuseTheSnapshotAcrossStepsUntilTheGenerationChanges() {
+        when(valueOperations.increment(anyString(), anyLong())).thenReturn(3L, 3L, 4L);
+
+        JobVariableSnapshot first = jobVariableSnapshotService.snapshot(job);
+        JobVariableSnapshot second = jobVariableSnapshotService.snapshot(job);
+        JobVariableSnapshot afterChange = jobVariableSnapshotService.snapshot(job);
+
+        assertThat(second).isSameAs(first);
+        assertThat(afterChange).isNotSameAs(first);
+        verify(variableRepository, times(2)).findByWorkspace(workspace);
+        verify(globalVarRepository, times(2)).findByOrganization(organization);
+        verify(referenceRepository, times(2)).findByWorkspaceWithItems(workspace);
+    }
+
+    @Test
+    void shouldReadEveryTimeWhenTheGenerationIsUnavailable() {
+        when(valueOperations.increment(anyString(), anyLong())).thenThrow(new IllegalStateException("redis down"));
+
+        jobVariableSnapshotService.snapshot(job);
+        jobVariableSnapshotService.snapshot(job);
+
+        verify(variableRepository, times(2)).findByWorkspace(workspace);
+    }
+
+    @Test
+    void shouldDropSnapshotsWhenVariablesChange() {
+        when(valueOperations.increment(anyString(), anyLong())).thenReturn(3L);
+
+        JobVariableSnapshot first = jobVariableSnapshotService.snapshot(job);
+        jobVariableSnapshotService.variablesChanged();
+        JobVariableSnapshot second = jobVariableSnapshotService.snapshot(job);
+
+        assertThat(second).isNotSameAs(first);
+        verify(valueOperations).increment(JobVariableSnapshotService.GENERATION_KEY);
+    }
+}
@@ -58,6 +58,7 @@ public class EphemeralExecutorServiceTest {
     MixedOperation jobs = mock(MixedOperation.class);
     NonNamespaceOperation namespaced = mock(NonNamespaceOperation.class);
     ScalableResource resource = mock(ScalableResource.class);
+    WarmPodPool warmPodPool = mock(WarmPodPool.class);
 
     @Captor
     ArgumentCaptor<io.fabric8.kubernetes.api.model.batch.v1.Job> job;
@@ -81,7 +82,7 @@ public class EphemeralExecutorServiceTest {
     }
 
     private EphemeralExecutorService subject() {
-        return new EphemeralExecutorService(client, config);
+        return new EphemeralExecutorService(client, config, warmPodPool);
     }
 
     private Job job() {
@@ -108,6 +109,18 @@ public class EphemeralExecutorServiceTest {
         return map;
     }
 
+    @Test
+    public void jobTakenByWarmPoolCreatesNoKubernetesJob() throws ExecutionException {
+        ExecutorContext context = context();
+        doReturn(true).when(warmPodPool).offer(context);
+        // Keep strict mock happy
+        client.batch().v1().jobs().inNamespace("null").resource(null).serverSideApply();
+
+        subject().send(job(), context);
+
+        verify(resource, times(1)).serverSideApply();
+    }
+
     @Test
     public void setImage() throws ExecutionException {
         subject().send(job(), context());
@@ -0,0 +1,339 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor.ephemeral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.kubernetes.api.model.batch.v1.Job;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorContext;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.ephemeral.WarmPoolProperties.Profile;
+
+/**
+ * Runs the pool against fabric8's in-memory Kubernetes API server and a map-backed Redis, with the test
+ * playing the part of the warm pods.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+@EnableKubernetesMockClient(crud = true)
+public class WarmPodPoolTest {
+
+    static KubernetesClient client;
+    private static final AtomicInteger namespaces = new AtomicInteger();
+    private static final String KEY = "terrakube:warm-pool:default";
+
+    RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    HashOperations hashes = mock(HashOperations.class);
+    ListOperations lists = mock(ListOperations.class);
+    ValueOperations values = mock(ValueOperations.class);
+
+    Map<String, Map<Object, Object>> hashStore = new ConcurrentHashMap<>();
+    Map<String, LinkedList<Object>> listStore = new ConcurrentHashMap<>();
+    Map<String, Long> counterStore = new ConcurrentHashMap<>();
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    EphemeralConfiguration config = new EphemeralConfiguration();
+    WarmPoolProperties properties = new WarmPoolProperties();
+    Profile profile = new Profile();
+
+    @BeforeEach
+    void setup() {
+        config.setNamespace("warm-" + namespaces.incrementAndGet());
+        config.setImage("ze-image:ze-label");
+        config.setSecret(List.of("ze-secret"));
+        config.setNodeSelector(Map.of());
+
+        profile.setName("default");
+        profile.setMinIdle(1);
+        profile.setMaxIdle(5);
+        properties.setEnabled(true);
+        properties.setProfiles(List.of(profile));
+
+        doReturn(hashes).when(redisTemplate).opsForHash();
+        doReturn(lists).when(redisTemplate).opsForList();
+        doReturn(values).when(redisTemplate).opsForValue();
+
+        doAnswer(inv -> (long) hash(inv.getArgument(0)).size()).when(hashes).size(anyString());
+        doAnswer(inv -> new HashMap<>(hash(inv.getArgument(0)))).when(hashes).entries(anyString());
+        doAnswer(inv -> new HashSet<>(hash(inv.getArgument(0)).keySet())).when(hashes).keys(anyString());
+        doAnswer(inv -> {
+            hash(inv.getArgument(0)).put(inv.getArgument(1), inv.getArgument(2));
+            return null;
+        }).when(hashes).put(anyString(), any(), any());
+        doAnswer(inv -> {
+            Object[] arguments = inv.getArguments();
+            long removed = 0;
+            for (int i = 1; i < arguments.length; i++) {
+                removed += hash((String) arguments[0]).remove(arguments[i]) == null ? 0 : 1;
+            }
+            return removed;
+        }).when(hashes).delete(anyString(), any(Object[].class));
+
+        doAnswer(inv -> (long) list(inv.getArgument(0)).size()).when(lists).size(anyString());
+        doAnswer(inv -> {
+            list(inv.getArgument(0)).addFirst(inv.getArgument(1));
+            return (long) list(inv.getArgument(0)).size();
+        }).when(lists).leftPush(anyString(), any());
+        doAnswer(inv -> {
+            list(inv.getArgument(0)).addLast(inv.getArgument(1));
+            return (long) list(inv.getArgument(0)).size();
+        }).when(lists).rightPush(anyString(), any());
+        doAnswer(inv -> List.copyOf(list(inv.getArgument(0)))).when(lists).range(anyString(), anyLong(), anyLong());
+        doAnswer(inv -> list(inv.getArgument(0)).remove(inv.getArgument(2)) ? 1L : 0L).when(lists)
+                .remove(anyString(), anyLong(), any());
+
+        doReturn(true).when(values).setIfAbsent(anyString(), any(), any(Duration.class));
+        doAnswer(inv -> counterStore.merge(inv.getArgument(0), 1L, Long::sum)).when(values).increment(anyString());
+        doAnswer(inv -> counterStore.merge(inv.getArgument(0), (Long) inv.getArgument(1), Long::sum)).when(values)
+                .increment(anyString(), anyLong());
+    }
+
+    private Map<Object, Object> hash(String key) {
+        return hashStore.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+    }
+
+    private LinkedList<Object> list(String key) {
+        return listStore.computeIfAbsent(key, k -> new LinkedList<>());
+    }
+
+    private WarmPodPool subject() {
+        return new WarmPodPool(client, config, properties, redisTemplate, meterRegistry);
+    }
+
+    private List<Job> jobs() {
+        return client.batch().v1().jobs().inNamespace(config.getNamespace()).list().getItems();
+    }
+
+    private List<Job> warmJobs() {
+        return client.batch().v1().jobs().inNamespace(config.getNamespace())
+                .withLabel(WarmPodPool.PROFILE_LABEL, "default").list().getItems();
+    }
+
+    private Map<String, String> env(Job job) {
+        return job.getSpec().getTemplate().getSpec().getContainers().getFirst().getEnv().stream()
+                .collect(Collectors.toMap(EnvVar::getName, EnvVar::getValue));
+    }
+
+    private ExecutorContext context(Map<String, String> environmentVariables) {
+        return ExecutorContext.builder()
+                .jobId("42")
+                .stepId("ze-step")
+                .organizationId("ze-org")
+                .workspaceId("ze-workspace")
+                .environmentVariables(new HashMap<>(environmentVariables))
+                .build();
+    }
+
+    // What a warm pod does on start-up and when it pops a job, see the executor's WarmPoolWaiter.
+    private void podWaits(Job warmJob) {
+        hash(KEY + WarmPodPool.IDLE).put(warmJob.getMetadata().getName(), String.valueOf(System.currentTimeMillis()));
+    }
+
+    private String podClaims(Job warmJob) {
+        Object entry = list(KEY + WarmPodPool.QUEUE).pollLast();
+        assertNotNull(entry);
+        String member = warmJob.getMetadata().getName();
+        hash(KEY + WarmPodPool.IDLE).remove(member);
+        hash(KEY + WarmPodPool.CLAIMS).put(member,
+                String.valueOf(entry).split("\\|")[0] + ":" + System.currentTimeMillis());
+        return String.valueOf(entry);
+    }
+
+    // What WarmPoolFirstLog adds once the claimed job published its first log line.
+    private void podLogs(Job warmJob) {
+        hash(KEY + WarmPodPool.CLAIMS).computeIfPresent(warmJob.getMetadata().getName(),
+                (member, claim) -> claim + ":" + System.currentTimeMillis());
+    }
+
+    private Timer timer(String name) {
+        return meterRegistry.find(name).tag("profile", "default").timer();
+    }
+
+    @Test
+    public void startsMinIdleWarmPods() {
+        profile.setMinIdle(2);
+        profile.setCpuRequest("500m");
+
+        subject().reconcile();
+
+        List<Job> warm = warmJobs();
+        assertEquals(2, warm.size());
+        Job job = warm.getFirst();
+        assertEquals(0, job.getSpec().getBackoffLimit());
+        assertEquals(KEY, env(job).get("EphemeralWarmPool"));
+        assertEquals(job.getMetadata().getName(), env(job).get("EphemeralWarmPoolMember"));
+        assertEquals("true", env(job).get("EphemeralFlagBatch"));
+        assertNull(env(job).get("EphemeralJobData"));
+        assertEquals("500m", job.getSpec().getTemplate().getSpec().getContainers().getFirst()
+                .getResources().getRequests().get("cpu").toString());
+    }
+
+    @Test
+    public void doesNotStartMorePodsWhileEnoughAreAvailable() {
+        WarmPodPool pool = subject();
+        pool.reconcile();
+        pool.reconcile();
+
+        assertEquals(1, warmJobs().size());
+    }
+
+    @Test
+    public void handsJobToIdleWarmPodAndRecordsQueueToFirstLogLatency() throws InterruptedException {
+        WarmPodPool pool = subject();
+        pool.reconcile();
+        Job warmJob = warmJobs().getFirst();
+        podWaits(warmJob);
+
+        assertTrue(pool.offer(context(Map.of())));
+        // Nothing but the warm pod itself exists in the cluster: the job didn't need a pod of its own.
+        assertEquals(1, jobs().size());
+
+        Thread.sleep(25);
+        String entry = podClaims(warmJob);
+        assertTrue(entry.contains("|42|ze-org|ze-workspace|"));
+
+        pool.reconcile();
+
+        // Claimed but nothing logged yet: both waits are recorded together once the first line is out.
+        assertNull(timer(WarmPodPool.CLAIM_METRIC));
+        // The claimed pod no longer counts as available, so a replacement was started.
+        assertEquals(2, warmJobs().size());
+
+        Thread.sleep(25);
+        podLogs(warmJob);
+        pool.reconcile();
+
+        Timer claim = timer(WarmPodPool.CLAIM_METRIC);
+        Timer firstLog = timer(WarmPodPool.FIRST_LOG_METRIC);
+        assertNotNull(claim);
+        assertNotNull(firstLog);
+        assertEquals(1, claim.count());
+        assertEquals(1, firstLog.count());
+        assertTrue(claim.totalTime(TimeUnit.MILLISECONDS) >= 25);
+        assertTrue(firstLog.totalTime(TimeUnit.MILLISECONDS) >= 50);
+        assertTrue(firstLog.totalTime(TimeUnit.MILLISECONDS) >= claim.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2, warmJobs().size());
+
+        pool.reconcile();
+        assertEquals(1, claim.count());
+        assertEquals(1, firstLog.count());
+        assertEquals(1, meterRegistry.counter("terrakube.executor.ephemeral.dispatch", "profile", "default",
+                "path", "warm").count());
+    }
+
+    @Test
+    public void recordsTheClaimOfAPodThatFinishedWithoutLogging() {
+        WarmPodPool pool = subject();
+        pool.reconcile();
+        Job warmJob = warmJobs().getFirst();
+        podWaits(warmJob);
+        assertTrue(pool.offer(context(Map.of())));
+        podClaims(warmJob);
+
+        client.batch().v1().jobs().inNamespace(config.getNamespace()).withName(warmJob.getMetadata().getName())
+                .delete();
+        pool.reconcile();
+
+        assertEquals(1, timer(WarmPodPool.CLAIM_METRIC).count());
+        assertNull(timer(WarmPodPool.FIRST_LOG_METRIC));
+        assertFalse(hash(KEY + WarmPodPool.CLAIMS).containsKey(warmJob.getMetadata().getName()));
+    }
+
+    @Test
+    public void goesColdWithoutIdlePodAndGrowsThePool() {
+        profile.setMaxIdle(3);
+        WarmPodPool pool = subject();
+
+        assertFalse(pool.offer(context(Map.of())));
+        assertFalse(pool.offer(context(Map.of())));
+        assertEquals(2, meterRegistry.counter("terrakube.executor.ephemeral.dispatch", "profile", "default",
+                "path", "cold").count());
+
+        pool.reconcile();
+
+        assertEquals(3, warmJobs().size());
+        assertEquals(0L, counterStore.get(KEY + WarmPodPool.MISSES));
+    }
+
+    @Test
+    public void startsUnclaimedJobCold() {
+        properties.setClaimTimeoutSeconds(60);
+        long queuedLongAgo = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(120);
+        list(KEY + WarmPodPool.QUEUE).add(
+                new WarmPodPool.Entry(queuedLongAgo, "42", "ze-org", "ze-workspace", "ze-data").serialize());
+
+        subject().reconcile();
+
+        assertTrue(list(KEY + WarmPodPool.QUEUE).isEmpty());
+        Job cold = jobs().stream().filter(job -> job.getMetadata().getName().startsWith("job-42-")).findFirst()
+                .orElseThrow();
+        assertEquals("ze-data", env(cold).get("EphemeralJobData"));
+        assertEquals("ze-org", cold.getMetadata().getLabels().get("terrakube.io/organization"));
+        assertNull(cold.getMetadata().getLabels().get(WarmPodPool.PROFILE_LABEL));
+    }
+
+    @Test
+    public void keepsRecentlyQueuedJobForTheWarmPods() {
+        list(KEY + WarmPodPool.QUEUE).add(
+                new WarmPodPool.Entry(System.currentTimeMillis(), "42", "ze-org", "ze-workspace", "ze-data").serialize());
+
+        subject().reconcile();
+
+        assertEquals(1, list(KEY + WarmPodPool.QUEUE).size());
+        assertTrue(jobs().stream().noneMatch(job -> job.getMetadata().getName().startsWith("job-42-")));
+    }
+
+    @Test
+    public void onlyJobsMatchingAProfileExactlyUseThePool() {
+        profile.setMemoryRequest("1Gi");
+        WarmPodPool pool = subject();
+
+        assertTrue(pool.profileFor(Map.of("EPHEMERAL_MEMORY_REQUEST", "1Gi")).isPresent());
+        assertTrue(pool.profileFor(Map.of()).isEmpty());
+        assertTrue(pool.profileFor(Map.of("EPHEMERAL_MEMORY_REQUEST", "2Gi")).isEmpty());
+        assertTrue(pool.profileFor(Map.of("EPHEMERAL_MEMORY_REQUEST", "1Gi", "EPHEMERAL_CPU_LIMIT", "1")).isEmpty());
+        assertTrue(pool.profileFor(Map.of("EPHEMERAL_MEMORY_REQUEST", "1Gi",
+                "EPHEMERAL_CONFIG_NODE_SELECTOR_TAGS", "disk=ssd")).isEmpty());
+    }
+
+    @Test
+    public void disabledPoolDoesNothing() {
+        properties.setEnabled(false);
+        WarmPodPool pool = subject();
+
+        assertFalse(pool.offer(context(Map.of())));
+        pool.reconcile();
+
+        assertTrue(jobs().isEmpty());
+        assertTrue(counterStore.isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package io.terrakube.api.plugin.scheduler.job.tcl.executor.persistent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+public class ExecutorRegistryTest {
+
+    private static final String POOL = "http://terrakube-executor-service:8090/api/v1/terraform-rs";
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private HashOperations<String, Object, Object> hashOperations;
+    private ValueOperations<String, Object> valueOperations;
+    private ExecutorRegistry subject;
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    void setup() {
+        redisTemplate = mock(RedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        valueOperations = mock(ValueOperations.class);
+        doReturn(hashOperations).when(redisTemplate).opsForHash();
+        doReturn(valueOperations).when(redisTemplate).opsForValue();
+        subject = new ExecutorRegistry(redisTemplate, new PersistentExecutorClientProperties());
+    }
+
+    @Test
+    public void returnsOnlyLiveReplicasWithAFreeSlotAndDropsStaleOnes() {
+        long now = System.currentTimeMillis();
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        entries.put("http://10.0.0.1:8090/api/v1/terraform-rs", "1:" + now);
+        entries.put("http://10.0.0.2:8090/api/v1/terraform-rs", "0:" + now);
+        entries.put("http://10.0.0.3:8090/api/v1/terraform-rs", "1:" + (now - Duration.ofMinutes(5).toMillis()));
+        doReturn(entries).when(hashOperations).entries(ExecutorRegistry.REGISTRY_PREFIX + POOL);
+
+        ExecutorRegistry.Replicas replicas = subject.replicas(POOL + "/");
+
+        assertTrue(replicas.registered());
+        assertEquals(List.of("http://10.0.0.1:8090/api/v1/terraform-rs"), replicas.free());
+        verify(hashOperations).delete(ExecutorRegistry.REGISTRY_PREFIX + POOL,
+                "http://10.0.0.3:8090/api/v1/terraform-rs");
+    }
+
+    @Test
+    public void poolWithoutLiveRegistrationsIsUnregistered() {
+        doReturn(Map.of("http://10.0.0.3:8090/api/v1/terraform-rs", "1:0"))
+                .when(hashOperations).entries(anyString());
+
+        assertFalse(subject.replicas(POOL).registered());
+    }
+
+    @Test
+    public void redisFailureFallsBackToThePoolUrl() {
+        doThrow(new RedisConnectionFailureException("down")).when(hashOperations).entries(anyString());
+
+        assertFalse(subject.replicas(POOL).registered());
+    }
+
+    @Test
+    public void aReplicaCanOnlyBeClaimedOnce() {
+        doReturn(true, false).when(valueOperations).setIfAbsent(anyString(), eq("1"), any(Duration.class));
+
+        assertTrue(subject.claim("http://10.0.0.1:8090/api/v1/terraform-rs"));
+        assertFalse(subject.claim("http://10.0.0.1:8090/api/v1/terraform-rs"));
+    }
+}
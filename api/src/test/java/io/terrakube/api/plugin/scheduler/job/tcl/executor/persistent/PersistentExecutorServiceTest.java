@@ -1,9 +1,12 @@
 package io.terrakube.api.plugin.scheduler.job.tcl.executor.persistent;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -11,8 +14,9 @@ import static org.mockito.Mockito.verify;
 
 import java.net.URISyntaxException;
 import java.util.HashMap;
-import java.util.Optional;
+import java.util.List;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.terrakube.api.helpers.FailUnkownMethod;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -32,17 +36,18 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutionException;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorContext;
 import io.terrakube.api.plugin.scheduler.job.tcl.executor.ExecutorUnavailableException;
-import io.terrakube.api.repository.GlobalVarRepository;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot;
+import io.terrakube.api.plugin.scheduler.job.tcl.executor.JobVariableSnapshot.ResolvedVariable;
 import io.terrakube.api.rs.Organization;
 import io.terrakube.api.rs.agent.Agent;
-import io.terrakube.api.rs.globalvar.Globalvar;
 import io.terrakube.api.rs.job.Job;
 import io.terrakube.api.rs.workspace.Workspace;
+import io.terrakube.api.rs.workspace.parameters.Category;
 import reactor.core.publisher.Mono;
 
 public class PersistentExecutorServiceTest {
 
-    private GlobalVarRepository globalVarRepository;
+    private JobVariableSnapshot variables;
     private Builder webClientBuilder;
 
     private WebClient webClient;
@@ -52,12 +57,13 @@ public class PersistentExecutorServiceTest {
     private RequestHeadersSpec requestHeadersSpec;
     private ResponseSpec responseSpec;
     private ResponseEntity<ExecutorContext> responseEntity;
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorRegistry executorRegistry;
 
     @SuppressWarnings("unchecked")
     @BeforeEach
     void setup() {
-        globalVarRepository = mock(GlobalVarRepository.class, new FailUnkownMethod<>());
-        doReturn(Optional.ofNullable(null)).when(globalVarRepository).findByOrganizationAndKey(any(), any());
+        variables = new JobVariableSnapshot(List.of(), List.of(), List.of());
 
         webClientBuilder = mock(WebClient.Builder.class, new FailUnkownMethod<>());
         webClient = mock(WebClient.class, new FailUnkownMethod<>());
@@ -78,14 +84,24 @@ public class PersistentExecutorServiceTest {
         doReturn(requestHeadersSpec).when(requestBodySpec).bodyValue(any(ExecutorContext.class));
         doReturn(responseSpec).when(requestHeadersSpec).retrieve();
         doReturn(Mono.just(responseEntity)).when(responseSpec).toEntity(ExecutorContext.class);
+        meterRegistry = new SimpleMeterRegistry();
+        // No replica registered for any pool unless a test says otherwise.
+        executorRegistry = mock(ExecutorRegistry.class);
+        doReturn(ExecutorRegistry.Replicas.UNREGISTERED).when(executorRegistry).replicas(anyString());
     }
 
-    private PersistentExecutorService subject() {
-        PersistentExecutorService persistentExecutorService = spy(new PersistentExecutorService(
+    private PersistentExecutorService unstubbedSubject() {
+        return new PersistentExecutorService(
                 "http://default-executor/",
-                globalVarRepository,
                 webClientBuilder,
-                RandomStringUtils.randomAlphanumeric(32)));
+                RandomStringUtils.randomAlphanumeric(64),
+                new PersistentExecutorClientProperties(),
+                meterRegistry,
+                executorRegistry);
+    }
+
+    private PersistentExecutorService subject() {
+        PersistentExecutorService persistentExecutorService = spy(unstubbedSubject());
         doReturn(RandomStringUtils.randomAlphanumeric(64)).when(persistentExecutorService).generateSystemToken();
         return persistentExecutorService;
     }
@@ -121,6 +137,11 @@ public class PersistentExecutorServiceTest {
                 .build();
     }
 
+    private static JobVariableSnapshot defaultExecutor(String url) {
+        return new JobVariableSnapshot(List.of(), List.of(
+                new ResolvedVariable("TERRAKUBE_DEFAULT_EXECUTOR", url, Category.ENV, false)), List.of());
+    }
+
     private ExecutorContext response() {
         return ExecutorContext.builder().build();
     }
@@ -130,7 +151,7 @@ public class PersistentExecutorServiceTest {
         doReturn(HttpStatus.ACCEPTED).when(responseEntity).getStatusCode();
         doReturn(response()).when(responseEntity).getBody();
 
-        subject().send(jobOnDefaultExecutor(), context());
+        subject().send(jobOnDefaultExecutor(), context(), variables);
 
         verify(requestBodyUriSpec).uri("http://default-executor/");
         verify(requestHeadersSpec, times(1)).retrieve();
@@ -138,11 +159,9 @@ public class PersistentExecutorServiceTest {
 
     @Test
     public void propagatesMalformedUri() throws ExecutionException {
-        Globalvar executorUrl = new Globalvar();
-        executorUrl.setValue("http:// /");
-        doReturn(Optional.of(executorUrl)).when(globalVarRepository).findByOrganizationAndKey(any(), any());
+        variables = defaultExecutor("http:// /");
 
-        assertThrows(ExecutionException.class, () -> subject().send(jobOnDefaultExecutor(), context()));
+        assertThrows(ExecutionException.class, () -> subject().send(jobOnDefaultExecutor(), context(), variables));
 
         verify(requestHeadersSpec, times(0)).retrieve();
     }
@@ -152,7 +171,7 @@ public class PersistentExecutorServiceTest {
         doReturn(HttpStatus.BAD_REQUEST).when(responseEntity).getStatusCode();
         doReturn(response()).when(responseEntity).getBody();
 
-        assertThrows(ExecutionException.class, () -> subject().send(jobOnDefaultExecutor(), context()));
+        assertThrows(ExecutionException.class, () -> subject().send(jobOnDefaultExecutor(), context(), variables));
 
         verify(requestHeadersSpec, times(1)).retrieve();
     }
@@ -163,20 +182,18 @@ public class PersistentExecutorServiceTest {
                 503, "Service Unavailable", HttpHeaders.EMPTY, new byte[0], null);
         doReturn(Mono.error(busy)).when(responseSpec).toEntity(ExecutorContext.class);
 
-        assertThrows(ExecutorUnavailableException.class, () -> subject().send(jobOnDefaultExecutor(), context()));
+        assertThrows(ExecutorUnavailableException.class, () -> subject().send(jobOnDefaultExecutor(), context(), variables));
 
         verify(requestHeadersSpec, times(1)).retrieve();
     }
 
     @Test
     public void postsToConfiguredExecutor() throws ExecutionException, URISyntaxException {
-        Globalvar executorUrl = new Globalvar();
-        executorUrl.setValue("http://ze-executor/");
-        doReturn(Optional.of(executorUrl)).when(globalVarRepository).findByOrganizationAndKey(any(), any());
+        variables = defaultExecutor("http://ze-executor/");
         doReturn(HttpStatus.ACCEPTED).when(responseEntity).getStatusCode();
         doReturn(response()).when(responseEntity).getBody();
 
-        subject().send(jobOnDefaultExecutor(), context());
+        subject().send(jobOnDefaultExecutor(), context(), variables);
 
         verify(requestBodyUriSpec).uri("http://ze-executor/api/v1/terraform-rs");
         verify(requestHeadersSpec, times(1)).retrieve();
@@ -187,9 +204,74 @@ public class PersistentExecutorServiceTest {
         doReturn(HttpStatus.ACCEPTED).when(responseEntity).getStatusCode();
         doReturn(response()).when(responseEntity).getBody();
 
-        subject().send(jobOnAgent(), context());
+        subject().send(jobOnAgent(), context(), variables);
 
         verify(requestBodyUriSpec).uri("http://ze-agent/api/v1/terraform-rs");
         verify(requestHeadersSpec, times(1)).retrieve();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sharesOneClientAcrossExecutorsAndRecordsDispatches() throws ExecutionException {
+        doReturn(HttpStatus.ACCEPTED).when(responseEntity).getStatusCode();
+        doReturn(response()).when(responseEntity).getBody();
+        PersistentExecutorService subject = subject();
+
+        subject.send(jobOnDefaultExecutor(), context(), variables);
+        subject.send(jobOnDefaultExecutor(), context(), variables);
+        subject.send(jobOnAgent(), context(), variables);
+
+        verify(webClientBuilder, times(1)).build();
+        assertEquals(2, meterRegistry.get("terrakube.executor.dispatch")
+                .tag("executor", "http://default-executor").tag("outcome", "accepted").timer().count());
+        assertEquals(1, meterRegistry.get("terrakube.executor.dispatch")
+                .tag("executor", "http://ze-agent").timer().count());
+    }
+
+    @Test
+    public void reusesTheSystemTokenUntilCloseToExpiry() {
+        PersistentExecutorService subject = unstubbedSubject();
+
+        assertEquals(subject.generateSystemToken(), subject.generateSystemToken());
+    }
+
+    @Test
+    public void routesToAFreeRegisteredReplica() throws ExecutionException {
+        doReturn(HttpStatus.ACCEPTED).when(responseEntity).getStatusCode();
+        doReturn(response()).when(responseEntity).getBody();
+        doReturn(new ExecutorRegistry.Replicas(true, List.of("http://10.0.0.7:8090/api/v1/terraform-rs")))
+                .when(executorRegistry).replicas("http://default-executor/");
+        doReturn(true).when(executorRegistry).claim(anyString());
+        PersistentExecutorService subject = subject();
+
+        subject.send(jobOnDefaultExecutor(), context(), variables);
+
+        verify(requestBodyUriSpec).uri("http://10.0.0.7:8090/api/v1/terraform-rs");
+        verify(executorRegistry).release("http://10.0.0.7:8090/api/v1/terraform-rs");
+    }
+
+    @Test
+    public void releasesAReplicaThatRejectedTheJob() {
+        doReturn(HttpStatus.BAD_REQUEST).when(responseEntity).getStatusCode();
+        doReturn(response()).when(responseEntity).getBody();
+        doReturn(new ExecutorRegistry.Replicas(true, List.of("http://10.0.0.7:8090/api/v1/terraform-rs")))
+                .when(executorRegistry).replicas("http://default-executor/");
+        doReturn(true).when(executorRegistry).claim(anyString());
+        PersistentExecutorService subject = subject();
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> subject.send(jobOnDefaultExecutor(), context(), variables));
+
+        assertFalse(e instanceof ExecutorUnavailableException);
+        verify(executorRegistry).release("http://10.0.0.7:8090/api/v1/terraform-rs");
+    }
+
+    @Test
+    public void queuesWithoutPostingWhenNoRegisteredReplicaIsFree() {
+        doReturn(new ExecutorRegistry.Replicas(true, List.of())).when(executorRegistry).replicas(anyString());
+        PersistentExecutorService subject = subject();
+
+        assertThrows(ExecutorUnavailableException.class, () -> subject.send(jobOnDefaultExecutor(), context(), variables));
+
+        verify(webClient, never()).post();
+    }
+}
@@ -0,0 +1,86 @@
+package io.terrakube.api.plugin.scheduler.module;
+
+import io.terrakube.api.plugin.vcs.TokenService;
+import io.terrakube.api.plugin.vcs.provider.azdevops.AzDevOpsTokenService;
+import io.terrakube.api.rs.module.Module;
+import io.terrakube.api.rs.vcs.Vcs;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Ref;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ModuleRefreshEngineTest {
+
+    @TempDir
+    Path repository;
+
+    private ModuleRefreshEngine engine;
+
+    @BeforeEach
+    void setup() throws Exception {
+        try (Git git = Git.init().setDirectory(repository.toFile()).call()) {
+            git.commit().setMessage("initial").setAllowEmpty(true).setSign(false).call();
+            git.tag().setName("v1.0.0").call();
+            git.tag().setName("network/v2.0.0").call();
+        }
+        engine = new ModuleRefreshEngine(mock(TokenService.class), mock(AzDevOpsTokenService.class),
+                new ModuleRefreshProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    private static Module module(String source) {
+        Module module = new Module();
+        module.setId(UUID.randomUUID());
+        module.setName("module-" + module.getId());
+        module.setSource(source);
+        return module;
+    }
+
+    @Test
+    void normalizesOnlyWhatDoesNotChangeTheRepository() {
+        assertThat(ModuleRefreshEngine.normalizeSource(" https://github.com/org/modules.git/ "))
+                .isEqualTo("https://github.com/org/modules");
+        assertThat(ModuleRefreshEngine.normalizeSource("git@github.com:org/modules.git"))
+                .isEqualTo("git@github.com:org/modules");
+        assertThat(ModuleRefreshEngine.normalizeSource("https://github.com/Org/Modules"))
+                .isEqualTo("https://github.com/Org/Modules");
+    }
+
+    @Test
+    void groupsModulesByRepositoryAndCredentials() {
+        Module network = module("https://github.com/org/modules.git");
+        Module storage = module("https://github.com/org/modules");
+        Module otherCredentials = module("https://github.com/org/modules");
+        Vcs vcs = new Vcs();
+        vcs.setId(UUID.randomUUID());
+        otherCredentials.setVcs(vcs);
+
+        assertThat(ModuleRefreshEngine.groupOf(network)).isEqualTo(ModuleRefreshEngine.groupOf(storage));
+        assertThat(ModuleRefreshEngine.groupOf(otherCredentials)).isNotEqualTo(ModuleRefreshEngine.groupOf(storage));
+    }
+
+    @Test
+    void modulesOfOneRepositoryShareASingleLsRemote() throws Exception {
+        String source = repository.toUri().toString();
+        CompletableFuture<Map<String, Ref>> network = engine.tags(module(source));
+        CompletableFuture<Map<String, Ref>> storage = engine.tags(module(source + "/"));
+
+        assertThat(storage).isSameAs(network);
+        assertThat(network.get().keySet()).containsExactlyInAnyOrder("v1.0.0", "network/v2.0.0");
+        assertThat(engine.tags(module(source)).get()).isSameAs(network.get());
+    }
+}
@@ -1,6 +1,8 @@
 package io.terrakube.api.plugin.scheduler.provider;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
 import io.terrakube.api.repository.ProviderImplementationRepository;
 import io.terrakube.api.repository.ProviderRepository;
 import io.terrakube.api.repository.ProviderVersionRepository;
@@ -12,20 +14,26 @@ import org.mockito.ArgumentCaptor;
 import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
-import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
-import org.springframework.web.reactive.function.client.ClientResponse;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -48,11 +56,12 @@ class ProviderRefreshJobTest {
                 "arch", "amd64",
                 "signing_keys", Map.of("gpg_public_keys", List.of(Map.of("trust_signature", trustSignature)))
         ));
-        WebClient webClient = WebClient.builder()
-                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
-                        .body(request.url().getPath().endsWith("/versions") ? versionsResponse : downloadResponse)
-                        .build()))
-                .build();
+        HttpServer registry = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        registry.createContext("/v1/providers/coder/coderd", exchange -> StubRegistry.respond(exchange, 200,
+                exchange.getRequestURI().getPath().endsWith("/versions") ? versionsResponse : downloadResponse));
+        registry.start();
+        ProviderRefreshProperties properties = new ProviderRefreshProperties();
+        properties.setRegistryUrl("http://127.0.0.1:" + registry.getAddress().getPort());
         ProviderRepository providerRepository = mock(ProviderRepository.class);
         ProviderVersionRepository versionRepository = mock(ProviderVersionRepository.class);
         ProviderImplementationRepository implementationRepository = mock(ProviderImplementationRepository.class);
@@ -63,21 +72,185 @@ class ProviderRefreshJobTest {
         when(provider.isImported()).thenReturn(true);
         when(providerRepository.findById(providerId)).thenReturn(Optional.of(provider));
         when(versionRepository.findAllByProviderId(providerId)).thenReturn(List.of());
-        when(versionRepository.save(any(Version.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(versionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
         JobExecutionContext context = mock(JobExecutionContext.class);
         JobDetail jobDetail = mock(JobDetail.class);
         when(context.getJobDetail()).thenReturn(jobDetail);
         when(jobDetail.getJobDataMap()).thenReturn(new JobDataMap(Map.of("providerId", providerId.toString())));
 
+        ProviderRefreshJob job = job(new ProviderRegistryClient(properties), properties,
+                providerRepository, versionRepository, implementationRepository);
+        try {
+            job.execute(context);
+        } finally {
+            registry.stop(0);
+        }
+
+        ArgumentCaptor<List<Implementation>> implementations = ArgumentCaptor.forClass(List.class);
+        verify(implementationRepository).saveAll(implementations.capture());
+        assertThat(implementations.getValue()).hasSize(1);
+        assertThat(implementations.getValue().get(0).getTrustSignature()).isEqualTo(trustSignature);
+    }
+
+    @Test
+    void importsNewVersionsConcurrentlyInBatchesFromAStubRegistry() throws Exception {
+        StubRegistry registry = new StubRegistry(11);
+        try {
+            ProviderRefreshProperties properties = registry.properties();
+            properties.setConcurrency(3);
+            properties.setBatchSize(4);
+            properties.setRequestsPerSecond(0);
+            UUID providerId = UUID.randomUUID();
+            ProviderRepository providerRepository = mock(ProviderRepository.class);
+            ProviderVersionRepository versionRepository = mock(ProviderVersionRepository.class);
+            ProviderImplementationRepository implementationRepository = mock(ProviderImplementationRepository.class);
+            Provider provider = importedProvider(providerId);
+            Version existing = new Version();
+            existing.setVersionNumber("1.0.0");
+            when(providerRepository.findById(providerId)).thenReturn(Optional.of(provider));
+            when(versionRepository.findAllByProviderId(providerId)).thenReturn(List.of(existing));
+            when(versionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            job(new ProviderRegistryClient(properties), properties, providerRepository, versionRepository,
+                    implementationRepository).execute(context(providerId));
+
+            // 10 new versions in batches of 4, each batch one saveAll of versions and one of platforms.
+            ArgumentCaptor<List<Version>> versions = ArgumentCaptor.forClass(List.class);
+            verify(versionRepository, times(3)).saveAll(versions.capture());
+            assertThat(versions.getAllValues()).extracting(List::size).containsExactlyInAnyOrder(4, 4, 2);
+            assertThat(versions.getAllValues().stream().flatMap(List::stream).map(Version::getVersionNumber))
+                    .doesNotContain("1.0.0")
+                    .hasSize(10)
+                    .doesNotHaveDuplicates();
+
+            // freebsd isn't a standard platform and darwin/arm64 answers 404: linux/amd64 only.
+            ArgumentCaptor<List<Implementation>> implementations = ArgumentCaptor.forClass(List.class);
+            verify(implementationRepository, times(3)).saveAll(implementations.capture());
+            List<Implementation> saved = implementations.getAllValues().stream().flatMap(List::stream).toList();
+            assertThat(saved).hasSize(10).allMatch(implementation -> "linux".equals(implementation.getOs())
+                    && implementation.getVersion() != null);
+
+            assertThat(registry.maxInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(3);
+        } finally {
+            registry.stop();
+        }
+    }
+
+    @Test
+    void spacesRequestsToOneRegistryHost() throws Exception {
+        StubRegistry registry = new StubRegistry(1);
+        try {
+            ProviderRefreshProperties properties = registry.properties();
+            properties.setRequestsPerSecond(20);
+            ProviderRegistryClient client = new ProviderRegistryClient(properties);
+
+            long start = System.nanoTime();
+            Flux.range(0, 6)
+                    .flatMap(i -> client.implementation("hashicorp", "stub", "1.0.0", "linux", "amd64"))
+                    .blockLast(Duration.ofSeconds(10));
+
+            // Six requests at 20 per second: the last one waits for five 50ms slots.
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(240));
+            assertThat(registry.downloads.get()).isEqualTo(6);
+        } finally {
+            registry.stop();
+        }
+    }
+
+    private static Provider importedProvider(UUID providerId) {
+        Provider provider = mock(Provider.class);
+        when(provider.getId()).thenReturn(providerId);
+        when(provider.getName()).thenReturn("stub");
+        when(provider.getRegistryNamespace()).thenReturn("hashicorp");
+        when(provider.isImported()).thenReturn(true);
+        return provider;
+    }
+
+    private static JobExecutionContext context(UUID providerId) {
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        JobDetail jobDetail = mock(JobDetail.class);
+        when(context.getJobDetail()).thenReturn(jobDetail);
+        when(jobDetail.getJobDataMap()).thenReturn(new JobDataMap(Map.of("providerId", providerId.toString())));
+        return context;
+    }
+
+    private static ProviderRefreshJob job(ProviderRegistryClient client, ProviderRefreshProperties properties,
+            ProviderRepository providerRepository, ProviderVersionRepository versionRepository,
+            ProviderImplementationRepository implementationRepository) {
         ProviderRefreshJob job = new ProviderRefreshJob();
-        ReflectionTestUtils.setField(job, "webClient", webClient);
+        ReflectionTestUtils.setField(job, "providerRegistryClient", client);
+        ReflectionTestUtils.setField(job, "providerRefreshProperties", properties);
+        ReflectionTestUtils.setField(job, "transactionManager", mock(PlatformTransactionManager.class));
         ReflectionTestUtils.setField(job, "providerRepository", providerRepository);
         ReflectionTestUtils.setField(job, "providerVersionRepository", versionRepository);
         ReflectionTestUtils.setField(job, "providerImplementationRepository", implementationRepository);
-        job.execute(context);
+        return job;
+    }
+
+    /**
+     * A registry serving versions 1.0.0 to 1.0.(count-1), each published for linux/amd64,
+     * darwin/arm64 and freebsd/386, with downloads for linux only. Downloads take a moment so
+     * concurrent requests overlap.
+     */
+    private static class StubRegistry {
+
+        private final HttpServer server;
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger downloads = new AtomicInteger();
+
+        StubRegistry(int count) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/v1/providers/hashicorp/stub", exchange -> {
+                String path = exchange.getRequestURI().getPath();
+                if (path.endsWith("/versions")) {
+                    List<Map<String, Object>> versions = new ArrayList<>();
+                    for (int i = 0; i < count; i++) {
+                        versions.add(Map.of("version", "1.0." + i, "protocols", List.of("5.0"),
+                                "platforms", List.of(Map.of("os", "linux", "arch", "amd64"),
+                                        Map.of("os", "darwin", "arch", "arm64"),
+                                        Map.of("os", "freebsd", "arch", "386"))));
+                    }
+                    respond(exchange, 200, objectMapper.writeValueAsString(Map.of("versions", versions)));
+                    return;
+                }
+                downloads.incrementAndGet();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                    if (path.endsWith("/linux/amd64")) {
+                        respond(exchange, 200, objectMapper.writeValueAsString(Map.of("os", "linux", "arch", "amd64",
+                                "filename", "terraform-provider-stub_linux_amd64.zip")));
+                    } else {
+                        respond(exchange, 404, "{}");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+            server.start();
+        }
+
+        ProviderRefreshProperties properties() {
+            ProviderRefreshProperties properties = new ProviderRefreshProperties();
+            properties.setRegistryUrl("http://127.0.0.1:" + server.getAddress().getPort());
+            return properties;
+        }
+
+        void stop() {
+            server.stop(0);
+        }
 
-        ArgumentCaptor<Implementation> implementation = ArgumentCaptor.forClass(Implementation.class);
-        verify(implementationRepository).save(implementation.capture());
-        assertThat(implementation.getValue().getTrustSignature()).isEqualTo(trustSignature);
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        }
     }
 }
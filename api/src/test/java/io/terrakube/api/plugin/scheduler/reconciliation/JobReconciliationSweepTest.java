@@ -2,6 +2,7 @@ package io.terrakube.api.plugin.scheduler.reconciliation;
 
 import io.terrakube.api.helpers.FailUnkownMethod;
 import io.terrakube.api.plugin.scheduler.ScheduleJobService;
+import io.terrakube.api.plugin.scheduler.SweepLock;
 import io.terrakube.api.repository.JobRepository;
 import io.terrakube.api.repository.StepRepository;
 import io.terrakube.api.repository.WorkspaceRepository;
@@ -13,22 +14,32 @@ import org.junit.jupiter.api.Test;
 import org.quartz.JobKey;
 import org.quartz.ObjectAlreadyExistsException;
 import org.quartz.Scheduler;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.redis.RedisConnectionFailureException;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -41,6 +52,8 @@ class JobReconciliationSweepTest {
     ScheduleJobService scheduleJobService;
     RedisTemplate<String, Object> redisTemplate;
     ValueOperations<String, Object> valueOperations;
+    QuartzJobLookup quartzJobLookup;
+    SweepLock sweepLock;
 
     @BeforeEach
     void setup() {
@@ -51,7 +64,11 @@ class JobReconciliationSweepTest {
         scheduleJobService = mock(ScheduleJobService.class, new FailUnkownMethod<ScheduleJobService>());
         redisTemplate = mock(RedisTemplate.class, new FailUnkownMethod<RedisTemplate>());
         valueOperations = mock(ValueOperations.class, new FailUnkownMethod<ValueOperations>());
+        quartzJobLookup = mock(QuartzJobLookup.class, new FailUnkownMethod<QuartzJobLookup>());
+        sweepLock = mock(SweepLock.class, new FailUnkownMethod<SweepLock>());
         lenient().doReturn(valueOperations).when(redisTemplate).opsForValue();
+        lenient().doReturn("token").when(sweepLock).tryAcquire(eq(JobReconciliationSweep.SWEEP), any(Duration.class));
+        lenient().doNothing().when(sweepLock).release(JobReconciliationSweep.SWEEP, "token");
         lenient().doAnswer(invocation -> invocation.getArgument(0)).when(workspaceRepository).save(any());
         // Default to "Redis has been comfortably up for a while" so existing tests aren't
         // affected by the warm-up check; the tests specifically about it override this.
@@ -65,7 +82,23 @@ class JobReconciliationSweepTest {
     }
 
     private JobReconciliationSweep subject() {
-        return new JobReconciliationSweep(jobRepository, stepRepository, workspaceRepository, scheduler, scheduleJobService, redisTemplate);
+        return new JobReconciliationSweep(jobRepository, stepRepository, workspaceRepository, scheduler,
+                scheduleJobService, redisTemplate, quartzJobLookup, sweepLock, mock(PlatformTransactionManager.class));
+    }
+
+    private void activeJobs(Job... jobs) {
+        doReturn(List.of(jobs)).when(jobRepository)
+                .findByStatusInAndIdGreaterThanOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES, 0,
+                        Limit.of(JobReconciliationSweep.PAGE_SIZE));
+    }
+
+    private void triggersExist(String... jobNames) throws Exception {
+        doReturn(Set.of(jobNames)).when(quartzJobLookup).existing(anyList());
+    }
+
+    // multiGet answers in key order, null for a missing key.
+    private void heartbeats(List<String> keys, Object... values) {
+        doReturn(Arrays.asList(values)).when(valueOperations).multiGet(keys);
     }
 
     private Job job(int id, JobStatus status) {
@@ -80,9 +113,8 @@ class JobReconciliationSweepTest {
     @Test
     void recreatesTheTriggerForAJobWhoseQuartzContextIsMissing() throws Exception {
         Job pending = job(15, JobStatus.pending);
-        doReturn(List.of(pending)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(false).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_15"));
+        activeJobs(pending);
+        triggersExist();
         doNothing().when(scheduleJobService).createJobContext(pending);
 
         subject().execute(null);
@@ -93,9 +125,8 @@ class JobReconciliationSweepTest {
     @Test
     void leavesAJobAloneWhenItsTriggerAlreadyExists() throws Exception {
         Job pending = job(16, JobStatus.pending);
-        doReturn(List.of(pending)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(true).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_16"));
+        activeJobs(pending);
+        triggersExist("TerrakubeV2_Job_16");
 
         subject().execute(null);
 
@@ -105,9 +136,8 @@ class JobReconciliationSweepTest {
     @Test
     void swallowsAConcurrentRecreationRaceFromAnotherReplica() throws Exception {
         Job pending = job(17, JobStatus.pending);
-        doReturn(List.of(pending)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(false).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_17"));
+        activeJobs(pending);
+        triggersExist();
         doThrow(new ObjectAlreadyExistsException("already exists")).when(scheduleJobService).createJobContext(pending);
 
         subject().execute(null);
@@ -119,9 +149,8 @@ class JobReconciliationSweepTest {
     void doesNotJudgeAQueueJobYoungerThanTheGracePeriod() throws Exception {
         Job queued = job(20, JobStatus.queue);
         queued.setUpdatedDate(new Date(System.currentTimeMillis() - 5_000)); // 5s old
-        doReturn(List.of(queued)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(true).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_20"));
+        activeJobs(queued);
+        triggersExist("TerrakubeV2_Job_20");
 
         subject().execute(null);
 
@@ -132,10 +161,9 @@ class JobReconciliationSweepTest {
     void failsARunningJobPastTheGracePeriodWithNoHeartbeat() throws Exception {
         Job running = job(21, JobStatus.running);
         running.setUpdatedDate(new Date(System.currentTimeMillis() - 90_000)); // 90s old
-        doReturn(List.of(running)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(true).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_21"));
-        doReturn(false).when(redisTemplate).hasKey("executor-job-heartbeat:21");
+        activeJobs(running);
+        triggersExist("TerrakubeV2_Job_21");
+        heartbeats(List.of("executor-job-heartbeat:21"), (Object) null);
         doReturn(List.of()).when(stepRepository).findByJobId(21);
         doReturn(1).when(jobRepository).updateStatusById(JobStatus.failed, 21);
         doReturn(true).when(scheduler).deleteJob(new JobKey("TerrakubeV2_Job_21"));
@@ -155,10 +183,9 @@ class JobReconciliationSweepTest {
     void leavesARunningJobAloneWhenItsHeartbeatIsStillAlive() throws Exception {
         Job running = job(22, JobStatus.running);
         running.setUpdatedDate(new Date(System.currentTimeMillis() - 90_000));
-        doReturn(List.of(running)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(true).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_22"));
-        doReturn(true).when(redisTemplate).hasKey("executor-job-heartbeat:22");
+        activeJobs(running);
+        triggersExist("TerrakubeV2_Job_22");
+        heartbeats(List.of("executor-job-heartbeat:22"), "alive");
 
         subject().execute(null);
 
@@ -169,11 +196,10 @@ class JobReconciliationSweepTest {
     void doesNotFailAJobWhenRedisIsUnreachableDuringTheHeartbeatCheck() throws Exception {
         Job running = job(23, JobStatus.running);
         running.setUpdatedDate(new Date(System.currentTimeMillis() - 90_000));
-        doReturn(List.of(running)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(true).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_23"));
+        activeJobs(running);
+        triggersExist("TerrakubeV2_Job_23");
         doThrow(new RedisConnectionFailureException("connection refused"))
-                .when(redisTemplate).hasKey("executor-job-heartbeat:23");
+                .when(valueOperations).multiGet(List.of("executor-job-heartbeat:23"));
 
         subject().execute(null);
 
@@ -186,14 +212,13 @@ class JobReconciliationSweepTest {
     void doesNotFailAJobWhenRedisWasRecentlyRestarted() throws Exception {
         // This deployment's Redis has no persistent volume - a crash/restart comes back
         // completely empty, so a missing heartbeat right after says nothing about whether the
-        // executor is actually still alive. Note hasKey isn't even stubbed here: reaching it
+        // executor is actually still alive. Note multiGet isn't even stubbed here: reaching it
         // would fail this test outright (FailUnkownMethod), proving the warm-up check short-
         // circuits before ever asking Redis about the heartbeat itself.
         Job running = job(25, JobStatus.running);
         running.setUpdatedDate(new Date(System.currentTimeMillis() - 90_000));
-        doReturn(List.of(running)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(true).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_25"));
+        activeJobs(running);
+        triggersExist("TerrakubeV2_Job_25");
         doReturn(uptimeProperties(10)).when(redisTemplate).execute(any(RedisCallback.class));
 
         subject().execute(null);
@@ -205,9 +230,8 @@ class JobReconciliationSweepTest {
     void treatsAnUndeterminableRedisUptimeAsRecentlyRestarted() throws Exception {
         Job running = job(26, JobStatus.running);
         running.setUpdatedDate(new Date(System.currentTimeMillis() - 90_000));
-        doReturn(List.of(running)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(true).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_26"));
+        activeJobs(running);
+        triggersExist("TerrakubeV2_Job_26");
         doThrow(new RedisConnectionFailureException("connection refused"))
                 .when(redisTemplate).execute(any(RedisCallback.class));
 
@@ -220,12 +244,78 @@ class JobReconciliationSweepTest {
     void doesNotCheckHeartbeatForNonExecutorStatuses() throws Exception {
         Job pending = job(24, JobStatus.pending);
         pending.setUpdatedDate(new Date(System.currentTimeMillis() - 90_000));
-        doReturn(List.of(pending)).when(jobRepository)
-                .findAllByStatusInOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES);
-        doReturn(true).when(scheduler).checkExists(new JobKey("TerrakubeV2_Job_24"));
+        activeJobs(pending);
+        triggersExist("TerrakubeV2_Job_24");
+
+        subject().execute(null);
+
+        verify(valueOperations, times(0)).multiGet(any());
+    }
+
+    @Test
+    void skipsTheSweepWhileAnotherReplicaHoldsTheLock() throws Exception {
+        // Nothing but the lock is stubbed: any repository, Quartz or Redis call fails the test.
+        doReturn(null).when(sweepLock).tryAcquire(eq(JobReconciliationSweep.SWEEP), any(Duration.class));
+
+        subject().execute(null);
+
+        verify(sweepLock, never()).release(any(), any());
+    }
+
+    @Test
+    void releasesTheLockWhenTheSweepFails() throws Exception {
+        doThrow(new RuntimeException("database down")).when(jobRepository)
+                .findByStatusInAndIdGreaterThanOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES, 0,
+                        Limit.of(JobReconciliationSweep.PAGE_SIZE));
+
+        org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class, () -> subject().execute(null));
+
+        verify(sweepLock, times(1)).release(JobReconciliationSweep.SWEEP, "token");
+    }
+
+    @Test
+    void readsActiveJobsAPageAtATimeWithOneLookupPerPage() throws Exception {
+        int pageSize = JobReconciliationSweep.PAGE_SIZE;
+        List<Job> firstPage = IntStream.rangeClosed(1, pageSize)
+                .mapToObj(id -> job(id, JobStatus.running)).collect(Collectors.toList());
+        Job last = job(pageSize + 7, JobStatus.pending);
+        doReturn(firstPage).when(jobRepository)
+                .findByStatusInAndIdGreaterThanOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES, 0, Limit.of(pageSize));
+        doReturn(List.of(last)).when(jobRepository)
+                .findByStatusInAndIdGreaterThanOrderByIdAsc(JobReconciliationSweep.ACTIVE_STATUSES, pageSize, Limit.of(pageSize));
+        List<String> names = new ArrayList<>();
+        firstPage.forEach(job -> names.add("TerrakubeV2_Job_" + job.getId()));
+        doReturn(Set.copyOf(names)).when(quartzJobLookup).existing(names);
+        doReturn(Set.of()).when(quartzJobLookup).existing(List.of("TerrakubeV2_Job_" + last.getId()));
+        doNothing().when(scheduleJobService).createJobContext(last);
+
+        subject().execute(null);
+
+        // One query per page for every trigger, and the second page starts after the first's last id.
+        verify(quartzJobLookup, times(2)).existing(anyList());
+        verify(scheduleJobService, times(1)).createJobContext(last);
+        verify(sweepLock, times(1)).release(JobReconciliationSweep.SWEEP, "token");
+    }
+
+    @Test
+    void checksAllHeartbeatsOfAPageWithOneMultiGet() throws Exception {
+        Job alive = job(30, JobStatus.running);
+        Job dead = job(31, JobStatus.queue);
+        Job young = job(32, JobStatus.running);
+        alive.setUpdatedDate(new Date(System.currentTimeMillis() - 90_000));
+        dead.setUpdatedDate(new Date(System.currentTimeMillis() - 90_000));
+        activeJobs(alive, dead, young);
+        triggersExist("TerrakubeV2_Job_30", "TerrakubeV2_Job_31", "TerrakubeV2_Job_32");
+        heartbeats(List.of("executor-job-heartbeat:30", "executor-job-heartbeat:31"), "alive", null);
+        doReturn(List.of()).when(stepRepository).findByJobId(31);
+        doReturn(1).when(jobRepository).updateStatusById(JobStatus.failed, 31);
+        doReturn(true).when(scheduler).deleteJob(new JobKey("TerrakubeV2_Job_31"));
 
         subject().execute(null);
 
-        verify(redisTemplate, times(0)).hasKey(any());
+        verify(valueOperations, times(1)).multiGet(any());
+        verify(jobRepository, times(1)).updateStatusById(JobStatus.failed, 31);
+        verify(jobRepository, times(0)).updateStatusById(eq(JobStatus.failed), eq(30));
+        verify(jobRepository, times(0)).updateStatusById(eq(JobStatus.failed), eq(32));
     }
 }
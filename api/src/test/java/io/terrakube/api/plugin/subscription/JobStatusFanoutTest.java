@@ -0,0 +1,151 @@
+package io.terrakube.api.plugin.subscription;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Subscription;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class JobStatusFanoutTest {
+
+    private static final String ORG_CHANNEL = "org-job-status:org-1";
+
+    @Mock
+    RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final RedisSerializer<JobStatusEvent> jackson = new Jackson2JsonRedisSerializer<>(JobStatusEvent.class);
+    private final AtomicInteger decodes = new AtomicInteger();
+
+    private final RedisSerializer<JobStatusEvent> countingSerializer = new RedisSerializer<>() {
+        @Override
+        public byte[] serialize(JobStatusEvent event) {
+            return jackson.serialize(event);
+        }
+
+        @Override
+        public JobStatusEvent deserialize(byte[] bytes) {
+            decodes.incrementAndGet();
+            return jackson.deserialize(bytes);
+        }
+    };
+
+    private MessageListener registeredListener(String channel) {
+        ArgumentCaptor<MessageListener> listenerCaptor = ArgumentCaptor.forClass(MessageListener.class);
+        verify(redisMessageListenerContainer).addMessageListener(listenerCaptor.capture(), eq(new ChannelTopic(channel)));
+        return listenerCaptor.getValue();
+    }
+
+    private void publish(MessageListener listener, String channel, JobStatusEvent event) {
+        listener.onMessage(new DefaultMessage(channel.getBytes(), jackson.serialize(event)), null);
+    }
+
+    @Test
+    void thousandsOfSubscribersShareOneListenerAndOneDecodePerEvent() {
+        JobStatusFanout fanout = new JobStatusFanout(redisMessageListenerContainer, countingSerializer);
+        int subscriberCount = 5_000;
+        List<ConcurrentLinkedQueue<JobStatusEvent>> received = new ArrayList<>();
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < subscriberCount; i++) {
+            ConcurrentLinkedQueue<JobStatusEvent> events = new ConcurrentLinkedQueue<>();
+            received.add(events);
+            subscriptions.add(fanout.listenOn(ORG_CHANNEL).subscribe(events::add));
+        }
+
+        MessageListener listener = registeredListener(ORG_CHANNEL);
+        publish(listener, ORG_CHANNEL, new JobStatusEvent(1, "workspace-1", "running"));
+        publish(listener, ORG_CHANNEL, new JobStatusEvent(2, "workspace-2", "queue"));
+        publish(listener, ORG_CHANNEL, new JobStatusEvent(1, "workspace-1", "completed"));
+
+        assertThat(decodes).hasValue(3);
+        assertThat(received).allSatisfy(events -> assertThat(events).containsExactly(
+                new JobStatusEvent(1, "workspace-1", "running"),
+                new JobStatusEvent(2, "workspace-2", "queue"),
+                new JobStatusEvent(1, "workspace-1", "completed")));
+
+        subscriptions.forEach(Disposable::dispose);
+        verify(redisMessageListenerContainer, times(1)).removeMessageListener(any(MessageListener.class), eq(new ChannelTopic(ORG_CHANNEL)));
+        assertThat(fanout.channelCount()).isZero();
+    }
+
+    @Test
+    void aSlowSubscriberKeepsOnlyTheLatestStatusPerJobWithinItsBound() {
+        JobStatusFanout fanout = new JobStatusFanout(redisMessageListenerContainer, countingSerializer);
+        List<JobStatusEvent> fast = new ArrayList<>();
+        fanout.listenOn(ORG_CHANNEL).subscribe(fast::add);
+        SlowSubscriber slow = new SlowSubscriber();
+        fanout.listenOn(ORG_CHANNEL).subscribe(slow);
+
+        MessageListener listener = registeredListener(ORG_CHANNEL);
+        int jobs = JobStatusFanout.MAX_PENDING_PER_SUBSCRIBER + 44;
+        String[] statuses = {"queue", "running", "completed"};
+        for (String status : statuses) {
+            for (int jobId = 0; jobId < jobs; jobId++) {
+                publish(listener, ORG_CHANNEL, new JobStatusEvent(jobId, "workspace-1", status));
+            }
+        }
+
+        assertThat(fast).hasSize(jobs * statuses.length);
+        assertThat(slow.received).isEmpty();
+
+        slow.request(Long.MAX_VALUE);
+
+        // Only the last status of each job survives, and the oldest jobs beyond the bound were dropped.
+        assertThat(slow.received).hasSize(JobStatusFanout.MAX_PENDING_PER_SUBSCRIBER);
+        Map<Integer, JobStatusEvent> byJob = slow.received.stream()
+                .collect(Collectors.toMap(JobStatusEvent::jobId, Function.identity()));
+        assertThat(byJob.values()).allMatch(event -> event.status().equals("completed"));
+        assertThat(byJob.keySet()).allMatch(jobId -> jobId >= jobs - JobStatusFanout.MAX_PENDING_PER_SUBSCRIBER);
+        slow.dispose();
+    }
+
+    @Test
+    void aSubscriberAfterTheLastOneLeftRegistersTheChannelAgain() {
+        JobStatusFanout fanout = new JobStatusFanout(redisMessageListenerContainer, countingSerializer);
+
+        fanout.listenOn(ORG_CHANNEL).subscribe().dispose();
+        fanout.listenOn(ORG_CHANNEL).subscribe();
+
+        verify(redisMessageListenerContainer, times(2)).addMessageListener(any(MessageListener.class), eq(new ChannelTopic(ORG_CHANNEL)));
+        verify(redisMessageListenerContainer, times(1)).removeMessageListener(any(MessageListener.class), eq(new ChannelTopic(ORG_CHANNEL)));
+        assertThat(fanout.channelCount()).isOne();
+    }
+
+    private static final class SlowSubscriber extends BaseSubscriber<JobStatusEvent> {
+
+        private final List<JobStatusEvent> received = new ArrayList<>();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            // No demand until the test asks for it, like a WebSocket that stopped reading.
+        }
+
+        @Override
+        protected void hookOnNext(JobStatusEvent event) {
+            received.add(event);
+        }
+    }
+}
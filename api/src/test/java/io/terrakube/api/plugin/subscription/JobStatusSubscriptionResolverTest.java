@@ -71,7 +71,7 @@ class JobStatusSubscriptionResolverTest {
         when(membershipService.checkMembership(eq(user), any())).thenReturn(false);
 
         JobStatusSubscriptionResolver resolver = new JobStatusSubscriptionResolver(
-                redisMessageListenerContainer, serializer, workspaceRepository, organizationRepository, membershipService, authenticatedUser);
+                new JobStatusFanout(redisMessageListenerContainer, serializer), workspaceRepository, organizationRepository, membershipService, authenticatedUser);
 
         StepVerifier.create(resolver.jobStatusChanged(workspaceId.toString(), user))
                 .expectErrorMatches(error -> error instanceof SecurityException)
@@ -97,7 +97,7 @@ class JobStatusSubscriptionResolverTest {
         when(membershipService.checkMembership(eq(user), eq(List.of(team)))).thenReturn(true);
 
         JobStatusSubscriptionResolver resolver = new JobStatusSubscriptionResolver(
-                redisMessageListenerContainer, serializer, workspaceRepository, organizationRepository, membershipService, authenticatedUser);
+                new JobStatusFanout(redisMessageListenerContainer, serializer), workspaceRepository, organizationRepository, membershipService, authenticatedUser);
 
         Flux<JobStatusEvent> flux = resolver.jobStatusChanged(workspaceId.toString(), user);
 
@@ -130,7 +130,7 @@ class JobStatusSubscriptionResolverTest {
         when(membershipService.checkMembership(eq(user), any())).thenReturn(false);
 
         JobStatusSubscriptionResolver resolver = new JobStatusSubscriptionResolver(
-                redisMessageListenerContainer, serializer, workspaceRepository, organizationRepository, membershipService, authenticatedUser);
+                new JobStatusFanout(redisMessageListenerContainer, serializer), workspaceRepository, organizationRepository, membershipService, authenticatedUser);
 
         StepVerifier.create(resolver.organizationJobStatusChanged(organizationId.toString(), user))
                 .expectErrorMatches(error -> error instanceof SecurityException)
@@ -152,7 +152,7 @@ class JobStatusSubscriptionResolverTest {
         when(membershipService.checkMembership(eq(user), eq(List.of(team)))).thenReturn(true);
 
         JobStatusSubscriptionResolver resolver = new JobStatusSubscriptionResolver(
-                redisMessageListenerContainer, serializer, workspaceRepository, organizationRepository, membershipService, authenticatedUser);
+                new JobStatusFanout(redisMessageListenerContainer, serializer), workspaceRepository, organizationRepository, membershipService, authenticatedUser);
 
         Flux<JobStatusEvent> flux = resolver.organizationJobStatusChanged(organizationId.toString(), user);
 
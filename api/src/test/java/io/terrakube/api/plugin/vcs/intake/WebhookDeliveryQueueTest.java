@@ -0,0 +1,199 @@
+package io.terrakube.api.plugin.vcs.intake;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.terrakube.api.plugin.scheduler.SweepLock;
+import io.terrakube.api.plugin.vcs.RepoWebhookService;
+import io.terrakube.api.rs.webhook.WebhookDeliveryStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.*;
+
+class WebhookDeliveryQueueTest {
+
+    private static final String REPO_WEBHOOK_ID = UUID.randomUUID().toString();
+    private static final String PAYLOAD = "{\"ref\":\"refs/heads/main\"}";
+
+    private final RepoWebhookService repoWebhookService = mock(RepoWebhookService.class);
+    private final WebhookDeliveryTransactions transactions = mock(WebhookDeliveryTransactions.class);
+    private final SweepLock sweepLock = mock(SweepLock.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WebhookIntakeProperties properties = new WebhookIntakeProperties();
+    private final WebhookDeliveryQueue subject = new WebhookDeliveryQueue(repoWebhookService, transactions, sweepLock,
+            objectMapper, meterRegistry, properties);
+
+    @AfterEach
+    void tearDown() {
+        subject.shutdown();
+    }
+
+    private long acks(String outcome) {
+        return meterRegistry.get(WebhookDeliveryQueue.ACK_METRIC).tag("outcome", outcome).timer().count();
+    }
+
+    private static ClaimedWebhookDelivery claimed(int attemptCount) {
+        return new ClaimedWebhookDelivery(UUID.randomUUID(), REPO_WEBHOOK_ID, PAYLOAD,
+                "{\"x-github-event\":\"push\"}", attemptCount, new Date());
+    }
+
+    @Test
+    void aVerifiedRequestIsStoredWithoutItsSecretsAndNotProcessedInline() throws Exception {
+        Map<String, String> headers = Map.of("X-GitHub-Delivery", "delivery-1", "X-GitHub-Event", "push",
+                "X-Hub-Signature-256", "sha256=abc");
+        when(transactions.store(anyString(), anyString(), anyString(), anyString(), any())).thenReturn(true);
+
+        assertThat(subject.accept(REPO_WEBHOOK_ID, PAYLOAD, headers)).isTrue();
+
+        ArgumentCaptor<String> storedHeaders = ArgumentCaptor.forClass(String.class);
+        verify(transactions).store(eq(REPO_WEBHOOK_ID), eq("delivery-1"), eq(PAYLOAD), storedHeaders.capture(),
+                any(Date.class));
+        assertThat(objectMapper.readValue(storedHeaders.getValue(), Map.class))
+                .containsEntry("x-github-event", "push")
+                .doesNotContainKey("x-hub-signature-256");
+        verify(repoWebhookService, never()).processVerifiedV2Webhook(any(), any(), any());
+        verify(repoWebhookService, never()).processV2Webhook(any(), any(), any());
+        assertThat(acks("queued")).isOne();
+        assertThat(meterRegistry.get(WebhookDeliveryQueue.DEPTH_METRIC).gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void aRedeliveryIsAcknowledgedButNotQueuedAgain() {
+        when(transactions.store(anyString(), anyString(), anyString(), anyString(), any()))
+                .thenReturn(false)
+                .thenThrow(new DataIntegrityViolationException("uk_webhook_delivery_repo_webhook_delivery"));
+        when(transactions.isStored(REPO_WEBHOOK_ID, "event-1")).thenReturn(true);
+        Map<String, String> headers = Map.of("x-gitlab-event-uuid", "event-1");
+
+        assertThat(subject.accept(REPO_WEBHOOK_ID, PAYLOAD, headers)).isFalse();
+        assertThat(subject.accept(REPO_WEBHOOK_ID, PAYLOAD, headers)).isFalse();
+
+        assertThat(acks("duplicate")).isEqualTo(2);
+    }
+
+    @Test
+    void anIntegrityViolationOtherThanADuplicateIsNotAcknowledged() {
+        DataIntegrityViolationException tooLong = new DataIntegrityViolationException("value too long for column");
+        when(transactions.store(anyString(), anyString(), anyString(), anyString(), any())).thenThrow(tooLong);
+        when(transactions.isStored(REPO_WEBHOOK_ID, "delivery-1")).thenReturn(false);
+
+        assertThatThrownBy(() -> subject.accept(REPO_WEBHOOK_ID, PAYLOAD, Map.of("x-github-delivery", "delivery-1")))
+                .isSameAs(tooLong);
+
+        assertThat(acks("error")).isOne();
+        assertThat(meterRegistry.find(WebhookDeliveryQueue.ACK_METRIC).tag("outcome", "duplicate").timer()).isNull();
+    }
+
+    @Test
+    void aRequestFailingVerificationIsNeverStored() {
+        doThrow(new SecurityException("HMAC signature verification failed")).when(repoWebhookService)
+                .verifyV2Webhook(REPO_WEBHOOK_ID, PAYLOAD, Map.of());
+
+        assertThatThrownBy(() -> subject.accept(REPO_WEBHOOK_ID, PAYLOAD, Map.of()))
+                .isInstanceOf(SecurityException.class);
+
+        verifyNoInteractions(transactions);
+        assertThat(acks("rejected")).isOne();
+    }
+
+    @Test
+    void theDeliveryIdComesFromTheProviderHeaderThenThePayload() {
+        assertThat(subject.deliveryId(PAYLOAD, Map.of("Idempotency-Key", "key-1", "X-Gitlab-Event-UUID", "event-1")))
+                .isEqualTo("key-1");
+        assertThat(subject.deliveryId("{\"id\":\"azure-event-1\",\"eventType\":\"git.push\"}", Map.of()))
+                .isEqualTo("azure-event-1");
+        assertThat(subject.deliveryId(PAYLOAD, Map.of()))
+                .startsWith("sha256:")
+                .isEqualTo(subject.deliveryId(PAYLOAD, Map.of()));
+    }
+
+    @Test
+    void theDeliveriesOfARepositoryAreProcessedInOrder() {
+        ClaimedWebhookDelivery first = claimed(1);
+        ClaimedWebhookDelivery second = claimed(1);
+        when(sweepLock.tryAcquire(eq(WebhookDeliveryQueue.LOCK_PREFIX + REPO_WEBHOOK_ID), any())).thenReturn("token");
+        when(transactions.claimNext(REPO_WEBHOOK_ID)).thenReturn(first, second, null);
+
+        subject.processRepository(REPO_WEBHOOK_ID);
+
+        InOrder inOrder = inOrder(repoWebhookService, transactions);
+        inOrder.verify(repoWebhookService).processVerifiedV2Webhook(REPO_WEBHOOK_ID, PAYLOAD,
+                Map.of("x-github-event", "push"));
+        inOrder.verify(transactions).recordResult(first, WebhookDeliveryStatus.PROCESSED, null, null);
+        inOrder.verify(repoWebhookService).processVerifiedV2Webhook(REPO_WEBHOOK_ID, PAYLOAD,
+                Map.of("x-github-event", "push"));
+        inOrder.verify(transactions).recordResult(second, WebhookDeliveryStatus.PROCESSED, null, null);
+        verify(sweepLock).release(WebhookDeliveryQueue.LOCK_PREFIX + REPO_WEBHOOK_ID, "token");
+        assertThat(meterRegistry.get(WebhookDeliveryQueue.WAIT_METRIC).timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void aFailedDeliveryIsRetriedLaterAndGivenUpOnAfterItsAttempts() {
+        ClaimedWebhookDelivery firstAttempt = claimed(1);
+        ClaimedWebhookDelivery lastAttempt = claimed(properties.getMaxAttempts());
+        when(sweepLock.tryAcquire(anyString(), any())).thenReturn("token");
+        when(transactions.claimNext(REPO_WEBHOOK_ID)).thenReturn(firstAttempt, null, lastAttempt, null);
+        doThrow(new RuntimeException("database unavailable")).when(repoWebhookService)
+                .processVerifiedV2Webhook(any(), any(), any());
+
+        subject.processRepository(REPO_WEBHOOK_ID);
+        subject.processRepository(REPO_WEBHOOK_ID);
+
+        verify(transactions).recordResult(eq(firstAttempt), eq(WebhookDeliveryStatus.PENDING),
+                eq("database unavailable"), notNull());
+        verify(transactions).recordResult(eq(lastAttempt), eq(WebhookDeliveryStatus.FAILED),
+                eq("database unavailable"), isNull());
+    }
+
+    @Test
+    void aRepositoryWorkedOnByAnotherReplicaIsLeftAlone() {
+        when(sweepLock.tryAcquire(anyString(), any())).thenReturn(null);
+
+        subject.processRepository(REPO_WEBHOOK_ID);
+
+        verify(transactions, never()).claimNext(any());
+        verify(sweepLock, never()).release(any(), any());
+    }
+
+    @Test
+    void theHeartbeatKeepsTheLockAndTheDeliveryBeingProcessedAlive() {
+        ClaimedWebhookDelivery slow = claimed(1);
+        String lock = WebhookDeliveryQueue.LOCK_PREFIX + REPO_WEBHOOK_ID;
+        Duration ttl = Duration.ofMinutes(properties.getStuckProcessingThresholdMinutes());
+        when(sweepLock.renew(lock, "token", ttl)).thenReturn(true);
+        when(transactions.heartbeat(slow)).thenReturn(true);
+
+        subject.heartbeat(lock, "token", ttl, new AtomicReference<>(slow));
+        subject.heartbeat(lock, "token", ttl, new AtomicReference<>());
+
+        verify(sweepLock, times(2)).renew(lock, "token", ttl);
+        verify(transactions).heartbeat(slow);
+    }
+
+    @Test
+    void aFailingHeartbeatDoesNotThrow() {
+        when(sweepLock.renew(anyString(), anyString(), any())).thenReturn(true);
+        when(transactions.heartbeat(any())).thenThrow(new RuntimeException("database unavailable"));
+
+        subject.heartbeat("lock", "token", Duration.ofMinutes(1), new AtomicReference<>(claimed(1)));
+
+        verify(transactions).heartbeat(any());
+    }
+}
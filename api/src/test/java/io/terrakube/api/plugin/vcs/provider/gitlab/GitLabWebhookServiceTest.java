@@ -18,7 +18,7 @@ public class GitLabWebhookServiceTest {
 
     private GitLabWebhookService newService() {
         return new GitLabWebhookService(new ObjectMapper(), "localhost", "http://localhost",
-                WebClient.builder(), 30, 25);
+                WebClient.builder(), 30, 25, new GitLabProjectIdCache());
     }
 
     @Test
@@ -140,7 +140,8 @@ public class GitLabWebhookServiceTest {
             String serverUrl = "http://127.0.0.1:" + server.getAddress().getPort();
 
             for (int i = 0; i < 5; i++) {
-                String projectId = service.getGitlabProjectId("owner/repo", "token-" + i, serverUrl);
+                // A different project each time: a repeated one is answered from the project id cache.
+                String projectId = service.getGitlabProjectId("owner/repo-" + i, "token-" + i, serverUrl);
                 assertEquals("123", projectId);
             }
 
@@ -158,5 +159,49 @@ public class GitLabWebhookServiceTest {
             server.stop(0);
         }
     }
-}
 
+    @Test
+    public void projectIdIsLookedUpOnceAndNotFoundIsNotCached() throws Exception {
+        com.sun.net.httpserver.HttpServer server = com.sun.net.httpserver.HttpServer.create(new java.net.InetSocketAddress("127.0.0.1", 0), 0);
+        java.util.concurrent.atomic.AtomicInteger directLookups = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicInteger searches = new java.util.concurrent.atomic.AtomicInteger();
+
+        server.createContext("/projects", exchange -> {
+            String path = exchange.getRequestURI().getRawPath();
+            byte[] body;
+            int status;
+            if (path.equals("/projects")) {
+                searches.incrementAndGet();
+                status = 200;
+                body = "[]".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            } else {
+                directLookups.incrementAndGet();
+                boolean known = path.endsWith("owner%2Frepo");
+                status = known ? 200 : 404;
+                body = (known ? "{\"id\": 123}" : "{}").getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        GitLabWebhookService service = newService();
+        try {
+            String serverUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals("123", service.getGitlabProjectId("owner/repo", "token", serverUrl));
+                assertEquals("", service.getGitlabProjectId("owner/missing", "token", serverUrl));
+            }
+
+            // owner/repo once; owner/missing every time, with its search.
+            assertEquals(4, directLookups.get());
+            assertEquals(3, searches.get());
+        } finally {
+            server.stop(0);
+            service.shutdown();
+        }
+    }
+}
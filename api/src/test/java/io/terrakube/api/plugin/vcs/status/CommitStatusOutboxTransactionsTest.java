@@ -0,0 +1,65 @@
+package io.terrakube.api.plugin.vcs.status;
+
+import io.terrakube.api.repository.CommitStatusOutboxRepository;
+import io.terrakube.api.rs.job.JobStatus;
+import io.terrakube.api.rs.vcs.CommitStatusOutbox;
+import io.terrakube.api.rs.vcs.CommitStatusOutboxStatus;
+import io.terrakube.api.rs.vcs.VcsType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CommitStatusOutboxTransactionsTest {
+
+    private static final String STATUS_KEY = "key";
+
+    private final CommitStatusOutboxRepository commitStatusOutboxRepository = mock(CommitStatusOutboxRepository.class);
+    private final CommitStatusOutboxTransactions subject = new CommitStatusOutboxTransactions(
+            commitStatusOutboxRepository);
+
+    private CommitStatusOutbox row(CommitStatusOutboxStatus status) {
+        CommitStatusOutbox outbox = new CommitStatusOutbox();
+        outbox.setId(UUID.randomUUID());
+        outbox.setStatusKey(STATUS_KEY);
+        outbox.setJobId(7);
+        outbox.setVcsType(VcsType.GITHUB);
+        outbox.setJobStatus(JobStatus.completed);
+        outbox.setStatus(status);
+        when(commitStatusOutboxRepository.findById(outbox.getId())).thenReturn(Optional.of(outbox));
+        return outbox;
+    }
+
+    @Test
+    void theNewestOfTwoRowsInsertedAtOnceIsClaimedAndTheOtherDeleted() {
+        CommitStatusOutbox newest = row(CommitStatusOutboxStatus.PENDING);
+        CommitStatusOutbox older = row(CommitStatusOutboxStatus.PENDING);
+        when(commitStatusOutboxRepository.findByStatusKeyOrderByCreatedDateDescIdDesc(STATUS_KEY))
+                .thenReturn(List.of(newest, older));
+        when(commitStatusOutboxRepository.claimForDelivery(eq(newest.getId()), any(), any(), any())).thenReturn(1);
+
+        assertThat(subject.claim(older.getId())).isNull();
+        assertThat(subject.claim(newest.getId())).isNotNull();
+
+        verify(commitStatusOutboxRepository, times(2)).deleteUnlessSending(List.of(older.getId()),
+                CommitStatusOutboxStatus.SENDING);
+        verify(commitStatusOutboxRepository, never()).claimForDelivery(eq(older.getId()), any(), any(), any());
+    }
+
+    @Test
+    void theNewestRowWaitsWhileAnOlderOneIsBeingSent() {
+        CommitStatusOutbox newest = row(CommitStatusOutboxStatus.PENDING);
+        CommitStatusOutbox sending = row(CommitStatusOutboxStatus.SENDING);
+        when(commitStatusOutboxRepository.findByStatusKeyOrderByCreatedDateDescIdDesc(STATUS_KEY))
+                .thenReturn(List.of(newest, sending));
+
+        assertThat(subject.claim(newest.getId())).isNull();
+
+        verify(commitStatusOutboxRepository, never()).claimForDelivery(any(), any(), any(), any());
+    }
+}
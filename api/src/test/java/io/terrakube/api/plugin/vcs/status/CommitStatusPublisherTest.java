@@ -0,0 +1,186 @@
+package io.terrakube.api.plugin.vcs.status;
+
+import io.terrakube.api.plugin.vcs.provider.azdevops.AzDevOpsWebhookService;
+import io.terrakube.api.plugin.vcs.provider.github.GitHubWebhookService;
+import io.terrakube.api.plugin.vcs.provider.gitlab.GitLabWebhookService;
+import io.terrakube.api.repository.CommitStatusOutboxRepository;
+import io.terrakube.api.repository.JobRepository;
+import io.terrakube.api.rs.job.Job;
+import io.terrakube.api.rs.job.JobStatus;
+import io.terrakube.api.rs.vcs.CommitStatusOutboxStatus;
+import io.terrakube.api.rs.vcs.Vcs;
+import io.terrakube.api.rs.vcs.VcsType;
+import io.terrakube.api.rs.workspace.Workspace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.*;
+
+class CommitStatusPublisherTest {
+
+    private static final String SOURCE = "https://github.com/owner/repo.git";
+    private static final String COMMIT = "0123456789abcdef";
+
+    private final CommitStatusOutboxRepository commitStatusOutboxRepository = mock(CommitStatusOutboxRepository.class);
+    private final CommitStatusOutboxTransactions transactions = mock(CommitStatusOutboxTransactions.class);
+    private final JobRepository jobRepository = mock(JobRepository.class);
+    private final GitHubWebhookService gitHubWebhookService = mock(GitHubWebhookService.class);
+    private final GitLabWebhookService gitLabWebhookService = mock(GitLabWebhookService.class);
+    private final AzDevOpsWebhookService azDevOpsWebhookService = mock(AzDevOpsWebhookService.class);
+    private final CommitStatusProperties properties = new CommitStatusProperties();
+    private final CommitStatusPublisher subject = new CommitStatusPublisher(commitStatusOutboxRepository,
+            transactions, jobRepository, gitHubWebhookService, gitLabWebhookService, azDevOpsWebhookService,
+            properties);
+
+    @AfterEach
+    void tearDown() {
+        subject.shutdown();
+    }
+
+    private static Job job(int id, VcsType vcsType) {
+        Vcs vcs = new Vcs();
+        vcs.setVcsType(vcsType);
+        Workspace workspace = new Workspace();
+        workspace.setId(UUID.randomUUID());
+        workspace.setSource(SOURCE);
+        workspace.setVcs(vcs);
+        Job job = new Job();
+        job.setId(id);
+        job.setWorkspace(workspace);
+        job.setCommitId(COMMIT);
+        return job;
+    }
+
+    @Test
+    void publishOnlyQueuesTheLatestStateOfTheCommit() {
+        Job job = job(7, VcsType.GITHUB);
+        String context = job.getWorkspace().getId().toString();
+
+        subject.publish(job, JobStatus.running, null);
+        subject.publish(job, JobStatus.completed, "Plan: 1 to add");
+
+        String statusKey = CommitStatusPublisher.statusKey(SOURCE, COMMIT, context);
+        verify(transactions).record(eq(statusKey), eq(SOURCE), eq(COMMIT), eq(context), eq(7), eq(VcsType.GITHUB),
+                eq(JobStatus.running), isNull(), any(Date.class));
+        verify(transactions).record(eq(statusKey), eq(SOURCE), eq(COMMIT), eq(context), eq(7), eq(VcsType.GITHUB),
+                eq(JobStatus.completed), eq("Plan: 1 to add"), any(Date.class));
+        verifyNoInteractions(gitHubWebhookService);
+    }
+
+    @Test
+    void theDrainIsOnlyWokenOnceTheCallersTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            subject.publish(job(7, VcsType.GITLAB), JobStatus.pending, null);
+
+            verify(transactions).record(anyString(), eq(SOURCE), eq(COMMIT), any(), eq(7), eq(VcsType.GITLAB),
+                    eq(JobStatus.pending), isNull(), any(Date.class));
+            assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void commitsWithoutStatusSupportAreNotQueued() {
+        subject.publish(job(1, VcsType.BITBUCKET), JobStatus.completed, null);
+        Job withoutCommit = job(2, VcsType.GITHUB);
+        withoutCommit.setCommitId(null);
+        subject.publish(withoutCommit, JobStatus.completed, null);
+
+        verifyNoInteractions(transactions);
+    }
+
+    @Test
+    void aClaimedStateIsSentAndMarkedSent() {
+        UUID outboxId = UUID.randomUUID();
+        Job job = job(7, VcsType.GITHUB);
+        when(transactions.claim(outboxId))
+                .thenReturn(new ClaimedCommitStatus(3, 1, 7, VcsType.GITHUB, JobStatus.completed, "summary"));
+        when(jobRepository.findById(7)).thenReturn(Optional.of(job));
+        when(gitHubWebhookService.sendCommitStatus(job, JobStatus.completed, "summary")).thenReturn(true);
+        when(transactions.recordResult(any(), anyLong(), any(), any(), any())).thenReturn(true);
+
+        subject.deliver(outboxId);
+
+        verify(transactions).recordResult(eq(outboxId), eq(3L), eq(CommitStatusOutboxStatus.SENT), isNull(), isNull());
+    }
+
+    @Test
+    void aStateClaimedElsewhereIsNotSent() {
+        UUID outboxId = UUID.randomUUID();
+        when(transactions.claim(outboxId)).thenReturn(null);
+
+        subject.deliver(outboxId);
+
+        verifyNoInteractions(jobRepository, gitHubWebhookService, gitLabWebhookService, azDevOpsWebhookService);
+        verify(transactions, never()).recordResult(any(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void aRejectedStateIsRetriedUntilItsAttemptsRunOut() {
+        UUID outboxId = UUID.randomUUID();
+        Job job = job(7, VcsType.GITLAB);
+        when(jobRepository.findById(7)).thenReturn(Optional.of(job));
+        when(gitLabWebhookService.sendCommitStatus(any(), any(), any())).thenReturn(false);
+        when(transactions.recordResult(any(), anyLong(), any(), any(), any())).thenReturn(true);
+
+        when(transactions.claim(outboxId))
+                .thenReturn(new ClaimedCommitStatus(1, 1, 7, VcsType.GITLAB, JobStatus.failed, null));
+        subject.deliver(outboxId);
+        verify(transactions).recordResult(eq(outboxId), eq(1L), eq(CommitStatusOutboxStatus.PENDING), notNull(),
+                notNull());
+
+        when(transactions.claim(outboxId)).thenReturn(new ClaimedCommitStatus(1, properties.getMaxAttempts(), 7,
+                VcsType.GITLAB, JobStatus.failed, null));
+        subject.deliver(outboxId);
+        verify(transactions).recordResult(eq(outboxId), eq(1L), eq(CommitStatusOutboxStatus.FAILED), notNull(),
+                isNull());
+    }
+
+    @Test
+    void aDeletedJobFailsItsStatusWithoutCallingTheVcs() {
+        UUID outboxId = UUID.randomUUID();
+        properties.setMaxAttempts(1);
+        when(transactions.claim(outboxId))
+                .thenReturn(new ClaimedCommitStatus(1, 1, 7, VcsType.AZURE_DEVOPS, JobStatus.completed, null));
+        when(jobRepository.findById(7)).thenReturn(Optional.empty());
+        when(transactions.recordResult(any(), anyLong(), any(), any(), any())).thenReturn(true);
+
+        subject.deliver(outboxId);
+
+        verifyNoInteractions(azDevOpsWebhookService);
+        verify(transactions).recordResult(eq(outboxId), eq(1L), eq(CommitStatusOutboxStatus.FAILED),
+                eq("Job 7 no longer exists"), isNull());
+    }
+
+    @Test
+    void sendsArePacedPerProvider() {
+        properties.setRequestsPerSecond(5);
+
+        assertThat(subject.reserveSlot(VcsType.GITHUB)).isZero();
+        assertThat(subject.reserveSlot(VcsType.GITHUB)).isBetween(150L, 200L);
+        assertThat(subject.reserveSlot(VcsType.GITHUB)).isBetween(350L, 400L);
+        assertThat(subject.reserveSlot(VcsType.GITLAB)).isZero();
+    }
+
+    @Test
+    void retriesBackOffUpToTenMinutes() {
+        assertThat(CommitStatusPublisher.retryDelay(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(CommitStatusPublisher.retryDelay(2)).isEqualTo(Duration.ofSeconds(60));
+        assertThat(CommitStatusPublisher.retryDelay(4)).isEqualTo(Duration.ofSeconds(240));
+        assertThat(CommitStatusPublisher.retryDelay(8)).isEqualTo(Duration.ofMinutes(10));
+    }
+}
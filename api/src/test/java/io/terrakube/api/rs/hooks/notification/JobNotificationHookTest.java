@@ -5,6 +5,7 @@ import com.yahoo.elide.annotation.LifeCycleHookBinding.TransactionPhase;
 import com.yahoo.elide.core.security.RequestScope;
 import io.terrakube.api.plugin.notification.JobNotificationTrigger;
 import io.terrakube.api.plugin.notification.NotificationDispatchService;
+import io.terrakube.api.plugin.notification.NotificationOutboxDrainer;
 import io.terrakube.api.rs.Organization;
 import io.terrakube.api.rs.job.Job;
 import io.terrakube.api.rs.job.JobStatus;
@@ -18,6 +19,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.mockito.Mockito.*;
 
@@ -29,6 +31,8 @@ class JobNotificationHookTest {
     @Mock
     NotificationDispatchService notificationDispatchService;
     @Mock
+    NotificationOutboxDrainer notificationOutboxDrainer;
+    @Mock
     RequestScope requestScope;
 
     @InjectMocks
@@ -114,4 +118,17 @@ class JobNotificationHookTest {
 
         verifyNoInteractions(notificationDispatchService);
     }
+
+    @Test
+    void postcommit_signalsTheOutboxDrainWhenTheDispatchPoolIsFull() {
+        Job job = jobWithStatus(JobStatus.failed);
+        UUID outboxId = UUID.randomUUID();
+        when(jobNotificationTrigger.enqueue(job)).thenReturn(List.of(outboxId));
+        doThrow(new RejectedExecutionException("pool full")).when(notificationDispatchService).dispatchAsync(outboxId);
+
+        subject.execute(Operation.UPDATE, TransactionPhase.PRECOMMIT, job, requestScope, Optional.empty());
+        subject.execute(Operation.UPDATE, TransactionPhase.POSTCOMMIT, job, requestScope, Optional.empty());
+
+        verify(notificationOutboxDrainer).requestDrain();
+    }
 }
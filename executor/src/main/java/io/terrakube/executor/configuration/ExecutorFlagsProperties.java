@@ -19,4 +19,10 @@ public class ExecutorFlagsProperties {
     private String batchJobFile;
     private boolean disableAcknowledge;
 
+    // Set on warm pool pods instead of ephemeralJobData: the Redis key prefix of the pod's warm pool,
+    // the pod's own name in it, and how long it waits for a job before exiting.
+    private String warmPool;
+    private String warmPoolMember;
+    private int warmPoolIdleTimeoutSeconds = 900;
+
 }
@@ -0,0 +1,32 @@
+package io.terrakube.executor.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets the api route each job straight to a replica with a free slot instead of posting to the
+ * Service URL and retrying on 503 until the load balancer happens to pick an idle pod.
+ */
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.executor.registration")
+public class ExecutorRegistrationProperties {
+
+    /**
+     * The URL the api dispatches this pool's jobs to, exactly as configured there (AzBuilderExecutorUrl
+     * or the organization's TERRAKUBE_DEFAULT_EXECUTOR + /api/v1/terraform-rs, or an agent's url +
+     * /api/v1/terraform-rs). Empty disables registration and the api keeps posting to that URL.
+     */
+    private String poolUrl = "";
+
+    /**
+     * How the api reaches this replica directly. Empty means http://{pod ip}:{server.port}/api/v1/terraform-rs.
+     */
+    private String advertisedUrl = "";
+}
@@ -0,0 +1,22 @@
+package io.terrakube.executor.configuration;
+
+import io.terrakube.executor.service.executor.ExecutorRegistration;
+import io.terrakube.executor.service.mode.batch.BatchModeServiceImpl;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans that must exist from startup even when the fast-start profile turns on lazy initialization:
+ * the batch entry point that starts the job once the context is refreshed, and the registration that
+ * has to hear readiness changes. Beans with @Scheduled methods are already kept eager by Spring Boot.
+ * Has no effect without spring.main.lazy-initialization.
+ */
+@Configuration
+public class FastStartConfiguration {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerExecutorBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(BatchModeServiceImpl.class, ExecutorRegistration.class);
+    }
+}
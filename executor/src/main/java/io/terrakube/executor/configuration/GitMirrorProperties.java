@@ -0,0 +1,37 @@
+package io.terrakube.executor.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local bare mirrors of workspace repositories, so a job checks out from disk and only fetches
+ * what changed upstream instead of cloning the repository again.
+ */
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.executor.git-mirror")
+public class GitMirrorProperties {
+
+    /**
+     * Only worth it where the directory outlives a job: a persistent executor, or an ephemeral
+     * one with the directory on a persistent volume.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Where the mirrors live. Empty means ~/.terraform-spring-boot/git-mirror. Several executors
+     * may share it (e.g. a ReadWriteMany volume); access is coordinated with file locks.
+     */
+    private String directory = "";
+
+    /**
+     * Once the mirrors take more than this, the least recently used ones are deleted.
+     */
+    private long maxSizeMb = 5120;
+}
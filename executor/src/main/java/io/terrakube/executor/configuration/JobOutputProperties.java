@@ -0,0 +1,34 @@
+package io.terrakube.executor.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.executor.output")
+public class JobOutputProperties {
+
+    /**
+     * Directory where step output is spilled while the step runs. Defaults to java.io.tmpdir
+     * when empty.
+     */
+    private String spoolDirectory;
+
+    /**
+     * Gzip the spilled output before it is uploaded. The api detects the gzip header when
+     * reading the output back, so old (plain) and new (compressed) outputs can coexist.
+     */
+    private boolean compress = true;
+
+    /**
+     * Size of the in-memory write buffer in front of the spool file, the only part of the
+     * step output that is ever held in heap.
+     */
+    private int bufferSizeBytes = 64 * 1024;
+}
@@ -0,0 +1,48 @@
+package io.terrakube.executor.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Batching of log lines sent to the api when io.executor.log-via-api=true.
+ */
+@Component
+@Getter
+@Setter
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@PropertySource(value = "classpath:application-${spring.profiles.active}.properties", ignoreResourceNotFound = true)
+@ConfigurationProperties(prefix = "io.terrakube.executor.logs")
+public class LogBatchProperties {
+
+    /**
+     * Lines buffered while the api is slow or unreachable. Once full, new lines are dropped from
+     * the live view only - the step output uploaded at the end of the step is unaffected.
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * A batch is sent as soon as it reaches this many lines.
+     */
+    private int maxBatchSize = 500;
+
+    /**
+     * How long the first line after a quiet spell waits for more lines to join its batch.
+     */
+    private long minBatchDelayMillis = 300;
+
+    /**
+     * Longest a line waits for more lines to join its batch. The wait grows towards this while
+     * batches keep going out partial, so a steady trickle of output costs at most one request per
+     * this many milliseconds - the cadence of the old fixed 5s tick.
+     */
+    private long maxBatchDelayMillis = 5000;
+
+    /**
+     * Gzip the request body (Content-Encoding: gzip). Console output compresses very well, and
+     * a full batch is otherwise a few hundred KB of JSON.
+     */
+    private boolean compress = true;
+}
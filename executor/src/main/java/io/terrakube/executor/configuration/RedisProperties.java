@@ -25,6 +25,11 @@ public class RedisProperties {
     private boolean ssl;
     private String truststorePath;
     private int timeout;
+    /**
+     * Approximate cap (XTRIM MAXLEN ~) on a job's log stream while it runs. The api archives and
+     * deletes the stream once the job finishes.
+     */
+    private long streamMaxLength = 100000;
 
     @Getter
     @Setter
@@ -16,6 +16,16 @@ public interface TerraformState {
 
     String saveOutput(String organizationId, String jobId, String stepId, String output, String outputError);
 
+    /**
+     * Upload a step output that was spilled to disk while the step ran, streaming the file
+     * instead of building the whole log as one String. The file may be gzip compressed,
+     * the api decompresses it when it is read back.
+     *
+     * @param outputFile the finished spool file, including the error output
+     * @return the output path to store in the step
+     */
+    String saveOutput(String organizationId, String jobId, String stepId, File outputFile);
+
     /**
      * Upload a terraform/tofu binary to cloud storage for caching.
      * Fresh executor pods can restore the binary from storage instead of
@@ -298,6 +298,22 @@ public class AwsTerraformStateImpl implements TerraformState {
         return terraformOutputPathService.getOutputPath(organizationId, jobId, stepId);
     }
 
+    @Override
+    public String saveOutput(String organizationId, String jobId, String stepId, File outputFile) {
+        String blobKey = "tfoutput/" + organizationId + "/" + jobId + "/" + stepId + ".tfoutput";
+        log.info("blobKey: {} size: {}", blobKey, outputFile.length());
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(blobKey)
+                .build();
+
+        s3client.putObject(putObjectRequest, RequestBody.fromFile(outputFile));
+        log.info("Upload Object {} completed", blobKey);
+
+        return terraformOutputPathService.getOutputPath(organizationId, jobId, stepId);
+    }
+
     @Override
     public boolean saveTerraformBinary(String version, boolean tofu, File binaryFile) {
         String product = tofu ? "tofu" : "terraform";
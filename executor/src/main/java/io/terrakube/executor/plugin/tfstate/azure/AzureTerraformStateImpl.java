@@ -206,6 +206,21 @@ public class AzureTerraformStateImpl implements TerraformState {
         return terraformOutputPathService.getOutputPath(organizationId, jobId, stepId);
     }
 
+    @Override
+    public String saveOutput(String organizationId, String jobId, String stepId, File outputFile) {
+        BlobContainerClient blobContainerClient = blobServiceClient.getBlobContainerClient(CONTAINER_OUTPUT_NAME);
+
+        if (!blobContainerClient.exists()) {
+            blobContainerClient.create();
+        }
+        String blobName = organizationId + "/" + jobId + "/" + stepId + ".tfoutput";
+        log.info("blobName: {} size: {}", blobName, outputFile.length());
+        BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+        blobClient.uploadFromFile(outputFile.getAbsolutePath(), true);
+
+        return terraformOutputPathService.getOutputPath(organizationId, jobId, stepId);
+    }
+
     @Override
     public boolean saveTerraformBinary(String version, boolean tofu, File binaryFile) {
         String product = tofu ? "tofu" : "terraform";
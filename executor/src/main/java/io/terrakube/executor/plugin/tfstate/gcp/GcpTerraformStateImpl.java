@@ -197,6 +197,23 @@ public class GcpTerraformStateImpl implements TerraformState {
         return terraformOutputPathService.getOutputPath(organizationId, jobId, stepId);
     }
 
+    @Override
+    public String saveOutput(String organizationId, String jobId, String stepId, File outputFile) {
+        String blobKey = String.format("tfoutput/%s/%s/%s.tfoutput", organizationId, jobId, stepId);
+        log.info("blobKey: {} size: {}", blobKey, outputFile.length());
+
+        BlobId blobId = BlobId.of(bucketName, blobKey);
+        BlobInfo blobInfo = BlobInfo.newBuilder(blobId).build();
+        try {
+            storage.createFrom(blobInfo, outputFile.toPath());
+            log.info("File uploaded to bucket {} as {}", bucketName, blobKey);
+        } catch (IOException e) {
+            log.error("Failed to upload output {}: {}", blobKey, e.getMessage());
+        }
+
+        return terraformOutputPathService.getOutputPath(organizationId, jobId, stepId);
+    }
+
     @Override
     public boolean saveTerraformBinary(String version, boolean tofu, File binaryFile) {
         String product = tofu ? "tofu" : "terraform";
@@ -197,6 +197,26 @@ public class LocalTerraformStateImpl implements TerraformState {
 
     }
 
+    @Override
+    public String saveOutput(String organizationId, String jobId, String stepId, File outputFile) {
+        String outputFilePath = String.format(LOCAL_OUTPUT_DIRECTORY, organizationId, jobId , stepId);
+        log.info("blobName: {}", outputFilePath);
+
+        File localOutputFile = new File(FileUtils.getUserDirectoryPath().concat(
+                FilenameUtils.separatorsToSystem(
+                        outputFilePath
+                )));
+
+        log.info("Copying Output File: {}", localOutputFile.getAbsolutePath());
+        try {
+            FileUtils.copyFile(outputFile, localOutputFile);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+
+        return terraformOutputPathService.getOutputPath(organizationId, jobId, stepId);
+    }
+
     @Override
     public boolean saveTerraformBinary(String version, boolean tofu, File binaryFile) {
         String product = tofu ? "tofu" : "terraform";
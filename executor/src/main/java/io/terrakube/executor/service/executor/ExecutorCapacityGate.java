@@ -22,4 +22,8 @@ public class ExecutorCapacityGate {
     public void release() {
         busy.set(false);
     }
+
+    public boolean isBusy() {
+        return busy.get();
+    }
 }
@@ -152,8 +152,7 @@ public class ExecutorJobImpl implements ExecutorJob {
                 break;
         }
 
-        boolean executionSuccess = terraformResult.isSuccessfulExecution();
-        updateJobStatus.setCompletedStatus(executionSuccess, terraformResult.isPlan, terraformResult.getExitCode(), terraformJob, terraformResult.getOutputLog(), terraformResult.getOutputErrorLog(), terraformResult.getPlanFile(), commitId);
+        updateJobStatus.setCompletedStatus(terraformJob, terraformResult, commitId);
     }
 
     private static String getCommitId(File workspaceFolder) {
@@ -1,5 +1,6 @@
 package io.terrakube.executor.service.executor;
 
+import io.terrakube.executor.service.logs.JobOutputSink;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,6 +11,7 @@ public class ExecutorJobResult {
     String planFile;
     String outputLog;
     String outputErrorLog;
+    JobOutputSink outputSink;
     int exitCode;
     boolean isPlan;
 }
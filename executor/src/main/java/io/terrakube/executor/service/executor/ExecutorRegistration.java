@@ -0,0 +1,128 @@
+package io.terrakube.executor.service.executor;
+
+import io.terrakube.executor.configuration.ExecutorFlagsProperties;
+import io.terrakube.executor.configuration.ExecutorRegistrationProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+
+/**
+ * Advertises this replica and its free job slots to the api. Each pool is a Redis hash keyed by its
+ * normalized pool URL; each replica owns one field (its direct URL) holding "freeSlots:heartbeatMillis".
+ * A plain hash keeps the api's read to a single HGETALL; stale fields (a replica that died without
+ * deregistering) are ignored by age on the api side and cleaned up there.
+ *
+ * Published every 5 seconds and immediately on every readiness change, which OnlineModeServiceImpl and
+ * ExecutorJobImpl already publish when the capacity gate is taken and released.
+ */
+@Slf4j
+@Component
+public class ExecutorRegistration {
+
+    // Duplicated as a literal in api's ExecutorRegistry - separate Spring Boot apps, no shared
+    // module for this constant.
+    static final String REGISTRY_PREFIX = "terrakube:executor-registry:";
+
+    private final ExecutorRegistrationProperties properties;
+    private final ExecutorFlagsProperties executorFlagsProperties;
+    private final ExecutorCapacityGate executorCapacityGate;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final int serverPort;
+
+    private volatile String replicaUrl;
+
+    public ExecutorRegistration(ExecutorRegistrationProperties properties,
+            ExecutorFlagsProperties executorFlagsProperties,
+            ExecutorCapacityGate executorCapacityGate,
+            RedisTemplate<String, Object> redisTemplate,
+            @Value("${server.port:8090}") int serverPort) {
+        this.properties = properties;
+        this.executorFlagsProperties = executorFlagsProperties;
+        this.executorCapacityGate = executorCapacityGate;
+        this.redisTemplate = redisTemplate;
+        this.serverPort = serverPort;
+    }
+
+    static String registryKey(String poolUrl) {
+        String normalized = poolUrl.trim().toLowerCase(Locale.ROOT);
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return REGISTRY_PREFIX + normalized;
+    }
+
+    boolean isEnabled() {
+        return !executorFlagsProperties.isEphemeral()
+                && properties.getPoolUrl() != null && !properties.getPoolUrl().isBlank();
+    }
+
+    @Scheduled(fixedDelay = 5_000)
+    void heartbeat() {
+        publish();
+    }
+
+    @EventListener
+    void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        publish();
+    }
+
+    void publish() {
+        if (!isEnabled()) {
+            return;
+        }
+        String url = replicaUrl();
+        if (url == null) {
+            return;
+        }
+        int freeSlots = executorCapacityGate.isBusy() ? 0 : 1;
+        try {
+            redisTemplate.opsForHash().put(registryKey(properties.getPoolUrl()), url,
+                    freeSlots + ":" + System.currentTimeMillis());
+        } catch (Exception e) {
+            // Only costs routing precision: the api stops routing to this replica once the entry ages
+            // out and falls back to the pool URL when no replica is registered at all.
+            log.warn("Could not publish executor registration for {}: {}", url, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void deregister() {
+        if (!isEnabled() || replicaUrl == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForHash().delete(registryKey(properties.getPoolUrl()), replicaUrl);
+        } catch (Exception e) {
+            log.warn("Could not remove executor registration for {}: {}", replicaUrl, e.getMessage());
+        }
+    }
+
+    private String replicaUrl() {
+        if (replicaUrl == null) {
+            if (properties.getAdvertisedUrl() != null && !properties.getAdvertisedUrl().isBlank()) {
+                replicaUrl = properties.getAdvertisedUrl().trim();
+            } else {
+                try {
+                    replicaUrl = String.format("http://%s:%d/api/v1/terraform-rs",
+                            InetAddress.getLocalHost().getHostAddress(), serverPort);
+                } catch (UnknownHostException e) {
+                    log.warn("Could not determine this replica's address, set io.terrakube.executor.registration.advertisedUrl: {}",
+                            e.getMessage());
+                    return null;
+                }
+            }
+            log.info("Registering executor replica {} for pool {}", replicaUrl, properties.getPoolUrl());
+        }
+        return replicaUrl;
+    }
+}
@@ -0,0 +1,146 @@
+package io.terrakube.executor.service.logs;
+
+import io.terrakube.executor.configuration.JobOutputProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Step output spilled to a local file instead of being accumulated in a TextStringBuilder.
+ * A 2-hour apply used to keep its whole console log in heap and then copy it again into the
+ * upload request; now only the write buffer lives in memory and the storage backends stream
+ * the file as-is (already gzipped when compression is enabled).
+ *
+ * Lines can arrive from terraform's stdout and stderr listener threads at the same time, so
+ * every write is synchronized on the sink.
+ */
+@Slf4j
+public class JobOutputSink implements Closeable {
+
+    private final File file;
+    private final boolean compressed;
+    private Writer writer;
+    private long length;
+
+    private JobOutputSink(File file, boolean compressed, int bufferSize) throws IOException {
+        this.file = file;
+        this.compressed = compressed;
+        OutputStream outputStream = Files.newOutputStream(file.toPath());
+        if (compressed) {
+            outputStream = new GZIPOutputStream(outputStream, bufferSize);
+        }
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), bufferSize);
+    }
+
+    public static JobOutputSink create(JobOutputProperties properties, String jobId, String stepId) {
+        try {
+            File spoolDirectory = properties.getSpoolDirectory() == null || properties.getSpoolDirectory().isBlank()
+                    ? FileUtils.getTempDirectory()
+                    : new File(properties.getSpoolDirectory());
+            FileUtils.forceMkdir(spoolDirectory);
+            File file = File.createTempFile(String.format("terrakube-%s-%s-", jobId, stepId),
+                    properties.isCompress() ? ".tfoutput.gz" : ".tfoutput", spoolDirectory);
+            log.info("Spilling output for job {} step {} to {}", jobId, stepId, file.getAbsolutePath());
+            return new JobOutputSink(file, properties.isCompress(), properties.getBufferSizeBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create output spool file", e);
+        }
+    }
+
+    public void appendln(String line) {
+        append(line + "\n");
+    }
+
+    public synchronized void append(String text) {
+        if (writer == null) {
+            log.warn("Output sink {} already finished, dropping output", file.getName());
+            return;
+        }
+        try {
+            writer.write(text);
+            length += utf8Length(text);
+        } catch (IOException e) {
+            log.error("Failed to write output to {}: {}", file.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Flushes and closes the writer (writing the gzip trailer) and returns the file ready to be
+     * uploaded. Safe to call more than once.
+     */
+    public synchronized File finish() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.error("Failed to close output spool file {}: {}", file.getName(), e.getMessage());
+            }
+            writer = null;
+        }
+        return file;
+    }
+
+    /**
+     * Uncompressed content of the sink, decompressed on the fly. Callers own the stream.
+     */
+    public InputStream openStream() throws IOException {
+        InputStream inputStream = new BufferedInputStream(Files.newInputStream(finish().toPath()));
+        return compressed ? new GZIPInputStream(inputStream) : inputStream;
+    }
+
+    /**
+     * Uncompressed size of what was appended, in UTF-8 bytes.
+     */
+    public synchronized long length() {
+        return length;
+    }
+
+    // What the writer encodes text to, counted without encoding it a second time.
+    static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                // Unpaired surrogates are written as '?'.
+                bytes += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return bytes;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Finishes the sink and removes the spool file.
+     */
+    @Override
+    public void close() {
+        finish();
+        if (file.exists() && !FileUtils.deleteQuietly(file)) {
+            log.warn("Unable to delete output spool file {}", file.getAbsolutePath());
+        }
+    }
+}
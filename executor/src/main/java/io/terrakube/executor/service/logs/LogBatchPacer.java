@@ -0,0 +1,47 @@
+package io.terrakube.executor.service.logs;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how long LogsServiceApi lets a batch collect lines. The first line after a quiet spell is
+ * sent after minDelay so it shows up in the UI right away; while batches keep going out partial
+ * (a steady trickle of output) the delay doubles up to maxDelay, so a long step that prints a line
+ * every now and then settles at one request per maxDelay - the cadence of the old 5s tick - instead
+ * of one per minDelay. A full batch goes out at once and resets the delay: its request carries
+ * maxBatchSize lines, so those requests are bounded by the output rate, not by the pacing.
+ *
+ * Times are System.nanoTime() values passed in by the caller. Not thread-safe; only the sender
+ * thread uses it.
+ */
+final class LogBatchPacer {
+
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private long delayNanos;
+    private long lastBatchAt;
+    private boolean batchedBefore;
+
+    LogBatchPacer(long minDelayMillis, long maxDelayMillis) {
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        this.minDelayNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(Math.max(0, minDelayMillis)), maxDelayNanos);
+        this.delayNanos = minDelayNanos;
+    }
+
+    /**
+     * When the batch whose first line was taken at firstLineAt has to be sent, full or not.
+     */
+    long deadline(long firstLineAt) {
+        if (!batchedBefore || firstLineAt - lastBatchAt > maxDelayNanos) {
+            // Quiet for longer than the slowest cadence: nothing to slow down.
+            delayNanos = minDelayNanos;
+            return firstLineAt + minDelayNanos;
+        }
+        return Math.max(firstLineAt + minDelayNanos, lastBatchAt + delayNanos);
+    }
+
+    void batchClosed(boolean full, long now) {
+        delayNanos = full ? minDelayNanos : Math.min(maxDelayNanos, Math.max(1, delayNanos * 2));
+        lastBatchAt = now;
+        batchedBefore = true;
+    }
+}
@@ -1,25 +1,103 @@
 package io.terrakube.executor.service.logs;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.terrakube.executor.configuration.LogBatchProperties;
+import io.terrakube.executor.service.mode.batch.WarmPoolFirstLog;
+import io.terrakube.executor.service.workspace.security.WorkspaceSecurity;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.scheduling.annotation.Scheduled;
 import io.terrakube.client.TerrakubeClient;
 import io.terrakube.client.model.organization.job.Log;
 import io.terrakube.client.model.organization.job.LogsRequest;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Sends log lines to the api in batches instead of writing them to Redis directly.
+ *
+ * Used to be an unbounded deque drained by a fixed 5s @Scheduled tick: up to 5s of latency on
+ * every line, and unbounded heap if the api was down for the length of a long apply. Now a single
+ * sender thread sends a batch as soon as it is full (maxBatchSize) or its wait is over, whichever
+ * comes first, so a quiet step costs no requests at all and a chatty one is sent in full batches.
+ * The wait is paced by LogBatchPacer: a fraction of a second for the first lines after a quiet
+ * spell, growing to the old 5s cadence while the output keeps trickling in.
+ */
 @Service
 @Slf4j
-@AllArgsConstructor
 @ConditionalOnProperty(name = "io.executor.log-via-api", havingValue = "true", matchIfMissing = false)
 public class LogsServiceApi implements ProcessLogs {
-    private TerrakubeClient terrakubeClient;
-    private final LinkedBlockingDeque<Log> logQueue = new LinkedBlockingDeque<>();
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10000;
+    private static final long IDLE_POLL_MS = 1000;
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    private final TerrakubeClient terrakubeClient;
+    private final WorkspaceSecurity workspaceSecurity;
+    private final ObjectMapper objectMapper;
+    private final LogBatchProperties logBatchProperties;
+    private final WarmPoolFirstLog warmPoolFirstLog;
+    private final String terrakubeApiUrl;
+    private final LinkedBlockingDeque<Log> logQueue;
+    private final LogBatchPacer pacer;
+    private final AtomicLong droppedLines = new AtomicLong();
+    private volatile boolean running;
+    private Thread sender;
+
+    public LogsServiceApi(TerrakubeClient terrakubeClient,
+                          WorkspaceSecurity workspaceSecurity,
+                          ObjectMapper objectMapper,
+                          LogBatchProperties logBatchProperties,
+                          WarmPoolFirstLog warmPoolFirstLog,
+                          @Value("${io.terrakube.api.url}") String terrakubeApiUrl) {
+        this.terrakubeClient = terrakubeClient;
+        this.workspaceSecurity = workspaceSecurity;
+        this.objectMapper = objectMapper;
+        this.logBatchProperties = logBatchProperties;
+        this.warmPoolFirstLog = warmPoolFirstLog;
+        this.terrakubeApiUrl = terrakubeApiUrl;
+        this.logQueue = new LinkedBlockingDeque<>(logBatchProperties.getQueueCapacity());
+        this.pacer = new LogBatchPacer(logBatchProperties.getMinBatchDelayMillis(),
+                logBatchProperties.getMaxBatchDelayMillis());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        sender = Thread.ofPlatform().daemon().name("terrakube-log-sender").start(this::sendLoop);
+    }
+
+    // Whatever is still queued at shutdown gets one best-effort attempt, without retries.
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (sender != null) {
+            sender.interrupt();
+            try {
+                sender.join(READ_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Log> batch = new ArrayList<>();
+        while (logQueue.drainTo(batch, logBatchProperties.getMaxBatchSize()) > 0) {
+            send(batch);
+            batch.clear();
+        }
+    }
 
     @Override
     public void setupConsumerGroups(String jobId) {
@@ -27,6 +105,9 @@ public class LogsServiceApi implements ProcessLogs {
         terrakubeClient.setupConsumerGroups(jobId);
     }
 
+    // Never blocks: this runs on the thread reading terraform's stdout, and stalling it would
+    // stall terraform itself. A full queue means the api has been unreachable for a while; the
+    // line is dropped from the live view but is still part of the uploaded step output.
     @Override
     public void sendLogs(Integer jobId, String stepId, int lineNumber, String output) {
         Log logEntry = new Log();
@@ -35,11 +116,13 @@ public class LogsServiceApi implements ProcessLogs {
         logEntry.setLineNumber(lineNumber);
         logEntry.setOutput(output);
 
-        try {
-            logQueue.put(logEntry);
-        } catch (InterruptedException addLogException) {
-            log.error("Failed to add log to queue", addLogException);
-            Thread.currentThread().interrupt();
+        if (logQueue.offer(logEntry)) {
+            warmPoolFirstLog.logged();
+        } else {
+            long dropped = droppedLines.incrementAndGet();
+            if (dropped == 1 || dropped % 1000 == 0) {
+                log.warn("Log queue is full, {} log lines dropped so far", dropped);
+            }
         }
     }
 
@@ -51,40 +134,117 @@ public class LogsServiceApi implements ProcessLogs {
         // it just doesn't get the new live-push latency improvement in this deployment mode.
     }
 
-    @Scheduled(fixedDelay = 5000)  // Send logs every 5 seconds
-    public void sendBatchedLogs() {
-        log.info("Sending logs to Terrakube API");
-        if (logQueue.isEmpty()) {
-            return;
+    private void sendLoop() {
+        while (running) {
+            try {
+                List<Log> batch = nextBatch();
+                if (!batch.isEmpty() && !send(batch)) {
+                    requeueLogs(batch);
+                    Thread.sleep(RETRY_BACKOFF_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
         }
+    }
 
+    /**
+     * Waits for the first line, then keeps collecting until the batch is full or the pacer's
+     * deadline for it has passed. Returns an empty batch after an idle poll.
+     */
+    List<Log> nextBatch() throws InterruptedException {
         List<Log> batch = new ArrayList<>();
-        logQueue.drainTo(batch);
+        Log first = logQueue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
 
-        if (batch.isEmpty()) {
-            return;
+        int maxBatchSize = logBatchProperties.getMaxBatchSize();
+        long deadline = pacer.deadline(System.nanoTime());
+        while (batch.size() < maxBatchSize) {
+            logQueue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                break;
+            }
+            Log next = logQueue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
         }
+        pacer.batchClosed(batch.size() >= maxBatchSize, System.nanoTime());
+        return batch;
+    }
 
+    /**
+     * Returns false when the batch should be retried (api unreachable or 5xx). A 4xx is not going
+     * to succeed on retry, so that batch is logged and dropped.
+     */
+    boolean send(List<Log> batch) {
         LogsRequest logsRequest = new LogsRequest();
-        logsRequest.setData(batch);
+        logsRequest.setData(new ArrayList<>(batch));
 
         try {
-            terrakubeClient.appendLogs(logsRequest);
+            if (!logBatchProperties.isCompress()) {
+                terrakubeClient.appendLogs(logsRequest);
+                return true;
+            }
+
+            int statusCode = postCompressed(gzip(objectMapper.writeValueAsBytes(logsRequest)));
+            if (statusCode >= 500) {
+                log.warn("Failed to send {} log lines, api responded {}", batch.size(), statusCode);
+                return false;
+            }
+            if (statusCode >= 400) {
+                log.error("Dropping {} log lines, api rejected them with {}", batch.size(), statusCode);
+            }
+            return true;
         } catch (Exception sendLogsException) {
-            log.error("Failed to send logs", sendLogsException);
-            requeueLogs(batch);
+            log.error("Failed to send {} log lines: {}", batch.size(), sendLogsException.getMessage());
+            return false;
         }
     }
 
+    int postCompressed(byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(terrakubeApiUrl + "/logs").openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestProperty("Authorization", "Bearer " + workspaceSecurity.generateAccessToken(1));
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setDoOutput(true);
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body);
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(buffer)) {
+            gzipOutputStream.write(data);
+        }
+        return buffer.toByteArray();
+    }
 
+    // Back at the head of the queue, oldest first, so lines keep their order. Lines that no
+    // longer fit (the queue filled up while the batch was in flight) are dropped.
     private void requeueLogs(List<Log> failedBatch) {
         for (int i = failedBatch.size() - 1; i >= 0; i--) {
-            try {
-                logQueue.putFirst(failedBatch.get(i));
-            } catch (InterruptedException e) {
-                log.error("Thread interrupted while re-queuing logs", e);
-                Thread.currentThread().interrupt();
+            if (!logQueue.offerFirst(failedBatch.get(i))) {
+                droppedLines.addAndGet(i + 1L);
+                log.warn("Log queue is full, dropping {} log lines that failed to send", i + 1);
+                return;
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package io.terrakube.executor.service.logs;
 
+import io.terrakube.executor.configuration.RedisProperties;
+import io.terrakube.executor.service.mode.batch.WarmPoolFirstLog;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -15,8 +17,16 @@ import java.util.Map;
 @ConditionalOnProperty(name = "io.executor.log-via-api", havingValue = "false", matchIfMissing = true)
 public class LogsServiceRedis implements ProcessLogs {
 
+    // Trimming on every XADD would double the round trips for a chatty apply; every TRIM_INTERVAL
+    // lines is enough to keep the stream close to streamMaxLength.
+    static final int TRIM_INTERVAL = 1000;
+
     RedisTemplate redisTemplate;
 
+    RedisProperties redisProperties;
+
+    WarmPoolFirstLog warmPoolFirstLog;
+
     @Override
     public void setupConsumerGroups(String jobId) {
         try {
@@ -46,6 +56,10 @@ public class LogsServiceRedis implements ProcessLogs {
             streamData.put("output", output);
 
             redisTemplate.opsForStream().add(jobId.toString(), streamData);
+            warmPoolFirstLog.logged();
+            if (lineNumber % TRIM_INTERVAL == 0) {
+                redisTemplate.opsForStream().trim(jobId.toString(), redisProperties.getStreamMaxLength(), true);
+            }
         } catch (Exception ex) {
             log.error("Could not send log line to Redis for Job {}: {}", jobId, ex.getMessage());
         }
@@ -11,6 +11,7 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
@@ -24,18 +25,31 @@ public class BatchModeServiceImpl implements ApplicationListener<ContextRefreshe
     @Autowired
     ExecutorFlagsProperties executorFlagsProperties;
 
+    @Autowired
+    WarmPoolWaiter warmPoolWaiter;
+
     @Override
     public void onApplicationEvent(ContextRefreshedEvent contextRefreshedEvent) {
         log.info("Ephemeral mode is enable: {}", executorFlagsProperties.isEphemeral());
+        if (executorFlagsProperties.isEphemeral() && warmPoolWaiter.isWarmPod()) {
+            log.info("Running as a warm pool executor, ready for a job {} ms after JVM start", uptime());
+            warmPoolWaiter.start();
+            return;
+        }
         if (executorFlagsProperties.isEphemeral())
             try {
                 log.info("Running in ephemeral mode....");
                 String batchJob = new String(Base64.getDecoder().decode(executorFlagsProperties.getEphemeralJobData()), StandardCharsets.UTF_8);
                 TerraformJob terraformJob = new ObjectMapper().readValue(batchJob, TerraformJob.class);
-                log.info("Creating ephemeral job....");
+                // Read by scripts/build/executorStartupBenchmark.sh
+                log.info("Creating ephemeral job, time to first job {} ms after JVM start", uptime());
                 executorJob.createJob(terraformJob);
             } catch (IOException exception) {
                 log.error(exception.getMessage());
             }
     }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package io.terrakube.executor.service.mode.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Adds the time a warm pod published the first log line of its job to the claim WarmPoolWaiter wrote,
+ * so the api can record queue-to-first-log latency next to queue-to-claim. The log services call
+ * logged() for every line; on every pod but a warm one that has just claimed its job it returns at once.
+ */
+@Slf4j
+@Component
+public class WarmPoolFirstLog {
+
+    private record PendingClaim(String claimsKey, String member, String claim) {
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final AtomicReference<PendingClaim> pending = new AtomicReference<>();
+
+    public WarmPoolFirstLog(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    void claimed(String claimsKey, String member, String claim) {
+        pending.set(new PendingClaim(claimsKey, member, claim));
+    }
+
+    public void logged() {
+        if (pending.get() == null) {
+            return;
+        }
+        PendingClaim claim = pending.getAndSet(null);
+        if (claim == null) {
+            return;
+        }
+        String value = claim.claim() + ":" + System.currentTimeMillis();
+        // Off the caller's thread: the log services are called from the loop reading terraform's output.
+        Thread.ofVirtual().name("warm-pool-first-log").start(() -> {
+            try {
+                redisTemplate.opsForHash().put(claim.claimsKey(), claim.member(), value);
+            } catch (Exception e) {
+                log.warn("Could not record the first log line of warm executor {}: {}", claim.member(), e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package io.terrakube.executor.service.mode.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.terrakube.executor.configuration.ExecutorFlagsProperties;
+import io.terrakube.executor.service.executor.ExecutorJob;
+import io.terrakube.executor.service.mode.TerraformJob;
+import io.terrakube.executor.service.shutdown.ShutdownServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Runs an ephemeral executor started by the api's warm pool: instead of job data in its environment the
+ * pod waits for exactly one job on its pool's Redis queue, runs it and exits through the usual ephemeral
+ * shutdown. If no job arrives within the idle timeout the pod exits and the api starts a fresh one when
+ * the pool needs it.
+ *
+ * While waiting the pod keeps a heartbeat in the pool's "idle" hash, which is what the api counts before
+ * handing a job to the pool. Once it has popped a job it moves itself to the "claims" hash with the time
+ * the job was queued and the time it was claimed, for the api's wait-time metrics; WarmPoolFirstLog adds
+ * the time of the job's first log line.
+ */
+@Slf4j
+@Component
+public class WarmPoolWaiter {
+
+    // Duplicated as literals in api's WarmPodPool - separate Spring Boot apps, no shared module for
+    // these constants.
+    static final String QUEUE = ":queue";
+    static final String IDLE = ":idle";
+    static final String CLAIMS = ":claims";
+
+    // Short enough to stay under the Redis client timeout and to refresh the idle heartbeat.
+    static final Duration POLL = Duration.ofSeconds(5);
+
+    private final ExecutorJob executorJob;
+    private final ExecutorFlagsProperties executorFlagsProperties;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ShutdownServiceImpl shutdownService;
+    private final WarmPoolFirstLog warmPoolFirstLog;
+
+    public WarmPoolWaiter(ExecutorJob executorJob,
+            ExecutorFlagsProperties executorFlagsProperties,
+            RedisTemplate<String, Object> redisTemplate,
+            ShutdownServiceImpl shutdownService,
+            WarmPoolFirstLog warmPoolFirstLog) {
+        this.executorJob = executorJob;
+        this.executorFlagsProperties = executorFlagsProperties;
+        this.redisTemplate = redisTemplate;
+        this.shutdownService = shutdownService;
+        this.warmPoolFirstLog = warmPoolFirstLog;
+    }
+
+    public boolean isWarmPod() {
+        return executorFlagsProperties.getWarmPool() != null && !executorFlagsProperties.getWarmPool().isBlank();
+    }
+
+    public void start() {
+        Thread waiter = new Thread(this::waitForJob, "warm-pool-waiter");
+        waiter.setDaemon(true);
+        waiter.start();
+    }
+
+    void waitForJob() {
+        String pool = executorFlagsProperties.getWarmPool();
+        String member = executorFlagsProperties.getWarmPoolMember();
+        long deadline = System.currentTimeMillis() + executorFlagsProperties.getWarmPoolIdleTimeoutSeconds() * 1000L;
+        log.info("Warm executor {} waiting up to {}s for a job from {}", member,
+                executorFlagsProperties.getWarmPoolIdleTimeoutSeconds(), pool);
+
+        while (System.currentTimeMillis() < deadline) {
+            Object value;
+            try {
+                redisTemplate.opsForHash().put(pool + IDLE, member, String.valueOf(System.currentTimeMillis()));
+                value = redisTemplate.opsForList().rightPop(pool + QUEUE, POLL);
+            } catch (Exception e) {
+                log.warn("Could not read warm pool {}: {}", pool, e.getMessage());
+                sleep();
+                continue;
+            }
+            if (value != null) {
+                run(pool, member, String.valueOf(value));
+                return;
+            }
+        }
+
+        log.info("Warm executor {} got no job within {}s, exiting", member,
+                executorFlagsProperties.getWarmPoolIdleTimeoutSeconds());
+        leaveIdle(pool, member);
+        shutdownService.shutdownApplication();
+    }
+
+    private void run(String pool, String member, String entry) {
+        // enqueuedMillis|jobId|organizationId|workspaceId|base64 job data, see WarmPodPool.Entry
+        String[] parts = entry.split("\\|", 5);
+        leaveIdle(pool, member);
+        String claim = parts[0] + ":" + System.currentTimeMillis();
+        try {
+            redisTemplate.opsForHash().put(pool + CLAIMS, member, claim);
+            warmPoolFirstLog.claimed(pool + CLAIMS, member, claim);
+        } catch (Exception e) {
+            log.warn("Could not record the claim of job {} in warm pool {}: {}", parts.length > 1 ? parts[1] : entry,
+                    pool, e.getMessage());
+        }
+
+        try {
+            String batchJob = new String(Base64.getDecoder().decode(parts[4]), StandardCharsets.UTF_8);
+            TerraformJob terraformJob = new ObjectMapper().readValue(batchJob, TerraformJob.class);
+            log.info("Warm executor {} claimed job {}", member, terraformJob.getJobId());
+            executorJob.createJob(terraformJob);
+        } catch (Exception exception) {
+            // Nothing else will pick this entry up again; exiting lets the api's JobReconciliationSweep
+            // notice the job never started.
+            log.error("Could not start job from warm pool entry: {}", exception.getMessage());
+            shutdownService.shutdownApplication();
+        }
+    }
+
+    private void leaveIdle(String pool, String member) {
+        try {
+            redisTemplate.opsForHash().delete(pool + IDLE, member);
+        } catch (Exception e) {
+            log.debug("Could not remove {} from the idle warm pods of {}: {}", member, pool, e.getMessage());
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(POLL.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.terrakube.executor.service.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.terrakube.executor.service.workspace.security.WorkspaceSecurity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Reports a finished step to the api in one request (POST /completion/v1/job/{jobId}/step/{stepId}).
+ * The endpoint is idempotent, so a request whose response was lost can simply be sent again.
+ *
+ * Plain HttpURLConnection for the same reason as JobContextService: the TerrakubeClient library
+ * only knows the JSON:API resources.
+ */
+@Slf4j
+@Service
+public class StepCompletionClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 30000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    private final WorkspaceSecurity workspaceSecurity;
+    private final ObjectMapper objectMapper;
+    private final String terrakubeApiUrl;
+
+    public StepCompletionClient(WorkspaceSecurity workspaceSecurity,
+                                ObjectMapper objectMapper,
+                                @Value("${io.terrakube.api.url}") String terrakubeApiUrl) {
+        this.workspaceSecurity = workspaceSecurity;
+        this.objectMapper = objectMapper;
+        this.terrakubeApiUrl = terrakubeApiUrl;
+    }
+
+    /**
+     * Returns true once the api has applied the completion (or had already applied it). Returns
+     * false when the caller should fall back to the individual JSON:API calls: the api rejected
+     * the request (e.g. an older api without this endpoint) or stayed unreachable.
+     */
+    public boolean completeStep(String jobId, String stepId, StepCompletionRequest request) {
+        String endpoint = String.format("%s/completion/v1/job/%s/step/%s", terrakubeApiUrl, jobId, stepId);
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                int statusCode = post(endpoint, objectMapper.writeValueAsBytes(request));
+                if (statusCode < 300) {
+                    return true;
+                }
+                if (statusCode < 500) {
+                    log.warn("Step completion for job {} step {} rejected with {}, using the JSON:API calls", jobId, stepId, statusCode);
+                    return false;
+                }
+                log.warn("Step completion for job {} step {} failed with {} (attempt {}/{})", jobId, stepId, statusCode, attempt, MAX_ATTEMPTS);
+            } catch (IOException e) {
+                log.warn("Step completion for job {} step {} failed: {} (attempt {}/{})", jobId, stepId, e.getMessage(), attempt, MAX_ATTEMPTS);
+            }
+            if (attempt < MAX_ATTEMPTS) {
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int post(String endpoint, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestProperty("Authorization", "Bearer " + workspaceSecurity.generateAccessToken(1));
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setDoOutput(true);
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body);
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.terrakube.executor.service.status;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Body of the api's /completion/v1 call. The api derives the job status from these fields.
+ */
+@Getter
+@Setter
+public class StepCompletionRequest {
+    private boolean successful;
+    private boolean plan;
+    private int exitCode;
+    private String output;
+    private String terraformPlan;
+    private String commitId;
+}
@@ -1,5 +1,6 @@
 package io.terrakube.executor.service.status;
 
+import io.terrakube.executor.service.executor.ExecutorJobResult;
 import io.terrakube.executor.service.mode.TerraformJob;
 
 public interface UpdateJobStatus {
@@ -7,4 +8,6 @@ public interface UpdateJobStatus {
     void setRunningStatus(TerraformJob job, String commitId);
 
     void setCompletedStatus(boolean successful, boolean isPlan, int exitCode, TerraformJob job, String jobOutput, String jobErrorOutput, String jobPlan, String commitId);
+
+    void setCompletedStatus(TerraformJob job, ExecutorJobResult result, String commitId);
 }
@@ -12,8 +12,12 @@ import io.terrakube.client.model.organization.job.step.StepRequest;
 import io.terrakube.executor.configuration.ExecutorFlagsProperties;
 import io.terrakube.executor.plugin.tfstate.TerraformOutputPathService;
 import io.terrakube.executor.plugin.tfstate.TerraformState;
+import io.terrakube.executor.service.executor.ExecutorJobResult;
+import io.terrakube.executor.service.logs.JobOutputSink;
 import io.terrakube.executor.service.mode.TerraformJob;
 
+import java.util.function.Supplier;
+
 @Slf4j
 @Service
 @AllArgsConstructor
@@ -28,6 +32,8 @@ public class UpdateJobStatusImpl implements UpdateJobStatus {
 
     private TerraformOutputPathService terraformOutputPathService;
 
+    private StepCompletionClient stepCompletionClient;
+
     @Override
     public void setRunningStatus(TerraformJob terraformJob, String commitId) {
         if (!executorFlagsProperties.isDisableAcknowledge()) {
@@ -61,16 +67,58 @@ public class UpdateJobStatusImpl implements UpdateJobStatus {
 
     @Override
     public void setCompletedStatus(boolean successful, boolean isPlan, int exitCode, TerraformJob terraformJob, String jobOutput, String jobErrorOutput, String jobPlan, String commitId) {
+        completeJob(successful, isPlan, exitCode, terraformJob, jobOutput.length(), jobErrorOutput.length(), jobPlan, commitId,
+                () -> this.terraformOutput.saveOutput(terraformJob.getOrganizationId(), terraformJob.getJobId(), terraformJob.getStepId(), jobOutput, jobErrorOutput));
+    }
+
+    @Override
+    public void setCompletedStatus(TerraformJob terraformJob, ExecutorJobResult result, String commitId) {
+        JobOutputSink outputSink = result.getOutputSink();
+        if (outputSink == null) {
+            setCompletedStatus(result.isSuccessfulExecution(), result.isPlan(), result.getExitCode(), terraformJob, result.getOutputLog(), result.getOutputErrorLog(), result.getPlanFile(), commitId);
+            return;
+        }
+
+        // The spool file is owned by this call from here on: it is uploaded as-is and removed
+        // even when acknowledge is disabled or the upload fails, so a long-lived executor does
+        // not fill its disk with finished step logs.
+        try (outputSink) {
+            String jobErrorOutput = result.getOutputErrorLog() == null ? "" : result.getOutputErrorLog();
+            outputSink.append(jobErrorOutput);
+            completeJob(result.isSuccessfulExecution(), result.isPlan(), result.getExitCode(), terraformJob, outputSink.length(), jobErrorOutput.length(), result.getPlanFile(), commitId,
+                    () -> this.terraformOutput.saveOutput(terraformJob.getOrganizationId(), terraformJob.getJobId(), terraformJob.getStepId(), outputSink.finish()));
+        }
+    }
+
+    // One call to the api's completion endpoint instead of getJobById (twice), updateStep and
+    // updateJob. The individual JSON:API calls remain as the fallback for an api that doesn't
+    // have the endpoint yet or can't be reached through it.
+    private void completeJob(boolean successful, boolean isPlan, int exitCode, TerraformJob terraformJob, long outputLength, long errorOutputLength, String jobPlan, String commitId, Supplier<String> saveOutput) {
         if (!executorFlagsProperties.isDisableAcknowledge()) {
+            String output = saveOutput.get();
+            log.info("output: {}", outputLength);
+            log.info("outputError: {}", errorOutputLength);
+
+            StepCompletionRequest stepCompletionRequest = new StepCompletionRequest();
+            stepCompletionRequest.setSuccessful(successful);
+            stepCompletionRequest.setPlan(isPlan);
+            stepCompletionRequest.setExitCode(exitCode);
+            stepCompletionRequest.setOutput(output);
+            stepCompletionRequest.setTerraformPlan(jobPlan);
+            stepCompletionRequest.setCommitId(commitId);
+            if (stepCompletionClient.completeStep(terraformJob.getJobId(), terraformJob.getStepId(), stepCompletionRequest)) {
+                return;
+            }
+
             String currentJobStatus = getCurrentJobStatus(terraformJob);
             // A rejected run keeps showing its approval step as failed: onReject command
             // output is still saved, but its success must not repaint the step as completed.
             boolean rejected = currentJobStatus.equals("rejected");
-            updateStepStatus(successful && !rejected, terraformJob.getOrganizationId(), terraformJob.getJobId(), terraformJob.getStepId(), jobOutput, jobErrorOutput);
+            updateStepStatus(successful && !rejected, terraformJob.getOrganizationId(), terraformJob.getJobId(), terraformJob.getStepId(), output);
             if (rejected || currentJobStatus.equals("cancelled"))
                 log.warn("Job {} was {} when running executor, skipping job status update", terraformJob.getJobId(), currentJobStatus);
             else
-                updateJobStatus(successful, isPlan, exitCode, terraformJob.getOrganizationId(), terraformJob.getJobId(), terraformJob.getStepId(), jobOutput, jobErrorOutput, jobPlan, commitId);
+                updateJobStatus(successful, isPlan, exitCode, terraformJob.getOrganizationId(), terraformJob.getJobId(), terraformJob.getStepId(), jobPlan, commitId);
         }
     }
 
@@ -79,7 +127,7 @@ public class UpdateJobStatusImpl implements UpdateJobStatus {
                 .getData().getAttributes().getStatus();
     }
 
-    private void updateJobStatus(boolean successful, boolean isPlan, int exitCode, String organizationId, String jobId, String stepId, String jobOutput, String jobErrorOutput, String jobPlan, String commitId) {
+    private void updateJobStatus(boolean successful, boolean isPlan, int exitCode, String organizationId, String jobId, String stepId, String jobPlan, String commitId) {
         Job job = terrakubeClient.getJobById(organizationId, jobId).getData();
         String status = "";
         boolean planChanges = true;
@@ -112,8 +160,6 @@ public class UpdateJobStatusImpl implements UpdateJobStatus {
         job.getAttributes().setPlanChanges(planChanges);
         log.info("JobStatus: {}", status);
         log.info("StepId: {}", stepId);
-        log.info("output: {}", jobOutput.length());
-        log.info("outputError: {}", jobErrorOutput.length());
 
         job.getAttributes().setOutput(
                 job.getAttributes().getOutput() == null ? "" : job.getAttributes().getOutput() + " Step " + stepId + " completed\n"
@@ -127,9 +173,9 @@ public class UpdateJobStatusImpl implements UpdateJobStatus {
         terrakubeClient.updateJob(jobRequest, job.getRelationships().getOrganization().getData().getId(), job.getId());
     }
 
-    private void updateStepStatus(boolean status, String organizationId, String jobId, String stepId, String jobOutput, String jobErrorOutput) {
+    private void updateStepStatus(boolean status, String organizationId, String jobId, String stepId, String output) {
         StepAttributes stepAttributes = new StepAttributes();
-        stepAttributes.setOutput(this.terraformOutput.saveOutput(organizationId, jobId, stepId, jobOutput, jobErrorOutput));
+        stepAttributes.setOutput(output);
         stepAttributes.setStatus(status ? "completed": "failed");
 
         Step step = new Step();
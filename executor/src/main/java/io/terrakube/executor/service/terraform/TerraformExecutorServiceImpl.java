@@ -3,8 +3,10 @@ package io.terrakube.executor.service.terraform;
 import com.diogonunes.jcolor.AnsiFormat;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.terrakube.executor.configuration.JobOutputProperties;
 import io.terrakube.executor.plugin.tfstate.TerraformState;
 import io.terrakube.executor.service.executor.ExecutorJobResult;
+import io.terrakube.executor.service.logs.JobOutputSink;
 import io.terrakube.executor.service.logs.LogsConsumer;
 import io.terrakube.executor.service.logs.ProcessLogs;
 import io.terrakube.executor.service.mode.TerraformJob;
@@ -65,8 +67,9 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
     ApplyStructuredOutputService applyStructuredOutputService;
     TerraformOutputsService terraformOutputsService;
     ObjectMapper objectMapper;
+    JobOutputProperties jobOutputProperties;
 
-    public TerraformExecutorServiceImpl(TerraformClient terraformClient, TerraformState terraformState, ScriptEngineService scriptEngineService, ProcessLogs logsService, PlanStructuredOutputService planStructuredOutputService, ApplyStructuredOutputService applyStructuredOutputService, TerraformOutputsService terraformOutputsService, ObjectMapper objectMapper, @Value("${io.terrakube.terraform.flags.enableColor}") boolean enableColorOutput, RedisTemplate redisTemplate, @Value("${io.terrakube.executor.redis.timeout}") int redisTimeout) {
+    public TerraformExecutorServiceImpl(TerraformClient terraformClient, TerraformState terraformState, ScriptEngineService scriptEngineService, ProcessLogs logsService, PlanStructuredOutputService planStructuredOutputService, ApplyStructuredOutputService applyStructuredOutputService, TerraformOutputsService terraformOutputsService, ObjectMapper objectMapper, JobOutputProperties jobOutputProperties, @Value("${io.terrakube.terraform.flags.enableColor}") boolean enableColorOutput, RedisTemplate redisTemplate, @Value("${io.terrakube.executor.redis.timeout}") int redisTimeout) {
         this.terraformClient = terraformClient;
         this.terraformState = terraformState;
         this.scriptEngineService = scriptEngineService;
@@ -76,6 +79,7 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
         this.applyStructuredOutputService = applyStructuredOutputService;
         this.terraformOutputsService = terraformOutputsService;
         this.objectMapper = objectMapper;
+        this.jobOutputProperties = jobOutputProperties;
         this.enableColorOutput = enableColorOutput;
         this.redisTimeout = redisTimeout;
     }
@@ -143,7 +147,10 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
         logsService.setupConsumerGroups(terraformJob.getJobId());
         ExecutorJobResult result;
 
-        TextStringBuilder jobOutput = new TextStringBuilder();
+        JobOutputSink jobOutput = JobOutputSink.create(jobOutputProperties, terraformJob.getJobId(), terraformJob.getStepId());
+        // The result takes the spool file over to setCompletedStatus, which removes it; on every
+        // other way out of here it is removed below.
+        boolean outputHandedOver = false;
         TextStringBuilder jobErrorOutput = new TextStringBuilder();
         try {
             File terraformWorkingDir = getTerraformWorkingDir(terraformJob, executorTempDirectory);
@@ -261,7 +268,7 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
 
             waitForStreamCompletion(terraformJob.getJobId(), 300);
 
-            result = generateJobResult(scriptAfterSuccessPlan, jobOutput.toString(), jobErrorOutput.toString());
+            result = generateJobResult(scriptAfterSuccessPlan, jobOutput, jobErrorOutput.toString());
             result.setPlanFile(executionPlan ? terraformState.saveTerraformPlan(terraformJob.getOrganizationId(),
                     terraformJob.getWorkspaceId(), terraformJob.getJobId(), terraformJob.getStepId(), terraformWorkingDir)
                     : "");
@@ -270,9 +277,14 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
             }
             result.setPlan(true);
             result.setExitCode(exitCode);
+            outputHandedOver = true;
         } catch (IOException | ExecutionException | InterruptedException exception) {
             result = setError(exception);
             result.setExitCode(1);
+        } finally {
+            if (!outputHandedOver) {
+                jobOutput.close();
+            }
         }
         return result;
     }
@@ -282,7 +294,8 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
         logsService.setupConsumerGroups(terraformJob.getJobId());
         ExecutorJobResult result;
 
-        TextStringBuilder terraformOutput = new TextStringBuilder();
+        JobOutputSink terraformOutput = JobOutputSink.create(jobOutputProperties, terraformJob.getJobId(), terraformJob.getStepId());
+        boolean outputHandedOver = false;
         TextStringBuilder terraformErrorOutput = new TextStringBuilder();
         try {
             File terraformWorkingDir = getTerraformWorkingDir(terraformJob, executorTempDirectory);
@@ -349,9 +362,14 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
             scriptAfterSuccess = executePostOperationScripts(terraformJob, terraformWorkingDir, applyOutput, execution || terraformJob.isIgnoreError());
 
             waitForStreamCompletion(terraformJob.getJobId(), 300);
-            result = generateJobResult(scriptAfterSuccess, terraformOutput.toString(), terraformErrorOutput.toString());
+            result = generateJobResult(scriptAfterSuccess, terraformOutput, terraformErrorOutput.toString());
+            outputHandedOver = true;
         } catch (IOException | ExecutionException | InterruptedException exception) {
             result = setError(exception);
+        } finally {
+            if (!outputHandedOver) {
+                terraformOutput.close();
+            }
         }
         return result;
     }
@@ -530,7 +548,8 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
         logsService.setupConsumerGroups(terraformJob.getJobId());
         ExecutorJobResult result;
 
-        TextStringBuilder jobOutput = new TextStringBuilder();
+        JobOutputSink jobOutput = JobOutputSink.create(jobOutputProperties, terraformJob.getJobId(), terraformJob.getStepId());
+        boolean outputHandedOver = false;
         TextStringBuilder jobErrorOutput = new TextStringBuilder();
         try {
             File terraformWorkingDir = getTerraformWorkingDir(terraformJob, executorTempDirectory);
@@ -568,13 +587,25 @@ public class TerraformExecutorServiceImpl implements TerraformExecutor {
             scriptAfterSuccess = executePostOperationScripts(terraformJob, terraformWorkingDir, outputDestroy, execution);
 
             waitForStreamCompletion(terraformJob.getJobId(), 300);
-            result = generateJobResult(scriptAfterSuccess, jobOutput.toString(), jobErrorOutput.toString());
+            result = generateJobResult(scriptAfterSuccess, jobOutput, jobErrorOutput.toString());
+            outputHandedOver = true;
         } catch (IOException | ExecutionException | InterruptedException exception) {
             result = setError(exception);
+        } finally {
+            if (!outputHandedOver) {
+                jobOutput.close();
+            }
         }
         return result;
     }
 
+    private ExecutorJobResult generateJobResult(boolean scriptAfterSuccess, JobOutputSink jobOutput, String jobErrorOutput) {
+        ExecutorJobResult jobResult = generateJobResult(scriptAfterSuccess, "", jobErrorOutput);
+        jobResult.setOutputSink(jobOutput);
+
+        return jobResult;
+    }
+
     private ExecutorJobResult generateJobResult(boolean scriptAfterSuccess, String jobOutput, String jobErrorOutput) {
         ExecutorJobResult jobResult = new ExecutorJobResult();
         jobResult.setSuccessfulExecution(scriptAfterSuccess);
@@ -0,0 +1,334 @@
+package io.terrakube.executor.service.workspace;
+
+import io.terrakube.executor.configuration.GitMirrorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.transport.URIish;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bare mirrors of workspace repositories, one per organization and repository URL.
+ *
+ * A job fetches only the ref it needs into the mirror (incremental after the first job), then
+ * gets a work tree whose object database borrows the mirror's through objects/info/alternates:
+ * nothing is copied, and the checkout only writes the files of the commit. The fetch always goes
+ * to the remote with the job's own credentials, so the mirror never hands out content the job
+ * could not have cloned itself.
+ *
+ * Concurrency: each mirror is guarded by an in-process lock plus a file lock next to it, so jobs
+ * in this executor and in other executors sharing the directory take turns on the same mirror.
+ * Eviction only deletes a mirror whose lock it gets without waiting and whose work trees are all
+ * gone - a job still running on a mirror keeps it alive however old it is.
+ */
+@Slf4j
+@Service
+public class GitMirrorCache {
+
+    private static final String WORK_TREES_FILE = "terrakube-worktrees";
+    private static final String COMMIT_ID_PATTERN = "^[a-fA-F0-9]{40}$";
+
+    private final GitMirrorProperties gitMirrorProperties;
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public GitMirrorCache(GitMirrorProperties gitMirrorProperties) {
+        this.gitMirrorProperties = gitMirrorProperties;
+    }
+
+    public boolean isEnabled() {
+        return gitMirrorProperties.isEnabled();
+    }
+
+    /**
+     * Updates the mirror of {@code source} with {@code ref} (and {@code commitId} when it is not
+     * reachable from it) and checks the commit out into {@code workTree}, with {@code origin}
+     * pointing at {@code source}. Returns the id of the checked out commit.
+     *
+     * @param transport applies the job's credentials or SSH session to a fetch
+     */
+    public String checkout(String cacheKey, String source, String ref, String commitId, File workTree,
+            UnaryOperator<FetchCommand> transport) throws IOException, GitAPIException {
+        File mirror = mirrorDirectory(cacheKey, source);
+        String checkedOut;
+        try (MirrorLock lock = lock(mirror, true)) {
+            try (Repository repository = openMirror(mirror)) {
+                ObjectId target = fetch(repository, source, ref, commitId, transport);
+                boolean detached = commitId != null && !commitId.isBlank() || !ref.startsWith(Constants.R_HEADS);
+                linkWorkTree(repository, workTree, source, ref, target, detached);
+                checkedOut = target.getName();
+            }
+            registerWorkTree(mirror, workTree);
+        }
+        log.info("Checked out {} {} from git mirror {}", source, checkedOut, mirror.getName());
+        evictLeastRecentlyUsed();
+        return checkedOut;
+    }
+
+    private ObjectId fetch(Repository repository, String source, String ref, String commitId,
+            UnaryOperator<FetchCommand> transport) throws IOException, GitAPIException {
+        try (Git git = new Git(repository)) {
+            transport.apply(git.fetch())
+                    .setRemote(source)
+                    .setRefSpecs(new RefSpec("+" + ref + ":" + ref))
+                    .setTagOpt(TagOpt.NO_TAGS)
+                    .call();
+
+            if (commitId == null || commitId.isBlank()) {
+                ObjectId tip = repository.resolve(ref + "^{commit}");
+                if (tip == null) {
+                    throw new IOException("Ref " + ref + " not found in " + source);
+                }
+                return tip;
+            }
+
+            ObjectId commit = resolveCommit(repository, commitId);
+            if (commit == null && commitId.matches(COMMIT_ID_PATTERN)) {
+                log.info("Commit id {} is not in the mirror yet, fetching it", commitId);
+                transport.apply(git.fetch())
+                        .setRemote(source)
+                        .setRefSpecs(new RefSpec(commitId))
+                        .setTagOpt(TagOpt.NO_TAGS)
+                        .call();
+                commit = resolveCommit(repository, commitId);
+            }
+            if (commit == null) {
+                throw new IOException("Commit " + commitId + " not found in " + source);
+            }
+            return commit;
+        }
+    }
+
+    private static ObjectId resolveCommit(Repository repository, String commitId) throws IOException {
+        ObjectId objectId = repository.resolve(commitId);
+        if (objectId == null) {
+            return null;
+        }
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            return revWalk.parseCommit(objectId).getId();
+        } catch (MissingObjectException _) {
+            return null;
+        }
+    }
+
+    private void linkWorkTree(Repository mirror, File workTree, String source, String ref, ObjectId target,
+            boolean detached) throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(workTree).call()) {
+            File alternates = new File(git.getRepository().getDirectory(), "objects/info/alternates");
+            FileUtils.writeStringToFile(alternates,
+                    new File(mirror.getDirectory(), "objects").getAbsolutePath() + "\n", StandardCharsets.UTF_8);
+        }
+
+        // Reopened so the object database picks up the alternates file written above.
+        try (Git git = Git.open(workTree)) {
+            Repository repository = git.getRepository();
+            git.remoteAdd().setName(Constants.DEFAULT_REMOTE_NAME).setUri(new URIish(source)).call();
+
+            // Same refs a single-ref clone leaves behind: the branch and its remote-tracking
+            // ref, or just the tag.
+            ObjectId refTarget = mirror.resolve(ref);
+            updateRef(repository, ref, refTarget);
+            if (ref.startsWith(Constants.R_HEADS)) {
+                String branch = ref.substring(Constants.R_HEADS.length());
+                updateRef(repository, Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + branch, refTarget);
+            }
+
+            if (detached) {
+                RefUpdate head = repository.updateRef(Constants.HEAD, true);
+                head.setNewObjectId(target);
+                head.forceUpdate();
+            } else {
+                repository.updateRef(Constants.HEAD).link(ref);
+            }
+            git.reset().setMode(ResetCommand.ResetType.HARD).call();
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid repository URL " + source, e);
+        }
+    }
+
+    private static void updateRef(Repository repository, String name, ObjectId objectId) throws IOException {
+        RefUpdate refUpdate = repository.updateRef(name);
+        refUpdate.setNewObjectId(objectId);
+        refUpdate.forceUpdate();
+    }
+
+    private static Repository openMirror(File mirror) throws IOException {
+        Repository repository = new FileRepositoryBuilder().setGitDir(mirror).setBare().build();
+        if (!repository.getObjectDatabase().exists()) {
+            log.info("Creating git mirror {}", mirror.getName());
+            repository.create(true);
+        }
+        return repository;
+    }
+
+    /**
+     * The work trees borrowing this mirror's objects, pruned of the ones already deleted. The
+     * file is rewritten on every checkout, so its timestamp is also the mirror's last use.
+     */
+    private static void registerWorkTree(File mirror, File workTree) throws IOException {
+        Set<String> workTrees = new LinkedHashSet<>(liveWorkTrees(mirror));
+        workTrees.add(workTree.getAbsolutePath());
+        FileUtils.writeLines(new File(mirror, WORK_TREES_FILE), StandardCharsets.UTF_8.name(), workTrees);
+    }
+
+    private static List<String> liveWorkTrees(File mirror) throws IOException {
+        File workTreesFile = new File(mirror, WORK_TREES_FILE);
+        if (!workTreesFile.exists()) {
+            return List.of();
+        }
+        return FileUtils.readLines(workTreesFile, StandardCharsets.UTF_8).stream()
+                .filter(path -> !path.isBlank() && new File(path).exists())
+                .toList();
+    }
+
+    private static long lastUsed(File mirror) {
+        return new File(mirror, WORK_TREES_FILE).lastModified();
+    }
+
+    /**
+     * Deletes least recently used mirrors until the total fits maxSizeMb. Runs on the job thread
+     * after its checkout; when another job is already evicting there is nothing to add.
+     */
+    void evictLeastRecentlyUsed() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            File[] mirrors = rootDirectory().listFiles(file -> file.isDirectory() && file.getName().endsWith(".git"));
+            if (mirrors == null) {
+                return;
+            }
+            Map<File, Long> sizes = new HashMap<>();
+            long total = 0;
+            for (File mirror : mirrors) {
+                long size = FileUtils.sizeOfDirectory(mirror);
+                sizes.put(mirror, size);
+                total += size;
+            }
+
+            long budget = gitMirrorProperties.getMaxSizeMb() * 1024 * 1024;
+            List<File> leastRecentlyUsedFirst = new ArrayList<>(Arrays.asList(mirrors));
+            leastRecentlyUsedFirst.sort(Comparator.comparingLong(GitMirrorCache::lastUsed));
+            for (File mirror : leastRecentlyUsedFirst) {
+                if (total <= budget) {
+                    break;
+                }
+                try (MirrorLock lock = lock(mirror, false)) {
+                    if (lock == null || !liveWorkTrees(mirror).isEmpty()) {
+                        continue;
+                    }
+                    FileUtils.deleteDirectory(mirror);
+                    total -= sizes.get(mirror);
+                    log.info("Evicted git mirror {} ({} bytes)", mirror.getName(), sizes.get(mirror));
+                }
+            }
+            if (total > budget) {
+                log.warn("Git mirrors use {} bytes, over the {} MB budget, but the rest are in use", total,
+                        gitMirrorProperties.getMaxSizeMb());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Git mirror eviction failed: {}", e.getMessage());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    File rootDirectory() throws IOException {
+        String directory = gitMirrorProperties.getDirectory();
+        File root = directory == null || directory.isBlank()
+                ? new File(FileUtils.getUserDirectoryPath(), ".terraform-spring-boot/git-mirror")
+                : new File(directory);
+        FileUtils.forceMkdir(root);
+        return root;
+    }
+
+    // Keyed by organization as well as URL: two organizations pointing at the same repository
+    // with different credentials don't share a mirror.
+    File mirrorDirectory(String cacheKey, String source) throws IOException {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((cacheKey + "\n" + source).getBytes(StandardCharsets.UTF_8));
+            return new File(rootDirectory(), HexFormat.of().formatHex(digest) + ".git");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns null when {@code wait} is false and the mirror is busy. File locks are held per
+     * JVM, not per thread, so the in-process lock has to be taken first.
+     */
+    private MirrorLock lock(File mirror, boolean wait) throws IOException {
+        ReentrantLock lock = locks.computeIfAbsent(mirror.getName(), name -> new ReentrantLock());
+        if (wait) {
+            lock.lock();
+        } else if (!lock.tryLock()) {
+            return null;
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(new File(mirror.getParentFile(), mirror.getName() + ".lock").toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock fileLock = wait ? channel.lock() : channel.tryLock();
+            if (fileLock == null) {
+                channel.close();
+                lock.unlock();
+                return null;
+            }
+            return new MirrorLock(lock, channel);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    private record MirrorLock(ReentrantLock lock, FileChannel channel) implements AutoCloseable {
+        @Override
+        public void close() throws IOException {
+            try {
+                channel.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -70,16 +70,19 @@ public class SetupWorkspaceImpl implements SetupWorkspace {
     TerraformExecutor terraformExecutor;
     String apiUrl;
     TerrakubeClient terrakubeClient;
+    GitMirrorCache gitMirrorCache;
 
     public SetupWorkspaceImpl(WorkspaceSecurity workspaceSecurity,
                               @Value("${io.terrakube.client.enableSecurity}") boolean enableRegistrySecurity,
                               TerraformExecutor terraformExecutor,
-                              @Value("${io.terrakube.api.url}") String apiUrl, TerrakubeClient terrakubeClient) {
+                              @Value("${io.terrakube.api.url}") String apiUrl, TerrakubeClient terrakubeClient,
+                              GitMirrorCache gitMirrorCache) {
         this.workspaceSecurity = workspaceSecurity;
         this.enableRegistrySecurity = enableRegistrySecurity;
         this.terraformExecutor = terraformExecutor;
         this.apiUrl = apiUrl;
         this.terrakubeClient = terrakubeClient;
+        this.gitMirrorCache = gitMirrorCache;
     }
 
     @Override
@@ -170,6 +173,11 @@ public class SetupWorkspaceImpl implements SetupWorkspace {
         // over the network, and nothing caches it between calls.
         CredentialsProvider credentialsProvider = credentialsProvider(terraformJob);
         String branchRef = resolveBranchRef(gitCloneFolder, terraformJob, credentialsProvider);
+        if (gitMirrorCache.isEnabled() && checkoutFromMirror(gitCloneFolder, terraformJob, branchRef, credentialsProvider)) {
+            log.info("Git checkout from mirror: {} Branch: {} Folder {}", terraformJob.getSource(),
+                    terraformJob.getBranch(), gitCloneFolder.getPath());
+            return;
+        }
         if (isSsh(terraformJob)) {
             CloneCommand cloneCommand = Git.cloneRepository()
                     .setURI(terraformJob.getSource())
@@ -212,6 +220,45 @@ public class SetupWorkspaceImpl implements SetupWorkspace {
                 gitCloneFolder.getPath());
     }
 
+    /**
+     * Returns false, with the folder emptied again, when the mirror can't serve the job; the
+     * regular clone then runs and reports any transport or credential problem as before.
+     */
+    private boolean checkoutFromMirror(File gitCloneFolder, TerraformJob terraformJob, String branchRef,
+            CredentialsProvider credentialsProvider) throws IOException {
+        // The key is written into the workspace itself, exactly where a clone leaves it:
+        // TerraformExecutorServiceImpl.getSshFile reads it back from there.
+        SshdSessionFactory sshSessionFactory = sshSessionFactory(gitCloneFolder, terraformJob);
+        try {
+            String commitId = gitMirrorCache.checkout(terraformJob.getOrganizationId(), terraformJob.getSource(),
+                    branchRef, terraformJob.getCommitId(), gitCloneFolder,
+                    fetchCommand -> configureTransport(fetchCommand, sshSessionFactory, credentialsProvider));
+            updateSubmodules(gitCloneFolder, sshSessionFactory, credentialsProvider);
+            getCommitId(gitCloneFolder, commitId);
+            return true;
+        } catch (GitAPIException | IOException | RuntimeException e) {
+            log.warn("Unable to check out {} from the git mirror, cloning instead: {}", terraformJob.getSource(),
+                    e.getMessage());
+            FileUtils.cleanDirectory(gitCloneFolder);
+            return false;
+        } finally {
+            if (sshSessionFactory != null) {
+                sshSessionFactory.close();
+            }
+        }
+    }
+
+    private void updateSubmodules(File gitCloneFolder, SshdSessionFactory sshSessionFactory,
+            CredentialsProvider credentialsProvider) throws GitAPIException, IOException {
+        if (!new File(gitCloneFolder, Constants.DOT_GIT_MODULES).exists()) {
+            return;
+        }
+        try (Git git = Git.open(gitCloneFolder)) {
+            git.submoduleInit().call();
+            configureTransport(git.submoduleUpdate(), sshSessionFactory, credentialsProvider).call();
+        }
+    }
+
     /**
      * The branch field also accepts a tag name, so the namespace has to be resolved before the
      * fetch can be restricted to a single ref.
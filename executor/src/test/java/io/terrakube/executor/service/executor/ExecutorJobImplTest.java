@@ -26,7 +26,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
-import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
@@ -91,7 +90,7 @@ class ExecutorJobImplTest {
 
         InOrder inOrder = inOrder(jobExecutionWatchdog, updateJobStatus, executorCapacityGate);
         inOrder.verify(jobExecutionWatchdog).markBusy(job);
-        inOrder.verify(updateJobStatus).setCompletedStatus(eq(true), anyBoolean(), anyInt(), eq(job), any(), any(), any(), any());
+        inOrder.verify(updateJobStatus).setCompletedStatus(eq(job), eq(result), any());
         inOrder.verify(jobExecutionWatchdog).markFree();
         inOrder.verify(executorCapacityGate).release();
     }
@@ -156,7 +155,7 @@ class ExecutorJobImplTest {
         verify(jobExecutionWatchdog).markBusy(job);
         verify(jobExecutionWatchdog).markFree();
         verify(executorCapacityGate).release();
-        verify(updateJobStatus).setCompletedStatus(eq(true), anyBoolean(), anyInt(), eq(job), any(), any(), any(), any());
+        verify(updateJobStatus).setCompletedStatus(eq(job), eq(result), any());
     }
 
     @Test
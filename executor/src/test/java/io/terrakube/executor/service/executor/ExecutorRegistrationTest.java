@@ -0,0 +1,74 @@
+package io.terrakube.executor.service.executor;
+
+import io.terrakube.executor.configuration.ExecutorFlagsProperties;
+import io.terrakube.executor.configuration.ExecutorRegistrationProperties;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ExecutorRegistrationTest {
+
+    private static final String POOL = "http://terrakube-executor-service:8090/api/v1/terraform-rs/";
+    private static final String REPLICA = "http://10.0.0.7:8090/api/v1/terraform-rs";
+
+    private final RedisTemplate<String, Object> redisTemplate = Mockito.mock(RedisTemplate.class);
+    private final HashOperations<String, Object, Object> hashOperations = Mockito.mock(HashOperations.class);
+    private final ExecutorCapacityGate gate = new ExecutorCapacityGate();
+    private final ExecutorFlagsProperties flags = new ExecutorFlagsProperties();
+
+    private ExecutorRegistration subject(String poolUrl) {
+        doReturn(hashOperations).when(redisTemplate).opsForHash();
+        ExecutorRegistrationProperties properties = new ExecutorRegistrationProperties();
+        properties.setPoolUrl(poolUrl);
+        properties.setAdvertisedUrl(REPLICA);
+        return new ExecutorRegistration(properties, flags, gate, redisTemplate, 8090);
+    }
+
+    @Test
+    void advertisesAFreeSlotUntilTheGateIsTaken() {
+        ExecutorRegistration registration = subject(POOL);
+        String key = "terrakube:executor-registry:http://terrakube-executor-service:8090/api/v1/terraform-rs";
+
+        registration.publish();
+        verify(hashOperations).put(eq(key), eq(REPLICA), Mockito.argThat(value -> ((String) value).startsWith("1:")));
+
+        assertTrue(gate.tryAcquire());
+        registration.publish();
+        verify(hashOperations).put(eq(key), eq(REPLICA), Mockito.argThat(value -> ((String) value).startsWith("0:")));
+
+        registration.deregister();
+        verify(hashOperations).delete(key, REPLICA);
+    }
+
+    @Test
+    void doesNothingWithoutAPoolUrl() {
+        subject("").publish();
+
+        verify(hashOperations, never()).put(anyString(), any(), any());
+    }
+
+    @Test
+    void ephemeralExecutorsNeverRegister() {
+        flags.setEphemeral(true);
+
+        subject(POOL).publish();
+
+        verify(hashOperations, never()).put(anyString(), any(), any());
+    }
+
+    @Test
+    void registryKeyIgnoresCaseAndTrailingSlashes() {
+        assertEquals("terrakube:executor-registry:http://executor/api/v1/terraform-rs",
+                ExecutorRegistration.registryKey(" HTTP://Executor/api/v1/terraform-rs// "));
+    }
+}
@@ -0,0 +1,98 @@
+package io.terrakube.executor.service.logs;
+
+import io.terrakube.executor.configuration.JobOutputProperties;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobOutputSinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JobOutputSink sink(boolean compress) {
+        JobOutputProperties properties = new JobOutputProperties();
+        properties.setSpoolDirectory(tempDir.toString());
+        properties.setCompress(compress);
+        return JobOutputSink.create(properties, "42", "step-1");
+    }
+
+    private String read(JobOutputSink sink) throws IOException {
+        try (InputStream inputStream = sink.openStream()) {
+            return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void compressedSinkWritesAGzipFileThatReadsBackAsPlainText() throws IOException {
+        JobOutputSink sink = sink(true);
+        sink.appendln("Initializing the backend...");
+        sink.appendln("Plan: 1 to add, 0 to change, 0 to destroy.");
+
+        File file = sink.finish();
+        byte[] header = new byte[2];
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            assertEquals(2, inputStream.read(header));
+        }
+
+        assertArrayEquals(new byte[]{(byte) GZIPInputStream.GZIP_MAGIC, (byte) (GZIPInputStream.GZIP_MAGIC >> 8)}, header);
+        assertEquals("Initializing the backend...\nPlan: 1 to add, 0 to change, 0 to destroy.\n", read(sink));
+    }
+
+    @Test
+    void uncompressedSinkWritesPlainText() throws IOException {
+        JobOutputSink sink = sink(false);
+        sink.appendln("line");
+        sink.append("error");
+
+        assertEquals("line\nerror", Files.readString(sink.finish().toPath()));
+        assertEquals(10, sink.length());
+    }
+
+    @Test
+    void lengthCountsEncodedBytes() throws IOException {
+        JobOutputSink sink = sink(false);
+        sink.appendln("\u2577 Error: \u00fc");
+        sink.append("\ud83d\ude80");
+
+        File file = sink.finish();
+
+        assertEquals(Files.size(file.toPath()), sink.length());
+        assertEquals(18, sink.length());
+    }
+
+    @Test
+    void linesAppendedAfterFinishAreDropped() throws IOException {
+        JobOutputSink sink = sink(false);
+        sink.appendln("before");
+        sink.finish();
+        sink.appendln("after");
+
+        assertEquals("before\n", read(sink));
+    }
+
+    @Test
+    void closeRemovesTheSpoolFile() {
+        JobOutputSink sink = sink(true);
+        sink.appendln("line");
+        File file = sink.finish();
+
+        sink.close();
+
+        assertFalse(file.exists());
+        assertTrue(tempDir.toFile().isDirectory());
+    }
+}
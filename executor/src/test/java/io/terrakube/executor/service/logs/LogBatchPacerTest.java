@@ -0,0 +1,75 @@
+package io.terrakube.executor.service.logs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogBatchPacerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void aTrickleOfOutputSettlesAtTheOldCadence() {
+        LogBatchPacer pacer = new LogBatchPacer(300, 5000);
+        // One line every 100ms for ten minutes, never enough to fill a batch.
+        long end = TimeUnit.MINUTES.toNanos(10);
+        int requests = 0;
+        long lastRequest = Long.MIN_VALUE;
+        long shortestGapOnceSettled = Long.MAX_VALUE;
+        long now = 0;
+        while (now < end) {
+            long deadline = pacer.deadline(now);
+            pacer.batchClosed(false, deadline);
+            if (requests >= 5) {
+                shortestGapOnceSettled = Math.min(shortestGapOnceSettled, deadline - lastRequest);
+            }
+            lastRequest = deadline;
+            requests++;
+            // The next line is the first one not in the batch just closed.
+            now = (deadline / (100 * MILLIS) + 1) * 100 * MILLIS;
+        }
+
+        // 300 + 600 + 1200 + 2400 + 4800ms of ramp, then one request per 5s.
+        assertTrue(requests <= 600 / 5 + 5, "sent " + requests + " requests in ten minutes");
+        assertEquals(5000 * MILLIS, shortestGapOnceSettled);
+    }
+
+    @Test
+    void theFirstLineAfterAQuietSpellOnlyWaitsTheMinimumDelay() {
+        LogBatchPacer pacer = new LogBatchPacer(300, 5000);
+        long now = 0;
+        for (int i = 0; i < 10; i++) {
+            long deadline = pacer.deadline(now);
+            pacer.batchClosed(false, deadline);
+            now = deadline + 100 * MILLIS;
+        }
+
+        long afterQuietSpell = now + 60_000 * MILLIS;
+
+        assertEquals(afterQuietSpell + 300 * MILLIS, pacer.deadline(afterQuietSpell));
+    }
+
+    @Test
+    void aFullBatchResetsTheDelay() {
+        LogBatchPacer pacer = new LogBatchPacer(300, 5000);
+        long now = 0;
+        for (int i = 0; i < 10; i++) {
+            long deadline = pacer.deadline(now);
+            pacer.batchClosed(false, deadline);
+            now = deadline + MILLIS;
+        }
+        pacer.batchClosed(true, now);
+
+        assertEquals(now + 300 * MILLIS, pacer.deadline(now));
+    }
+
+    @Test
+    void aMinimumAboveTheMaximumIsCapped() {
+        LogBatchPacer pacer = new LogBatchPacer(300, 50);
+
+        assertEquals(50 * MILLIS, pacer.deadline(0));
+    }
+}
@@ -0,0 +1,136 @@
+package io.terrakube.executor.service.logs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.terrakube.client.TerrakubeClient;
+import io.terrakube.client.model.organization.job.Log;
+import io.terrakube.executor.configuration.LogBatchProperties;
+import io.terrakube.executor.service.mode.batch.WarmPoolFirstLog;
+import io.terrakube.executor.service.workspace.security.WorkspaceSecurity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+class LogsServiceApiTest {
+
+    HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private LogsServiceApi subject(LogBatchProperties properties, String apiUrl) {
+        WorkspaceSecurity workspaceSecurity = Mockito.mock(WorkspaceSecurity.class);
+        when(workspaceSecurity.generateAccessToken(anyInt())).thenReturn("internal-token");
+        return new LogsServiceApi(Mockito.mock(TerrakubeClient.class), workspaceSecurity, new ObjectMapper(), properties,
+                new WarmPoolFirstLog(Mockito.mock(RedisTemplate.class)), apiUrl);
+    }
+
+    private LogBatchProperties properties(int queueCapacity, int maxBatchSize, long maxBatchDelayMillis) {
+        LogBatchProperties properties = new LogBatchProperties();
+        properties.setQueueCapacity(queueCapacity);
+        properties.setMaxBatchSize(maxBatchSize);
+        properties.setMaxBatchDelayMillis(maxBatchDelayMillis);
+        return properties;
+    }
+
+    @Test
+    void aFullBatchIsReturnedWithoutWaitingForTheDelay() throws InterruptedException {
+        LogsServiceApi subject = subject(properties(100, 3, 10_000), "http://localhost:1");
+        for (int line = 1; line <= 4; line++) {
+            subject.sendLogs(42, "step-1", line, "line " + line);
+        }
+
+        long start = System.nanoTime();
+        List<Log> batch = subject.nextBatch();
+
+        assertEquals(3, batch.size());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertEquals(1, subject.nextBatch().size());
+    }
+
+    @Test
+    void aPartialBatchIsReturnedOnceTheDelayExpires() throws InterruptedException {
+        LogsServiceApi subject = subject(properties(100, 500, 50), "http://localhost:1");
+        subject.sendLogs(42, "step-1", 1, "only line");
+
+        assertEquals(1, subject.nextBatch().size());
+        assertTrue(subject.nextBatch().isEmpty());
+    }
+
+    @Test
+    void linesBeyondTheQueueCapacityAreDroppedInsteadOfBlocking() throws InterruptedException {
+        LogsServiceApi subject = subject(properties(2, 500, 10), "http://localhost:1");
+        subject.sendLogs(42, "step-1", 1, "one");
+        subject.sendLogs(42, "step-1", 2, "two");
+        subject.sendLogs(42, "step-1", 3, "three");
+
+        assertEquals(List.of("one", "two"), subject.nextBatch().stream().map(Log::getOutput).toList());
+    }
+
+    @Test
+    void batchesArePostedGzippedToTheLogsEndpoint() throws IOException, InterruptedException {
+        AtomicReference<String> encoding = new AtomicReference<>();
+        AtomicReference<String> authorization = new AtomicReference<>();
+        AtomicReference<byte[]> body = new AtomicReference<>();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/logs", exchange -> {
+            encoding.set(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            try (InputStream inputStream = new GZIPInputStream(exchange.getRequestBody())) {
+                body.set(inputStream.readAllBytes());
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        LogsServiceApi subject = subject(properties(100, 500, 10),
+                "http://localhost:" + server.getAddress().getPort());
+        subject.sendLogs(42, "step-1", 1, "Initializing the backend...");
+        subject.sendLogs(42, "step-1", 2, "Plan: 1 to add");
+
+        assertTrue(subject.send(subject.nextBatch()));
+
+        assertEquals("gzip", encoding.get());
+        assertEquals("Bearer internal-token", authorization.get());
+        JsonNode data = new ObjectMapper().readTree(body.get()).get("data");
+        assertEquals(2, data.size());
+        assertEquals("Plan: 1 to add", data.get(1).get("output").asText());
+    }
+
+    @Test
+    void serverErrorsAreReportedForRetry() throws IOException, InterruptedException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/logs", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+
+        LogsServiceApi subject = subject(properties(100, 500, 10),
+                "http://localhost:" + server.getAddress().getPort());
+        subject.sendLogs(42, "step-1", 1, "line");
+
+        assertFalse(subject.send(subject.nextBatch()));
+    }
+}
@@ -1,5 +1,7 @@
 package io.terrakube.executor.service.logs;
 
+import io.terrakube.executor.configuration.RedisProperties;
+import io.terrakube.executor.service.mode.batch.WarmPoolFirstLog;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -11,8 +13,11 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,10 +30,28 @@ class LogsServiceRedisTest {
     @Mock
     StreamOperations streamOperations;
 
+    private RedisProperties redisProperties() {
+        RedisProperties redisProperties = new RedisProperties();
+        redisProperties.setStreamMaxLength(5000);
+        return redisProperties;
+    }
+
+    @Test
+    void sendLogsTrimsTheStreamApproximatelyEveryTrimInterval() {
+        when(redisTemplate.opsForStream()).thenReturn(streamOperations);
+        LogsServiceRedis subject = new LogsServiceRedis(redisTemplate, redisProperties(), new WarmPoolFirstLog(redisTemplate));
+
+        subject.sendLogs(42, "step-1", LogsServiceRedis.TRIM_INTERVAL - 1, "not yet");
+        verify(streamOperations, never()).trim(any(), anyLong(), anyBoolean());
+
+        subject.sendLogs(42, "step-1", LogsServiceRedis.TRIM_INTERVAL, "trim now");
+        verify(streamOperations).trim("42", 5000L, true);
+    }
+
     @Test
     void sendStructuredUpdateWritesToTheContextSuffixedStream() {
         when(redisTemplate.opsForStream()).thenReturn(streamOperations);
-        LogsServiceRedis subject = new LogsServiceRedis(redisTemplate);
+        LogsServiceRedis subject = new LogsServiceRedis(redisTemplate, redisProperties(), new WarmPoolFirstLog(redisTemplate));
 
         subject.sendStructuredUpdate(42, "step-1", "{\"changes\":[]}");
 
@@ -46,7 +69,7 @@ class LogsServiceRedisTest {
         // whole terraform run, not just drop a log line.
         when(redisTemplate.opsForStream()).thenReturn(streamOperations);
         doThrow(new RuntimeException("connection refused")).when(streamOperations).add(any(), any(Map.class));
-        LogsServiceRedis subject = new LogsServiceRedis(redisTemplate);
+        LogsServiceRedis subject = new LogsServiceRedis(redisTemplate, redisProperties(), new WarmPoolFirstLog(redisTemplate));
 
         subject.sendLogs(42, "step-1", 1, "some output");
     }
@@ -55,7 +78,7 @@ class LogsServiceRedisTest {
     void sendStructuredUpdateSwallowsARedisFailureInsteadOfPropagatingIt() {
         when(redisTemplate.opsForStream()).thenReturn(streamOperations);
         doThrow(new RuntimeException("connection refused")).when(streamOperations).add(any(), any(Map.class));
-        LogsServiceRedis subject = new LogsServiceRedis(redisTemplate);
+        LogsServiceRedis subject = new LogsServiceRedis(redisTemplate, redisProperties(), new WarmPoolFirstLog(redisTemplate));
 
         subject.sendStructuredUpdate(42, "step-1", "{\"changes\":[]}");
     }
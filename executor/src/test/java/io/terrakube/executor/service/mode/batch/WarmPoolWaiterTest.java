@@ -0,0 +1,122 @@
+package io.terrakube.executor.service.mode.batch;
+
+import io.terrakube.executor.configuration.ExecutorFlagsProperties;
+import io.terrakube.executor.service.executor.ExecutorJob;
+import io.terrakube.executor.service.mode.TerraformJob;
+import io.terrakube.executor.service.shutdown.ShutdownServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class WarmPoolWaiterTest {
+
+    private static final String POOL = "terrakube:warm-pool:default";
+    private static final String MEMBER = "warm-default-1a2b3c4d";
+
+    private final RedisTemplate<String, Object> redisTemplate = Mockito.mock(RedisTemplate.class);
+    private final HashOperations<String, Object, Object> hashOperations = Mockito.mock(HashOperations.class);
+    private final ListOperations<String, Object> listOperations = Mockito.mock(ListOperations.class);
+    private final ExecutorJob executorJob = Mockito.mock(ExecutorJob.class);
+    private final ShutdownServiceImpl shutdownService = Mockito.mock(ShutdownServiceImpl.class);
+    private final ExecutorFlagsProperties flags = new ExecutorFlagsProperties();
+    private final WarmPoolFirstLog firstLog = new WarmPoolFirstLog(redisTemplate);
+
+    private WarmPoolWaiter subject() {
+        doReturn(hashOperations).when(redisTemplate).opsForHash();
+        doReturn(listOperations).when(redisTemplate).opsForList();
+        flags.setEphemeral(true);
+        flags.setWarmPool(POOL);
+        flags.setWarmPoolMember(MEMBER);
+        return new WarmPoolWaiter(executorJob, flags, redisTemplate, shutdownService, firstLog);
+    }
+
+    private static String entry(long enqueuedMillis) {
+        String json = "{\"organizationId\":\"ze-org\",\"workspaceId\":\"ze-workspace\",\"jobId\":\"42\",\"stepId\":\"ze-step\"}";
+        return enqueuedMillis + "|42|ze-org|ze-workspace|"
+                + Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void runsExactlyOneJobFromThePoolQueue() {
+        WarmPoolWaiter waiter = subject();
+        long enqueued = System.currentTimeMillis() - 300;
+        doReturn(null, entry(enqueued)).when(listOperations).rightPop(POOL + ":queue", WarmPoolWaiter.POLL);
+        // The job's first log line, then the rest of its output.
+        doAnswer(invocation -> {
+            firstLog.logged();
+            firstLog.logged();
+            return null;
+        }).when(executorJob).createJob(any());
+
+        waiter.waitForJob();
+
+        ArgumentCaptor<TerraformJob> job = ArgumentCaptor.forClass(TerraformJob.class);
+        verify(executorJob).createJob(job.capture());
+        assertEquals("42", job.getValue().getJobId());
+        assertEquals("ze-step", job.getValue().getStepId());
+
+        verify(hashOperations).delete(POOL + ":idle", MEMBER);
+        ArgumentCaptor<Object> claim = ArgumentCaptor.forClass(Object.class);
+        // The claim, then the claim with the time of the first log line; later lines change nothing.
+        verify(hashOperations, timeout(5000).times(2)).put(eq(POOL + ":claims"), eq(MEMBER), claim.capture());
+        String[] claimed = String.valueOf(claim.getAllValues().get(0)).split(":");
+        assertEquals(String.valueOf(enqueued), claimed[0]);
+        assertTrue(Long.parseLong(claimed[1]) >= enqueued + 300);
+        String[] firstLogged = String.valueOf(claim.getAllValues().get(1)).split(":");
+        assertEquals(3, firstLogged.length);
+        assertEquals(claimed[1], firstLogged[1]);
+        assertTrue(Long.parseLong(firstLogged[2]) >= Long.parseLong(claimed[1]));
+        // The ephemeral shutdown after the job is ExecutorJobImpl's, not the waiter's.
+        verify(shutdownService, never()).shutdownApplication();
+    }
+
+    @Test
+    void exitsWhenNoJobArrivesInTime() {
+        WarmPoolWaiter waiter = subject();
+        flags.setWarmPoolIdleTimeoutSeconds(0);
+
+        waiter.waitForJob();
+
+        verify(executorJob, never()).createJob(any());
+        verify(hashOperations).delete(POOL + ":idle", MEMBER);
+        verify(shutdownService).shutdownApplication();
+    }
+
+    @Test
+    void keepsWaitingThroughRedisErrors() {
+        WarmPoolWaiter waiter = subject();
+        doThrow(new RuntimeException("connection reset"))
+                .doReturn(entry(System.currentTimeMillis()))
+                .when(listOperations).rightPop(POOL + ":queue", WarmPoolWaiter.POLL);
+
+        waiter.waitForJob();
+
+        verify(executorJob).createJob(any());
+    }
+
+    @Test
+    void onlyWarmPodsWaitForAJob() {
+        assertTrue(subject().isWarmPod());
+
+        flags.setWarmPool("");
+        assertFalse(new WarmPoolWaiter(executorJob, flags, redisTemplate, shutdownService, firstLog).isWarmPod());
+    }
+}
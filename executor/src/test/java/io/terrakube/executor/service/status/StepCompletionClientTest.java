@@ -0,0 +1,72 @@
+package io.terrakube.executor.service.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.terrakube.executor.service.workspace.security.WorkspaceSecurity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+class StepCompletionClientTest {
+
+    HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private StepCompletionClient client(int responseStatus, AtomicReference<String> path, AtomicReference<byte[]> body) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/completion/v1", exchange -> {
+            path.set(exchange.getRequestURI().getPath());
+            body.set(exchange.getRequestBody().readAllBytes());
+            exchange.sendResponseHeaders(responseStatus, -1);
+            exchange.close();
+        });
+        server.start();
+
+        WorkspaceSecurity workspaceSecurity = Mockito.mock(WorkspaceSecurity.class);
+        when(workspaceSecurity.generateAccessToken(anyInt())).thenReturn("internal-token");
+        return new StepCompletionClient(workspaceSecurity, new ObjectMapper(),
+                "http://localhost:" + server.getAddress().getPort());
+    }
+
+    private StepCompletionRequest request() {
+        StepCompletionRequest request = new StepCompletionRequest();
+        request.setSuccessful(true);
+        request.setExitCode(2);
+        request.setOutput("output-url");
+        return request;
+    }
+
+    @Test
+    void completeStepPostsTheRequestToTheStepCompletionEndpoint() throws IOException {
+        AtomicReference<String> path = new AtomicReference<>();
+        AtomicReference<byte[]> body = new AtomicReference<>();
+
+        assertTrue(client(200, path, body).completeStep("4711", "ze-step", request()));
+
+        assertEquals("/completion/v1/job/4711/step/ze-step", path.get());
+        JsonNode json = new ObjectMapper().readTree(body.get());
+        assertTrue(json.get("successful").asBoolean());
+        assertEquals(2, json.get("exitCode").asInt());
+        assertEquals("output-url", json.get("output").asText());
+    }
+
+    @Test
+    void anApiWithoutTheEndpointMakesTheCallerFallBack() throws IOException {
+        assertFalse(client(404, new AtomicReference<>(), new AtomicReference<>()).completeStep("4711", "ze-step", request()));
+    }
+}
@@ -2,12 +2,15 @@ package io.terrakube.executor.service.status;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +18,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -30,17 +34,24 @@ import io.terrakube.client.model.organization.job.step.Step;
 import io.terrakube.client.model.organization.job.step.StepRequest;
 import io.terrakube.client.model.response.ResponseWithInclude;
 import io.terrakube.executor.configuration.ExecutorFlagsProperties;
+import io.terrakube.executor.configuration.JobOutputProperties;
 import io.terrakube.executor.plugin.tfstate.TerraformOutputPathService;
 import io.terrakube.executor.plugin.tfstate.TerraformState;
+import io.terrakube.executor.service.executor.ExecutorJobResult;
+import io.terrakube.executor.service.logs.JobOutputSink;
 import io.terrakube.executor.service.mode.TerraformJob;
 
 @ExtendWith(MockitoExtension.class)
 public class UpdateJobStatusImplTest {
 
+    @TempDir
+    Path tempDir;
+
     TerrakubeClient terrakubeClient;
     TerraformState terraformState;
     ExecutorFlagsProperties executorFlagsProperties;
     TerraformOutputPathService terraformOutputPathService;
+    StepCompletionClient stepCompletionClient;
 
     @BeforeEach
     public void setup() {
@@ -48,11 +59,14 @@ public class UpdateJobStatusImplTest {
         terraformState = mock(TerraformState.class);
         executorFlagsProperties = mock(ExecutorFlagsProperties.class);
         terraformOutputPathService = mock(TerraformOutputPathService.class);
+        // Unstubbed completeStep() returns false: the tests below exercise the JSON:API fallback
+        // unless they stub it.
+        stepCompletionClient = mock(StepCompletionClient.class);
         doReturn(false).when(executorFlagsProperties).isDisableAcknowledge();
     }
 
     private UpdateJobStatusImpl subject() {
-        return new UpdateJobStatusImpl(terrakubeClient, terraformState, executorFlagsProperties, terraformOutputPathService);
+        return new UpdateJobStatusImpl(terrakubeClient, terraformState, executorFlagsProperties, terraformOutputPathService, stepCompletionClient);
     }
 
     private TerraformJob terraformJob() {
@@ -185,4 +199,45 @@ public class UpdateJobStatusImplTest {
         Assertions.assertEquals("pending", job.getAttributes().getStatus());
         Assertions.assertEquals(true, job.getAttributes().isPlanChanges());
     }
+
+    @Test
+    public void setCompletedStatusUploadsSpilledOutputAndRemovesSpoolFile() {
+        stubJobWithStatus("running");
+        ArgumentCaptor<File> outputFile = ArgumentCaptor.forClass(File.class);
+        doReturn("output-url").when(terraformState).saveOutput(anyString(), anyString(), anyString(), outputFile.capture());
+
+        JobOutputProperties jobOutputProperties = new JobOutputProperties();
+        jobOutputProperties.setSpoolDirectory(tempDir.toString());
+        JobOutputSink outputSink = JobOutputSink.create(jobOutputProperties, "4711", "ze-step");
+        outputSink.appendln("terraform output");
+        ExecutorJobResult result = new ExecutorJobResult();
+        result.setSuccessfulExecution(true);
+        result.setOutputSink(outputSink);
+        result.setOutputErrorLog("");
+
+        subject().setCompletedStatus(terraformJob(), result, "0000000");
+
+        verify(terraformState, never()).saveOutput(anyString(), anyString(), anyString(), anyString(), anyString());
+        verify(terrakubeClient, times(1)).updateJob(any(JobRequest.class), anyString(), anyString());
+        Assertions.assertFalse(outputFile.getValue().exists());
+    }
+
+    @Test
+    public void setCompletedStatusUsesTheCompletionEndpointInsteadOfTheJsonApiChain() {
+        doReturn("output-url").when(terraformState).saveOutput(anyString(), anyString(), anyString(), anyString(), anyString());
+        ArgumentCaptor<StepCompletionRequest> request = ArgumentCaptor.forClass(StepCompletionRequest.class);
+        doReturn(true).when(stepCompletionClient).completeStep(eq("4711"), eq("ze-step"), request.capture());
+
+        subject().setCompletedStatus(true, true, 2, terraformJob(), "plan output", "", "plan-file", "commit-1");
+
+        Assertions.assertTrue(request.getValue().isSuccessful());
+        Assertions.assertTrue(request.getValue().isPlan());
+        Assertions.assertEquals(2, request.getValue().getExitCode());
+        Assertions.assertEquals("output-url", request.getValue().getOutput());
+        Assertions.assertEquals("plan-file", request.getValue().getTerraformPlan());
+        Assertions.assertEquals("commit-1", request.getValue().getCommitId());
+        verify(terrakubeClient, never()).getJobById(anyString(), anyString());
+        verify(terrakubeClient, never()).updateStep(any(), anyString(), anyString(), anyString());
+        verify(terrakubeClient, never()).updateJob(any(JobRequest.class), anyString(), anyString());
+    }
 }
@@ -1,6 +1,7 @@
 package io.terrakube.executor.service.terraform;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.terrakube.executor.configuration.JobOutputProperties;
 import io.terrakube.executor.plugin.tfstate.TerraformState;
 import io.terrakube.executor.service.executor.ExecutorJobResult;
 import io.terrakube.executor.service.logs.ProcessLogs;
@@ -8,6 +9,7 @@ import io.terrakube.executor.service.mode.TerraformJob;
 import io.terrakube.executor.service.scripts.ScriptEngineService;
 import io.terrakube.terraform.TerraformClient;
 import io.terrakube.terraform.TerraformProcessData;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
@@ -15,6 +17,9 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StreamOperations;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
@@ -52,6 +57,8 @@ class TerraformExecutorServiceImplTest {
     private final StreamOperations streamOperations = Mockito.mock(StreamOperations.class);
 
     private TerraformExecutorServiceImpl subject() {
+        JobOutputProperties jobOutputProperties = new JobOutputProperties();
+        jobOutputProperties.setSpoolDirectory(tempDir.resolve("spool").toString());
         when(redisTemplate.opsForStream()).thenReturn(streamOperations);
         when(streamOperations.size(anyString())).thenReturn(0L);
         when(terraformState.getBackendStateFile(anyString(), anyString(), any(File.class), anyString())).thenReturn("backend.tfvars");
@@ -65,11 +72,18 @@ class TerraformExecutorServiceImplTest {
                 applyStructuredOutputService,
                 terraformOutputsService,
                 objectMapper,
+                jobOutputProperties,
                 false,
                 redisTemplate,
                 1);
     }
 
+    private String outputOf(ExecutorJobResult result) throws IOException {
+        try (InputStream output = result.getOutputSink().openStream()) {
+            return IOUtils.toString(output, StandardCharsets.UTF_8);
+        }
+    }
+
     private TerraformJob createJob() {
         TerraformJob terraformJob = new TerraformJob();
         terraformJob.setJobId("42");
@@ -119,7 +133,7 @@ class TerraformExecutorServiceImplTest {
 
         ExecutorJobResult result = subject.plan(terraformJob, tempDir.toFile(), false);
 
-        assertTrue(result.getOutputLog().contains("init stderr"));
+        assertTrue(outputOf(result).contains("init stderr"));
     }
 
     @Test
@@ -186,8 +200,8 @@ class TerraformExecutorServiceImplTest {
         ExecutorJobResult result = subject.apply(terraformJob, tempDir.toFile());
 
         assertTrue(result.isSuccessfulExecution());
-        assertTrue(result.getOutputLog().contains("Outputs:"));
-        assertTrue(result.getOutputLog().contains("foo = \"bar\""));
+        assertTrue(outputOf(result).contains("Outputs:"));
+        assertTrue(outputOf(result).contains("foo = \"bar\""));
     }
 
     // Real `terraform apply <planfile>` reprints the plan's classic HCL diff before executing it -
@@ -217,8 +231,8 @@ class TerraformExecutorServiceImplTest {
         ExecutorJobResult result = subject.apply(terraformJob, tempDir.toFile());
 
         assertTrue(result.isSuccessfulExecution());
-        assertTrue(result.getOutputLog().contains("-/+ resource \"random_pet\" \"this\" {"));
-        assertTrue(result.getOutputLog().contains("~ id = \"a\" -> (known after apply)"));
+        assertTrue(outputOf(result).contains("-/+ resource \"random_pet\" \"this\" {"));
+        assertTrue(outputOf(result).contains("~ id = \"a\" -> (known after apply)"));
     }
 
     // No plan file means apply ran directly against HCL (e.g. a Destroy-workflow-style apply with
@@ -278,7 +292,7 @@ class TerraformExecutorServiceImplTest {
         ExecutorJobResult result = subject.apply(terraformJob, tempDir.toFile());
 
         assertFalse(result.isSuccessfulExecution());
-        assertFalse(result.getOutputLog().contains("Outputs:"));
+        assertFalse(outputOf(result).contains("Outputs:"));
     }
 
     @Test
@@ -0,0 +1,104 @@
+package io.terrakube.executor.service.workspace;
+
+import io.terrakube.executor.configuration.GitMirrorProperties;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+class GitMirrorCacheTest {
+
+    @TempDir
+    Path testDirectory;
+
+    GitMirrorProperties properties;
+    GitMirrorCache subject;
+
+    @BeforeEach
+    void setup() {
+        properties = new GitMirrorProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(testDirectory.resolve("mirrors").toString());
+        subject = new GitMirrorCache(properties);
+    }
+
+    private Git sourceRepository(String name) throws Exception {
+        return Git.init().setDirectory(testDirectory.resolve(name).toFile()).call();
+    }
+
+    private RevCommit commit(Git git, String content) throws Exception {
+        FileUtils.writeStringToFile(new File(git.getRepository().getWorkTree(), "main.tf"), content,
+                StandardCharsets.UTF_8);
+        git.add().addFilepattern("main.tf").call();
+        return git.commit().setMessage(content)
+                .setAuthor("Terrakube Test", "test@example.com")
+                .setCommitter("Terrakube Test", "test@example.com")
+                .call();
+    }
+
+    private String checkout(Git source, String workTree, String commitId) throws Exception {
+        return subject.checkout("ze-org", source.getRepository().getDirectory().getParentFile().toURI().toString(),
+                Constants.R_HEADS + source.getRepository().getBranch(), commitId,
+                testDirectory.resolve(workTree).toFile(), fetchCommand -> fetchCommand);
+    }
+
+    private String mainTf(String workTree) throws IOException {
+        return FileUtils.readFileToString(testDirectory.resolve(workTree).resolve("main.tf").toFile(),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void laterCheckoutsReuseTheMirrorAndSeeNewCommits() throws Exception {
+        try (Git source = sourceRepository("source")) {
+            RevCommit first = commit(source, "first");
+            Assertions.assertEquals(first.getName(), checkout(source, "job-1", null));
+
+            RevCommit second = commit(source, "second");
+            Assertions.assertEquals(second.getName(), checkout(source, "job-2", null));
+            Assertions.assertEquals("second", mainTf("job-2"));
+
+            // A recorded commit is checked out detached even when the branch has moved on.
+            Assertions.assertEquals(first.getName(), checkout(source, "job-3", first.getName()));
+            Assertions.assertEquals("first", mainTf("job-3"));
+
+            File[] mirrors = new File(properties.getDirectory()).listFiles(file -> file.getName().endsWith(".git"));
+            Assertions.assertEquals(1, mirrors.length);
+        }
+    }
+
+    @Test
+    void organizationsDoNotShareAMirror() throws IOException {
+        Assertions.assertNotEquals(subject.mirrorDirectory("org-a", "https://example.com/repo.git"),
+                subject.mirrorDirectory("org-b", "https://example.com/repo.git"));
+    }
+
+    @Test
+    void evictionDeletesLeastRecentlyUsedMirrorsWithoutLiveWorkTrees() throws Exception {
+        try (Git inUse = sourceRepository("in-use"); Git stale = sourceRepository("stale")) {
+            commit(inUse, "in use");
+            commit(stale, "stale");
+            checkout(stale, "stale-job", null);
+            checkout(inUse, "running-job", null);
+            FileUtils.deleteDirectory(testDirectory.resolve("stale-job").toFile());
+
+            properties.setMaxSizeMb(0);
+            subject.evictLeastRecentlyUsed();
+
+            String inUseSource = inUse.getRepository().getDirectory().getParentFile().toURI().toString();
+            String staleSource = stale.getRepository().getDirectory().getParentFile().toURI().toString();
+            Assertions.assertFalse(subject.mirrorDirectory("ze-org", staleSource).exists());
+            // Over budget, but "running-job" still borrows its objects.
+            Assertions.assertTrue(subject.mirrorDirectory("ze-org", inUseSource).exists());
+            Assertions.assertEquals("in use", mainTf("running-job"));
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import io.terrakube.executor.configuration.GitMirrorProperties;
 import io.terrakube.executor.service.executor.ExecutorJobResult;
 import io.terrakube.executor.service.mode.TerraformJob;
 import io.terrakube.executor.service.terraform.TerraformExecutor;
@@ -117,7 +118,13 @@ public class SetupWorkspaceTest {
     private SetupWorkspace standardSetupWorkspaceImpl(TerraformJob job) {
         String overrideSource = job != null && "remote-content".equals(job.getBranch()) ? job.getSource() : null;
         return new SetupWorkspaceImpl(new NoopWorkspaceSecurity(), false, new NoopTerraformExecutor(),
-                "https://terrakube-api.example.com", terrakubeClient(overrideSource));
+                "https://terrakube-api.example.com", terrakubeClient(overrideSource), gitMirrorCache(false));
+    }
+
+    private static GitMirrorCache gitMirrorCache(boolean enabled) {
+        GitMirrorProperties properties = new GitMirrorProperties();
+        properties.setEnabled(enabled);
+        return new GitMirrorCache(properties);
     }
 
     private static TerrakubeClient terrakubeClient(String overrideSource) {
@@ -214,7 +221,7 @@ public class SetupWorkspaceTest {
 
         UnshallowRecordingSetupWorkspace() {
             super(new NoopWorkspaceSecurity(), false, new NoopTerraformExecutor(),
-                    "https://terrakube-api.example.com", terrakubeClient(null));
+                    "https://terrakube-api.example.com", terrakubeClient(null), gitMirrorCache(false));
         }
 
         @Override
@@ -230,7 +237,7 @@ public class SetupWorkspaceTest {
 
         RejectingShaFetchSetupWorkspace() {
             super(new NoopWorkspaceSecurity(), false, new NoopTerraformExecutor(),
-                    "https://terrakube-api.example.com", terrakubeClient(null));
+                    "https://terrakube-api.example.com", terrakubeClient(null), gitMirrorCache(false));
         }
 
         @Override
@@ -349,6 +356,36 @@ public class SetupWorkspaceTest {
         }
     }
 
+    @Test
+    public void checksOutFromTheGitMirrorWhenEnabled() throws Exception {
+        File sourceRepository = Files.createTempDirectory("terrakube-source").toFile();
+        try (Git sourceGit = Git.init().setDirectory(sourceRepository).call()) {
+            commitFile(sourceGit, "main.tf", "first");
+            String requestedBranch = sourceGit.getRepository().getBranch();
+            TerraformJob job = localGitJob(sourceRepository, requestedBranch);
+            SetupWorkspace setup = new SetupWorkspaceImpl(new NoopWorkspaceSecurity(), false,
+                    new NoopTerraformExecutor(), "https://terrakube-api.example.com", terrakubeClient(null),
+                    gitMirrorCache(true));
+
+            setup.prepareWorkspace(job);
+            RevCommit second = commitFile(sourceGit, "main.tf", "second");
+            File workspaceDir = setup.prepareWorkspace(job);
+
+            // The work tree borrows the mirror's objects instead of holding a clone of its own.
+            Assertions.assertTrue(FileUtils.getFile(workspaceDir, ".git", "objects", "info", "alternates").exists());
+            Assertions.assertEquals("second", FileUtils.readFileToString(
+                    FileUtils.getFile(workspaceDir, "main.tf"), StandardCharsets.UTF_8));
+            Assertions.assertEquals(second.getName(), FileUtils.readFileToString(
+                    FileUtils.getFile(workspaceDir, "commitHash.info"), StandardCharsets.UTF_8));
+            try (Git workspaceGit = Git.open(workspaceDir)) {
+                Assertions.assertEquals(List.of(Constants.R_REMOTES + "origin/" + requestedBranch),
+                        refNames(workspaceGit, Constants.R_REMOTES));
+            }
+        } finally {
+            FileUtils.deleteDirectory(sourceRepository);
+        }
+    }
+
     @Test
     public void checksOutWhenBranchFieldNamesATag() throws Exception {
         File sourceRepository = Files.createTempDirectory("terrakube-source").toFile();
@@ -0,0 +1,89 @@
+#!/bin/bash
+
+# Compares the executor's time to first job (JVM start until an ephemeral executor hands its job to
+# the runner, logged by BatchModeServiceImpl) between the default build and the fast-start build
+# (Spring AOT + CDS archive + the fast-start runtime profile).
+#
+# Needs only a JDK and Maven: the executor is started as an ephemeral executor with a dummy job and
+# stopped as soon as it logs the first job, before it tries to reach the api or Redis.
+#
+# Usage: scripts/build/executorStartupBenchmark.sh [runs]
+
+set -euo pipefail
+
+RUNS=${1:-5}
+ROOT=$(cd "$(dirname "$0")/../.." && pwd)
+WORK=$(mktemp -d)
+echo "Working directory: $WORK"
+
+JOB_DATA=$(printf '{"organizationId":"benchmark","workspaceId":"benchmark","jobId":"1","stepId":"benchmark","commandList":[]}' | base64 | tr -d '\n')
+
+export TerraformStateType=LocalTerraformStateImpl
+export TerrakubeEnableSecurity=false
+export AzBuilderApiUrl=http://localhost:1
+export TerrakubeApiUrl=http://localhost:1
+export TerrakubeRegistryDomain=localhost
+export InternalSecret=benchmark
+export TerrakubeRedisHostname=localhost
+export TerrakubeRedisPort=6379
+
+build() {
+  local destination=$1
+  shift
+  mvn -B -q -f "$ROOT/pom.xml" -pl executor -am clean package -DskipTests -Dspring-boot.build-image.skip=true "$@"
+  java -Djarmode=tools -jar "$(ls "$ROOT"/executor/target/executor-*.jar)" extract --destination "$destination"
+}
+
+measure() {
+  local label=$1
+  shift
+  for i in $(seq "$RUNS"); do
+    local log="$WORK/$label-$i.log"
+    EphemeralFlagBatch=true EphemeralJobData=$JOB_DATA java "$@" > "$log" 2>&1 &
+    local pid=$!
+    local ms=""
+    for _ in $(seq 1200); do
+      ms=$(grep -o 'time to first job [0-9]* ms' "$log" | grep -o '[0-9][0-9]*' || true)
+      [ -n "$ms" ] && break
+      kill -0 "$pid" 2>/dev/null || break
+      sleep 0.1
+    done
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    if [ -z "$ms" ]; then
+      echo "$label run $i never reached its first job:"
+      tail -n 30 "$log"
+      exit 1
+    fi
+    echo "$label run $i: $ms ms"
+    echo "$ms" >> "$WORK/$label.times"
+  done
+}
+
+median() {
+  sort -n "$WORK/$1.times" | awk '{ value[NR] = $1 } END { print value[int((NR + 1) / 2)] }'
+}
+
+echo "Building default executor..."
+build "$WORK/default"
+echo "Building fast-start executor..."
+build "$WORK/fast-start" -Pfast-start
+
+DEFAULT_JAR=$(ls "$WORK"/default/executor-*.jar)
+FAST_JAR=$(ls "$WORK"/fast-start/executor-*.jar)
+FAST_OPTIONS=(-Dspring.aot.enabled=true -Dspring.profiles.active=fast-start)
+
+echo "Training the CDS archive..."
+java -XX:ArchiveClassesAtExit="$WORK/fast-start/executor.jsa" "${FAST_OPTIONS[@]}" -Dspring.context.exit=onRefresh \
+  -jar "$FAST_JAR" > "$WORK/cds-training.log" 2>&1
+
+measure default -jar "$DEFAULT_JAR"
+measure fast-start -XX:SharedArchiveFile="$WORK/fast-start/executor.jsa" "${FAST_OPTIONS[@]}" -jar "$FAST_JAR"
+
+DEFAULT_MEDIAN=$(median default)
+FAST_MEDIAN=$(median fast-start)
+echo
+echo "Median time to first job over $RUNS runs:"
+echo "  default:    $DEFAULT_MEDIAN ms"
+echo "  fast-start: $FAST_MEDIAN ms"
+awk -v d="$DEFAULT_MEDIAN" -v f="$FAST_MEDIAN" 'BEGIN { printf "  saved:      %d ms (%.0f%%)\n", d - f, (d - f) * 100 / d }'